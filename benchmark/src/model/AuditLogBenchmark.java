@@ -0,0 +1,95 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what auditing adds to the cost of the calls it records, by timing the same reads and
+ * writes of a model with and without an {@link AuditLog}. Auditing a call only appends to the
+ * calling thread's buffer, so the target is for it to add no more than 100 ns to a read or a
+ * write, denied or not, as long as the log's background thread has a core of its own. On a
+ * single core, writing the files (about 70 bytes a call) takes turns with the benchmark thread,
+ * and its cost shows up here as well.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AuditLogBenchmark {
+
+  private static final int USER_COUNT = 1000;
+
+  @Param({"false", "true"})
+  public boolean audited;
+
+  private Path directory;
+  private AuditLog log;
+  private HRModel model;
+  private HRSession employee;
+  private double nextSalary;
+
+  @Setup(Level.Trial)
+  public void open() throws IOException {
+    model = ModelFixture.populate(USER_COUNT);
+    employee = model.openSession(ModelFixture.STANDARD_ID, ModelFixture.PASSWORD);
+    if (audited) {
+      directory = Files.createTempDirectory("hr-audit");
+      log = AuditLog.open(directory, 64L << 20, 100);
+      model.setAuditLog(log);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws IOException {
+    if (log != null) {
+      log.close();
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public double getSalary() {
+    return model.getSalary(ModelFixture.STANDARD_ID);
+  }
+
+  @Benchmark
+  public void setSalary() {
+    nextSalary = nextSalary > 100000 ? 0 : nextSalary + 1;
+    model.setSalary(ModelFixture.STANDARD_ID, nextSalary);
+  }
+
+  @Benchmark
+  public boolean deniedSetSalary() {
+    try {
+      employee.setSalary(ModelFixture.MANAGER_ID, 0);
+      return true;
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+  }
+}
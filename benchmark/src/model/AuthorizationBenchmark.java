@@ -0,0 +1,79 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the permission checks made on the read path of {@link HRModel}, for each kind
+ * of non-administrator caller. {@link BenchmarkRunner} runs these with JMH's GC profiler, so the
+ * results include {@code gc.alloc.rate.norm}, the number of bytes allocated per operation; for
+ * {@link #cachedRead()} and {@link #uncachedRead()} this should be zero, since a permission
+ * decision is a constant and only a denial builds an exception. {@link #deniedRead()} measures
+ * that denial path for comparison.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AuthorizationBenchmark {
+
+  @Param({"1000", "1000000"})
+  public int userCount;
+
+  @Param({"Human Resources", "Manager", "Standard Employee"})
+  public String caller;
+
+  // An HR employee outside the first team, whose information only an administrator (or they
+  // themselves) can read
+  private static final int DENIED_TARGET_ID = ModelFixture.HUMAN_RESOURCES_ID + 20;
+
+  private HRModel model;
+  private HRSession session;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    model = ModelFixture.populate(userCount);
+    session = model.openSession(ModelFixture.callerId(caller), ModelFixture.PASSWORD);
+  }
+
+  // Every caller may read the standard employee's information: the manager because the employee
+  // reports to them, HR because the employee is not in HR, and the employee because it is their
+  // own.
+  @Benchmark
+  public double cachedRead() {
+    return session.getSalary(ModelFixture.STANDARD_ID);
+  }
+
+  // Moves the target's access version on first, as every change to their role, HR status or
+  // manager does, so the decision has to be made again
+  @Benchmark
+  public double uncachedRead() {
+    model.invalidateAccess(ModelFixture.STANDARD_ID);
+    return session.getSalary(ModelFixture.STANDARD_ID);
+  }
+
+  @Benchmark
+  public boolean deniedRead() {
+    try {
+      session.getSalary(DENIED_TARGET_ID);
+      return true;
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+  }
+}
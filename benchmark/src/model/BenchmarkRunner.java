@@ -0,0 +1,42 @@
+package model;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmark module. Runs every {@code *Benchmark} class in the {@code model}
+ * package and writes the results as JSON so that runs from different builds can be compared.
+ * <p>
+ * Usage: {@code BenchmarkRunner [resultFile] [includeRegex]}. The result file defaults to {@code
+ * benchmark-results.json} and the include pattern defaults to every benchmark. The GC profiler is
+ * always enabled, so every result also reports how much each operation allocates. Annotation
+ * processing must be enabled for this module so that JMH can generate its harness classes.
+ *
+ * @author Michael Ruberto
+ */
+public class BenchmarkRunner {
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args The optional result file and include pattern.
+   * @throws RunnerException If JMH fails to run the benchmarks.
+   * @author Michael Ruberto
+   */
+  public static void main(String[] args) throws RunnerException {
+    String resultFile = args.length > 0 ? args[0] : "benchmark-results.json";
+    String include = args.length > 1 ? args[1] : "model\\..*Benchmark";
+
+    Options options = new OptionsBuilder()
+        .include(include)
+        .resultFormat(ResultFormatType.JSON)
+        .result(resultFile)
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,94 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the write throughput of an {@link HRModel} with different numbers of {@link
+ * ChangeSubscription}s, each of which takes a fixed time over every event. Since publishing an
+ * event never waits for a subscriber, throughput should barely depend on how many subscribers
+ * there are or how slow they are; the slow subscribers simply drop the events they can't keep up
+ * with. Each benchmark thread writes to its own employee.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class ChangeEventBenchmark {
+
+  private static final int USER_COUNT = 1000;
+  // How long each subscriber takes over an event
+  private static final long CONSUME_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  @Param({"0", "1", "4"})
+  public int subscribers;
+
+  private HRModel model;
+  private final List<ChangeSubscription> subscriptions = new ArrayList<ChangeSubscription>();
+  private final AtomicInteger nextTargetId = new AtomicInteger(ModelFixture.MANAGER_ID);
+
+  @Setup(Level.Trial)
+  public void open() {
+    model = new HRModel(ModelFixture.PASSWORD);
+    model.logIn(ModelFixture.ADMINISTRATOR_ID, ModelFixture.PASSWORD);
+    for (int id = 1; id <= USER_COUNT; id++) {
+      model.addEmployee("Standard Employee", "Employee " + id, ModelFixture.PASSWORD, 50000, 10,
+          1000, false);
+    }
+    for (int i = 0; i < subscribers; i++) {
+      subscriptions.add(model.subscribe(event -> {
+        long end = System.nanoTime() + CONSUME_NANOS;
+        while (System.nanoTime() < end) {
+          Thread.onSpinWait();
+        }
+      }, BackpressurePolicy.DROP_OLDEST));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    subscriptions.forEach(ChangeSubscription::close);
+  }
+
+  /**
+   * The employee written to by one benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Target {
+
+    int id;
+    double nextSalary;
+
+    @Setup(Level.Trial)
+    public void pick(ChangeEventBenchmark benchmark) {
+      id = benchmark.nextTargetId.getAndIncrement();
+    }
+  }
+
+  @Benchmark
+  public void setSalary(Target target) {
+    target.nextSalary = target.nextSalary > 100000 ? 0 : target.nextSalary + 1;
+    model.setSalary(target.id, target.nextSalary);
+  }
+}
@@ -0,0 +1,151 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the public operations of {@link HRModel}. Each operation is measured against
+ * models of 1k, 100k and 1M employees (see {@link ModelFixture} for the layout), once for every
+ * kind of caller so that each branch of the read and write permission checks is exercised.
+ * Operations a caller is not allowed to perform are still measured; they simply time the denial
+ * path.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HRModelBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int userCount;
+
+  @Param({"Administrator", "Human Resources", "Manager", "Standard Employee"})
+  public String caller;
+
+  private HRModel model;
+  private int callerId;
+  private int nextEmployeeId;
+  private int writeTargetId;
+  private int churnId;
+  private int roleId;
+  private boolean linkedToSecondManager;
+  private double nextSalary;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    model = ModelFixture.populate(userCount);
+    callerId = ModelFixture.callerId(caller);
+    nextEmployeeId = userCount + 1;
+  }
+
+  // Gives every iteration fresh employees to write to, so that salary histories and structural
+  // changes from one iteration don't leak into the next.
+  @Setup(Level.Iteration)
+  public void addScratchEmployees() {
+    model.logIn(ModelFixture.ADMINISTRATOR_ID, ModelFixture.PASSWORD);
+    writeTargetId = addStandardEmployee();
+    model.linkEmployeeAndManager(writeTargetId, ModelFixture.MANAGER_ID);
+    churnId = addStandardEmployee();
+    roleId = addStandardEmployee();
+    linkedToSecondManager = false;
+    model.logIn(callerId, ModelFixture.PASSWORD);
+  }
+
+  @TearDown(Level.Iteration)
+  public void removeScratchEmployees() {
+    model.logIn(ModelFixture.ADMINISTRATOR_ID, ModelFixture.PASSWORD);
+    model.removeUser(writeTargetId);
+    model.removeUser(churnId);
+    model.removeUser(roleId);
+  }
+
+  // Adds an unlinked standard employee and returns their ID. Employee IDs are handed out
+  // sequentially and nothing else adds employees during a run, so the ID can be tracked here.
+  private int addStandardEmployee() {
+    model.addEmployee("Standard Employee", "Scratch", ModelFixture.PASSWORD, 50000, 10, 1000,
+        false);
+    return nextEmployeeId++;
+  }
+
+  @Benchmark
+  public void logIn() {
+    model.logIn(callerId, ModelFixture.PASSWORD);
+  }
+
+  @Benchmark
+  public double getSalary() {
+    return model.getSalary(ModelFixture.STANDARD_ID);
+  }
+
+  @Benchmark
+  public boolean setSalary() {
+    nextSalary = nextSalary > 100000 ? 0 : nextSalary + 1;
+    try {
+      model.setSalary(writeTargetId, nextSalary);
+      return true;
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public Object getSalaryHistory() {
+    return model.getSalaryHistory(ModelFixture.STANDARD_ID);
+  }
+
+  @Benchmark
+  public PayrollSummary summarizePayroll() {
+    return model.summarizePayroll(null, null);
+  }
+
+  @Benchmark
+  public boolean linkEmployeeAndManager() {
+    int managerId = linkedToSecondManager ? ModelFixture.MANAGER_ID
+        : ModelFixture.SECOND_MANAGER_ID;
+    try {
+      model.linkEmployeeAndManager(writeTargetId, managerId);
+      linkedToSecondManager = !linkedToSecondManager;
+      return true;
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public boolean promoteToManagerAndBack() {
+    try {
+      model.promoteToManager(roleId);
+      model.demoteToStandard(roleId);
+      return true;
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public boolean removeUserAndReAdd() {
+    try {
+      model.removeUser(churnId);
+    } catch (IllegalStateException ise) {
+      return false;
+    }
+    churnId = addStandardEmployee();
+    return true;
+  }
+}
@@ -0,0 +1,105 @@
+package model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.http.HRService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of an {@link HRService} with 10,000 sessions open, all of which read
+ * their own salary over HTTP at once. Each invocation sends one call for every session
+ * asynchronously, keeping up to {@code inFlight} of them outstanding, and waits for every answer,
+ * so the service really sees thousands of concurrent callers rather than one per benchmark thread.
+ * Throughput is reported in calls. Calls the service turns away for being too busy are counted
+ * too, since shedding them quickly is part of what is being measured.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(1)
+public class HRServiceBenchmark {
+
+  private static final int SESSION_COUNT = 10000;
+
+  @Param({"16", "256"})
+  public int workers;
+
+  @Param({"1000", "10000"})
+  public int inFlight;
+
+  private HRModel model;
+  private HRService service;
+  private HttpClient client;
+  private HttpRequest[] requests;
+
+  @Setup(Level.Trial)
+  public void start() throws IOException {
+    model = ModelFixture.populate(SESSION_COUNT);
+    // Room for every outstanding call to wait, so that only a slow service turns calls away
+    service = HRService.start(model, new InetSocketAddress("127.0.0.1", 0), workers, inFlight,
+        Duration.ofSeconds(5));
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    URI uri = URI.create("http://127.0.0.1:" + service.getAddress().getPort() + "/getSalary");
+    requests = new HttpRequest[SESSION_COUNT];
+    for (int id = 1; id <= SESSION_COUNT; id++) {
+      HRSession session = model.openSession(id, ModelFixture.PASSWORD);
+      requests[id - 1] = HttpRequest.newBuilder(uri)
+          .header("Authorization", "Bearer " + session.getToken())
+          .POST(HttpRequest.BodyPublishers.ofString("{\"id\": " + id + "}")).build();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    service.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SESSION_COUNT)
+  public int getSalary() throws InterruptedException {
+    Semaphore outstanding = new Semaphore(inFlight);
+    CountDownLatch answered = new CountDownLatch(SESSION_COUNT);
+    AtomicInteger served = new AtomicInteger();
+    for (HttpRequest request : requests) {
+      outstanding.acquire();
+      client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, failure) -> {
+            if (response != null && response.statusCode() == 200) {
+              served.incrementAndGet();
+            }
+            outstanding.release();
+            answered.countDown();
+          });
+    }
+    answered.await();
+    return served.get();
+  }
+}
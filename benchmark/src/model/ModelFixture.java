@@ -0,0 +1,80 @@
+package model;
+
+import model.users.Administrator;
+
+/**
+ * Builds populated {@link HRModel}s for the benchmark suite. Every model uses the same layout so
+ * that results are comparable between runs and between benchmarks:
+ * <ul>
+ *   <li>ID 0 is the default {@link Administrator}.</li>
+ *   <li>Every tenth employee (IDs 1, 11, 21, ...) is a {@link model.users.Manager}, and the nine
+ *   employees after it report to them.</li>
+ *   <li>Every twentieth employee (IDs 5, 25, 45, ...) works in Human Resources.</li>
+ * </ul>
+ * All accounts share the password {@link #PASSWORD}.
+ *
+ * @author Michael Ruberto
+ */
+final class ModelFixture {
+
+  static final String PASSWORD = "Password";
+  static final int ADMINISTRATOR_ID = 0;
+  static final int MANAGER_ID = 1;
+  static final int STANDARD_ID = 3;
+  static final int HUMAN_RESOURCES_ID = 5;
+  static final int SECOND_MANAGER_ID = 11;
+
+  private ModelFixture() {
+  }
+
+  /**
+   * Creates a model containing the default administrator and {@code userCount} employees laid out
+   * as described above. The administrator is left logged in.
+   *
+   * @param userCount The number of employees to add.
+   * @return The populated model.
+   * @author Michael Ruberto
+   */
+  static HRModel populate(int userCount) {
+    HRModel model = new HRModel(PASSWORD);
+    model.logIn(ADMINISTRATOR_ID, PASSWORD);
+
+    int currentManager = -1;
+    for (int id = 1; id <= userCount; id++) {
+      boolean manager = id % 10 == 1;
+      boolean inHumanResources = id % 20 == 5;
+      model.addEmployee(manager ? "Manager" : "Standard Employee", "Employee " + id, PASSWORD,
+          50000 + (id % 1000) * 100, id % 30, 1000 + (id % 50) * 10, inHumanResources);
+
+      if (manager) {
+        currentManager = id;
+      } else {
+        model.linkEmployeeAndManager(id, currentManager);
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Maps a caller name used as a JMH {@code @Param} to the ID of a user of that kind.
+   *
+   * @param caller One of "Administrator", "Human Resources", "Manager" or "Standard Employee".
+   * @return The ID of a user of that kind.
+   * @throws IllegalArgumentException If the caller name is not recognised.
+   * @author Michael Ruberto
+   */
+  static int callerId(String caller) throws IllegalArgumentException {
+    switch (caller) {
+      case "Administrator":
+        return ADMINISTRATOR_ID;
+      case "Human Resources":
+        return HUMAN_RESOURCES_ID;
+      case "Manager":
+        return MANAGER_ID;
+      case "Standard Employee":
+        return STANDARD_ID;
+      default:
+        throw new IllegalArgumentException("Unknown caller: " + caller);
+    }
+  }
+}
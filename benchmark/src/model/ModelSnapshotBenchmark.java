@@ -0,0 +1,72 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what an open {@link ModelSnapshot} costs the writers it runs alongside, and what reading
+ * every user through one costs. With a snapshot open, only the first change to each user after it
+ * was opened keeps an older state, so a run of changes to the same user should cost the same as
+ * with no snapshot open at all.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ModelSnapshotBenchmark {
+
+  private static final int USER_COUNT = 100000;
+
+  @Param({"false", "true"})
+  public boolean snapshotOpen;
+
+  private HRModel model;
+  private ModelSnapshot snapshot;
+  private double nextSalary;
+
+  @Setup(Level.Trial)
+  public void open() {
+    model = ModelFixture.populate(USER_COUNT);
+    if (snapshotOpen) {
+      snapshot = model.openSnapshot();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    if (snapshot != null) {
+      snapshot.close();
+    }
+  }
+
+  @Benchmark
+  public void setSalary() {
+    nextSalary = nextSalary > 100000 ? 0 : nextSalary + 1;
+    model.setSalary(ModelFixture.STANDARD_ID, nextSalary);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public PayrollSummary summarizePayroll() {
+    if (snapshot == null) {
+      return model.summarizePayroll(null, null);
+    }
+    return snapshot.summarizePayroll(null, null);
+  }
+}
@@ -0,0 +1,84 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import model.users.AEmployee;
+import model.users.ColumnTotals;
+import model.users.EmployeeColumns;
+import model.users.Manager;
+import model.users.StandardEmployee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a whole-company payroll scan over employee objects with the same scan over the columns
+ * of an {@link EmployeeColumns} store.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PayrollScanBenchmark {
+
+  @Param({"1000000", "10000000"})
+  public int employeeCount;
+
+  private List<AEmployee> objects;
+  private EmployeeColumns columns;
+
+  @Setup
+  public void populate() {
+    objects = new ArrayList<AEmployee>(employeeCount);
+    columns = new EmployeeColumns();
+    for (int i = 1; i <= employeeCount; i++) {
+      AEmployee employee = i % 10 == 1
+          ? new Manager(i, "Employee", "Password", 50000 + i % 1000, i % 30, 1000, i % 20 == 5)
+          : new StandardEmployee(i, "Employee", "Password", 50000 + i % 1000, i % 30, 1000,
+              i % 20 == 5);
+      objects.add(employee);
+    }
+
+    // Attach a second set of employees so that the object scan isn't reading through columns
+    for (int i = 1; i <= employeeCount; i++) {
+      new StandardEmployee(employeeCount + i, "Employee", "Password", 50000 + i % 1000, i % 30,
+          1000, i % 20 == 5).attachColumns(columns);
+    }
+  }
+
+  @Benchmark
+  public ColumnTotals scanObjects() {
+    ColumnTotals totals = new ColumnTotals();
+    for (AEmployee employee : objects) {
+      totals.add(employee.getSalary(), employee.getVacationBalance(), employee.getAnnualBonus());
+    }
+    return totals;
+  }
+
+  @Benchmark
+  public ColumnTotals scanColumns() {
+    ColumnTotals totals = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), 0, 0, totals);
+    return totals;
+  }
+
+  @Benchmark
+  public ColumnTotals scanColumnsNonHumanResources() {
+    ColumnTotals totals = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), EmployeeColumns.IN_HUMAN_RESOURCES, 0, totals);
+    return totals;
+  }
+}
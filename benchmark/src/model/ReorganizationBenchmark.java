@@ -0,0 +1,76 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares moving a whole team from one manager to another with {@link
+ * HRModel#reassignReports(int, int)} against linking each report to the new manager in turn. Each
+ * call moves the team back to the manager it isn't with, so every call moves every report.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReorganizationBenchmark {
+
+  private static final int USER_COUNT = 100000;
+
+  @Param({"10", "5000"})
+  public int teamSize;
+
+  private HRModel model;
+  private int firstManagerId;
+  private int secondManagerId;
+  private int[] reportIds;
+  private boolean withSecond;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    model = ModelFixture.populate(USER_COUNT);
+    model.addEmployee("Manager", "First", ModelFixture.PASSWORD, 50000, 0, 0, false);
+    firstManagerId = USER_COUNT + 1;
+    model.addEmployee("Manager", "Second", ModelFixture.PASSWORD, 50000, 0, 0, false);
+    secondManagerId = USER_COUNT + 2;
+    reportIds = new int[teamSize];
+    for (int i = 0; i < teamSize; i++) {
+      model.addEmployee("Standard Employee", "Report", ModelFixture.PASSWORD, 50000, 0, 0, false);
+      reportIds[i] = USER_COUNT + 3 + i;
+      model.linkEmployeeAndManager(reportIds[i], firstManagerId);
+    }
+  }
+
+  @Benchmark
+  public void reassignReports() {
+    if (withSecond) {
+      model.reassignReports(secondManagerId, firstManagerId);
+    } else {
+      model.reassignReports(firstManagerId, secondManagerId);
+    }
+    withSecond = !withSecond;
+  }
+
+  @Benchmark
+  public void linkEachReport() {
+    int managerId = withSecond ? firstManagerId : secondManagerId;
+    for (int id : reportIds) {
+      model.linkEmployeeAndManager(id, managerId);
+    }
+    withSecond = !withSecond;
+  }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.users.SalaryTimeSeries;
+import model.users.StandardEmployee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the memory taken by a compressed {@link SalaryTimeSeries} with the {@code
+ * ArrayList<Double>} salary histories were once kept in, and measures the time-based queries. The
+ * {@code build} benchmarks each record {@code changes} salaries, so their {@code
+ * gc.alloc.rate.norm} (reported by the GC profiler the runner always enables) is the memory one
+ * history of that length costs, growth included. The {@code ArrayList} doesn't even hold the
+ * timestamps the time series does.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SalaryTimeSeriesBenchmark {
+
+  // About a year and a half of raises a month apart, starting in November 2023
+  private static final long START = 1_700_000_000_000L;
+  private static final long MONTH = 30L * 86_400_000;
+
+  @Param({"16", "1024"})
+  public int changes;
+
+  private SalaryTimeSeries timeSeries;
+
+  @Setup
+  public void setUp() {
+    timeSeries = buildTimeSeries();
+  }
+
+  // The salary after the given number of raises
+  private static double salary(int raise) {
+    return 50000 + 250 * raise + (raise % 7 == 0 ? 0.5 : 0);
+  }
+
+  @Benchmark
+  public List<Double> buildArrayList() {
+    List<Double> history = new ArrayList<Double>();
+    for (int i = 0; i < changes; i++) {
+      history.add(salary(i));
+    }
+    return history;
+  }
+
+  @Benchmark
+  public SalaryTimeSeries buildTimeSeries() {
+    StandardEmployee employee = new StandardEmployee(1, "Employee", "Password", salary(0), 0, 0,
+        false, START);
+    for (int i = 1; i < changes; i++) {
+      employee.setSalary(salary(i), START + i * MONTH);
+    }
+    return employee.getSalaryTimeSeries();
+  }
+
+  @Benchmark
+  public double amountAsOf() {
+    long time = START + ThreadLocalRandom.current().nextLong(changes * MONTH);
+    return timeSeries.amountAsOf(time);
+  }
+
+  @Benchmark
+  public Object changesBetween() {
+    long from = START + ThreadLocalRandom.current().nextLong(changes * MONTH);
+    return timeSeries.changesBetween(from, from + 3 * MONTH);
+  }
+}
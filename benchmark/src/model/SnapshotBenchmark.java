@@ -0,0 +1,62 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cold-start time of an {@link HRModel} loaded from a snapshot with one rebuilt
+ * through {@code addEmployee} and {@code linkEmployeeAndManager} calls (which is what replaying a
+ * {@link WriteAheadLog} amounts to). Each start-up is timed once per iteration, since a start-up is
+ * a one-off cost rather than something done in a loop.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int userCount;
+
+  private Path file;
+
+  @Setup(Level.Trial)
+  public void writeSnapshot() throws Exception {
+    file = Files.createTempFile("hr-benchmark", ".snapshot");
+    ModelFixture.populate(userCount).writeSnapshot(file).get();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteSnapshot() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public HRModel loadSnapshot() throws IOException {
+    return HRModel.loadSnapshot(file, StorageMode.OBJECTS);
+  }
+
+  @Benchmark
+  public HRModel rebuild() {
+    return ModelFixture.populate(userCount);
+  }
+}
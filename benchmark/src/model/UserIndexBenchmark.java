@@ -0,0 +1,93 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import model.users.IUser;
+import model.users.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares finding users through the model's secondary indexes with scanning every user, as
+ * callers had to before the indexes existed. The administrator is logged in, so every match is
+ * readable and the two approaches return the same users.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserIndexBenchmark {
+
+  @Param({"1000", "100000"})
+  public int userCount;
+
+  private HRModel model;
+
+  @Setup
+  public void setUp() {
+    model = ModelFixture.populate(userCount);
+  }
+
+  @Benchmark
+  public List<Integer> salaryRangeIndexed() {
+    return model.findEmployeesBySalary(60000, 60500);
+  }
+
+  @Benchmark
+  public List<Integer> salaryRangeScan() {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (IUser user : model.getUsers().values()) {
+      if (user.hasRole(Role.EMPLOYEE) && user.getSalary() >= 60000 && user.getSalary() <= 60500) {
+        ids.add(user.getId());
+      }
+    }
+    return ids;
+  }
+
+  @Benchmark
+  public List<Integer> humanResourcesIndexed() {
+    return model.findUsersWithRoles(Role.HUMAN_RESOURCES);
+  }
+
+  @Benchmark
+  public List<Integer> humanResourcesScan() {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (IUser user : model.getUsers().values()) {
+      if (user.hasRole(Role.HUMAN_RESOURCES)) {
+        ids.add(user.getId());
+      }
+    }
+    return ids;
+  }
+
+  @Benchmark
+  public List<Integer> namePrefixIndexed() {
+    return model.findUsersByName("Employee 4242");
+  }
+
+  @Benchmark
+  public List<Integer> namePrefixScan() {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (IUser user : model.getUsers().values()) {
+      if (user.getName().toLowerCase(Locale.ROOT).startsWith("employee 4242")) {
+        ids.add(user.getId());
+      }
+    }
+    return ids;
+  }
+}
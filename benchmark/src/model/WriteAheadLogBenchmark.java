@@ -0,0 +1,90 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the write throughput of an {@link HRModel} which records its changes in a {@link
+ * WriteAheadLog}, for different group commit batch sizes. Since appending to the log never waits
+ * for the disk, throughput should barely depend on the batch size, even at a batch size of 1 (where
+ * the log is forced to disk as often as the background thread can manage). Each benchmark thread
+ * writes to its own employee, so the threads only contend on the log.
+ *
+ * @author Michael Ruberto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class WriteAheadLogBenchmark {
+
+  private static final int USER_COUNT = 1000;
+  private static final long SYNC_INTERVAL_MILLIS = 10;
+
+  @Param({"1", "64", "1024"})
+  public int syncBatchSize;
+
+  private Path file;
+  private WriteAheadLog log;
+  private HRModel model;
+  private final AtomicInteger nextTargetId = new AtomicInteger(ModelFixture.MANAGER_ID);
+
+  @Setup(Level.Trial)
+  public void open() throws IOException {
+    file = Files.createTempFile("hr-benchmark", ".log");
+    log = WriteAheadLog.open(file, SYNC_INTERVAL_MILLIS, syncBatchSize);
+    model = new HRModel(ModelFixture.PASSWORD, StorageMode.OBJECTS, log);
+    model.logIn(ModelFixture.ADMINISTRATOR_ID, ModelFixture.PASSWORD);
+    for (int id = 1; id <= USER_COUNT; id++) {
+      model.addEmployee("Standard Employee", "Employee " + id, ModelFixture.PASSWORD, 50000, 10,
+          1000, false);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws IOException {
+    log.close();
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * The employee written to by one benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Target {
+
+    int id;
+    double nextSalary;
+
+    @Setup(Level.Trial)
+    public void pick(WriteAheadLogBenchmark benchmark) {
+      id = benchmark.nextTargetId.getAndIncrement();
+    }
+  }
+
+  @Benchmark
+  public void setSalary(Target target) {
+    target.nextSalary = target.nextSalary > 100000 ? 0 : target.nextSalary + 1;
+    model.setSalary(target.id, target.nextSalary);
+  }
+}
@@ -0,0 +1,154 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the permission decisions made for one {@link HRSession}: whether the session's user
+ * may read, or may edit, the information of a given target user. Dashboards tend to read the same
+ * employees over and over, so once a decision has been made it is answered with a single lookup
+ * until something it depends on changes.
+ * <p>
+ * The cache is a fixed-size, direct-mapped table of {@code long} entries, so looking a decision up
+ * never allocates or locks. Each entry packs the target's ID, whether the decision was for reading
+ * or writing, the {@link AccessDecision} which was made, and the access version it was made at.
+ * <p>
+ * A change to the model which can affect who may access whom doesn't touch any cache; it just
+ * moves on the access version of the users it changed, which costs the same however many sessions
+ * are open. A decision's version is the sum of the caller's and the target's versions and the
+ * model's access epoch, read before the decision is made, so an entry is only a hit while none of
+ * them has moved on since: a change to one user only costs a miss on the decisions which involve
+ * them. The epoch is the coarse part. It moves on when transitive manager access is turned on or
+ * off, and for every manager link while it is on, since a link then changes who is underneath
+ * everyone above the employee. With transitive access on, a reorganization therefore empties every
+ * session's cache; the default, direct access, only misses on the employees who were moved.
+ * <p>
+ * Only the low {@value #VERSION_BITS} bits of the version are kept in an entry, so an entry which
+ * isn't looked up while exactly a multiple of 2<sup>{@value #VERSION_BITS}</sup> changes are made
+ * to its users could be mistaken for a current one. A decision made while a change was being made
+ * is stored with the version from before it, so it never outlives the change.
+ *
+ * @author Michael Ruberto
+ */
+final class AccessCache {
+
+  private static final int SIZE = 1024;
+  private static final long ID_MASK = 0xFFFFFFFFL;
+  private static final long WRITE = 1L << 32;
+  private static final int DECISION_SHIFT = 33;
+  private static final long DECISION_MASK = 3L << DECISION_SHIFT;
+  private static final long VALID = 1L << 35;
+  private static final int VERSION_SHIFT = 36;
+  private static final int VERSION_BITS = Long.SIZE - VERSION_SHIFT;
+
+  private final AtomicLongArray entries;
+  private final LongAdder hits;
+  private final LongAdder misses;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @author Michael Ruberto
+   */
+  AccessCache() {
+    entries = new AtomicLongArray(SIZE);
+    hits = new LongAdder();
+    misses = new LongAdder();
+  }
+
+  // Finds the slot for a decision. The read and write decisions for a target are kept in a pair of
+  // neighbouring slots, so that they don't push each other out.
+  private static int slot(int targetId, boolean write) {
+    int hash = targetId * 0x9E3779B9;
+    hash ^= hash >>> 16;
+    return ((hash << 1) | (write ? 1 : 0)) & (SIZE - 1);
+  }
+
+  /**
+   * Gets the entry currently stored where the decision for the given target would be. The entry
+   * must then be checked with {@link #isHit(long, int, boolean, long)}.
+   *
+   * @param targetId The ID of the user whose information is being accessed.
+   * @param write    Whether the access is to edit (rather than read) the information.
+   * @return The entry in the decision's slot.
+   * @author Michael Ruberto
+   */
+  long get(int targetId, boolean write) {
+    return entries.get(slot(targetId, write));
+  }
+
+  /**
+   * Does the given entry hold the decision for the given target, made at the given access version?
+   * Counts the lookup as a hit or a miss.
+   *
+   * @param entry    The entry returned by {@link #get(int, boolean)}.
+   * @param targetId The ID of the user whose information is being accessed.
+   * @param write    Whether the access is to edit (rather than read) the information.
+   * @param version  The access version of the caller and the target, as it is now.
+   * @return Whether or not the entry holds the decision.
+   * @author Michael Ruberto
+   */
+  boolean isHit(long entry, int targetId, boolean write, long version) {
+    boolean hit = (entry & VALID) != 0 && (int) (entry & ID_MASK) == targetId
+        && ((entry & WRITE) != 0) == write && entry >>> VERSION_SHIFT == stamp(version);
+    if (hit) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return hit;
+  }
+
+  /**
+   * Gets the decision held in the given entry.
+   *
+   * @param entry An entry which holds a decision.
+   * @return The decision.
+   * @author Michael Ruberto
+   */
+  static AccessDecision decision(long entry) {
+    return AccessDecision.fromOrdinal((int) ((entry & DECISION_MASK) >>> DECISION_SHIFT));
+  }
+
+  /**
+   * Stores a decision, in place of whatever was in its slot. A decision stored with a version which
+   * has since moved on is simply never a hit.
+   *
+   * @param targetId The ID of the user whose information is being accessed.
+   * @param write    Whether the access is to edit (rather than read) the information.
+   * @param decision The decision which was made.
+   * @param version  The access version of the caller and the target, read before the decision was
+   *                 made.
+   * @author Michael Ruberto
+   */
+  void store(int targetId, boolean write, AccessDecision decision, long version) {
+    long entry = (stamp(version) << VERSION_SHIFT) | VALID | (targetId & ID_MASK)
+        | (write ? WRITE : 0) | ((long) decision.ordinal() << DECISION_SHIFT);
+    entries.set(slot(targetId, write), entry);
+  }
+
+  // Keeps the bits of an access version which fit in an entry.
+  private static long stamp(long version) {
+    return version & ((1L << VERSION_BITS) - 1);
+  }
+
+  /**
+   * Gets how many lookups were answered by this cache.
+   *
+   * @return The number of hits.
+   * @author Michael Ruberto
+   */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets how many lookups had to work the decision out.
+   *
+   * @return The number of misses.
+   * @author Michael Ruberto
+   */
+  long getMisses() {
+    return misses.sum();
+  }
+}
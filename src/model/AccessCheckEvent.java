@@ -0,0 +1,93 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import model.users.IUser;
+
+/**
+ * A Java Flight Recorder event for a permission check made by an {@link HRModel}: who wanted what
+ * kind of access to whom, what was decided, and whether the decision came from the session's
+ * {@link AccessCache}.
+ * <p>
+ * Permission checks are made for every call, and for every user a lookup finds, so the event,
+ * named {@value #NAME}, is off unless a recording's settings turn it on. While it is off, the
+ * checks cost what they did without it.
+ *
+ * @author Michael Ruberto
+ */
+@Name(AccessCheckEvent.NAME)
+@Label("HR Model Access Check")
+@Category("HR Model")
+@Description("A permission check made by an HRModel")
+@Enabled(false)
+@StackTrace(false)
+final class AccessCheckEvent extends Event {
+
+  /**
+   * The name the event is recorded under.
+   */
+  static final String NAME = "model.AccessCheck";
+
+  // The kinds of access which are checked
+  static final String READ = "READ";
+  static final String WRITE = "WRITE";
+  static final String ADMINISTRATOR = "ADMINISTRATOR";
+
+  @Label("Caller ID")
+  @Description("The ID of the user asking for access, or the lowest int if nobody was logged in")
+  private int callerId;
+
+  @Label("Target ID")
+  @Description("The ID of the user access was asked for, or the lowest int for none")
+  private int targetId;
+
+  @Label("Access")
+  @Description("READ, WRITE or ADMINISTRATOR")
+  private String access;
+
+  @Label("Decision")
+  private String decision;
+
+  @Label("Cached")
+  @Description("Whether the decision was found in the session's access cache")
+  private boolean cached;
+
+  /**
+   * Starts timing a permission check.
+   *
+   * @return The check's event.
+   * @author Michael Ruberto
+   */
+  static AccessCheckEvent start() {
+    AccessCheckEvent event = new AccessCheckEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the permission check, and records it if it is being recorded.
+   *
+   * @param caller   The user asking for access, or {@code null} if nobody is logged in.
+   * @param targetId The ID of the user access was asked for, or {@link AuditLog#NO_USER}.
+   * @param access   The kind of access asked for.
+   * @param decision What was decided.
+   * @param cached   Whether the decision came from the session's access cache.
+   * @author Michael Ruberto
+   */
+  void end(IUser caller, int targetId, String access, AccessDecision decision, boolean cached) {
+    end();
+    if (shouldCommit()) {
+      this.callerId = caller == null ? AuditLog.NO_USER : caller.getId();
+      this.targetId = targetId;
+      this.access = access;
+      this.decision = decision.name();
+      this.cached = cached;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import model.users.IUser;
+
+/**
+ * The outcome of a permission check: either access is allowed, or it is denied for a particular
+ * reason. Permission checks return one of these constants rather than throwing, so that deciding
+ * never allocates; only when a denial reaches the public API is it turned into an exception with
+ * {@link #toException(IUser)}.
+ *
+ * @author Michael Ruberto
+ */
+enum AccessDecision {
+
+  /**
+   * Access is allowed.
+   */
+  ALLOWED,
+
+  /**
+   * Access is denied because nobody is logged in.
+   */
+  NOT_LOGGED_IN,
+
+  /**
+   * Access is denied because the action can only be performed by an administrator.
+   */
+  NOT_ADMINISTRATOR,
+
+  /**
+   * Access is denied because the caller has no permission over the target user.
+   */
+  NOT_PERMITTED;
+
+  private static final AccessDecision[] VALUES = values();
+
+  /**
+   * Was access allowed?
+   *
+   * @return Whether or not this decision allows access.
+   * @author Michael Ruberto
+   */
+  boolean isAllowed() {
+    return this == ALLOWED;
+  }
+
+  /**
+   * Gets the decision with the given ordinal, without copying the array of constants.
+   *
+   * @param ordinal The decision's ordinal.
+   * @return The decision.
+   * @author Michael Ruberto
+   */
+  static AccessDecision fromOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
+
+  /**
+   * Builds the exception to throw for this decision, if it is a denial.
+   *
+   * @param caller The user who was denied access, or {@code null} if nobody is logged in.
+   * @return The exception describing why access was denied.
+   * @throws IllegalStateException If this decision allows access.
+   * @author Michael Ruberto
+   */
+  IllegalStateException toException(IUser caller) throws IllegalStateException {
+    switch (this) {
+      case NOT_LOGGED_IN:
+        return new IllegalStateException("You must log in to perform this action.");
+      case NOT_ADMINISTRATOR:
+      case NOT_PERMITTED:
+        return new IllegalStateException("The current user (" + caller.getName()
+            + ") does not have permission to perform this action.");
+      default:
+        throw new IllegalStateException("Access was allowed.");
+    }
+  }
+}
@@ -0,0 +1,471 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An audit trail of every call made to an {@link HRModel} (see {@link
+ * HRModel#setAuditLog(AuditLog)}): who called which operation on whom, the value before and after
+ * the call, and whether the call was allowed or why it was denied.
+ * <p>
+ * Writing a line to a file inside every getter and setter would cost far more than the call
+ * itself, so recording a call only appends a few numbers to a buffer belonging to the calling
+ * thread, without allocating anything. When a thread's buffer fills up, it is handed to a
+ * background thread as a batch. The background thread also collects whatever the threads have
+ * buffered every {@code flushIntervalMillis} milliseconds, so that no record waits longer than
+ * that, and writes everything it has collected to the current file in one go. Callers which need
+ * the records written before they carry on can call {@link #flush()}.
+ * <p>
+ * The records are written as CSV, one line per call, with the columns {@code time, caller,
+ * target, operation, old, new, outcome}, and the time is a UTC date and time to the millisecond.
+ * A caller or target which doesn't apply (nobody logged in, or an operation which isn't about one
+ * user) and a value which doesn't apply are left empty. Reads record the value they returned as the
+ * old value. The files are named {@code audit-00001.csv}, {@code audit-00002.csv} and so on; once
+ * a file reaches {@code maxFileBytes}, the log rolls over to the next one. Within a file, the
+ * records of each thread are in the order they were made, and every record carries its own time.
+ *
+ * @author Michael Ruberto
+ */
+public final class AuditLog implements Closeable {
+
+  /**
+   * Stands for the caller when nobody is logged in, and for the target of an operation which isn't
+   * about one user.
+   */
+  static final int NO_USER = Integer.MIN_VALUE;
+
+  /**
+   * The first line of every file.
+   */
+  static final String HEADER = "time,caller,target,operation,old,new,outcome";
+
+  // The number of records each thread buffers before handing them over as a batch
+  private static final int BATCH_SIZE = 256;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final long maxFileBytes;
+  private final long flushIntervalMillis;
+  private final ThreadLocal<ThreadBuffer> buffers;
+  // Every thread's buffer, so that partly filled ones can be collected
+  private final ConcurrentLinkedQueue<ThreadBuffer> threadBuffers;
+  private final ConcurrentLinkedQueue<Batch> fullBatches;
+  private final ConcurrentLinkedQueue<Batch> freeBatches;
+  private final ReentrantLock lock;
+  private final Condition batchReady;
+  private final ReentrantLock writeLock;
+  private final Thread writerThread;
+
+  private volatile boolean closed;
+  // Guarded by lock
+  private IOException failure;
+
+  // Guarded by writeLock
+  private OutputStream out;
+  private int fileNumber;
+  private long fileBytes;
+  private final StringBuilder line;
+  // The lines waiting to be written to the current file, as ASCII
+  private final byte[] output;
+  private int outputSize;
+  // The second the last record was made in, and its formatted date and time, since most records in
+  // a batch share one
+  private long lastSecond;
+  private String lastSecondText;
+
+  private AuditLog(Path directory, long maxFileBytes, long flushIntervalMillis, int fileNumber) {
+    this.directory = directory;
+    this.maxFileBytes = maxFileBytes;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.buffers = ThreadLocal.withInitial(this::register);
+    this.threadBuffers = new ConcurrentLinkedQueue<ThreadBuffer>();
+    this.fullBatches = new ConcurrentLinkedQueue<Batch>();
+    this.freeBatches = new ConcurrentLinkedQueue<Batch>();
+    this.lock = new ReentrantLock();
+    this.batchReady = lock.newCondition();
+    this.writeLock = new ReentrantLock();
+    this.fileNumber = fileNumber;
+    this.line = new StringBuilder();
+    this.output = new byte[OUTPUT_BUFFER_SIZE];
+    this.lastSecond = Long.MIN_VALUE;
+    this.writerThread = new Thread(this::runWriter, "audit-log-writer");
+    this.writerThread.setDaemon(true);
+  }
+
+  /**
+   * Opens an audit log which writes its files to the given directory, creating the directory if it
+   * doesn't exist. The log carries on from the highest-numbered file already in the directory, and
+   * starts a new file.
+   *
+   * @param directory           The directory holding the files.
+   * @param maxFileBytes        The size, in bytes, at which the log rolls over to a new file.
+   * @param flushIntervalMillis The longest time, in milliseconds, a record may wait before it is
+   *                            written.
+   * @return The open log.
+   * @throws IllegalArgumentException If the directory is {@code null}, or if the file size or
+   *                                  interval is not positive.
+   * @throws IOException              If the directory can't be created or read.
+   * @author Michael Ruberto
+   */
+  public static AuditLog open(Path directory, long maxFileBytes, long flushIntervalMillis)
+      throws IllegalArgumentException, IOException {
+    //VALIDATING INPUTS
+    if (directory == null) {
+      throw new IllegalArgumentException("The audit directory cannot be null.");
+    }
+    if (maxFileBytes <= 0 || flushIntervalMillis <= 0) {
+      throw new IllegalArgumentException("The file size and flush interval must be positive.");
+    }
+
+    Files.createDirectories(directory);
+    int lastFile = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "audit-*.csv")) {
+      for (Path file : files) {
+        lastFile = Math.max(lastFile, fileNumber(file));
+      }
+    }
+    AuditLog log = new AuditLog(directory, maxFileBytes, flushIntervalMillis, lastFile);
+    log.writerThread.start();
+    return log;
+  }
+
+  // Gets the number in the name of an audit file, or 0 if the name has no number.
+  private static int fileNumber(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Integer.parseInt(name.substring("audit-".length(), name.length() - ".csv".length()));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Gets the path of the file with the given number.
+   *
+   * @param number The file's number.
+   * @return The file's path.
+   * @author Michael Ruberto
+   */
+  Path file(int number) {
+    return directory.resolve(String.format("audit-%05d.csv", number));
+  }
+
+  /**
+   * Records a call. Nothing is allocated and no lock is contended unless the calling thread's
+   * buffer is full, in which case it is handed to the background thread. Calls recorded once the
+   * log is closed are ignored.
+   *
+   * @param time      When the call was made, in milliseconds since the epoch.
+   * @param callerId  The ID of the user who made the call, or {@link #NO_USER}.
+   * @param operation The operation called.
+   * @param targetId  The ID of the user the operation was about, or {@link #NO_USER}.
+   * @param oldValue  The value before the call (or the value read), or {@code NaN}.
+   * @param newValue  The value after the call, or {@code NaN}.
+   * @param outcome   Whether the call was allowed, or why it was denied.
+   * @author Michael Ruberto
+   */
+  void record(long time, int callerId, ModelOperation operation, int targetId, double oldValue,
+      double newValue, AccessDecision outcome) {
+    if (closed) {
+      return;
+    }
+    ThreadBuffer buffer = buffers.get();
+    Batch full = null;
+    synchronized (buffer) {
+      Batch batch = buffer.batch;
+      int i = batch.size++;
+      batch.times[i] = time;
+      batch.callers[i] = callerId;
+      batch.operations[i] = (byte) operation.ordinal();
+      batch.targets[i] = targetId;
+      batch.oldValues[i] = oldValue;
+      batch.newValues[i] = newValue;
+      batch.outcomes[i] = (byte) outcome.ordinal();
+      if (batch.size == BATCH_SIZE) {
+        full = batch;
+        buffer.batch = freeBatch();
+      }
+    }
+    if (full != null) {
+      fullBatches.add(full);
+      lock.lock();
+      try {
+        batchReady.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  // Creates the buffer for the calling thread.
+  private ThreadBuffer register() {
+    ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread(), freeBatch());
+    threadBuffers.add(buffer);
+    return buffer;
+  }
+
+  // Gets an empty batch, reusing one which has been written if there is one.
+  private Batch freeBatch() {
+    Batch batch = freeBatches.poll();
+    return batch == null ? new Batch() : batch;
+  }
+
+  /**
+   * Writes every call recorded so far to the current file, without waiting for the background
+   * thread.
+   *
+   * @throws IOException If the file can't be written.
+   * @author Michael Ruberto
+   */
+  public void flush() throws IOException {
+    writeLock.lock();
+    try {
+      lock.lock();
+      try {
+        if (failure != null) {
+          throw failure;
+        }
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        Batch batch;
+        while ((batch = fullBatches.poll()) != null) {
+          write(batch);
+        }
+        for (ThreadBuffer buffer : threadBuffers) {
+          synchronized (buffer) {
+            batch = buffer.batch;
+            if (batch.size > 0) {
+              buffer.batch = freeBatch();
+            }
+          }
+          if (batch.size > 0) {
+            write(batch);
+          }
+          // A thread which has ended won't record anything more
+          if (!buffer.owner.isAlive()) {
+            threadBuffers.remove(buffer);
+          }
+        }
+        drainOutput();
+      } catch (IOException e) {
+        lock.lock();
+        try {
+          failure = e;
+        } finally {
+          lock.unlock();
+        }
+        throw e;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  // Writes every record in the given batch, rolling over to a new file whenever the current one is
+  // full, and puts the batch back to be reused. Must be called while holding the write lock.
+  private void write(Batch batch) throws IOException {
+    for (int i = 0; i < batch.size; i++) {
+      line.setLength(0);
+      appendTime(batch.times[i]);
+      appendUser(batch.callers[i]);
+      appendUser(batch.targets[i]);
+      line.append(ModelOperation.fromOrdinal(batch.operations[i])).append(',');
+      appendValue(batch.oldValues[i]);
+      appendValue(batch.newValues[i]);
+      line.append(AccessDecision.fromOrdinal(batch.outcomes[i])).append('\n');
+
+      if (out == null || fileBytes + line.length() > maxFileBytes) {
+        rollOver();
+      }
+      appendOutput(line);
+    }
+    batch.size = 0;
+    freeBatches.add(batch);
+  }
+
+  // Appends the given time and a comma to the line, as a UTC date and time to the millisecond.
+  private void appendTime(long time) {
+    long second = Math.floorDiv(time, 1000);
+    if (second != lastSecond) {
+      String text = Instant.ofEpochSecond(second).toString();
+      lastSecondText = text.substring(0, text.length() - 1);
+      lastSecond = second;
+    }
+    int millis = Math.floorMod(time, 1000);
+    line.append(lastSecondText).append('.')
+        .append((char) ('0' + millis / 100))
+        .append((char) ('0' + millis / 10 % 10))
+        .append((char) ('0' + millis % 10))
+        .append("Z,");
+  }
+
+  // Appends a user's ID and a comma to the line, leaving the ID out if there is no user.
+  private void appendUser(int id) {
+    if (id != NO_USER) {
+      line.append(id);
+    }
+    line.append(',');
+  }
+
+  // Appends a value and a comma to the line, leaving the value out if there is none.
+  private void appendValue(double value) {
+    if (value == (long) value && Math.abs(value) < 1e15) {
+      // Whole amounts are by far the most common, and much cheaper to format
+      line.append((long) value).append(".0");
+    } else if (!Double.isNaN(value)) {
+      line.append(value);
+    }
+    line.append(',');
+  }
+
+  // Adds the given text to the lines waiting to be written to the current file. Every character
+  // the log writes is ASCII, so each one is simply narrowed to a byte.
+  private void appendOutput(CharSequence text) throws IOException {
+    int length = text.length();
+    if (outputSize + length > output.length) {
+      drainOutput();
+    }
+    for (int i = 0; i < length; i++) {
+      output[outputSize++] = (byte) text.charAt(i);
+    }
+    fileBytes += length;
+  }
+
+  // Writes the waiting lines to the current file.
+  private void drainOutput() throws IOException {
+    if (outputSize > 0) {
+      out.write(output, 0, outputSize);
+      outputSize = 0;
+    }
+  }
+
+  // Closes the current file and starts the next one. Must be called while holding the write lock.
+  private void rollOver() throws IOException {
+    if (out != null) {
+      drainOutput();
+      out.close();
+    }
+    fileNumber++;
+    out = Files.newOutputStream(file(fileNumber), StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE);
+    fileBytes = 0;
+    appendOutput(HEADER + "\n");
+  }
+
+  // Writes the records every interval, or as soon as a batch is full, until the log is closed.
+  private void runWriter() {
+    while (true) {
+      lock.lock();
+      try {
+        if (!closed && fullBatches.isEmpty()) {
+          batchReady.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (closed) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        flush();
+      } catch (IOException e) {
+        // The failure is remembered and reported to the next caller to flush
+        return;
+      }
+    }
+  }
+
+  /**
+   * Writes every call recorded so far and closes the log. Calls recorded afterwards are not
+   * written.
+   *
+   * @throws IOException If the file can't be written or closed.
+   * @author Michael Ruberto
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      batchReady.signal();
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    writeLock.lock();
+    try {
+      flush();
+    } finally {
+      if (out != null) {
+        out.close();
+      }
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of the file currently being written.
+   *
+   * @return The file's number, or the number of the last file in the directory if nothing has been
+   *     written yet.
+   * @author Michael Ruberto
+   */
+  int getFileNumber() {
+    writeLock.lock();
+    try {
+      return fileNumber;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  // One thread's buffer of records. Only its owner appends to it, and the background thread swaps
+  // its batch out, both while holding its lock.
+  private static final class ThreadBuffer {
+
+    private final Thread owner;
+    private Batch batch;
+
+    private ThreadBuffer(Thread owner, Batch batch) {
+      this.owner = owner;
+      this.batch = batch;
+    }
+  }
+
+  // A batch of records, kept in parallel arrays so that recording a call allocates nothing.
+  private static final class Batch {
+
+    private final long[] times = new long[BATCH_SIZE];
+    private final int[] callers = new int[BATCH_SIZE];
+    private final byte[] operations = new byte[BATCH_SIZE];
+    private final int[] targets = new int[BATCH_SIZE];
+    private final double[] oldValues = new double[BATCH_SIZE];
+    private final double[] newValues = new double[BATCH_SIZE];
+    private final byte[] outcomes = new byte[BATCH_SIZE];
+    private int size;
+  }
+}
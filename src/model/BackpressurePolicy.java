@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * What happens to a {@link ChangeSubscription} which falls so far behind that the events it hasn't
+ * consumed yet no longer fit in its model's buffer. Either way, the model never waits for a slow
+ * subscriber: changes are made at the same speed whether or not anyone keeps up with them.
+ *
+ * @author Michael Ruberto
+ */
+public enum BackpressurePolicy {
+
+  /**
+   * The subscriber skips ahead to the oldest event still in the buffer, and the events it skipped
+   * are counted as dropped (see {@link ChangeSubscription#getDropped()}). Consumers which can catch
+   * up from a gap in the event numbers, for example by reading the affected users again, should
+   * use this.
+   */
+  DROP_OLDEST,
+
+  /**
+   * The subscription is closed, so that the subscriber never sees a gap in the events. Consumers
+   * which must see every change, or none, should use this, and resynchronize from scratch before
+   * subscribing again.
+   */
+  DISCONNECT
+}
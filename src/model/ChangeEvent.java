@@ -0,0 +1,320 @@
+package model;
+
+import java.time.Instant;
+
+/**
+ * A notification that an {@link HRModel} has changed, delivered to the consumers subscribed with
+ * {@link IHumanResourcesModel#subscribe(java.util.function.Consumer, BackpressurePolicy)}. There
+ * is a type of event for every operation which changes the model, and each event carries the
+ * information the operation changed. Passwords are never included, not even in hashed form.
+ * <p>
+ * Events are numbered in the order in which their changes were made, so a subscriber can tell
+ * from a gap in the numbers that it has missed some (see {@link BackpressurePolicy}). The changes
+ * to any one user always come out in the order they were made in.
+ *
+ * @author Michael Ruberto
+ */
+public final class ChangeEvent {
+
+  /**
+   * The kinds of change an event can describe.
+   */
+  public enum Type {
+
+    /**
+     * A new employee was added. The event carries their name, whether they are a manager, and all
+     * of their information.
+     */
+    EMPLOYEE_ADDED,
+
+    /**
+     * A new administrator was added. The event carries their name.
+     */
+    ADMINISTRATOR_ADDED,
+
+    /**
+     * A user was removed, which also unlinked them from their manager and their reports.
+     */
+    USER_REMOVED,
+
+    /**
+     * An employee was linked to a new manager. The event carries the manager's ID.
+     */
+    EMPLOYEE_LINKED,
+
+    /**
+     * A standard employee was promoted to be a manager.
+     */
+    PROMOTED_TO_MANAGER,
+
+    /**
+     * A manager was demoted to be a standard employee, which also moved their reports up to their
+     * own manager, or unlinked them if they had none.
+     */
+    DEMOTED_TO_STANDARD,
+
+    /**
+     * A user's Human Resources status was changed. The event carries the new status.
+     */
+    HR_STATUS_CHANGED,
+
+    /**
+     * An employee's salary was changed. The event carries the new salary.
+     */
+    SALARY_CHANGED,
+
+    /**
+     * An employee's vacation balance was changed. The event carries the new balance.
+     */
+    VACATION_BALANCE_CHANGED,
+
+    /**
+     * An employee's annual bonus was changed. The event carries the new bonus.
+     */
+    ANNUAL_BONUS_CHANGED,
+
+    /**
+     * Everyone who reported to a manager was moved to report to another. The event's user is the
+     * manager they were moved from, and it carries the ID of the manager they were moved to.
+     */
+    REPORTS_REASSIGNED,
+
+    /**
+     * One manager's team was merged into another's: everyone who reported to the manager, and the
+     * manager themselves, were moved to report to the other. The event's user is the manager whose
+     * team was merged, and it carries the ID of the manager who took it on.
+     */
+    TEAMS_MERGED,
+
+    /**
+     * Several employees, along with everyone underneath them, were moved to report to a manager.
+     * The event's user is the manager, and it carries the IDs of the employees who were moved.
+     */
+    SUBTREES_MOVED
+  }
+
+  private final long sequence;
+  private final Type type;
+  private final int userId;
+  private final int managerId;
+  private final int[] movedIds;
+  private final String name;
+  private final boolean manager;
+  private final double salary;
+  private final int vacationBalance;
+  private final double annualBonus;
+  private final boolean inHumanResources;
+  // When the change was made, in milliseconds since the epoch
+  private final long timestamp;
+
+  private ChangeEvent(long sequence, Type type, LogRecord record, long timestamp) {
+    this.sequence = sequence;
+    this.type = type;
+    this.userId = record.id;
+    this.managerId = type == Type.EMPLOYEE_LINKED || type == Type.REPORTS_REASSIGNED
+        || type == Type.TEAMS_MERGED || type == Type.SUBTREES_MOVED ? record.managerId
+        : OrgHierarchy.NO_MANAGER;
+    this.movedIds = record.ids;
+    this.name = record.name;
+    this.manager = record.manager;
+    this.salary = record.salary;
+    this.vacationBalance = record.vacationBalance;
+    this.annualBonus = record.annualBonus;
+    this.inHumanResources = record.inHumanResources;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Creates the event describing the change recorded in the given log record.
+   *
+   * @param sequence  The event's number.
+   * @param record    The change.
+   * @param timestamp When the change was made, in milliseconds since the epoch. Salary changes
+   *                  use the time recorded with the new salary instead.
+   * @return The event, or {@code null} if the record doesn't describe a change to the users.
+   * @author Michael Ruberto
+   */
+  static ChangeEvent of(long sequence, LogRecord record, long timestamp) {
+    Type type = typeOf(record.type);
+    if (type == null) {
+      return null;
+    }
+    boolean timed = type == Type.SALARY_CHANGED || type == Type.EMPLOYEE_ADDED;
+    return new ChangeEvent(sequence, type, record, timed ? record.timestamp : timestamp);
+  }
+
+  /**
+   * Gets the type of event a log record of the given type is published as.
+   *
+   * @param type The type of log record.
+   * @return The type of event, or {@code null} if records of that type aren't published.
+   * @author Michael Ruberto
+   */
+  static Type typeOf(LogRecord.Type type) {
+    switch (type) {
+      case ADD_EMPLOYEE:
+        return Type.EMPLOYEE_ADDED;
+      case ADD_ADMINISTRATOR:
+        return Type.ADMINISTRATOR_ADDED;
+      case REMOVE_USER:
+        return Type.USER_REMOVED;
+      case LINK_EMPLOYEE_AND_MANAGER:
+        return Type.EMPLOYEE_LINKED;
+      case PROMOTE_TO_MANAGER:
+        return Type.PROMOTED_TO_MANAGER;
+      case DEMOTE_TO_STANDARD:
+        return Type.DEMOTED_TO_STANDARD;
+      case CHANGE_HR_STATUS:
+        return Type.HR_STATUS_CHANGED;
+      case SET_SALARY:
+        return Type.SALARY_CHANGED;
+      case SET_VACATION_BALANCE:
+        return Type.VACATION_BALANCE_CHANGED;
+      case SET_ANNUAL_BONUS:
+        return Type.ANNUAL_BONUS_CHANGED;
+      case REASSIGN_REPORTS:
+        return Type.REPORTS_REASSIGNED;
+      case MERGE_TEAMS:
+        return Type.TEAMS_MERGED;
+      case MOVE_SUBTREES:
+        return Type.SUBTREES_MOVED;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Gets this event's number. Events are numbered one after another in the order in which their
+   * changes were made.
+   *
+   * @return The event's number.
+   * @author Michael Ruberto
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Gets the kind of change this event describes.
+   *
+   * @return The event's type.
+   * @author Michael Ruberto
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the ID of the user who was changed.
+   *
+   * @return The user's ID.
+   * @author Michael Ruberto
+   */
+  public int getUserId() {
+    return userId;
+  }
+
+  /**
+   * Gets the ID of the manager an employee, or a group of employees, was moved to.
+   *
+   * @return The manager's ID, or {@link OrgHierarchy#NO_MANAGER} unless this is an {@link
+   *     Type#EMPLOYEE_LINKED}, {@link Type#REPORTS_REASSIGNED}, {@link Type#TEAMS_MERGED} or
+   *     {@link Type#SUBTREES_MOVED} event.
+   * @author Michael Ruberto
+   */
+  public int getManagerId() {
+    return managerId;
+  }
+
+  /**
+   * Gets the IDs of the employees who were moved, along with everyone underneath them.
+   *
+   * @return The employees' IDs, which are empty unless this is a {@link Type#SUBTREES_MOVED}
+   *     event.
+   * @author Michael Ruberto
+   */
+  public int[] getMovedIds() {
+    return movedIds == null ? new int[0] : movedIds.clone();
+  }
+
+  /**
+   * Gets the name of the user who was added.
+   *
+   * @return The user's name, or {@code null} unless this event is for a new user.
+   * @author Michael Ruberto
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Was the employee who was added a manager?
+   *
+   * @return Whether or not the new employee is a manager; {@code false} unless this is an {@link
+   *     Type#EMPLOYEE_ADDED} event.
+   * @author Michael Ruberto
+   */
+  public boolean isManager() {
+    return manager;
+  }
+
+  /**
+   * Gets the employee's new salary.
+   *
+   * @return The salary, or 0 unless this is an {@link Type#EMPLOYEE_ADDED} or {@link
+   *     Type#SALARY_CHANGED} event.
+   * @author Michael Ruberto
+   */
+  public double getSalary() {
+    return salary;
+  }
+
+  /**
+   * Gets the employee's new vacation balance.
+   *
+   * @return The vacation balance, or 0 unless this is an {@link Type#EMPLOYEE_ADDED} or {@link
+   *     Type#VACATION_BALANCE_CHANGED} event.
+   * @author Michael Ruberto
+   */
+  public int getVacationBalance() {
+    return vacationBalance;
+  }
+
+  /**
+   * Gets the employee's new annual bonus.
+   *
+   * @return The annual bonus, or 0 unless this is an {@link Type#EMPLOYEE_ADDED} or {@link
+   *     Type#ANNUAL_BONUS_CHANGED} event.
+   * @author Michael Ruberto
+   */
+  public double getAnnualBonus() {
+    return annualBonus;
+  }
+
+  /**
+   * Is the user now in Human Resources?
+   *
+   * @return The user's new Human Resources status; {@code false} unless this is an {@link
+   *     Type#EMPLOYEE_ADDED} or {@link Type#HR_STATUS_CHANGED} event.
+   * @author Michael Ruberto
+   */
+  public boolean isInHumanResources() {
+    return inHumanResources;
+  }
+
+  /**
+   * Gets when the change was made. For new employees and salary changes, this is when the salary
+   * took effect.
+   *
+   * @return The time of the change.
+   * @author Michael Ruberto
+   */
+  public Instant getTime() {
+    return Instant.ofEpochMilli(timestamp);
+  }
+
+  @Override
+  public String toString() {
+    return "#" + sequence + " " + type + " " + userId;
+  }
+}
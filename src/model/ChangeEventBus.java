@@ -0,0 +1,149 @@
+package model;
+
+import java.time.Clock;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the changes made to an {@link HRModel} to its {@link ChangeSubscription}s. Every event
+ * is written once into a fixed-size ring buffer shared by all of the subscriptions, and each
+ * subscription's own thread reads the ring at its own pace, from its own position. Publishing an
+ * event is a counter increment and an array write, plus a wake-up for subscribers which have run
+ * out of events, so it costs the same however many subscribers there are and however far behind
+ * they are. With nobody subscribed, it costs a single check.
+ * <p>
+ * Events are published from whichever thread made the change, possibly from several at once. Each
+ * publisher claims the next number, and writes its event into the slot that number maps to unless
+ * a later event has already been written there. A subscriber which finds a later event than the
+ * one it expected in a slot has been lapped, and its {@link BackpressurePolicy} decides what
+ * happens next.
+ *
+ * @author Michael Ruberto
+ */
+final class ChangeEventBus {
+
+  /**
+   * The number of events the ring buffer holds, unless another capacity is given.
+   */
+  static final int DEFAULT_CAPACITY = 4096;
+
+  private final AtomicReferenceArray<ChangeEvent> ring;
+  private final int mask;
+  // The number of the next event to be published
+  private final AtomicLong next;
+  private final CopyOnWriteArrayList<ChangeSubscription> subscriptions;
+  private final AtomicInteger threadNumber;
+
+  /**
+   * Constructs a bus whose ring buffer holds the given number of events.
+   *
+   * @param capacity The number of events in the ring buffer, which must be a power of two.
+   * @throws IllegalArgumentException If the capacity is not a positive power of two.
+   * @author Michael Ruberto
+   */
+  ChangeEventBus(int capacity) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("The capacity must be a positive power of two.");
+    }
+
+    this.ring = new AtomicReferenceArray<ChangeEvent>(capacity);
+    this.mask = capacity - 1;
+    this.next = new AtomicLong();
+    this.subscriptions = new CopyOnWriteArrayList<ChangeSubscription>();
+    this.threadNumber = new AtomicInteger();
+  }
+
+  /**
+   * Starts delivering every event published from now on to the given consumer, on a new thread.
+   *
+   * @param consumer The consumer of the events.
+   * @param policy   What happens if the consumer falls too far behind.
+   * @return The new subscription.
+   * @author Michael Ruberto
+   */
+  ChangeSubscription subscribe(Consumer<ChangeEvent> consumer, BackpressurePolicy policy) {
+    ChangeSubscription subscription = new ChangeSubscription(this, consumer, policy);
+    // Added before its position is read, so that every event numbered from that position on is
+    // published while it is subscribed
+    subscriptions.add(subscription);
+    subscription.start(next.get(), "change-subscriber-" + threadNumber.incrementAndGet());
+    return subscription;
+  }
+
+  /**
+   * Stops publishing events to the given subscription.
+   *
+   * @param subscription The subscription.
+   * @author Michael Ruberto
+   */
+  void unsubscribe(ChangeSubscription subscription) {
+    subscriptions.remove(subscription);
+  }
+
+  /**
+   * Publishes the change recorded in the given log record, if anyone is subscribed and the record
+   * describes a change to the users.
+   *
+   * @param record The change.
+   * @param clock  Where the time of the change comes from.
+   * @author Michael Ruberto
+   */
+  void publish(LogRecord record, Clock clock) {
+    if (subscriptions.isEmpty() || ChangeEvent.typeOf(record.type) == null) {
+      return;
+    }
+    long sequence = next.getAndIncrement();
+    ChangeEvent event = ChangeEvent.of(sequence, record, clock.millis());
+    int slot = (int) sequence & mask;
+    while (true) {
+      ChangeEvent previous = ring.get(slot);
+      // If this publisher was so slow that a later event already took the slot, this event is
+      // lost to every subscriber, who will all see that they were lapped
+      if (previous != null && previous.getSequence() > sequence) {
+        break;
+      }
+      if (ring.compareAndSet(slot, previous, event)) {
+        break;
+      }
+    }
+    for (ChangeSubscription subscription : subscriptions) {
+      subscription.wake();
+    }
+  }
+
+  /**
+   * Gets whatever event is currently in the slot the event with the given number maps to.
+   *
+   * @param sequence The event's number.
+   * @return The slot's event, which is a different one if the event hasn't been published yet or
+   *     has been overwritten, or {@code null} if nothing has been written to the slot.
+   * @author Michael Ruberto
+   */
+  ChangeEvent get(long sequence) {
+    return ring.get((int) sequence & mask);
+  }
+
+  /**
+   * Gets the number of the next event to be published.
+   *
+   * @return The next event's number.
+   * @author Michael Ruberto
+   */
+  long getNextSequence() {
+    return next.get();
+  }
+
+  /**
+   * Gets the number of events the ring buffer holds.
+   *
+   * @return The capacity.
+   * @author Michael Ruberto
+   */
+  int getCapacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,211 @@
+package model;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A consumer's subscription to the changes made to an {@link HRModel} (see {@link
+ * IHumanResourcesModel#subscribe(Consumer, BackpressurePolicy)}). Each subscription has its own
+ * thread, which hands the consumer every event published since it subscribed, one at a time and
+ * in order. The thread that made a change never waits for the consumer: a consumer which falls too
+ * far behind is dealt with by the subscription's {@link BackpressurePolicy}.
+ * <p>
+ * A subscription keeps count of how it is keeping up: how many events are waiting for it, how many
+ * it has been handed, and how many it has missed. If the consumer throws an exception, the event
+ * is counted as failed and the subscription carries on with the next one.
+ *
+ * @author Michael Ruberto
+ */
+public final class ChangeSubscription implements Closeable {
+
+  // The longest a subscriber sleeps without checking for events, in case a wake-up was missed
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final ChangeEventBus bus;
+  private final Consumer<ChangeEvent> consumer;
+  private final BackpressurePolicy policy;
+  private final AtomicLong dropped;
+  private final AtomicLong failures;
+  private Thread thread;
+  // The number of the next event to hand to the consumer. Only written by the subscriber thread.
+  private volatile long cursor;
+  private volatile long delivered;
+  private volatile boolean waiting;
+  private volatile boolean open;
+
+  /**
+   * Constructs a subscription which hands the events published on the given bus to the given
+   * consumer. The subscription does nothing until it is started.
+   *
+   * @param bus      The bus the events are published on.
+   * @param consumer The consumer of the events.
+   * @param policy   What happens if the consumer falls too far behind.
+   * @author Michael Ruberto
+   */
+  ChangeSubscription(ChangeEventBus bus, Consumer<ChangeEvent> consumer,
+      BackpressurePolicy policy) {
+    this.bus = bus;
+    this.consumer = consumer;
+    this.policy = policy;
+    this.dropped = new AtomicLong();
+    this.failures = new AtomicLong();
+    this.open = true;
+  }
+
+  /**
+   * Starts handing events to the consumer on a new daemon thread, beginning with the event with the
+   * given number.
+   *
+   * @param sequence The number of the first event.
+   * @param name     The name of the thread.
+   * @author Michael Ruberto
+   */
+  void start(long sequence, String name) {
+    cursor = sequence;
+    thread = new Thread(this::run, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // Hands each event to the consumer in turn, until the subscription is closed.
+  private void run() {
+    while (open) {
+      long sequence = cursor;
+      ChangeEvent event = bus.get(sequence);
+      if (event == null || event.getSequence() < sequence) {
+        awaitEvent(sequence);
+      } else if (event.getSequence() > sequence) {
+        overflow(sequence, event.getSequence() - bus.getCapacity() + 1);
+      } else {
+        cursor = sequence + 1;
+        deliver(event);
+      }
+    }
+  }
+
+  // Sleeps until the event with the given number may have been published. The flag is set before
+  // the slot is checked again, and publishers write the slot before checking the flag, so a
+  // publisher either sees the flag and wakes this thread, or the event is seen here.
+  private void awaitEvent(long sequence) {
+    waiting = true;
+    ChangeEvent event = bus.get(sequence);
+    if (open && (event == null || event.getSequence() < sequence)) {
+      LockSupport.parkNanos(this, PARK_NANOS);
+    }
+    waiting = false;
+  }
+
+  // Deals with this subscriber having been lapped while it was expecting the event with the given
+  // number, when the oldest event which may still be in the buffer is the one with the other
+  // number.
+  private void overflow(long sequence, long oldest) {
+    dropped.addAndGet(oldest - sequence);
+    if (policy == BackpressurePolicy.DISCONNECT) {
+      close();
+    } else {
+      cursor = oldest;
+    }
+  }
+
+  // Hands the given event to the consumer, counting it as failed if the consumer throws.
+  private void deliver(ChangeEvent event) {
+    try {
+      consumer.accept(event);
+    } catch (RuntimeException e) {
+      failures.incrementAndGet();
+    }
+    delivered++;
+  }
+
+  /**
+   * Wakes the subscriber thread if it is waiting for events. Called after every event is
+   * published.
+   *
+   * @author Michael Ruberto
+   */
+  void wake() {
+    if (waiting) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Gets what happens to this subscription if its consumer falls too far behind.
+   *
+   * @return The subscription's policy.
+   * @author Michael Ruberto
+   */
+  public BackpressurePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Is this subscription still handing events to its consumer?
+   *
+   * @return Whether or not the subscription is open.
+   * @author Michael Ruberto
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Gets the number of events which have been published but not yet handed to the consumer.
+   *
+   * @return The subscription's lag, in events.
+   * @author Michael Ruberto
+   */
+  public long getLag() {
+    return Math.max(bus.getNextSequence() - cursor, 0);
+  }
+
+  /**
+   * Gets the number of events which have been handed to the consumer, including those it failed
+   * on.
+   *
+   * @return The number of events delivered.
+   * @author Michael Ruberto
+   */
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * Gets the number of events the consumer missed because it fell too far behind.
+   *
+   * @return The number of events dropped.
+   * @author Michael Ruberto
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Gets the number of events on which the consumer threw an exception.
+   *
+   * @return The number of failed events.
+   * @author Michael Ruberto
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  /**
+   * Stops handing events to the consumer. An event the consumer is already handling is finished,
+   * but no more are handed to it. Closing a closed subscription does nothing.
+   *
+   * @author Michael Ruberto
+   */
+  @Override
+  public void close() {
+    if (!open) {
+      return;
+    }
+    open = false;
+    bus.unsubscribe(this);
+    LockSupport.unpark(thread);
+  }
+}
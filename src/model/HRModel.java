@@ -1,12 +1,45 @@
 package model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import model.users.AEmployee;
 import model.users.Administrator;
+import model.users.ColumnTotals;
+import model.users.EmployeeColumns;
 import model.users.StandardEmployee;
 import model.users.IUser;
 import model.users.Manager;
+import model.users.Role;
+import model.users.SalaryChange;
+import model.users.SalaryHistory;
 
 /**
  * An implementation of the {@link IHumanResourcesModel} interface which represents a model for a
@@ -20,13 +53,143 @@ import model.users.Manager;
  * representation of their {@code hashCode} to avoid storing them as plaintext for security
  * purposes. In a real application which contained actual personal information, I would utilize a
  * more secure hash function such as SHA-256 to make the passwords harder to crack.
+ * <p>
+ * A single model can serve many callers at once. Each successful log in opens an {@link HRSession},
+ * which is identified by a unique token and acts on behalf of the user who opened it; every
+ * operation in the {@link IHumanResourcesModel} interface is available on the session itself. The
+ * user table and the set of open sessions are concurrent maps, so sessions may be used from many
+ * threads without locking the model. For callers which only ever need one user at a time, {@link
+ * #logIn(int, String)} additionally makes the new session the model's "current" session, and the
+ * operations called directly on this model act on behalf of that session.
+ * <p>
+ * Reads never lock: users are looked up in a concurrent map (or, on the hot paths of permission
+ * checks and getters, a {@link UserDirectory} indexed directly by ID, so that nothing is allocated)
+ * and their fields can be read from any thread. Changes to a single user's information are made
+ * while holding that user's lock, so concurrent writes to different users never wait for each
+ * other. Changes to the structure of the system (adding, removing, linking, promoting and demoting
+ * users, and moving whole teams) are rare by comparison and are made one at a time under a single
+ * structure lock, so that both sides of a manager link always change together.
+ * <p>
+ * The model can store its employees in one of two ways (see {@link StorageMode}). By default, each
+ * employee object holds its own information. In {@link StorageMode#COLUMNAR} mode, the numeric
+ * information of every employee is instead kept in the parallel arrays of an {@link
+ * EmployeeColumns} store, and the employee objects act as views of their slot in it.
+ * <p>
+ * The model also keeps an {@link OrgHierarchy} index of who reports to whom, which can tell in
+ * constant time whether one employee is anywhere underneath another. Managers normally have access
+ * to their direct reports only; with {@link #setTransitiveManagerAccess(boolean)} they are given
+ * access to everyone underneath them.
+ * <p>
+ * Users can be found by name prefix, by the roles they hold, or by a range of salaries, annual
+ * bonuses or vacation balances without scanning everyone: the model keeps a {@link UserIndex} of
+ * those attributes, which every change to a user keeps up to date. Lookups only return the users
+ * the caller may read. Queries combining several conditions, sorting and paging (see {@link
+ * UserQuery}) are answered through whichever index a {@link QueryPlan} estimates to be cheapest.
+ * <p>
+ * A model can be given a {@link WriteAheadLog}, in which case every change made to it is recorded
+ * in the log so that it survives a restart. Constructing a model with a log which already holds
+ * changes replays them first, restoring every user (with their original IDs), their information
+ * and the links between them. For faster start-ups, a model can also write a compact binary
+ * snapshot of all of its users (see {@link #writeSnapshot(Path)}) and be loaded back from it,
+ * replaying only the part of its log written since (see {@link #loadSnapshot(Path, StorageMode,
+ * WriteAheadLog)}).
+ * <p>
+ * Each model gets the IDs of new users from its own {@link IUserIdAllocator}, so models in the same
+ * process never share or race on an ID space. The allocator's high-water marks are kept in the
+ * model's snapshots and log, so IDs are never handed out twice across restarts.
+ * <p>
+ * Other systems can be told about every change as it is made, rather than having to poll, by
+ * subscribing to the model (see {@link #subscribe(Consumer, BackpressurePolicy)}). Each change is
+ * published at the same point at which it is recorded in the log, into a bounded {@link
+ * ChangeEventBus} which subscribers read on their own threads, so a slow subscriber never holds up
+ * the thread making the change.
+ * <p>
+ * Changes which must be made together, such as the links and salary changes of a reorganization,
+ * can be staged on a {@link Transaction} and committed at once (see {@link #beginTransaction()}).
+ * Transactions are optimistic: each user is versioned, and a commit only goes through if none of
+ * the users it touches has changed since its changes were staged. Lookups and payroll summaries,
+ * which read several users in one call, are read again if a commit or a bulk reorganization
+ * begins while they read, so they never see one half made.
+ * <p>
+ * Long reports, such as a company-wide review of compensation, can read every user as of one
+ * moment through a {@link ModelSnapshot} (see {@link #openSnapshot()}) while changes carry on at
+ * full speed. Every change is numbered, and while a snapshot is open, the state a user had before
+ * a change is kept in a {@link UserHistory} for the snapshots which still need it, and dropped once
+ * none do.
+ * <p>
+ * Every call can also be audited (see {@link #setAuditLog(AuditLog)}), whether it is allowed or
+ * denied. Auditing a call only appends to a buffer belonging to the calling thread; the {@link
+ * AuditLog} writes the buffers out in batches on a background thread.
+ * <p>
+ * Every call can also be measured (see {@link #setMetrics(ModelMetrics)}): how long each operation
+ * takes, how many calls are allowed or denied, and which exceptions they fail with. A model which
+ * isn't measured doesn't even read the clock.
+ * <p>
+ * For finding out what the model was doing during a pause or a spell of lock contention, calls,
+ * permission checks and structural changes are also recorded as Java Flight Recorder events (see
+ * {@link OperationEvent}, {@link AccessCheckEvent} and {@link StructuralChangeEvent}), which cost
+ * nothing while they aren't being recorded.
  *
  * @author Michael Ruberto
  */
 public class HRModel implements IHumanResourcesModel {
 
-  private IUser currentUser;
-  private HashMap<Integer, IUser> users;
+  // The roles which tell what kind of employee a user is, and the two kinds they can be
+  private static final int EMPLOYEE_KIND_MASK = Role.maskOf(Role.EMPLOYEE, Role.MANAGER,
+      Role.STANDARD_EMPLOYEE);
+  private static final int STANDARD_EMPLOYEE_ROLES = Role.maskOf(Role.EMPLOYEE,
+      Role.STANDARD_EMPLOYEE);
+  private static final int MANAGER_ROLES = Role.maskOf(Role.EMPLOYEE, Role.MANAGER);
+  // Stands for the start of a call which isn't being timed
+  private static final long NOT_TIMED = Long.MIN_VALUE;
+  // How many times a read of several users is retried around commits before it holds them off
+  private static final int OPTIMISTIC_READS = 4;
+
+  private volatile HRSession currentSession;
+  private final ConcurrentHashMap<Integer, IUser> users;
+  private final UserDirectory directory;
+  private final UserIndex index;
+  private final ConcurrentHashMap<String, HRSession> sessions;
+  private final ReentrantLock structureLock;
+  // Held shared by every transaction commit and bulk reorganization, before any other lock, and
+  // exclusively by a read of several users which they have overtaken too often
+  private final ReentrantReadWriteLock commitGate;
+  // The number of commits and bulk reorganizations begun and finished, so that a read of several
+  // users can tell whether one was made while it read (see readConsistently)
+  private final AtomicLong commitsBegun;
+  private final AtomicLong commitsFinished;
+  private final EmployeeColumns columns;
+  private final OrgHierarchy hierarchy;
+  private volatile boolean transitiveManagerAccess;
+  // Moved on by a change which can affect who may access anyone (see AccessCache), and the
+  // access version of each user, moved on by every change to them which can affect who they may
+  // access or be accessed by
+  private final AtomicLong accessEpoch;
+  private final UserVersions accessVersions;
+  private final WriteAheadLog log;
+  // Set once an append to the log has failed, after which no more changes are made
+  private volatile boolean logFailed;
+  // The position in the log of the last change made to each user's information, or null if this
+  // model has no log. Only written while holding the user's lock.
+  private final UserVersions logPositions;
+  private final ChangeEventBus changes;
+  private final IUserIdAllocator idAllocator;
+  private final UserVersions versions;
+  private final UserHistory history;
+  // Where the timestamps of salary changes come from
+  private volatile Clock clock;
+  // Where every call is audited, or null if calls aren't audited
+  private volatile AuditLog auditLog;
+  // Where every call is measured, or null if calls aren't measured
+  private volatile ModelMetrics metrics;
+  // The highest employee ID recorded in the log as taken, either by an employee or as set aside by
+  // the ID allocator. Only read and written while holding the structure lock.
+  private int loggedEmployeeId;
+  // Only set while the constructor replays the log, so that replaying doesn't record the changes
+  // all over again
+  private boolean replaying;
+  // The position in the log of the change being replayed
+  private long replayPosition;
 
   /**
    * Constructs an instance of this HRModel and adds a default {@link Administrator} account (ID 0)
@@ -38,377 +201,2714 @@ public class HRModel implements IHumanResourcesModel {
    * @author Michael Ruberto
    */
   public HRModel(String defaultAdminPassword) throws IllegalArgumentException {
-    //VALIDATING INPUTS
-    if (defaultAdminPassword == null || defaultAdminPassword.equals("")) {
-      throw new IllegalArgumentException("The given password must be a non-empty string.");
-    }
-
-    Administrator admin = new Administrator("Default Admin", defaultAdminPassword.hashCode() + "");
-    users = new HashMap<Integer, IUser>();
-    users.put(admin.getId(), admin);
+    this(defaultAdminPassword, StorageMode.OBJECTS);
   }
 
   /**
-   * Gets the {@link IUser} who is currently logged in.
+   * Constructs an instance of this HRModel which stores its employees in the given way, and adds a
+   * default {@link Administrator} account (ID 0) which can be used to manage the {@link IUser}s and
+   * information in the system.
    *
-   * @return The current user.
+   * @param defaultAdminPassword The password to be used for the default {@link Administrator}
+   *                             account.
+   * @param storageMode          How the model should store its employees.
+   * @throws IllegalArgumentException If the given password is invalid, or if the storage mode is
+   *                                  {@code null}.
    * @author Michael Ruberto
    */
-  public IUser getCurrentUser() {
-    return currentUser;
+  public HRModel(String defaultAdminPassword, StorageMode storageMode)
+      throws IllegalArgumentException {
+    this(defaultAdminPassword, storageMode, null);
   }
 
   /**
-   * Gets the {@link HashMap} which stores all of the {@link IUser}s in the system. The key values
-   * in the map are each employee's unique ID values.
+   * Constructs an instance of this HRModel which stores its employees in the given way and records
+   * every change made to it in the given {@link WriteAheadLog}. A default {@link Administrator}
+   * account (ID 0) is added, and then every change already in the log is replayed without checking
+   * permissions, so that the model is left exactly as it was when the log was last written. The
+   * caller remains responsible for closing the log.
    *
-   * @return The hash map containing the users.
+   * @param defaultAdminPassword The password to be used for the default {@link Administrator}
+   *                             account.
+   * @param storageMode          How the model should store its employees.
+   * @param log                  The log in which changes are recorded, or {@code null} if changes
+   *                             shouldn't be recorded.
+   * @throws IllegalArgumentException If the given password is invalid, or if the storage mode is
+   *                                  {@code null}.
+   * @throws IllegalStateException    If the log holds a change which can't be made again.
+   * @throws UncheckedIOException     If the log can't be read.
    * @author Michael Ruberto
    */
-  public HashMap<Integer, IUser> getUsers() {
-    return users;
+  public HRModel(String defaultAdminPassword, StorageMode storageMode, WriteAheadLog log)
+      throws IllegalArgumentException, IllegalStateException, UncheckedIOException {
+    this(defaultAdminPassword, storageMode, log, new SequentialUserIdAllocator());
   }
 
   /**
-   * Logs into this application by setting the {@code currentUser} to match the {@link IUser} with
-   * the given ID, provided the password is correct. This will allow the user to perform any action
-   * they are authorized to carry out.
+   * Constructs an instance of this HRModel which stores its employees in the given way, records
+   * every change made to it in the given {@link WriteAheadLog}, and gets the IDs of new users from
+   * the given {@link IUserIdAllocator}. A default {@link Administrator} account (ID 0) is added,
+   * and then every change already in the log is replayed as described in {@link #HRModel(String,
+   * StorageMode, WriteAheadLog)}; every ID the log shows as taken is marked as used in the
+   * allocator. The allocator should not be shared with any other model.
    *
-   * @param id     The unique ID for the user.
-   * @param passwd The password for the user.
-   * @throws IllegalArgumentException If the given password is invalid.
-   * @throws IllegalStateException    If there is no user with the given ID, or if the password is
-   *                                  incorrect.
+   * @param defaultAdminPassword The password to be used for the default {@link Administrator}
+   *                             account.
+   * @param storageMode          How the model should store its employees.
+   * @param log                  The log in which changes are recorded, or {@code null} if changes
+   *                             shouldn't be recorded.
+   * @param idAllocator          Where the IDs of new users come from.
+   * @throws IllegalArgumentException If the given password is invalid, or if the storage mode or
+   *                                  the ID allocator is {@code null}.
+   * @throws IllegalStateException    If the log holds a change which can't be made again.
+   * @throws UncheckedIOException     If the log can't be read.
    * @author Michael Ruberto
    */
-  public void logIn(int id, String passwd) throws IllegalArgumentException, IllegalStateException {
+  public HRModel(String defaultAdminPassword, StorageMode storageMode, WriteAheadLog log,
+      IUserIdAllocator idAllocator)
+      throws IllegalArgumentException, IllegalStateException, UncheckedIOException {
+    this(storageMode, log, idAllocator, 16);
     //VALIDATING INPUTS
-    if (passwd == null || passwd.equals("")) {
+    if (defaultAdminPassword == null || defaultAdminPassword.equals("")) {
       throw new IllegalArgumentException("The given password must be a non-empty string.");
     }
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+
+    Administrator admin = new Administrator(0, "Default Admin",
+        defaultAdminPassword.hashCode() + "");
+    idAllocator.markUsed(admin.getId());
+    users.put(admin.getId(), admin);
+    directory.put(admin);
+    index.add(admin);
+
+    if (log != null) {
+      try {
+        replayLog(0);
+      } catch (IOException e) {
+        throw new UncheckedIOException("The write-ahead log could not be read.", e);
+      }
+    }
+  }
+
+  // Replays every change in the log past the given position, without recording them again.
+  private void replayLog(long after) throws IllegalStateException, IOException {
+    structureLock.lock();
+    replaying = true;
+    try {
+      log.replay(after, (record, position) -> {
+        replayPosition = position;
+        replay(record);
+      });
+    } finally {
+      replaying = false;
+      structureLock.unlock();
     }
+  }
 
-    if (users.get(id).correctPassword(passwd.hashCode() + "")) {
-      currentUser = users.get(id);
-    } else {
-      throw new IllegalStateException(
-          "Incorrect password for " + users.get(id).getName() + " (ID: " + id + ")");
+  // Constructs an instance of this HRModel with no users at all, with room for the given number of
+  // users before its tables have to grow.
+  private HRModel(StorageMode storageMode, WriteAheadLog log, IUserIdAllocator idAllocator,
+      int expectedUsers) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (storageMode == null) {
+      throw new IllegalArgumentException("The storage mode cannot be null.");
+    }
+    if (idAllocator == null) {
+      throw new IllegalArgumentException("The ID allocator cannot be null.");
     }
+
+    users = new ConcurrentHashMap<Integer, IUser>(expectedUsers);
+    directory = new UserDirectory();
+    index = new UserIndex();
+    sessions = new ConcurrentHashMap<String, HRSession>();
+    structureLock = new ReentrantLock();
+    commitGate = new ReentrantReadWriteLock();
+    commitsBegun = new AtomicLong();
+    commitsFinished = new AtomicLong();
+    columns = storageMode == StorageMode.COLUMNAR ? new EmployeeColumns() : null;
+    hierarchy = new OrgHierarchy(expectedUsers);
+    accessEpoch = new AtomicLong();
+    accessVersions = new UserVersions();
+    this.log = log;
+    this.logPositions = log == null ? null : new UserVersions();
+    this.changes = new ChangeEventBus(ChangeEventBus.DEFAULT_CAPACITY);
+    this.idAllocator = idAllocator;
+    this.versions = new UserVersions();
+    this.history = new UserHistory();
+    this.clock = Clock.systemUTC();
   }
 
   /**
-   * Logs the current user out of the application by setting the {@code currentUser} to {@code
-   * null}.
+   * Loads a model from a snapshot written by {@link #writeSnapshot(Path)}. The snapshot file is
+   * memory-mapped and read straight from the mapping, and every user is restored with their
+   * original ID, hashed password, information, salary history and manager. The model's {@link
+   * SequentialUserIdAllocator} carries on from the high-water marks the snapshot was taken with.
+   * Unlike the constructors, no default {@link Administrator} is added: the administrators are the
+   * ones in the snapshot.
    *
+   * @param file        The snapshot file.
+   * @param storageMode How the model should store its employees.
+   * @return The restored model.
+   * @throws IllegalArgumentException If the file or the storage mode is {@code null}.
+   * @throws IllegalStateException    If the file is not a valid snapshot.
+   * @throws IOException              If the file can't be read.
    * @author Michael Ruberto
    */
-  public void logOut() {
-    currentUser = null;
-  }
-
-  // Checks if the current user is an Administrator for purposes of permission-checking.
-  // If an admin is signed in, do nothing. If not, throw an error.
-  private void verifyAdministrator() throws IllegalStateException {
-    if (currentUser == null) {
-      throw new IllegalStateException("No user signed in.");
-    } else if (!currentUser.getUserType().equals("Administrator")) {
-      throw new IllegalStateException("The current user (" + currentUser.getName()
-          + ") does not have permission to perform this action.");
-    }
+  public static HRModel loadSnapshot(Path file, StorageMode storageMode)
+      throws IllegalArgumentException, IllegalStateException, IOException {
+    return loadSnapshot(file, storageMode, null);
   }
 
-  @Override
-  public void changeHRStatus(int id, boolean inHumanResources)
-      throws IllegalStateException {
+  /**
+   * Loads a model from a snapshot written by {@link #writeSnapshot(Path)}, as described in {@link
+   * #loadSnapshot(Path, StorageMode)}, and then brings it up to date from the given {@link
+   * WriteAheadLog}, which the model goes on to record its changes in. Only the changes in the log
+   * made after the snapshot was taken are replayed; a change to a user's information which the
+   * snapshot already caught while it was being taken is skipped, so that none is made twice. The
+   * caller remains responsible for closing the log.
+   *
+   * @param file        The snapshot file.
+   * @param storageMode How the model should store its employees.
+   * @param log         The log the model that wrote the snapshot recorded its changes in, or
+   *                    {@code null} if changes shouldn't be recorded.
+   * @return The restored model.
+   * @throws IllegalArgumentException If the file or the storage mode is {@code null}.
+   * @throws IllegalStateException    If the file is not a valid snapshot, if the log can't have
+   *                                  been the one the snapshot's model wrote to, or if the log
+   *                                  holds a change which can't be made again.
+   * @throws IOException              If the file or the log can't be read.
+   * @author Michael Ruberto
+   */
+  public static HRModel loadSnapshot(Path file, StorageMode storageMode, WriteAheadLog log)
+      throws IllegalArgumentException, IllegalStateException, IOException {
     //VALIDATING INPUTS
-    verifyAdministrator();
-    IUser target = null;
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
-    } else {
-      target = users.get(id);
+    if (file == null) {
+      throw new IllegalArgumentException("The snapshot file cannot be null.");
     }
 
-    target.setInHumanResources(inHumanResources);
-  }
-
-  @Override
-  public void addEmployee(String employeeType, String name, String password, double salary,
-      int vacationBalance, double annualBonus, boolean inHumanResources)
-      throws IllegalArgumentException {
-    //VALIDATING INPUTS
-    verifyAdministrator();
-    if (password == null || password.equals("")) {
-      throw new IllegalArgumentException("Given password must be a non-empty string.");
+    SnapshotFile snapshot = SnapshotFile.map(file);
+    long position = snapshot.getLogPosition();
+    if (log != null && (position > log.position()
+        || position == SnapshotFile.NO_LOG && log.position() > 0)) {
+      throw new IllegalStateException("The snapshot wasn't taken of a model with this log.");
+    }
+    HRModel model = new HRModel(storageMode, log, new SequentialUserIdAllocator(
+        snapshot.getNextEmployeeId(), snapshot.getNextAdministratorId(), 1),
+        snapshot.getUserCount());
+    model.structureLock.lock();
+    try {
+      snapshot.readUsers(model::insertRestored);
+      int[] links = snapshot.readLinks();
+      for (int i = 0; i < links.length; i += 2) {
+        model.restoreLink(links[i], links[i + 1]);
+      }
+    } finally {
+      model.structureLock.unlock();
     }
-    if (employeeType == null || (!employeeType.equals("Standard Employee") && !employeeType
-        .equals("Manager"))) {
-      throw new IllegalArgumentException("Invalid employee type provided.");
+    if (log != null) {
+      model.replayLog(Math.max(position, 0));
     }
+    return model;
+  }
 
-    AEmployee newEmployee = null;
-    if (employeeType.equals("Standard Employee")) {
-      newEmployee = new StandardEmployee(name, password.hashCode() + "", salary, vacationBalance,
-          annualBonus, inHumanResources);
-    } else {
-      newEmployee = new Manager(name, password.hashCode() + "", salary, vacationBalance,
-          annualBonus, inHumanResources);
+  // Adds a user restored from a snapshot, whose information was last changed by the change at the
+  // given position in the log, to the system. Must be called while holding the structure lock.
+  private void insertRestored(IUser user, long position) {
+    if (user instanceof AEmployee) {
+      AEmployee employee = (AEmployee) user;
+      if (columns != null) {
+        employee.attachColumns(columns);
+      }
+      hierarchy.add(employee.getId());
     }
+    users.put(user.getId(), user);
+    directory.put(user);
+    index.add(user);
+    notePosition(user.getId(), position);
+  }
 
-    users.put(newEmployee.getId(), newEmployee);
+  // Restores a link from a snapshot. Must be called while holding the structure lock.
+  private void restoreLink(int employeeID, int managerID) throws IllegalStateException {
+    IUser managerUser = users.get(managerID);
+    IUser employeeUser = users.get(employeeID);
+    if (managerUser == null || employeeUser == null || !managerUser.hasRole(Role.MANAGER)
+        || !employeeUser.hasRole(Role.EMPLOYEE)) {
+      throw new IllegalStateException("The snapshot links users who can't be linked.");
+    }
+    Manager manager = (Manager) managerUser;
+    AEmployee employee = (AEmployee) employeeUser;
+    employee.setManager(manager);
+    manager.addReportingEmployee(employee);
+    hierarchy.setManager(employeeID, managerID);
   }
 
-  @Override
-  public void addAdministrator(String name, String password)
-      throws IllegalArgumentException {
+  /**
+   * Writes a snapshot of every user in this model to the given file, so that the model can later be
+   * rebuilt with {@link #loadSnapshot(Path, StorageMode)} much faster than by replaying a {@link
+   * WriteAheadLog}. The users are copied into memory while structural changes are held off (changes
+   * to individual users' information carry on, and each user is copied as of one moment), and the
+   * file is then written on a background thread. The snapshot is first written to a temporary file
+   * next to the target and forced to disk, and then moved into place in one atomic step, so the
+   * target file always holds either the previous snapshot or the complete new one.
+   * <p>
+   * If this model has a {@link WriteAheadLog}, the snapshot also notes the position the log was at
+   * when it was taken, and the position of the last change to each user's information it caught,
+   * so that {@link #loadSnapshot(Path, StorageMode, WriteAheadLog)} can bring it up to date from
+   * the log without making any change twice.
+   *
+   * @param file The file to write the snapshot to.
+   * @return A future which completes once the snapshot is in place, or completes exceptionally with
+   *     the {@link IOException} which stopped it being written.
+   * @throws IllegalArgumentException If the file is {@code null}.
+   * @author Michael Ruberto
+   */
+  public CompletableFuture<Void> writeSnapshot(Path file) throws IllegalArgumentException {
     //VALIDATING INPUTS
-    verifyAdministrator();
-    if (password == null || password.equals("")) {
-      throw new IllegalArgumentException("Given password must be a non-empty string.");
+    if (file == null) {
+      throw new IllegalArgumentException("The snapshot file cannot be null.");
     }
 
-    Administrator newAdmin = new Administrator(name, password.hashCode() + "");
-    users.put(newAdmin.getId(), newAdmin);
+    byte[] image;
+    structureLock.lock();
+    try {
+      // Every change logged before this point is made before its users are copied, since it is
+      // logged and made under a lock the copy takes. A change logged after it may be caught too,
+      // and is then skipped on replay, going by the position noted with each user.
+      long position = log == null ? SnapshotFile.NO_LOG : log.position();
+      image = SnapshotFile.encode(users.values(), idAllocator.getEmployeeHighWaterMark(),
+          idAllocator.getAdministratorHighWaterMark(), position,
+          user -> logPositions == null ? 0 : logPositions.get(user.getId()));
+    } finally {
+      structureLock.unlock();
+    }
+    return SnapshotFile.writeAsync(image, file);
   }
 
-  @Override
-  public IUser removeUser(int id) throws IllegalStateException {
-    verifyAdministrator();
+  /**
+   * Changes the clock which new employees' salaries and salary changes are stamped with. The
+   * system clock is used by default.
+   *
+   * @param clock The clock.
+   * @throws IllegalArgumentException If the clock is {@code null}.
+   * @author Michael Ruberto
+   */
+  public void setClock(Clock clock) throws IllegalArgumentException {
     //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user with ID " + id + " found.");
-    }
-    if (id == currentUser.getId()) {
-      throw new IllegalStateException("Can't remove currently signed in user.");
+    if (clock == null) {
+      throw new IllegalArgumentException("The clock cannot be null.");
     }
 
-    // IF THE USER YOU ARE REMOVING HAS A MANAGER ASSIGNED TO THEM, UNLINK THEM
-    IUser removed = users.remove(id);
-    try {
-      Manager manager = removed.getManager();
+    this.clock = clock;
+  }
 
-      // Unlink the manager and the employee
-      manager.removeReportingEmployee(removed.getId());
-      removed.setManager(null);
-    } catch (Exception iseOrUSE) {
-      // This user didn't have an assigned manager
-    }
+  /**
+   * Starts auditing every call made to this model, or its sessions, in the given {@link AuditLog},
+   * or stops auditing. Calls are audited whether they are allowed or denied. The caller remains
+   * responsible for closing the log.
+   *
+   * @param auditLog The audit log, or {@code null} to stop auditing.
+   * @author Michael Ruberto
+   */
+  public void setAuditLog(AuditLog auditLog) {
+    this.auditLog = auditLog;
+  }
 
-    return removed;
+  /**
+   * Gets the audit log every call to this model is audited in.
+   *
+   * @return The audit log, or {@code null} if calls aren't audited.
+   * @author Michael Ruberto
+   */
+  public AuditLog getAuditLog() {
+    return auditLog;
   }
 
-  @Override
-  public void linkEmployeeAndManager(int employeeID, int managerID) throws IllegalStateException {
-    verifyAdministrator();
-    //VALIDATE INPUTS
-    if (users.get(employeeID) == null || users.get(managerID) == null) {
-      throw new IllegalStateException("Both IDs must correspond to valid users.");
-    }
-    if (!users.get(managerID).getUserType().equals("AEmployee, Manager") ||
-        !users.get(employeeID).getUserType().contains("AEmployee")) {
-      throw new IllegalStateException("Must provide one Manager and one AEmployee.");
-    }
+  /**
+   * Starts measuring every call made to this model, or its sessions, in the given {@link
+   * ModelMetrics}, or stops measuring. Without metrics, calls aren't timed at all.
+   *
+   * @param metrics The metrics, or {@code null} to stop measuring.
+   * @author Michael Ruberto
+   */
+  public void setMetrics(ModelMetrics metrics) {
+    this.metrics = metrics;
+  }
 
-    Manager manager = (Manager) users.get(managerID);
-    AEmployee employee = (AEmployee) users.get(employeeID);
+  /**
+   * Gets the metrics every call to this model is measured in.
+   *
+   * @return The metrics, or {@code null} if calls aren't measured.
+   * @author Michael Ruberto
+   */
+  public ModelMetrics getMetrics() {
+    return metrics;
+  }
 
-    //Unlink employee from old manager if needed
-    try {
-      Manager oldManager = employee.getManager();
-      oldManager.removeReportingEmployee(employeeID);
-    } catch (IllegalStateException ise) {
-      // This employee had no manager
-    }
+  /**
+   * Gets the allocator this model gets the IDs of new users from.
+   *
+   * @return The ID allocator.
+   * @author Michael Ruberto
+   */
+  public IUserIdAllocator getIdAllocator() {
+    return idAllocator;
+  }
 
-    employee.setManager(manager);
-    manager.addReportingEmployee(employee);
+  /**
+   * Gets the way in which this model stores its employees.
+   *
+   * @return The storage mode.
+   * @author Michael Ruberto
+   */
+  public StorageMode getStorageMode() {
+    return columns == null ? StorageMode.OBJECTS : StorageMode.COLUMNAR;
   }
 
-  @Override
-  public void promoteToManager(int id) throws IllegalStateException {
-    verifyAdministrator();
-    //VALIDATE INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user with ID " + id + " found.");
-    }
-    if (!users.get(id).getUserType().contains("AEmployee") || users.get(id).getUserType()
-        .contains("Manager")) {
-      throw new IllegalStateException("User must be an AEmployee but not a manager.");
-    }
+  /**
+   * Gets the index of the reporting structure of this model's employees.
+   *
+   * @return The hierarchy index.
+   * @author Michael Ruberto
+   */
+  public OrgHierarchy getOrgHierarchy() {
+    return hierarchy;
+  }
 
-    AEmployee emp = (AEmployee)removeUser(id);
-    Manager man = new Manager(emp);
-    users.put(man.getId(), man);
+  /**
+   * Are managers given access to everyone underneath them, rather than only the employees who
+   * report to them directly?
+   *
+   * @return Whether or not managers have transitive access.
+   * @author Michael Ruberto
+   */
+  public boolean isTransitiveManagerAccess() {
+    return transitiveManagerAccess;
   }
 
-  @Override
-  public void demoteToStandard(int id) throws IllegalStateException {
-    verifyAdministrator();
-    //VALIDATE INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user with ID " + id + " found.");
-    }
-    if (!users.get(id).getUserType().contains("AEmployee") || users.get(id).getUserType()
-        .contains("StandardEmployee")) {
-      throw new IllegalStateException("User must be an AEmployee but not a StandardEmployee.");
+  /**
+   * Sets whether managers are given access to everyone underneath them (including the reports of
+   * managers who report to them, and so on), rather than only the employees who report to them
+   * directly. This is off by default.
+   *
+   * @param transitiveManagerAccess Whether or not managers should have transitive access.
+   * @author Michael Ruberto
+   */
+  public void setTransitiveManagerAccess(boolean transitiveManagerAccess) {
+    if (this.transitiveManagerAccess != transitiveManagerAccess) {
+      this.transitiveManagerAccess = transitiveManagerAccess;
+      accessEpoch.incrementAndGet();
     }
+  }
 
-    AEmployee emp = (AEmployee)removeUser(id);
-    StandardEmployee newEmployee = new StandardEmployee(emp);
-    users.put(newEmployee.getId(), newEmployee);
+  /**
+   * Gets the {@link IUser} who is logged in to the current session.
+   *
+   * @return The current user, or {@code null} if nobody is logged in.
+   * @author Michael Ruberto
+   */
+  public IUser getCurrentUser() {
+    return caller(currentSession);
   }
 
-  // Checks if the current user has permission to read information about the user with the given ID
-  // If the user has permission, do nothing. Else, throw an error.
-  //    - If current user is an administrator, they can read any information
-  //    - If current user is a manager, they can read information about reporting employees
-  //    - If current user is in HR, they can read information from any non-HR user
-  //    - All users can read their own information
-  private void verifyReadAccess(int id) throws IllegalStateException {
+  /**
+   * Gets a read-only view of the {@link Map} which stores all of the {@link IUser}s in the system.
+   * The key values in the map are each employee's unique ID values.
+   *
+   * @return The map containing the users.
+   * @author Michael Ruberto
+   */
+  public Map<Integer, IUser> getUsers() {
+    return Collections.unmodifiableMap(users);
+  }
+
+  /**
+   * Opens a new {@link HRSession} for the {@link IUser} with the given ID, provided the password is
+   * correct. The session can then be used to perform any action the user is authorized to carry
+   * out, independently of any other session open on this model.
+   *
+   * @param id     The unique ID for the user.
+   * @param passwd The password for the user.
+   * @return The new session.
+   * @throws IllegalArgumentException If the given password is invalid.
+   * @throws IllegalStateException    If there is no user with the given ID, or if the password is
+   *                                  incorrect.
+   * @author Michael Ruberto
+   */
+  public HRSession openSession(int id, String passwd)
+      throws IllegalArgumentException, IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
     try {
-      // If you're an administrator, you have full access.
-      verifyAdministrator();
-    } catch (IllegalStateException ise) {
-      if (currentUser == null) {
-        throw new IllegalStateException("You must log in to perform this action.");
+      //VALIDATING INPUTS
+      if (passwd == null || passwd.equals("")) {
+        throw new IllegalArgumentException("The given password must be a non-empty string.");
       }
-
-      // You are not an administrator.
-      AEmployee user = (AEmployee) currentUser;
-
-      // You can access your own information
-      if (id == user.getId()) {
-        return;
+      IUser user = users.get(id);
+      if (user == null) {
+        throw new IllegalStateException("No user found with ID " + id);
       }
-
-      // If you're in HR, you can view the target info so long as they're not also in HR
-      if (user.isInHumanResources() && !users.get(id).isInHumanResources()) {
-        return;
+      if (!user.correctPassword(passwd.hashCode() + "")) {
+        throw new IllegalStateException(
+            "Incorrect password for " + user.getName() + " (ID: " + id + ")");
       }
 
-      // If you're a manager, you can view the target info if the employee reports to you
-      if (user.getUserType().contains("Manager")) {
-        Manager manager = (Manager) user;
-
-        if (manager.getReportingEmployees().get(id) != null) {
-          return;
-        }
-      }
+      HRSession session = new HRSession(this, id, UUID.randomUUID().toString());
+      sessions.put(session.getToken(), session);
+      return session;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.LOG_IN, e);
+    } finally {
+      stopTimer(ModelOperation.LOG_IN, start);
+      event.end(ModelOperation.LOG_IN, null, id);
+    }
+  }
 
-      throw new IllegalStateException("The current user (" + currentUser.getName()
-          + ") does not have permission to perform this action.");
+  /**
+   * Gets the open {@link HRSession} with the given token.
+   *
+   * @param token The token of the session.
+   * @return The session.
+   * @throws IllegalStateException If there is no open session with the given token.
+   * @author Michael Ruberto
+   */
+  public HRSession getSession(String token) throws IllegalStateException {
+    HRSession session = token == null ? null : sessions.get(token);
+    if (session == null) {
+      throw new IllegalStateException("No open session found for the given token.");
     }
+    return session;
   }
 
-  // Checks if the current user has permission to edit information about the user with the given ID
-  // If the user has permission, do nothing. Else, throw an error.
-  //    - If current user is an administrator, they can edit any information
-  //    - If current user is a manager, they can edit information about reporting employees
-  private void verifyWriteAccess(int id) throws IllegalStateException {
-    try {
-      // If you're an administrator, you have full access.
-      verifyAdministrator();
-    } catch (IllegalStateException ise) {
-      if (currentUser == null) {
-        throw new IllegalStateException("You must log in to perform this action.");
-      }
+  /**
+   * Logs into this application by opening a new {@link HRSession} for the {@link IUser} with the
+   * given ID, provided the password is correct, and making it the current session. The operations
+   * called directly on this model will act on behalf of this user until someone else logs in.
+   *
+   * @param id     The unique ID for the user.
+   * @param passwd The password for the user.
+   * @return The new session.
+   * @throws IllegalArgumentException If the given password is invalid.
+   * @throws IllegalStateException    If there is no user with the given ID, or if the password is
+   *                                  incorrect.
+   * @author Michael Ruberto
+   */
+  public HRSession logIn(int id, String passwd)
+      throws IllegalArgumentException, IllegalStateException {
+    HRSession session = openSession(id, passwd);
+    HRSession previous = currentSession;
+    currentSession = session;
+    if (previous != null) {
+      closeSession(previous);
+    }
+    return session;
+  }
 
-      // You are not an administrator.
-      AEmployee user = (AEmployee) currentUser;
+  /**
+   * Logs the current user out of the application by closing the current session.
+   *
+   * @author Michael Ruberto
+   */
+  public void logOut() {
+    HRSession previous = currentSession;
+    currentSession = null;
+    if (previous != null) {
+      closeSession(previous);
+    }
+  }
 
-      // If you're a manager, you can edit the target info if the employee reports to you
-      if (user.getUserType().contains("Manager")) {
-        Manager manager = (Manager) user;
+  // Closes the given session so that it can no longer be used or looked up by its token.
+  void closeSession(HRSession session) {
+    session.close();
+    sessions.remove(session.getToken());
+  }
 
-        if (manager.getReportingEmployees().get(id) != null) {
-          return;
-        }
-      }
+  // Gets the user on whose behalf the given session acts, or null if the session is missing or
+  // closed, or if its user has since been removed. The user is looked up on every call rather than
+  // held by the session so that sessions always see the user's current state.
+  IUser caller(HRSession session) {
+    if (session == null || !session.isOpen()) {
+      return null;
+    }
+    return directory.get(session.getUserId());
+  }
 
-      throw new IllegalStateException("The current user (" + currentUser.getName()
-          + ") does not have permission to perform this action.");
+  // Checks if the session's user is an Administrator for purposes of permission-checking.
+  // If an admin is signed in, return them. If not, audit the call as denied and throw an error.
+  private IUser verifyAdministrator(HRSession session, ModelOperation operation, int targetId)
+      throws IllegalStateException {
+    AccessCheckEvent event = AccessCheckEvent.start();
+    IUser caller = caller(session);
+    AccessDecision decision = decideAdministrator(caller);
+    event.end(caller, targetId, AccessCheckEvent.ADMINISTRATOR, decision, false);
+    if (!decision.isAllowed()) {
+      audit(session, operation, targetId, Double.NaN, Double.NaN, decision);
+      throw decision.toException(caller);
     }
+    return caller;
   }
 
-  @Override
-  public double getSalary(int id) throws IllegalStateException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+  // Records a call in the audit log, and counts its outcome in the metrics, if this model has
+  // them. Values which don't apply are NaN.
+  private void audit(HRSession session, ModelOperation operation, int targetId,
+      double oldValue, double newValue, AccessDecision outcome) {
+    AuditLog audit = auditLog;
+    if (audit != null) {
+      audit.record(clock.millis(), session == null ? AuditLog.NO_USER : session.getUserId(),
+          operation, targetId, oldValue, newValue, outcome);
     }
-    verifyReadAccess(id);
+    ModelMetrics measured = metrics;
+    if (measured != null) {
+      measured.countDecision(outcome);
+    }
+  }
 
-    return users.get(id).getSalary();
+  // Starts timing a call, if this model measures calls. Returns NOT_TIMED if it doesn't, so that
+  // the clock is only read when someone is measuring.
+  private long startTimer() {
+    return metrics == null ? NOT_TIMED : System.nanoTime();
   }
 
-  @Override
-  public void setSalary(int id, double salary)
-      throws IllegalStateException, IllegalArgumentException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+  // Records how long a call took since its timer was started, if it was timed.
+  private void stopTimer(ModelOperation operation, long start) {
+    ModelMetrics measured = metrics;
+    if (start != NOT_TIMED && measured != null) {
+      measured.record(operation, System.nanoTime() - start);
     }
-    verifyWriteAccess(id);
-
-    users.get(id).setSalary(salary);
   }
 
-  @Override
-  public ArrayList<Double> getSalaryHistory(int id) throws IllegalStateException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+  // Counts a call which failed with the given exception, if this model measures calls, and
+  // returns the exception to be rethrown.
+  private RuntimeException failed(ModelOperation operation, RuntimeException exception) {
+    ModelMetrics measured = metrics;
+    if (measured != null) {
+      measured.countException(operation, exception);
     }
-    verifyReadAccess(id);
+    return exception;
+  }
 
-    return users.get(id).getSalaryHistory();
+  // Gets a user's Human Resources status as a value for the audit log.
+  private static double hrStatus(IUser user) {
+    return user.hasRole(Role.HUMAN_RESOURCES) ? 1 : 0;
   }
 
-  @Override
-  public int getVacationBalance(int id) throws IllegalStateException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+  // Decides if the calling user is an Administrator, without throwing.
+  private static AccessDecision decideAdministrator(IUser caller) {
+    if (caller == null) {
+      return AccessDecision.NOT_LOGGED_IN;
     }
-    verifyReadAccess(id);
-
-    return users.get(id).getVacationBalance();
+    return caller.hasRole(Role.ADMINISTRATOR) ? AccessDecision.ALLOWED
+        : AccessDecision.NOT_ADMINISTRATOR;
   }
 
   @Override
-  public void setVacationBalance(int id, int vacationBalance)
+  public void changeHRStatus(int id, boolean inHumanResources)
+      throws IllegalStateException {
+    changeHRStatus(currentSession, id, inHumanResources);
+  }
+
+  void changeHRStatus(HRSession session, int id, boolean inHumanResources)
+      throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      verifyAdministrator(session, ModelOperation.CHANGE_HR_STATUS, id);
+      IUser target = users.get(id);
+      if (target == null) {
+        throw new IllegalStateException("No user found with ID " + id);
+      }
+      // Checked before the change is logged, like every other change to a user
+      if (!target.hasRole(Role.EMPLOYEE)) {
+        throw new UnsupportedOperationException(
+            "This type of user (" + target.getUserType() + ") can not be in Human Resources.");
+      }
+
+      updateUser(session, ModelOperation.CHANGE_HR_STATUS, id, target, HRModel::hrStatus,
+          user -> user.setInHumanResources(inHumanResources),
+          LogRecord.changeHRStatus(id, inHumanResources));
+      invalidateAccess(id);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.CHANGE_HR_STATUS, e);
+    } finally {
+      stopTimer(ModelOperation.CHANGE_HR_STATUS, start);
+      event.end(ModelOperation.CHANGE_HR_STATUS, session, id);
+    }
+  }
+
+  @Override
+  public void addEmployee(String employeeType, String name, String password, double salary,
+      int vacationBalance, double annualBonus, boolean inHumanResources)
+      throws IllegalArgumentException {
+    addEmployee(currentSession, employeeType, name, password, salary, vacationBalance, annualBonus,
+        inHumanResources);
+  }
+
+  void addEmployee(HRSession session, String employeeType, String name, String password,
+      double salary, int vacationBalance, double annualBonus, boolean inHumanResources)
+      throws IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      verifyAdministrator(session, ModelOperation.ADD_EMPLOYEE, AuditLog.NO_USER);
+      if (password == null || password.equals("")) {
+        throw new IllegalArgumentException("Given password must be a non-empty string.");
+      }
+      if (employeeType == null || (!employeeType.equals("Standard Employee") && !employeeType
+          .equals("Manager"))) {
+        throw new IllegalArgumentException("Invalid employee type provided.");
+      }
+      // Checked before an ID is taken, so that invalid employees don't use up IDs
+      if (name == null) {
+        throw new IllegalArgumentException("Name cannot be null.");
+      }
+      if (salary < 0 || vacationBalance < 0 || annualBonus < 0) {
+        throw new IllegalArgumentException(
+            "Salary, Vacation Balance, and Annual Bonus must be non-negative.");
+      }
+
+      int id = idAllocator.nextEmployeeId();
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        insertEmployee(id, employeeType.equals("Manager"), name, password.hashCode() + "", salary,
+            vacationBalance, annualBonus, inHumanResources, clock.millis());
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.ADD_EMPLOYEE, id);
+      }
+      audit(session, ModelOperation.ADD_EMPLOYEE, id, Double.NaN, salary,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.ADD_EMPLOYEE, e);
+    } finally {
+      stopTimer(ModelOperation.ADD_EMPLOYEE, start);
+      event.end(ModelOperation.ADD_EMPLOYEE, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Creates a new employee with the given ID and (already hashed) password, whose salary took
+  // effect at the given moment, and adds them to the system. Must be called while holding the
+  // structure lock.
+  private void insertEmployee(int id, boolean manager, String name, String hashedPassword,
+      double salary, int vacationBalance, double annualBonus, boolean inHumanResources,
+      long timestamp) throws IllegalArgumentException {
+    AEmployee newEmployee;
+    if (manager) {
+      newEmployee = new Manager(id, name, hashedPassword, salary, vacationBalance, annualBonus,
+          inHumanResources, timestamp);
+    } else {
+      newEmployee = new StandardEmployee(id, name, hashedPassword, salary, vacationBalance,
+          annualBonus, inHumanResources, timestamp);
+    }
+    if (columns != null) {
+      newEmployee.attachColumns(columns);
+    }
+
+    LogRecord added = LogRecord.addEmployee(id, manager, name, hashedPassword, salary,
+        vacationBalance, annualBonus, inHumanResources, timestamp);
+    append(added);
+    history.keep(id, null, history.nextChange());
+    hierarchy.add(newEmployee.getId());
+    users.put(newEmployee.getId(), newEmployee);
+    directory.put(newEmployee);
+    index.add(newEmployee);
+    publish(added);
+    recordReservedIds(id);
+  }
+
+  // Records in the log any employee IDs the ID allocator has set aside beyond the highest one the
+  // log already shows as taken, given that the employee with the given ID has just been recorded.
+  // Must be called while holding the structure lock.
+  private void recordReservedIds(int id) {
+    if (log == null || replaying) {
+      return;
+    }
+    loggedEmployeeId = Math.max(loggedEmployeeId, id);
+    int reserved = idAllocator.getEmployeeHighWaterMark() - 1;
+    if (reserved > loggedEmployeeId) {
+      LogRecord reservation = LogRecord.reserveEmployeeIds(reserved);
+      append(reservation);
+      publish(reservation);
+      loggedEmployeeId = reserved;
+    }
+  }
+
+  @Override
+  public void addAdministrator(String name, String password)
+      throws IllegalArgumentException {
+    addAdministrator(currentSession, name, password);
+  }
+
+  void addAdministrator(HRSession session, String name, String password)
+      throws IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      verifyAdministrator(session, ModelOperation.ADD_ADMINISTRATOR, AuditLog.NO_USER);
+      if (password == null || password.equals("")) {
+        throw new IllegalArgumentException("Given password must be a non-empty string.");
+      }
+      if (name == null) {
+        throw new IllegalArgumentException("Name cannot be null.");
+      }
+
+      int id = idAllocator.nextAdministratorId();
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        insertAdministrator(id, name, password.hashCode() + "");
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.ADD_ADMINISTRATOR, id);
+      }
+      audit(session, ModelOperation.ADD_ADMINISTRATOR, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.ADD_ADMINISTRATOR, e);
+    } finally {
+      stopTimer(ModelOperation.ADD_ADMINISTRATOR, start);
+      event.end(ModelOperation.ADD_ADMINISTRATOR, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Creates a new administrator with the given ID and (already hashed) password and adds them to
+  // the system. Must be called while holding the structure lock.
+  private void insertAdministrator(int id, String name, String hashedPassword)
+      throws IllegalArgumentException {
+    Administrator newAdmin = new Administrator(id, name, hashedPassword);
+    LogRecord added = LogRecord.addAdministrator(id, name, hashedPassword);
+    append(added);
+    history.keep(id, null, history.nextChange());
+    users.put(id, newAdmin);
+    directory.put(newAdmin);
+    index.add(newAdmin);
+    publish(added);
+  }
+
+  @Override
+  public IUser removeUser(int id) throws IllegalStateException {
+    return removeUser(currentSession, id);
+  }
+
+  IUser removeUser(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      IUser caller = verifyAdministrator(session, ModelOperation.REMOVE_USER, id);
+      //VALIDATING INPUTS
+      if (users.get(id) == null) {
+        throw new IllegalStateException("No user with ID " + id + " found.");
+      }
+      if (id == caller.getId()) {
+        throw new IllegalStateException("Can't remove currently signed in user.");
+      }
+
+      IUser removed;
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        removed = deleteUser(id);
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.REMOVE_USER, id);
+      }
+      audit(session, ModelOperation.REMOVE_USER, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+
+      // Nobody can act on behalf of a user who no longer exists
+      for (HRSession open : sessions.values()) {
+        if (open.getUserId() == id) {
+          closeSession(open);
+        }
+      }
+
+      return removed;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.REMOVE_USER, e);
+    } finally {
+      stopTimer(ModelOperation.REMOVE_USER, start);
+      event.end(ModelOperation.REMOVE_USER, session, id);
+    }
+  }
+
+  // Removes the user with the given ID from the system, unlinking them from their manager and
+  // their reports. Must be called while holding the structure lock.
+  private IUser deleteUser(int id) throws IllegalStateException {
+    IUser removed = users.get(id);
+    if (removed == null) {
+      throw new IllegalStateException("No user with ID " + id + " found.");
+    }
+    LogRecord removal = LogRecord.removeUser(id);
+    append(removal);
+    long change = history.nextChange();
+    synchronized (removed) {
+      history.keep(id, removed, change);
+    }
+    unlinkFromManager(removed, change);
+    unlinkReports(removed, change);
+    hierarchy.remove(id);
+    users.remove(id);
+    // Under the user's lock, so that no change to them is made between leaving the directory and
+    // leaving the indexes
+    synchronized (removed) {
+      directory.remove(id);
+      index.remove(removed);
+    }
+    if (removed instanceof AEmployee) {
+      ((AEmployee) removed).detachColumns();
+    }
+    invalidateAccess(id);
+    publish(removal);
+    return removed;
+  }
+
+  // Moves the access version of the given user on, so that no session answers a permission
+  // decision involving them from its cache. Called after a change to the user which can affect who
+  // may access whom (a role, an HR status or a removal), once the change can be seen.
+  void invalidateAccess(int id) {
+    accessVersions.increment(id);
+  }
+
+  // Moves the access version of the given employee on after they have been linked to another
+  // manager (or unlinked), once the change can be seen. With transitive manager access, the link
+  // also changes who is underneath everyone above them, so the whole access epoch moves on.
+  private void invalidateLink(int employeeID) {
+    invalidateAccess(employeeID);
+    if (transitiveManagerAccess) {
+      accessEpoch.incrementAndGet();
+    }
+  }
+
+  // Gets the access version of a decision by the given caller about the given target (see
+  // AccessCache). Must be read before anything the decision depends on.
+  private long accessVersion(int callerId, int targetId) {
+    return accessEpoch.get() + accessVersions.get(callerId) + accessVersions.get(targetId);
+  }
+
+  // Unlinks the given user from their manager, if they have one, as part of the change with the
+  // given number. Must be called while holding the structure lock.
+  private void unlinkFromManager(IUser user, long change) {
+    // IF THE USER YOU ARE REMOVING HAS A MANAGER ASSIGNED TO THEM, UNLINK THEM
+    if (user.hasManager()) {
+      Manager manager = user.getManager();
+
+      // Unlink the manager and the employee
+      manager.removeReportingEmployee(user.getId());
+      synchronized (user) {
+        history.keep(user.getId(), user, change);
+        user.setManager(null);
+      }
+      hierarchy.setManager(user.getId(), OrgHierarchy.NO_MANAGER);
+      invalidateLink(user.getId());
+    }
+  }
+
+  // Unlinks everyone who reports to the given user from them, if they are a manager, so that
+  // nobody is left reporting to a manager who has been removed or demoted. Must be called while
+  // holding the structure lock.
+  private void unlinkReports(IUser user, long change) {
+    if (user.hasRole(Role.MANAGER)) {
+      Manager manager = (Manager) user;
+      for (AEmployee report : manager.getReportingEmployees().values()) {
+        unlinkFromManager(report, change);
+      }
+    }
+  }
+
+  // Moves everyone who reports to the given manager, who is being demoted, up to the manager's own
+  // manager as part of the change with the given number, or unlinks them if the manager has none.
+  // Must be called while holding the structure lock.
+  private void moveReportsUp(Manager manager, long change) {
+    if (manager.hasManager()) {
+      moveReports(manager, manager.getManager(), change);
+    } else {
+      unlinkReports(manager, change);
+    }
+  }
+
+  // Moves everyone who reports to the first manager to the second, as part of the change with the
+  // given number. Must be called while holding the structure lock.
+  private void moveReports(Manager from, Manager to, long change) {
+    for (AEmployee report : from.getReportingEmployees().values()) {
+      moveEmployee(report, to, change);
+    }
+  }
+
+  // Moves the given employee, and everyone underneath them, to report to the given manager as part
+  // of the change with the given number. Their version is moved on here, since the record of a
+  // bulk reorganization doesn't list everyone it moves. Must be called while holding the structure
+  // lock.
+  private void moveEmployee(AEmployee employee, Manager manager, long change) {
+    if (employee.hasManager()) {
+      employee.getManager().removeReportingEmployee(employee.getId());
+    }
+    synchronized (employee) {
+      history.keep(employee.getId(), employee, change);
+      employee.setManager(manager);
+      versions.increment(employee.getId());
+    }
+    manager.addReportingEmployee(employee);
+    hierarchy.setManager(employee.getId(), manager.getId());
+    invalidateLink(employee.getId());
+  }
+
+  // Replaces the given employee with a copy of a different type (used for promotions and
+  // demotions), which keeps their manager and everything else about them. The copy takes the old
+  // object's place everywhere it is referred to (the directory, the indexes and their manager's
+  // reports), so the change costs the same however big the model is and leaves nothing pointing at
+  // the old object. The old object is locked while it is copied and swapped out so that no
+  // concurrent change to it can be lost. Must be called while holding the structure lock, after
+  // anyone reporting to the old object has been moved off it.
+  private void replaceEmployee(AEmployee old, Function<AEmployee, AEmployee> copy, long change) {
+    synchronized (old) {
+      history.keep(old.getId(), old, change);
+      AEmployee replacement = copy.apply(old);
+      if (replacement.hasManager()) {
+        replacement.getManager().addReportingEmployee(replacement);
+      }
+      index.updateRoles(old.getId(), old.getRoles(), replacement.getRoles());
+      users.put(replacement.getId(), replacement);
+      directory.put(replacement);
+    }
+    invalidateAccess(old.getId());
+  }
+
+  // Records the given change in the log and then applies it to a user while holding their lock,
+  // updates the indexes, and audits the call with the value it changed before and after. If the
+  // user is replaced by a promotion or demotion in the meantime, the change is retried on the
+  // replacement so that it is not lost on the old object. Recording the change under the user's
+  // lock, before it can be seen, keeps the changes to each user in the same order in the log as
+  // they were made. The change must already have been checked, since it is logged either way.
+  private void updateUser(HRSession session, ModelOperation operation, int id, IUser target,
+      ToDoubleFunction<IUser> value, Consumer<IUser> change, LogRecord record)
+      throws IllegalStateException {
+    while (true) {
+      synchronized (target) {
+        if (directory.get(id) == target) {
+          double oldValue = value.applyAsDouble(target);
+          long position = append(record);
+          history.keep(id, target, history.nextChange());
+          index.update(target, change);
+          notePosition(id, position);
+          publish(record);
+          audit(session, operation, id, oldValue, value.applyAsDouble(target),
+              AccessDecision.ALLOWED);
+          return;
+        }
+      }
+      target = directory.get(id);
+      if (target == null) {
+        throw new IllegalStateException("No user found with ID " + id);
+      }
+    }
+  }
+
+  // Appends the given change to the log, if this model has one, and returns its position there
+  // (or the position of the change being replayed). Called once the change has been checked but
+  // before any of it can be seen, while holding the lock that makes it, so that the log never
+  // holds less than readers have seen. Once an append has failed, the log may be missing a change,
+  // so every later change is refused.
+  private long append(LogRecord record) throws IllegalStateException, UncheckedIOException {
+    if (replaying) {
+      return replayPosition;
+    }
+    if (log == null) {
+      return 0;
+    }
+    if (logFailed) {
+      throw new IllegalStateException(
+          "The write-ahead log has failed, so no more changes can be made.");
+    }
+    try {
+      return log.append(record);
+    } catch (RuntimeException e) {
+      logFailed = true;
+      throw e;
+    }
+  }
+
+  // Notes that the change at the given position in the log was the last made to the information of
+  // the user with the given ID. Must be called while holding the user's lock.
+  private void notePosition(int id, long position) {
+    if (logPositions != null) {
+      logPositions.advance(id, position);
+    }
+  }
+
+  // Moves the users the given change touched on to their next version and publishes the change to
+  // the model's subscribers, once it has been made. The changes committed by a transaction are
+  // published one by one.
+  private void publish(LogRecord record) {
+    bumpVersions(record);
+    if (replaying) {
+      return;
+    }
+    if (record.type == LogRecord.Type.TRANSACTION) {
+      for (LogRecord part : record.parts) {
+        changes.publish(part, clock);
+      }
+    } else {
+      changes.publish(record, clock);
+    }
+  }
+
+  // Moves every user the given change touched on to their next version. A link touches both the
+  // employee and their new manager, and a bulk reorganization both of its managers (the employees
+  // it moves are moved on as they are moved).
+  private void bumpVersions(LogRecord record) {
+    switch (record.type) {
+      case TRANSACTION:
+        for (LogRecord part : record.parts) {
+          bumpVersions(part);
+        }
+        break;
+      case RESERVE_EMPLOYEE_IDS:
+        break;
+      case LINK_EMPLOYEE_AND_MANAGER:
+      case REASSIGN_REPORTS:
+      case MERGE_TEAMS:
+        versions.increment(record.managerId);
+        versions.increment(record.id);
+        break;
+      case MOVE_SUBTREES:
+        versions.increment(record.managerId);
+        break;
+      default:
+        versions.increment(record.id);
+        break;
+    }
+  }
+
+  // Makes the change described by the given record again, without checking permissions. Called
+  // for each record in the log while the model is being constructed, holding the structure lock.
+  // New users are given the IDs they had when they were first added, and every ID the log shows as
+  // taken is marked as used in the ID allocator.
+  private void replay(LogRecord record) throws IllegalStateException {
+    switch (record.type) {
+      case ADD_EMPLOYEE:
+        idAllocator.markUsed(record.id);
+        loggedEmployeeId = Math.max(loggedEmployeeId, record.id);
+        insertEmployee(record.id, record.manager, record.name, record.password, record.salary,
+            record.vacationBalance, record.annualBonus, record.inHumanResources, record.timestamp);
+        break;
+      case ADD_ADMINISTRATOR:
+        idAllocator.markUsed(record.id);
+        insertAdministrator(record.id, record.name, record.password);
+        break;
+      case RESERVE_EMPLOYEE_IDS:
+        idAllocator.markUsed(record.id);
+        loggedEmployeeId = Math.max(loggedEmployeeId, record.id);
+        break;
+      case REMOVE_USER:
+        deleteUser(record.id);
+        break;
+      case LINK_EMPLOYEE_AND_MANAGER:
+        link(record.id, record.managerId);
+        break;
+      case PROMOTE_TO_MANAGER:
+        promote(record.id);
+        break;
+      case DEMOTE_TO_STANDARD:
+        demote(record.id);
+        break;
+      case REASSIGN_REPORTS:
+        reassign(record.id, record.managerId);
+        break;
+      case MERGE_TEAMS:
+        merge(record.id, record.managerId);
+        break;
+      case MOVE_SUBTREES:
+        move(record.ids, record.managerId);
+        break;
+      case TRANSACTION:
+        // Decided before any part is made, since the parts share the transaction's position
+        boolean[] caught = new boolean[record.parts.length];
+        for (int i = 0; i < caught.length; i++) {
+          caught[i] = caughtBySnapshot(record.parts[i]);
+        }
+        for (int i = 0; i < caught.length; i++) {
+          LogRecord part = record.parts[i];
+          if (part.type == LogRecord.Type.LINK_EMPLOYEE_AND_MANAGER) {
+            replay(part);
+          } else if (!caught[i]) {
+            replayUpdate(part);
+          }
+        }
+        break;
+      default:
+        if (!caughtBySnapshot(record)) {
+          replayUpdate(record);
+        }
+        break;
+    }
+  }
+
+  // Was the change to a single user's information described by the given record, which is being
+  // replayed, already caught by the snapshot this model was loaded from while it was being taken?
+  // Structural changes are never caught, since the snapshot holds them off.
+  private boolean caughtBySnapshot(LogRecord record) {
+    switch (record.type) {
+      case CHANGE_HR_STATUS:
+      case SET_SALARY:
+      case SET_VACATION_BALANCE:
+      case SET_ANNUAL_BONUS:
+        return replayPosition <= logPositions.get(record.id);
+      default:
+        return false;
+    }
+  }
+
+  // Makes the change to a single user's information described by the given record again. A change
+  // which raced with the removal of its user may have been recorded after the removal; it had no
+  // effect then, so it is skipped.
+  private void replayUpdate(LogRecord record) throws IllegalStateException {
+    IUser target = directory.get(record.id);
+    if (target == null) {
+      return;
+    }
+    notePosition(record.id, replayPosition);
+    switch (record.type) {
+      case CHANGE_HR_STATUS:
+        index.update(target, user -> user.setInHumanResources(record.inHumanResources));
+        break;
+      case SET_SALARY:
+        index.update(target, user -> user.setSalary(record.salary, record.timestamp));
+        break;
+      case SET_VACATION_BALANCE:
+        index.update(target, user -> user.setVacationBalance(record.vacationBalance));
+        break;
+      case SET_ANNUAL_BONUS:
+        index.update(target, user -> user.setAnnualBonus(record.annualBonus));
+        break;
+      default:
+        throw new IllegalStateException("Unexpected log record " + record.type);
+    }
+  }
+
+  @Override
+  public void linkEmployeeAndManager(int employeeID, int managerID) throws IllegalStateException {
+    linkEmployeeAndManager(currentSession, employeeID, managerID);
+  }
+
+  void linkEmployeeAndManager(HRSession session, int employeeID, int managerID)
+      throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.LINK_EMPLOYEE_AND_MANAGER, employeeID);
+      //VALIDATE INPUTS
+      if (users.get(employeeID) == null || users.get(managerID) == null) {
+        throw new IllegalStateException("Both IDs must correspond to valid users.");
+      }
+      if (!users.get(managerID).hasRole(Role.MANAGER)
+          || !users.get(employeeID).hasRole(Role.EMPLOYEE)) {
+        throw new IllegalStateException("Must provide one Manager and one AEmployee.");
+      }
+
+      int oldManagerId;
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        oldManagerId = users.get(employeeID).getManagerId();
+        link(employeeID, managerID);
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.LINK_EMPLOYEE_AND_MANAGER, employeeID);
+      }
+      audit(session, ModelOperation.LINK_EMPLOYEE_AND_MANAGER, employeeID,
+          oldManagerId == OrgHierarchy.NO_MANAGER ? Double.NaN : oldManagerId, managerID,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.LINK_EMPLOYEE_AND_MANAGER, e);
+    } finally {
+      stopTimer(ModelOperation.LINK_EMPLOYEE_AND_MANAGER, start);
+      event.end(ModelOperation.LINK_EMPLOYEE_AND_MANAGER, session, employeeID);
+    }
+  }
+
+  // Links the given employee and manager, and records the change. Must be called while holding the
+  // structure lock.
+  private void link(int employeeID, int managerID) throws IllegalStateException {
+    checkLink(employeeID, managerID);
+    LogRecord linked = LogRecord.linkEmployeeAndManager(employeeID, managerID);
+    append(linked);
+    relink(employeeID, managerID, history.nextChange());
+    publish(linked);
+  }
+
+  // Checks that the given employee can be linked to the given manager. Must be called while
+  // holding the structure lock.
+  private void checkLink(int employeeID, int managerID) throws IllegalStateException {
+    // Look the users up again now that nobody else can replace or remove them
+    IUser managerUser = users.get(managerID);
+    IUser employeeUser = users.get(employeeID);
+    if (managerUser == null || employeeUser == null || !managerUser.hasRole(Role.MANAGER)
+        || !employeeUser.hasRole(Role.EMPLOYEE)) {
+      throw new IllegalStateException("Must provide one Manager and one AEmployee.");
+    }
+    if (employeeID == managerID || hierarchy.isUnder(managerID, employeeID)) {
+      throw new IllegalStateException("An employee can't report to someone underneath them.");
+    }
+  }
+
+  // Links the given employee and manager, as the change with the given number, without recording
+  // the change. Must be called while holding the structure lock.
+  private void relink(int employeeID, int managerID, long change) throws IllegalStateException {
+    checkLink(employeeID, managerID);
+    Manager manager = (Manager) users.get(managerID);
+    AEmployee employee = (AEmployee) users.get(employeeID);
+
+    //Unlink employee from old manager if needed
+    if (employee.hasManager()) {
+      employee.getManager().removeReportingEmployee(employeeID);
+    }
+
+    synchronized (employee) {
+      history.keep(employeeID, employee, change);
+      employee.setManager(manager);
+    }
+    manager.addReportingEmployee(employee);
+    hierarchy.setManager(employeeID, managerID);
+    invalidateLink(employeeID);
+  }
+
+  @Override
+  public void reassignReports(int fromManagerID, int toManagerID) throws IllegalStateException {
+    reassignReports(currentSession, fromManagerID, toManagerID);
+  }
+
+  void reassignReports(HRSession session, int fromManagerID, int toManagerID)
+      throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.REASSIGN_REPORTS, fromManagerID);
+
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      commitGate.readLock().lock();
+      structureLock.lock();
+      try {
+        change.locked();
+        reassign(fromManagerID, toManagerID);
+      } finally {
+        structureLock.unlock();
+        commitGate.readLock().unlock();
+        change.end(ModelOperation.REASSIGN_REPORTS, fromManagerID);
+      }
+      audit(session, ModelOperation.REASSIGN_REPORTS, fromManagerID, Double.NaN, toManagerID,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.REASSIGN_REPORTS, e);
+    } finally {
+      stopTimer(ModelOperation.REASSIGN_REPORTS, start);
+      event.end(ModelOperation.REASSIGN_REPORTS, session, fromManagerID);
+    }
+  }
+
+  // Moves everyone who reports to the first manager to the second, as a single change, and records
+  // it. Must be called while holding the structure lock.
+  private void reassign(int fromManagerID, int toManagerID) throws IllegalStateException {
+    Manager from = teamManager(fromManagerID);
+    Manager to = teamManager(toManagerID);
+    checkTeamMove(fromManagerID, toManagerID);
+    LogRecord reassigned = LogRecord.reassignReports(fromManagerID, toManagerID);
+    append(reassigned);
+    commitsBegun.incrementAndGet();
+    try {
+      moveReports(from, to, history.nextChange());
+    } finally {
+      commitsFinished.incrementAndGet();
+    }
+    publish(reassigned);
+  }
+
+  @Override
+  public void mergeTeams(int absorbingManagerID, int mergedManagerID)
+      throws IllegalStateException {
+    mergeTeams(currentSession, absorbingManagerID, mergedManagerID);
+  }
+
+  void mergeTeams(HRSession session, int absorbingManagerID, int mergedManagerID)
+      throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.MERGE_TEAMS, mergedManagerID);
+
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      commitGate.readLock().lock();
+      structureLock.lock();
+      try {
+        change.locked();
+        merge(mergedManagerID, absorbingManagerID);
+      } finally {
+        structureLock.unlock();
+        commitGate.readLock().unlock();
+        change.end(ModelOperation.MERGE_TEAMS, mergedManagerID);
+      }
+      audit(session, ModelOperation.MERGE_TEAMS, mergedManagerID, Double.NaN, absorbingManagerID,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.MERGE_TEAMS, e);
+    } finally {
+      stopTimer(ModelOperation.MERGE_TEAMS, start);
+      event.end(ModelOperation.MERGE_TEAMS, session, mergedManagerID);
+    }
+  }
+
+  // Moves the first manager, and everyone who reports to them, to report to the second, as a
+  // single change, and records it. Must be called while holding the structure lock.
+  private void merge(int mergedManagerID, int absorbingManagerID) throws IllegalStateException {
+    Manager merged = teamManager(mergedManagerID);
+    Manager absorbing = teamManager(absorbingManagerID);
+    checkTeamMove(mergedManagerID, absorbingManagerID);
+    LogRecord merge = LogRecord.mergeTeams(mergedManagerID, absorbingManagerID);
+    append(merge);
+    commitsBegun.incrementAndGet();
+    try {
+      long change = history.nextChange();
+      moveReports(merged, absorbing, change);
+      moveEmployee(merged, absorbing, change);
+    } finally {
+      commitsFinished.incrementAndGet();
+    }
+    publish(merge);
+  }
+
+  // Gets the manager with the given ID, for a bulk reorganization.
+  private Manager teamManager(int id) throws IllegalStateException {
+    IUser user = users.get(id);
+    if (user == null || !user.hasRole(Role.MANAGER)) {
+      throw new IllegalStateException("No manager with ID " + id + " found.");
+    }
+    return (Manager) user;
+  }
+
+  // Checks that the team of the first manager can be moved to report to the second, who mustn't be
+  // the same manager or anyone underneath them.
+  private void checkTeamMove(int fromManagerID, int toManagerID) throws IllegalStateException {
+    if (fromManagerID == toManagerID || hierarchy.isUnder(toManagerID, fromManagerID)) {
+      throw new IllegalStateException("A team can't be moved to a manager within it.");
+    }
+  }
+
+  @Override
+  public void moveSubtrees(int[] employeeIDs, int managerID)
+      throws IllegalStateException, IllegalArgumentException {
+    moveSubtrees(currentSession, employeeIDs, managerID);
+  }
+
+  void moveSubtrees(HRSession session, int[] employeeIDs, int managerID)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.MOVE_SUBTREES, managerID);
+      //VALIDATING INPUTS
+      if (employeeIDs == null) {
+        throw new IllegalArgumentException("The employee IDs cannot be null.");
+      }
+
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      commitGate.readLock().lock();
+      structureLock.lock();
+      try {
+        change.locked();
+        move(employeeIDs, managerID);
+      } finally {
+        structureLock.unlock();
+        commitGate.readLock().unlock();
+        change.end(ModelOperation.MOVE_SUBTREES, managerID);
+      }
+      audit(session, ModelOperation.MOVE_SUBTREES, managerID, Double.NaN, employeeIDs.length,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.MOVE_SUBTREES, e);
+    } finally {
+      stopTimer(ModelOperation.MOVE_SUBTREES, start);
+      event.end(ModelOperation.MOVE_SUBTREES, session, managerID);
+    }
+  }
+
+  // Moves each of the given employees, and everyone underneath them, to report to the given
+  // manager, as a single change, and records it. Every employee is checked before anyone is moved.
+  // Moving one of them never puts the manager underneath another, so checking them all against the
+  // hierarchy as it was beforehand is enough. Must be called while holding the structure lock.
+  private void move(int[] employeeIDs, int managerID) throws IllegalStateException {
+    Manager manager = teamManager(managerID);
+    AEmployee[] employees = new AEmployee[employeeIDs.length];
+    for (int i = 0; i < employeeIDs.length; i++) {
+      IUser employee = users.get(employeeIDs[i]);
+      if (employee == null || !employee.hasRole(Role.EMPLOYEE)) {
+        throw new IllegalStateException("No employee with ID " + employeeIDs[i] + " found.");
+      }
+      if (employeeIDs[i] == managerID || hierarchy.isUnder(managerID, employeeIDs[i])) {
+        throw new IllegalStateException("An employee can't report to someone underneath them.");
+      }
+      employees[i] = (AEmployee) employee;
+    }
+    LogRecord moved = LogRecord.moveSubtrees(employeeIDs, managerID);
+    append(moved);
+    commitsBegun.incrementAndGet();
+    try {
+      long change = history.nextChange();
+      for (AEmployee employee : employees) {
+        moveEmployee(employee, manager, change);
+      }
+    } finally {
+      commitsFinished.incrementAndGet();
+    }
+    publish(moved);
+  }
+
+  @Override
+  public void promoteToManager(int id) throws IllegalStateException {
+    promoteToManager(currentSession, id);
+  }
+
+  void promoteToManager(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.PROMOTE_TO_MANAGER, id);
+      //VALIDATE INPUTS
+      if (users.get(id) == null) {
+        throw new IllegalStateException("No user with ID " + id + " found.");
+      }
+      if ((users.get(id).getRoles() & EMPLOYEE_KIND_MASK) != STANDARD_EMPLOYEE_ROLES) {
+        throw new IllegalStateException("User must be an AEmployee but not a manager.");
+      }
+
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        promote(id);
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.PROMOTE_TO_MANAGER, id);
+      }
+      audit(session, ModelOperation.PROMOTE_TO_MANAGER, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.PROMOTE_TO_MANAGER, e);
+    } finally {
+      stopTimer(ModelOperation.PROMOTE_TO_MANAGER, start);
+      event.end(ModelOperation.PROMOTE_TO_MANAGER, session, id);
+    }
+  }
+
+  // Promotes the given employee to be a manager, who keeps reporting to their manager. Must be
+  // called while holding the structure lock.
+  private void promote(int id) throws IllegalStateException {
+    IUser emp = users.get(id);
+    if (emp == null || !emp.hasRole(Role.STANDARD_EMPLOYEE)) {
+      throw new IllegalStateException("User must be an AEmployee but not a manager.");
+    }
+    LogRecord promotion = LogRecord.promoteToManager(id);
+    append(promotion);
+    replaceEmployee((AEmployee) emp, Manager::new, history.nextChange());
+    publish(promotion);
+  }
+
+  @Override
+  public void demoteToStandard(int id) throws IllegalStateException {
+    demoteToStandard(currentSession, id);
+  }
+
+  void demoteToStandard(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.DEMOTE_TO_STANDARD, id);
+      //VALIDATE INPUTS
+      if (users.get(id) == null) {
+        throw new IllegalStateException("No user with ID " + id + " found.");
+      }
+      if ((users.get(id).getRoles() & EMPLOYEE_KIND_MASK) != MANAGER_ROLES) {
+        throw new IllegalStateException("User must be an AEmployee but not a StandardEmployee.");
+      }
+
+      StructuralChangeEvent change = StructuralChangeEvent.start();
+      structureLock.lock();
+      try {
+        change.locked();
+        demote(id);
+      } finally {
+        structureLock.unlock();
+        change.end(ModelOperation.DEMOTE_TO_STANDARD, id);
+      }
+      audit(session, ModelOperation.DEMOTE_TO_STANDARD, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.DEMOTE_TO_STANDARD, e);
+    } finally {
+      stopTimer(ModelOperation.DEMOTE_TO_STANDARD, start);
+      event.end(ModelOperation.DEMOTE_TO_STANDARD, session, id);
+    }
+  }
+
+  // Demotes the given manager to be a standard employee, who keeps reporting to their manager and
+  // hands their reports up to that manager. Must be called while holding the structure lock.
+  private void demote(int id) throws IllegalStateException {
+    IUser emp = users.get(id);
+    if (emp == null || !emp.hasRole(Role.MANAGER)) {
+      throw new IllegalStateException("User must be an AEmployee but not a StandardEmployee.");
+    }
+    LogRecord demotion = LogRecord.demoteToStandard(id);
+    append(demotion);
+    long change = history.nextChange();
+    moveReportsUp((Manager) emp, change);
+    replaceEmployee((AEmployee) emp, StandardEmployee::new, change);
+    publish(demotion);
+  }
+
+  // Decides if the calling user has permission to read information about the target user.
+  //    - If current user is an administrator, they can read any information
+  //    - If current user is a manager, they can read information about reporting employees (or
+  //      anyone underneath them, with transitive manager access)
+  //    - If current user is in HR, they can read information from any non-HR user
+  //    - All users can read their own information
+  private AccessDecision decideReadAccess(IUser caller, IUser target) {
+    AccessDecision decision = decideAdministrator(caller);
+    if (decision != AccessDecision.NOT_ADMINISTRATOR) {
+      // Either you're an administrator, with full access, or nobody is logged in
+      return decision;
+    }
+
+    // You can access your own information
+    if (target.getId() == caller.getId()) {
+      return AccessDecision.ALLOWED;
+    }
+
+    // If you're in HR, you can view the target info so long as they're not also in HR
+    if (caller.hasRole(Role.HUMAN_RESOURCES) && !target.hasRole(Role.HUMAN_RESOURCES)) {
+      return AccessDecision.ALLOWED;
+    }
+
+    // If you're a manager, you can view the target info if the employee reports to you
+    if (caller.hasRole(Role.MANAGER) && managesEmployee((Manager) caller, target)) {
+      return AccessDecision.ALLOWED;
+    }
+    return AccessDecision.NOT_PERMITTED;
+  }
+
+  // Decides if the calling user has permission to edit information about the target user.
+  //    - If current user is an administrator, they can edit any information
+  //    - If current user is a manager, they can edit information about reporting employees (or
+  //      anyone underneath them, with transitive manager access)
+  private AccessDecision decideWriteAccess(IUser caller, IUser target) {
+    AccessDecision decision = decideAdministrator(caller);
+    if (decision != AccessDecision.NOT_ADMINISTRATOR) {
+      return decision;
+    }
+
+    // If you're a manager, you can edit the target info if the employee reports to you
+    if (caller.hasRole(Role.MANAGER) && managesEmployee((Manager) caller, target)) {
+      return AccessDecision.ALLOWED;
+    }
+    return AccessDecision.NOT_PERMITTED;
+  }
+
+  // Does the given employee report to the manager? With transitive manager access, this includes
+  // anyone underneath them. Both sides of a manager link always change together, so the target's
+  // own link is checked rather than looking them up in the manager's map.
+  private boolean managesEmployee(Manager manager, IUser target) {
+    if (target.getManagerId() == manager.getId()) {
+      return true;
+    }
+    return transitiveManagerAccess && hierarchy.isUnder(target.getId(), manager.getId());
+  }
+
+  // Checks that the session may read (or edit) the target's information, auditing the call as
+  // denied and throwing an error if not. The decision is looked up in the session's cache first,
+  // and cached once it has been made. Nothing is allocated unless access is denied.
+  private void checkAccess(HRSession session, IUser target, boolean write,
+      ModelOperation operation) throws IllegalStateException {
+    IUser caller = caller(session);
+    AccessDecision decision = caller == null ? AccessDecision.NOT_LOGGED_IN
+        : decideAccess(session, caller, target, write);
+    if (!decision.isAllowed()) {
+      audit(session, operation, target.getId(), Double.NaN, Double.NaN, decision);
+      throw decision.toException(caller);
+    }
+  }
+
+  // Decides if the caller may read (or edit) the target's information, looking the decision up in
+  // the session's cache first and caching it once it has been made.
+  private AccessDecision decideAccess(HRSession session, IUser caller, IUser target,
+      boolean write) {
+    AccessCheckEvent event = AccessCheckEvent.start();
+    String access = write ? AccessCheckEvent.WRITE : AccessCheckEvent.READ;
+    AccessCache cache = session.getAccessCache();
+    long version = accessVersion(caller.getId(), target.getId());
+    long entry = cache.get(target.getId(), write);
+    if (cache.isHit(entry, target.getId(), write, version)) {
+      AccessDecision decision = AccessCache.decision(entry);
+      event.end(caller, target.getId(), access, decision, true);
+      return decision;
+    }
+    AccessDecision decision = write ? decideWriteAccess(caller, target)
+        : decideReadAccess(caller, target);
+    // Only cached if neither user was replaced or removed after being looked up, since a decision
+    // about an old object could otherwise be stored with a version read after it was swapped out
+    if (directory.get(caller.getId()) == caller && directory.get(target.getId()) == target) {
+      cache.store(target.getId(), write, decision, version);
+    }
+    event.end(caller, target.getId(), access, decision, false);
+    return decision;
+  }
+
+  // Looks up the user with the given ID, checking that the session may read their information.
+  private IUser readableUser(HRSession session, int id, ModelOperation operation)
+      throws IllegalStateException {
+    //VALIDATING INPUTS
+    IUser target = directory.get(id);
+    if (target == null) {
+      throw new IllegalStateException("No user found with ID " + id);
+    }
+    checkAccess(session, target, false, operation);
+    return target;
+  }
+
+  // Looks up the user with the given ID, checking that the session may edit their information.
+  private IUser writableUser(HRSession session, int id, ModelOperation operation)
+      throws IllegalStateException {
+    //VALIDATING INPUTS
+    IUser target = directory.get(id);
+    if (target == null) {
+      throw new IllegalStateException("No user found with ID " + id);
+    }
+    checkAccess(session, target, true, operation);
+    return target;
+  }
+
+  @Override
+  public double getSalary(int id) throws IllegalStateException {
+    return getSalary(currentSession, id);
+  }
+
+  double getSalary(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      double salary = readableUser(session, id, ModelOperation.GET_SALARY).getSalary();
+      audit(session, ModelOperation.GET_SALARY, id, salary, Double.NaN, AccessDecision.ALLOWED);
+      return salary;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_SALARY, e);
+    } finally {
+      stopTimer(ModelOperation.GET_SALARY, start);
+      event.end(ModelOperation.GET_SALARY, session, id);
+    }
+  }
+
+  @Override
+  public void setSalary(int id, double salary)
+      throws IllegalStateException, IllegalArgumentException {
+    setSalary(currentSession, id, salary);
+  }
+
+  void setSalary(HRSession session, int id, double salary)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      IUser target = writableUser(session, id, ModelOperation.SET_SALARY);
+      //VALIDATING INPUTS
+      if (salary < 0) {
+        throw new IllegalArgumentException("Salary must be non-negative.");
+      }
+
+      long timestamp = clock.millis();
+      updateUser(session, ModelOperation.SET_SALARY, id, target, IUser::getSalary,
+          user -> user.setSalary(salary, timestamp), LogRecord.setSalary(id, salary, timestamp));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.SET_SALARY, e);
+    } finally {
+      stopTimer(ModelOperation.SET_SALARY, start);
+      event.end(ModelOperation.SET_SALARY, session, id);
+    }
+  }
+
+  @Override
+  public SalaryHistory getSalaryHistory(int id) throws IllegalStateException {
+    return getSalaryHistory(currentSession, id);
+  }
+
+  SalaryHistory getSalaryHistory(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      SalaryHistory history = readableUser(session, id, ModelOperation.GET_SALARY_HISTORY)
+          .getSalaryHistory();
+      audit(session, ModelOperation.GET_SALARY_HISTORY, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+      return history;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_SALARY_HISTORY, e);
+    } finally {
+      stopTimer(ModelOperation.GET_SALARY_HISTORY, start);
+      event.end(ModelOperation.GET_SALARY_HISTORY, session, id);
+    }
+  }
+
+  @Override
+  public double getSalaryAsOf(int id, Instant time)
+      throws IllegalStateException, IllegalArgumentException {
+    return getSalaryAsOf(currentSession, id, time);
+  }
+
+  double getSalaryAsOf(HRSession session, int id, Instant time)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      if (time == null) {
+        throw new IllegalArgumentException("The time cannot be null.");
+      }
+
+      double salary = readableUser(session, id, ModelOperation.GET_SALARY_AS_OF)
+          .getSalaryTimeSeries().amountAsOf(time.toEpochMilli());
+      audit(session, ModelOperation.GET_SALARY_AS_OF, id, salary, Double.NaN,
+          AccessDecision.ALLOWED);
+      return salary;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_SALARY_AS_OF, e);
+    } finally {
+      stopTimer(ModelOperation.GET_SALARY_AS_OF, start);
+      event.end(ModelOperation.GET_SALARY_AS_OF, session, id);
+    }
+  }
+
+  @Override
+  public List<SalaryChange> getSalaryChanges(int id, Instant from, Instant to)
       throws IllegalStateException, IllegalArgumentException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+    return getSalaryChanges(currentSession, id, from, to);
+  }
+
+  List<SalaryChange> getSalaryChanges(HRSession session, int id, Instant from, Instant to)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      if (from == null || to == null) {
+        throw new IllegalArgumentException("The start and end of the range cannot be null.");
+      }
+
+      List<SalaryChange> changes = readableUser(session, id, ModelOperation.GET_SALARY_CHANGES)
+          .getSalaryTimeSeries().changesBetween(from.toEpochMilli(), to.toEpochMilli());
+      audit(session, ModelOperation.GET_SALARY_CHANGES, id, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+      return changes;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_SALARY_CHANGES, e);
+    } finally {
+      stopTimer(ModelOperation.GET_SALARY_CHANGES, start);
+      event.end(ModelOperation.GET_SALARY_CHANGES, session, id);
     }
-    verifyWriteAccess(id);
+  }
+
+  @Override
+  public int getVacationBalance(int id) throws IllegalStateException {
+    return getVacationBalance(currentSession, id);
+  }
 
-    users.get(id).setVacationBalance(vacationBalance);
+  int getVacationBalance(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      int balance = readableUser(session, id, ModelOperation.GET_VACATION_BALANCE)
+          .getVacationBalance();
+      audit(session, ModelOperation.GET_VACATION_BALANCE, id, balance, Double.NaN,
+          AccessDecision.ALLOWED);
+      return balance;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_VACATION_BALANCE, e);
+    } finally {
+      stopTimer(ModelOperation.GET_VACATION_BALANCE, start);
+      event.end(ModelOperation.GET_VACATION_BALANCE, session, id);
+    }
   }
 
   @Override
-  public double getAnnualBonus(int id) throws IllegalStateException {
-    //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+  public void setVacationBalance(int id, int vacationBalance)
+      throws IllegalStateException, IllegalArgumentException {
+    setVacationBalance(currentSession, id, vacationBalance);
+  }
+
+  void setVacationBalance(HRSession session, int id, int vacationBalance)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      IUser target = writableUser(session, id, ModelOperation.SET_VACATION_BALANCE);
+      //VALIDATING INPUTS
+      if (vacationBalance < 0) {
+        throw new IllegalArgumentException("Vacation Balance must be non-negative.");
+      }
+
+      updateUser(session, ModelOperation.SET_VACATION_BALANCE, id, target,
+          IUser::getVacationBalance, user -> user.setVacationBalance(vacationBalance),
+          LogRecord.setVacationBalance(id, vacationBalance));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.SET_VACATION_BALANCE, e);
+    } finally {
+      stopTimer(ModelOperation.SET_VACATION_BALANCE, start);
+      event.end(ModelOperation.SET_VACATION_BALANCE, session, id);
     }
-    verifyReadAccess(id);
+  }
+
+  @Override
+  public double getAnnualBonus(int id) throws IllegalStateException {
+    return getAnnualBonus(currentSession, id);
+  }
 
-    return users.get(id).getAnnualBonus();
+  double getAnnualBonus(HRSession session, int id) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      double bonus = readableUser(session, id, ModelOperation.GET_ANNUAL_BONUS)
+          .getAnnualBonus();
+      audit(session, ModelOperation.GET_ANNUAL_BONUS, id, bonus, Double.NaN,
+          AccessDecision.ALLOWED);
+      return bonus;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.GET_ANNUAL_BONUS, e);
+    } finally {
+      stopTimer(ModelOperation.GET_ANNUAL_BONUS, start);
+      event.end(ModelOperation.GET_ANNUAL_BONUS, session, id);
+    }
   }
 
   @Override
   public void setAnnualBonus(int id, double annualBonus)
       throws IllegalStateException, IllegalArgumentException {
+    setAnnualBonus(currentSession, id, annualBonus);
+  }
+
+  void setAnnualBonus(HRSession session, int id, double annualBonus)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      IUser target = writableUser(session, id, ModelOperation.SET_ANNUAL_BONUS);
+      //VALIDATING INPUTS
+      if (annualBonus < 0) {
+        throw new IllegalArgumentException("Annual Bonus must be non-negative.");
+      }
+
+      updateUser(session, ModelOperation.SET_ANNUAL_BONUS, id, target, IUser::getAnnualBonus,
+          user -> user.setAnnualBonus(annualBonus), LogRecord.setAnnualBonus(id, annualBonus));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.SET_ANNUAL_BONUS, e);
+    } finally {
+      stopTimer(ModelOperation.SET_ANNUAL_BONUS, start);
+      event.end(ModelOperation.SET_ANNUAL_BONUS, session, id);
+    }
+  }
+
+  @Override
+  public List<Integer> findUsersByName(String prefix)
+      throws IllegalStateException, IllegalArgumentException {
+    return findUsersByName(currentSession, prefix);
+  }
+
+  List<Integer> findUsersByName(HRSession session, String prefix)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      if (prefix == null) {
+        throw new IllegalArgumentException("The prefix cannot be null.");
+      }
+
+      return readableIds(session, ModelOperation.FIND_USERS_BY_NAME,
+          () -> index.withNamePrefix(prefix));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_USERS_BY_NAME, e);
+    } finally {
+      stopTimer(ModelOperation.FIND_USERS_BY_NAME, start);
+      event.end(ModelOperation.FIND_USERS_BY_NAME, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public List<Integer> findUsersWithRoles(Role... roles)
+      throws IllegalStateException, IllegalArgumentException {
+    return findUsersWithRoles(currentSession, roles);
+  }
+
+  List<Integer> findUsersWithRoles(HRSession session, Role... roles)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      if (roles == null || roles.length == 0) {
+        throw new IllegalArgumentException("At least one role must be given.");
+      }
+      for (Role role : roles) {
+        if (role == null) {
+          throw new IllegalArgumentException("The roles cannot be null.");
+        }
+      }
+
+      return readableIds(session, ModelOperation.FIND_USERS_WITH_ROLES,
+          () -> index.withRoles(Role.maskOf(roles)));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_USERS_WITH_ROLES, e);
+    } finally {
+      stopTimer(ModelOperation.FIND_USERS_WITH_ROLES, start);
+      event.end(ModelOperation.FIND_USERS_WITH_ROLES, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public List<Integer> findEmployeesBySalary(double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    return findEmployeesBySalary(currentSession, min, max);
+  }
+
+  List<Integer> findEmployeesBySalary(HRSession session, double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      checkRange(min, max);
+      return readableIds(session, ModelOperation.FIND_EMPLOYEES_BY_SALARY,
+          () -> index.withSalaryBetween(min, max));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_EMPLOYEES_BY_SALARY, e);
+    } finally {
+      stopTimer(ModelOperation.FIND_EMPLOYEES_BY_SALARY, start);
+      event.end(ModelOperation.FIND_EMPLOYEES_BY_SALARY, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public List<Integer> findEmployeesByAnnualBonus(double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    return findEmployeesByAnnualBonus(currentSession, min, max);
+  }
+
+  List<Integer> findEmployeesByAnnualBonus(HRSession session, double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      checkRange(min, max);
+      return readableIds(session, ModelOperation.FIND_EMPLOYEES_BY_ANNUAL_BONUS,
+          () -> index.withAnnualBonusBetween(min, max));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_EMPLOYEES_BY_ANNUAL_BONUS, e);
+    } finally {
+      stopTimer(ModelOperation.FIND_EMPLOYEES_BY_ANNUAL_BONUS, start);
+      event.end(ModelOperation.FIND_EMPLOYEES_BY_ANNUAL_BONUS, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public List<Integer> findEmployeesByVacationBalance(int min, int max)
+      throws IllegalStateException, IllegalArgumentException {
+    return findEmployeesByVacationBalance(currentSession, min, max);
+  }
+
+  List<Integer> findEmployeesByVacationBalance(HRSession session, int min, int max)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      checkRange(min, max);
+      return readableIds(session, ModelOperation.FIND_EMPLOYEES_BY_VACATION_BALANCE,
+          () -> index.withVacationBalanceBetween(min, max));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_EMPLOYEES_BY_VACATION_BALANCE, e);
+    } finally {
+      stopTimer(ModelOperation.FIND_EMPLOYEES_BY_VACATION_BALANCE, start);
+      event.end(ModelOperation.FIND_EMPLOYEES_BY_VACATION_BALANCE, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public Stream<IUser> findUsers(UserQuery query)
+      throws IllegalStateException, IllegalArgumentException {
+    return findUsers(currentSession, query);
+  }
+
+  // Finds the results of the query along the cheapest plan. Candidates which no longer match (or
+  // which the caller may not read) are dropped as they are visited. If the plan doesn't produce
+  // them in order, the matches are sorted by their information as it stands when they are visited,
+  // so that a concurrent change can't make the sort inconsistent. Since the work is done as the
+  // stream is consumed, the call is timed, and its event ended, once the stream runs out or is
+  // closed (see measuredResults).
+  Stream<IUser> findUsers(HRSession session, UserQuery query)
+      throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    boolean planned = false;
+    try {
+      //VALIDATING INPUTS
+      if (query == null) {
+        throw new IllegalArgumentException("The query cannot be null.");
+      }
+      IUser caller = loggedInCaller(session, ModelOperation.FIND_USERS);
+      audit(session, ModelOperation.FIND_USERS, AuditLog.NO_USER, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+
+      QueryPlan plan = planQuery(query);
+      Stream<IUser> matches = plan.candidates(query, index, hierarchy, directory)
+          .mapToObj(directory::get)
+          .filter(user -> user != null && query.matches(user, hierarchy)
+              && decideAccess(session, caller, user, false).isAllowed());
+      if (!plan.isOrdered()) {
+        UserAttribute sortKey = query.getSortKey();
+        UserQuery.Cursor after = query.getCursor();
+        matches = matches
+            .map(user -> new SimpleImmutableEntry<UserQuery.Cursor, IUser>(
+                UserQuery.Cursor.of(sortKey, user), user))
+            .filter(entry -> after == null || entry.getKey().compareTo(after) > 0)
+            .sorted(Map.Entry.comparingByKey())
+            .map(Map.Entry::getValue);
+      }
+      Stream<IUser> results = measuredResults(matches.limit(query.getLimit()), session, start,
+          event);
+      planned = true;
+      return results;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.FIND_USERS, e);
+    } finally {
+      if (!planned) {
+        stopTimer(ModelOperation.FIND_USERS, start);
+        event.end(ModelOperation.FIND_USERS, session, AuditLog.NO_USER);
+      }
+    }
+  }
+
+  // Wraps the results of a call to findUsers so that the call is timed, and its event ended, once
+  // they run out or the stream is closed, whichever comes first. A failure met while finding them
+  // is counted against the call too; one thrown by whoever consumes them isn't. A stream which is
+  // abandoned before either is never measured.
+  private Stream<IUser> measuredResults(Stream<IUser> results, HRSession session, long start,
+      OperationEvent event) {
+    AtomicBoolean ended = new AtomicBoolean();
+    Runnable end = () -> {
+      if (ended.compareAndSet(false, true)) {
+        stopTimer(ModelOperation.FIND_USERS, start);
+        event.end(ModelOperation.FIND_USERS, session, AuditLog.NO_USER);
+      }
+    };
+    Spliterator<IUser> found = results.spliterator();
+    Spliterator<IUser> measured = new Spliterators.AbstractSpliterator<IUser>(
+        found.estimateSize(), found.characteristics() & Spliterator.ORDERED) {
+      private IUser next;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super IUser> action) {
+        boolean advanced;
+        try {
+          advanced = found.tryAdvance(user -> next = user);
+        } catch (RuntimeException e) {
+          event.fail(e);
+          end.run();
+          throw failed(ModelOperation.FIND_USERS, e);
+        }
+        if (!advanced) {
+          end.run();
+          return false;
+        }
+        IUser user = next;
+        next = null;
+        action.accept(user);
+        return true;
+      }
+    };
+    return StreamSupport.stream(measured, false).onClose(results::close).onClose(end);
+  }
+
+  // Plans how to find the results of the given query.
+  QueryPlan planQuery(UserQuery query) {
+    return QueryPlan.plan(query, index, hierarchy, directory);
+  }
+
+  // Checks that the given range of values is valid for a lookup in a value index.
+  private static void checkRange(double min, double max) throws IllegalArgumentException {
     //VALIDATING INPUTS
-    if (users.get(id) == null) {
-      throw new IllegalStateException("No user found with ID " + id);
+    if (Double.isNaN(min) || Double.isNaN(max) || min > max) {
+      throw new IllegalArgumentException("The lowest value can't be more than the highest.");
+    }
+  }
+
+  // Collects the IDs found by an index lookup, in the order the index gave them, leaving out the
+  // users the session may not read (and anyone removed since the lookup). Users the caller can't
+  // read are skipped rather than causing an error, as in payroll summaries. The lookup is made
+  // again if a commit overtakes it, so that it never sees one half made.
+  private List<Integer> readableIds(HRSession session, ModelOperation operation,
+      Supplier<IntStream> lookup) throws IllegalStateException {
+    IUser caller = loggedInCaller(session, operation);
+
+    List<Integer> readable = readConsistently(() -> {
+      List<Integer> found = new ArrayList<Integer>();
+      lookup.get().forEach(id -> {
+        IUser target = directory.get(id);
+        if (target != null && decideAccess(session, caller, target, false).isAllowed()) {
+          found.add(id);
+        }
+      });
+      return found;
+    });
+    audit(session, operation, AuditLog.NO_USER, Double.NaN, Double.NaN, AccessDecision.ALLOWED);
+    return readable;
+  }
+
+  // Makes the given read of several users, which must change nothing, so that it sees every
+  // transaction commit and bulk reorganization whole or not at all. The read is made without
+  // locking, and made again if one of them began while it ran; a read which they overtake too
+  // often holds new ones off, and waits for those under way, while it is made one last time.
+  private <T> T readConsistently(Supplier<T> read) {
+    for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+      // Read in this order, so that equal counts mean that none was under way at the second read
+      long finished = commitsFinished.get();
+      long begun = commitsBegun.get();
+      if (begun == finished) {
+        T result = read.get();
+        // Keeps the read from being moved after the check, as in StampedLock.validate
+        VarHandle.acquireFence();
+        if (commitsBegun.get() == begun) {
+          return result;
+        }
+      }
+      Thread.onSpinWait();
+    }
+    commitGate.writeLock().lock();
+    try {
+      return read.get();
+    } finally {
+      commitGate.writeLock().unlock();
+    }
+  }
+
+  // Gets the user on whose behalf the session acts, auditing the call as denied and throwing an
+  // error if nobody is logged in.
+  private IUser loggedInCaller(HRSession session, ModelOperation operation)
+      throws IllegalStateException {
+    IUser caller = caller(session);
+    if (caller == null) {
+      audit(session, operation, AuditLog.NO_USER, Double.NaN, Double.NaN,
+          AccessDecision.NOT_LOGGED_IN);
+      throw AccessDecision.NOT_LOGGED_IN.toException(null);
+    }
+    return caller;
+  }
+
+  @Override
+  public Transaction beginTransaction() throws IllegalStateException {
+    return beginTransaction(currentSession);
+  }
+
+  Transaction beginTransaction(HRSession session) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      loggedInCaller(session, ModelOperation.BEGIN_TRANSACTION);
+      audit(session, ModelOperation.BEGIN_TRANSACTION, AuditLog.NO_USER, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+      return new Transaction(this, session);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.BEGIN_TRANSACTION, e);
+    } finally {
+      stopTimer(ModelOperation.BEGIN_TRANSACTION, start);
+      event.end(ModelOperation.BEGIN_TRANSACTION, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Checks a change to one employee's information for a transaction, as it would be checked if it
+  // were made straight away, and notes the employee's version. The value is a salary, vacation
+  // balance or annual bonus, or 1 or 0 for an HR status.
+  Transaction.Step stageUpdate(HRSession session, ModelOperation operation, int id, double value)
+      throws IllegalStateException {
+    IUser target;
+    if (operation == ModelOperation.CHANGE_HR_STATUS) {
+      verifyAdministrator(session, operation, id);
+      target = directory.get(id);
+      if (target == null) {
+        throw new IllegalStateException("No user found with ID " + id);
+      }
+    } else {
+      target = writableUser(session, id, operation);
+    }
+    if (!target.hasRole(Role.EMPLOYEE)) {
+      throw new IllegalStateException("User " + id + " is not an employee.");
+    }
+    return new Transaction.Step(operation, id, target, versions.get(id), value, 0, null, 0);
+  }
+
+  // Checks a link for a transaction, as it would be checked if it were made straight away, and
+  // notes the versions of the employee and the manager.
+  Transaction.Step stageLink(HRSession session, int employeeID, int managerID)
+      throws IllegalStateException {
+    verifyAdministrator(session, ModelOperation.LINK_EMPLOYEE_AND_MANAGER, employeeID);
+    IUser employee = directory.get(employeeID);
+    IUser manager = directory.get(managerID);
+    if (employee == null || manager == null) {
+      throw new IllegalStateException("Both IDs must correspond to valid users.");
+    }
+    if (!manager.hasRole(Role.MANAGER) || !employee.hasRole(Role.EMPLOYEE)) {
+      throw new IllegalStateException("Must provide one Manager and one AEmployee.");
+    }
+    return new Transaction.Step(ModelOperation.LINK_EMPLOYEE_AND_MANAGER, employeeID, employee,
+        versions.get(employeeID), Double.NaN, managerID, manager, versions.get(managerID));
+  }
+
+  // Makes the changes staged on a transaction, all of them or none (see Transaction#commit()).
+  // The users the changes touch are locked in order of ID, after the commit gate and, if any of the
+  // changes is a link, the structure lock, and everything is checked before anything is changed.
+  void commit(HRSession session, List<Transaction.Step> steps) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      loggedInCaller(session, ModelOperation.COMMIT_TRANSACTION);
+      TreeMap<Integer, IUser> touched = new TreeMap<Integer, IUser>();
+      boolean structural = false;
+      for (Transaction.Step step : steps) {
+        touched.put(step.id, step.target);
+        if (step.manager != null) {
+          touched.put(step.managerId, step.manager);
+          structural = true;
+        }
+      }
+      IUser[] locks = touched.values().toArray(new IUser[0]);
+
+      commitGate.readLock().lock();
+      try {
+        if (structural) {
+          StructuralChangeEvent change = StructuralChangeEvent.start();
+          structureLock.lock();
+          try {
+            change.locked();
+            commitLocked(session, steps, locks, 0);
+          } finally {
+            structureLock.unlock();
+            change.end(ModelOperation.COMMIT_TRANSACTION, AuditLog.NO_USER);
+          }
+        } else {
+          commitLocked(session, steps, locks, 0);
+        }
+      } finally {
+        commitGate.readLock().unlock();
+      }
+      audit(session, ModelOperation.COMMIT_TRANSACTION, AuditLog.NO_USER, Double.NaN,
+          steps.size(), AccessDecision.ALLOWED);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.COMMIT_TRANSACTION, e);
+    } finally {
+      stopTimer(ModelOperation.COMMIT_TRANSACTION, start);
+      event.end(ModelOperation.COMMIT_TRANSACTION, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Locks the given users one after another, from the given one on, and then checks and makes the
+  // staged changes while holding all of their locks.
+  private void commitLocked(HRSession session, List<Transaction.Step> steps, IUser[] locks,
+      int next) throws IllegalStateException {
+    if (next == locks.length) {
+      checkSteps(session, steps);
+      applySteps(session, steps);
+      return;
+    }
+    synchronized (locks[next]) {
+      commitLocked(session, steps, locks, next + 1);
+    }
+  }
+
+  // Checks that none of the users the staged changes touch has changed since they were staged,
+  // that the caller may still make every change, and that no link would make anyone report to
+  // someone underneath them once the links staged before it have been made.
+  private void checkSteps(HRSession session, List<Transaction.Step> steps)
+      throws IllegalStateException {
+    IUser caller = caller(session);
+    // The manager each employee will have once the links checked so far have been made
+    Map<Integer, Integer> linked = new HashMap<Integer, Integer>();
+    for (Transaction.Step step : steps) {
+      checkUnchanged(step.id, step.target, step.version);
+      AccessDecision decision;
+      if (step.manager != null || step.operation == ModelOperation.CHANGE_HR_STATUS) {
+        decision = decideAdministrator(caller);
+      } else {
+        decision = caller == null ? AccessDecision.NOT_LOGGED_IN
+            : decideAccess(session, caller, step.target, true);
+      }
+      if (!decision.isAllowed()) {
+        audit(session, step.operation, step.id, Double.NaN, Double.NaN, decision);
+        throw decision.toException(caller);
+      }
+      if (step.manager != null) {
+        checkUnchanged(step.managerId, step.manager, step.managerVersion);
+        if (step.id == step.managerId || willBeUnder(step.managerId, step.id, linked)) {
+          throw new IllegalStateException(
+              "An employee can't report to someone underneath them.");
+        }
+        linked.put(step.id, step.managerId);
+      }
+    }
+  }
+
+  // Checks that the user with the given ID is still the given object, at the given version.
+  private void checkUnchanged(int id, IUser staged, long version) throws IllegalStateException {
+    if (directory.get(id) != staged || versions.get(id) != version) {
+      throw new IllegalStateException(
+          "User " + id + " has been changed since the transaction was staged.");
+    }
+  }
+
+  // Will the user with the first ID be underneath the one with the second, once the given links
+  // have been made?
+  private boolean willBeUnder(int id, int managerId, Map<Integer, Integer> linked) {
+    if (linked.isEmpty()) {
+      return hierarchy.isUnder(id, managerId);
+    }
+    int current = id;
+    while (current != OrgHierarchy.NO_MANAGER) {
+      if (current == managerId) {
+        return true;
+      }
+      Integer next = linked.get(current);
+      current = next != null ? next : users.get(current).getManagerId();
+    }
+    return false;
+  }
+
+  // Records the staged changes, which have all been checked, as one transaction, makes them, and
+  // audits each of them.
+  private void applySteps(HRSession session, List<Transaction.Step> steps) {
+    long timestamp = clock.millis();
+    LogRecord[] parts = new LogRecord[steps.size()];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = logRecord(steps.get(i), timestamp);
+    }
+    LogRecord transaction = LogRecord.transaction(parts);
+    long position = append(transaction);
+
+    commitsBegun.incrementAndGet();
+    double[] oldValues = new double[parts.length];
+    try {
+      makeSteps(steps, timestamp, position, oldValues);
+    } finally {
+      commitsFinished.incrementAndGet();
+    }
+    publish(transaction);
+    for (int i = 0; i < parts.length; i++) {
+      Transaction.Step step = steps.get(i);
+      audit(session, step.operation, step.id, oldValues[i],
+          step.manager != null ? step.managerId : step.value, AccessDecision.ALLOWED);
+    }
+  }
+
+  // Makes the given staged changes, at the given moment, as one change at the given position in
+  // the log, noting the value each of them replaced.
+  private void makeSteps(List<Transaction.Step> steps, long timestamp, long position,
+      double[] oldValues) {
+    long change = history.nextChange();
+    for (int i = 0; i < oldValues.length; i++) {
+      Transaction.Step step = steps.get(i);
+      IUser target = step.target;
+      double value = step.value;
+      history.keep(step.id, target, change);
+      if (step.manager == null) {
+        notePosition(step.id, position);
+      }
+      switch (step.operation) {
+        case SET_SALARY:
+          oldValues[i] = target.getSalary();
+          index.update(target, user -> user.setSalary(value, timestamp));
+          break;
+        case SET_VACATION_BALANCE:
+          oldValues[i] = target.getVacationBalance();
+          index.update(target, user -> user.setVacationBalance((int) value));
+          break;
+        case SET_ANNUAL_BONUS:
+          oldValues[i] = target.getAnnualBonus();
+          index.update(target, user -> user.setAnnualBonus(value));
+          break;
+        case CHANGE_HR_STATUS:
+          oldValues[i] = hrStatus(target);
+          index.update(target, user -> user.setInHumanResources(value != 0));
+          invalidateAccess(step.id);
+          break;
+        default:
+          int oldManagerId = target.getManagerId();
+          oldValues[i] = oldManagerId == OrgHierarchy.NO_MANAGER ? Double.NaN : oldManagerId;
+          relink(step.id, step.managerId, change);
+          break;
+      }
+    }
+  }
+
+  // Gets the log record for the given staged change, made at the given moment.
+  private static LogRecord logRecord(Transaction.Step step, long timestamp) {
+    switch (step.operation) {
+      case SET_SALARY:
+        return LogRecord.setSalary(step.id, step.value, timestamp);
+      case SET_VACATION_BALANCE:
+        return LogRecord.setVacationBalance(step.id, (int) step.value);
+      case SET_ANNUAL_BONUS:
+        return LogRecord.setAnnualBonus(step.id, step.value);
+      case CHANGE_HR_STATUS:
+        return LogRecord.changeHRStatus(step.id, step.value != 0);
+      default:
+        return LogRecord.linkEmployeeAndManager(step.id, step.managerId);
+    }
+  }
+
+  @Override
+  public ModelSnapshot openSnapshot() throws IllegalStateException {
+    return openSnapshot(currentSession);
+  }
+
+  ModelSnapshot openSnapshot(HRSession session) throws IllegalStateException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.OPEN_SNAPSHOT, AuditLog.NO_USER);
+
+      long opened;
+      // Structural changes are held off, so that the snapshot sees each of them whole or not at all
+      structureLock.lock();
+      try {
+        opened = history.open();
+      } finally {
+        structureLock.unlock();
+      }
+      audit(session, ModelOperation.OPEN_SNAPSHOT, AuditLog.NO_USER, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+      return new ModelSnapshot(this, opened);
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.OPEN_SNAPSHOT, e);
+    } finally {
+      stopTimer(ModelOperation.OPEN_SNAPSHOT, start);
+      event.end(ModelOperation.OPEN_SNAPSHOT, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Gets the state of the user with the given ID as seen by the snapshot opened at the given
+  // sequence number, or null if there was no such user then. The user is locked while they are
+  // read, so that a change to them is either wholly seen or not at all; if they are replaced by a
+  // promotion or demotion meanwhile, their replacement is read instead.
+  UserState stateAt(int id, long snapshot) {
+    IUser user = directory.get(id);
+    while (user != null) {
+      synchronized (user) {
+        if (directory.get(id) == user) {
+          UserHistory.Version older = history.find(id, snapshot);
+          return older != null ? older.state : UserState.of(user);
+        }
+      }
+      user = directory.get(id);
+    }
+    // Removed, or not added yet, so nothing else can change them
+    UserHistory.Version older = history.find(id, snapshot);
+    return older != null ? older.state : null;
+  }
+
+  // Streams the ID of every user this model has ever held, along with IDs no user has had.
+  IntStream userIds() {
+    return directory.ids();
+  }
+
+  // Gets the older states of users this model keeps for its open snapshots.
+  UserHistory history() {
+    return history;
+  }
+
+  // Closes the snapshot opened at the given sequence number, dropping the older states of users
+  // which no open snapshot needs any more.
+  void closeSnapshot(long snapshot) {
+    history.close(snapshot);
+  }
+
+  @Override
+  public ChangeSubscription subscribe(Consumer<ChangeEvent> consumer, BackpressurePolicy policy)
+      throws IllegalStateException, IllegalArgumentException {
+    return subscribe(currentSession, consumer, policy);
+  }
+
+  ChangeSubscription subscribe(HRSession session, Consumer<ChangeEvent> consumer,
+      BackpressurePolicy policy) throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      verifyAdministrator(session, ModelOperation.SUBSCRIBE, AuditLog.NO_USER);
+      //VALIDATING INPUTS
+      if (consumer == null || policy == null) {
+        throw new IllegalArgumentException("The consumer and backpressure policy cannot be null.");
+      }
+
+      ChangeSubscription subscription = changes.subscribe(consumer, policy);
+      audit(session, ModelOperation.SUBSCRIBE, AuditLog.NO_USER, Double.NaN, Double.NaN,
+          AccessDecision.ALLOWED);
+      return subscription;
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.SUBSCRIBE, e);
+    } finally {
+      stopTimer(ModelOperation.SUBSCRIBE, start);
+      event.end(ModelOperation.SUBSCRIBE, session, AuditLog.NO_USER);
+    }
+  }
+
+  @Override
+  public PayrollSummary summarizePayroll(String employeeType, Boolean inHumanResources)
+      throws IllegalStateException, IllegalArgumentException {
+    return summarizePayroll(currentSession, employeeType, inHumanResources);
+  }
+
+  // Summarizes the payroll in a single pass over the employees the caller can read. Those fall into
+  // a "broad" group which is found by scanning every employee (everyone for an administrator, and
+  // everyone outside HR for someone in HR) and a "narrow" group which is looked up directly (the
+  // caller themselves and their reporting employees, or everyone underneath them with transitive
+  // manager access), taking care not to count anyone twice.
+  PayrollSummary summarizePayroll(HRSession session, String employeeType,
+      Boolean inHumanResources) throws IllegalStateException, IllegalArgumentException {
+    long start = startTimer();
+    OperationEvent event = OperationEvent.start();
+    try {
+      //VALIDATING INPUTS
+      IUser caller = loggedInCaller(session, ModelOperation.SUMMARIZE_PAYROLL);
+      int mask = 0;
+      int match = 0;
+      if (employeeType != null) {
+        if (employeeType.equals("Standard Employee")) {
+          match |= EmployeeColumns.STANDARD_EMPLOYEE;
+        } else if (employeeType.equals("Manager")) {
+          match |= EmployeeColumns.MANAGER;
+        } else {
+          throw new IllegalArgumentException("Invalid employee type provided.");
+        }
+        mask |= EmployeeColumns.KIND_MASK;
+      }
+      if (inHumanResources != null) {
+        mask |= EmployeeColumns.IN_HUMAN_RESOURCES;
+        match |= inHumanResources ? EmployeeColumns.IN_HUMAN_RESOURCES : 0;
+      }
+      audit(session, ModelOperation.SUMMARIZE_PAYROLL, AuditLog.NO_USER, Double.NaN,
+          Double.NaN, AccessDecision.ALLOWED);
+
+      int scanMask = mask;
+      int scanMatch = match;
+      return new PayrollSummary(readConsistently(() -> addUpPayroll(caller, scanMask,
+          scanMatch)));
+    } catch (RuntimeException e) {
+      event.fail(e);
+      throw failed(ModelOperation.SUMMARIZE_PAYROLL, e);
+    } finally {
+      stopTimer(ModelOperation.SUMMARIZE_PAYROLL, start);
+      event.end(ModelOperation.SUMMARIZE_PAYROLL, session, AuditLog.NO_USER);
+    }
+  }
+
+  // Adds up the information of every employee the given caller may read whose flags match the
+  // filter.
+  private ColumnTotals addUpPayroll(IUser caller, int mask, int match) {
+    if (caller.hasRole(Role.ADMINISTRATOR)) {
+      return scanEmployees(mask, match);
+    }
+
+    // Someone in HR can read everyone who isn't in HR
+    boolean broadScan = caller.hasRole(Role.HUMAN_RESOURCES)
+        && (match & EmployeeColumns.IN_HUMAN_RESOURCES) == 0;
+    ColumnTotals totals = broadScan
+        ? scanEmployees(mask | EmployeeColumns.IN_HUMAN_RESOURCES, match) : new ColumnTotals();
+
+    // Everyone can read their own information, and managers can read their reports'
+    addIfNotScanned(caller, broadScan, mask, match, totals);
+    if (caller.hasRole(Role.MANAGER)) {
+      if (transitiveManagerAccess) {
+        for (int id : hierarchy.subtree(caller.getId()).toArray()) {
+          IUser report = directory.get(id);
+          if (report != null) {
+            addIfNotScanned(report, broadScan, mask, match, totals);
+          }
+        }
+      } else {
+        for (AEmployee report : ((Manager) caller).getReportingEmployees().values()) {
+          addIfNotScanned(report, broadScan, mask, match, totals);
+        }
+      }
     }
-    verifyWriteAccess(id);
+    return totals;
+  }
+
+  // Adds the given employee to the totals if they match the filter and weren't already counted by
+  // a broad scan of everyone outside HR.
+  private void addIfNotScanned(IUser user, boolean broadScan, int mask, int match,
+      ColumnTotals totals) {
+    int flags = columnFlags(user);
+    boolean scanned = broadScan && (flags & EmployeeColumns.IN_HUMAN_RESOURCES) == 0;
+    if (!scanned && (flags & mask) == match) {
+      totals.add(user.getSalary(), user.getVacationBalance(), user.getAnnualBonus());
+    }
+  }
+
+  // Adds up every employee whose flags match the filter, in parallel on the common fork-join pool.
+  // In columnar mode this scans the columns directly; otherwise it walks the user map.
+  private ColumnTotals scanEmployees(int mask, int match) {
+    if (columns != null) {
+      return ForkJoinPool.commonPool()
+          .invoke(new PayrollScanTask(columns, 0, columns.getSlotCount(), mask, match));
+    }
+
+    return users.values().parallelStream()
+        .filter(user -> user.hasRole(Role.EMPLOYEE) && (columnFlags(user) & mask) == match)
+        .collect(ColumnTotals::new,
+            (totals, user) -> totals.add(user.getSalary(), user.getVacationBalance(),
+                user.getAnnualBonus()),
+            ColumnTotals::add);
+  }
 
-    users.get(id).setAnnualBonus(annualBonus);
+  // Gets the flags the given user would have in an EmployeeColumns store: their kind, and whether
+  // they work in HR. Administrators have no kind.
+  private static int columnFlags(IUser user) {
+    int roles = user.getRoles();
+    int kind = Role.MANAGER.in(roles) ? EmployeeColumns.MANAGER
+        : Role.STANDARD_EMPLOYEE.in(roles) ? EmployeeColumns.STANDARD_EMPLOYEE : 0;
+    return kind == 0 ? 0 : kind | (Role.HUMAN_RESOURCES.in(roles)
+        ? EmployeeColumns.IN_HUMAN_RESOURCES : 0);
   }
 }
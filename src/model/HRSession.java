@@ -0,0 +1,295 @@
+package model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import model.users.IUser;
+import model.users.Role;
+import model.users.SalaryChange;
+import model.users.SalaryHistory;
+
+/**
+ * A session on an {@link HRModel}, opened when a user logs in. A session acts on behalf of the user
+ * who opened it: every operation called on the session is permission-checked against that user, no
+ * matter which thread calls it or how many other sessions are open on the same model. Sessions are
+ * identified by a unique, unguessable token so that they can be looked up again with {@link
+ * HRModel#getSession(String)}.
+ * <p>
+ * Once a session has been closed, either by logging out or because its user was removed from the
+ * system, every operation on it fails as if nobody were logged in.
+ * <p>
+ * Each session remembers the permission decisions made for its user, so that reading the same
+ * employees again and again only costs a lookup. The model forgets the affected decisions whenever
+ * something they depend on changes.
+ *
+ * @author Michael Ruberto
+ */
+public final class HRSession implements IHumanResourcesModel {
+
+  private final HRModel model;
+  private final int userId;
+  private final String token;
+  private volatile boolean open;
+  private final AccessCache accessCache;
+
+  /**
+   * Constructs a new, open session for the user with the given ID. Sessions are only created by
+   * {@link HRModel} once the user's password has been checked.
+   *
+   * @param model  The model this session operates on.
+   * @param userId The ID of the user this session acts on behalf of.
+   * @param token  The unique token identifying this session.
+   * @author Michael Ruberto
+   */
+  HRSession(HRModel model, int userId, String token) {
+    this.model = model;
+    this.userId = userId;
+    this.token = token;
+    this.open = true;
+    this.accessCache = new AccessCache();
+  }
+
+  /**
+   * Gets the unique token which identifies this session.
+   *
+   * @return The session's token.
+   * @author Michael Ruberto
+   */
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * Gets the ID of the {@link IUser} this session acts on behalf of.
+   *
+   * @return The user's ID.
+   * @author Michael Ruberto
+   */
+  public int getUserId() {
+    return userId;
+  }
+
+  /**
+   * Gets the {@link IUser} this session acts on behalf of.
+   *
+   * @return The user, or {@code null} if this session is closed or the user has been removed.
+   * @author Michael Ruberto
+   */
+  public IUser getUser() {
+    return model.caller(this);
+  }
+
+  /**
+   * Gets how many permission checks made by this session were answered from its cache of
+   * decisions.
+   *
+   * @return The number of cache hits.
+   * @author Michael Ruberto
+   */
+  public long getAccessCacheHits() {
+    return accessCache.getHits();
+  }
+
+  /**
+   * Gets how many permission checks made by this session had to be worked out from scratch.
+   *
+   * @return The number of cache misses.
+   * @author Michael Ruberto
+   */
+  public long getAccessCacheMisses() {
+    return accessCache.getMisses();
+  }
+
+  // The cache of permission decisions made for this session's user.
+  AccessCache getAccessCache() {
+    return accessCache;
+  }
+
+  /**
+   * Is this session still open?
+   *
+   * @return Whether or not this session can still be used.
+   * @author Michael Ruberto
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Logs out of this session. Any further operations on it will fail.
+   *
+   * @author Michael Ruberto
+   */
+  public void logOut() {
+    model.closeSession(this);
+  }
+
+  // Marks this session as closed. Called by the model when the session is closed.
+  void close() {
+    open = false;
+  }
+
+  @Override
+  public void changeHRStatus(int id, boolean inHumanResources) throws IllegalStateException {
+    model.changeHRStatus(this, id, inHumanResources);
+  }
+
+  @Override
+  public void addEmployee(String employeeType, String name, String password, double salary,
+      int vacationBalance, double annualBonus, boolean inHumanResources)
+      throws IllegalArgumentException {
+    model.addEmployee(this, employeeType, name, password, salary, vacationBalance, annualBonus,
+        inHumanResources);
+  }
+
+  @Override
+  public void addAdministrator(String name, String password) throws IllegalArgumentException {
+    model.addAdministrator(this, name, password);
+  }
+
+  @Override
+  public IUser removeUser(int id) throws IllegalStateException {
+    return model.removeUser(this, id);
+  }
+
+  @Override
+  public void linkEmployeeAndManager(int employeeID, int managerID) throws IllegalStateException {
+    model.linkEmployeeAndManager(this, employeeID, managerID);
+  }
+
+  @Override
+  public void promoteToManager(int id) throws IllegalStateException {
+    model.promoteToManager(this, id);
+  }
+
+  @Override
+  public void demoteToStandard(int id) throws IllegalStateException {
+    model.demoteToStandard(this, id);
+  }
+
+  @Override
+  public void reassignReports(int fromManagerID, int toManagerID) throws IllegalStateException {
+    model.reassignReports(this, fromManagerID, toManagerID);
+  }
+
+  @Override
+  public void mergeTeams(int absorbingManagerID, int mergedManagerID)
+      throws IllegalStateException {
+    model.mergeTeams(this, absorbingManagerID, mergedManagerID);
+  }
+
+  @Override
+  public void moveSubtrees(int[] employeeIDs, int managerID)
+      throws IllegalStateException, IllegalArgumentException {
+    model.moveSubtrees(this, employeeIDs, managerID);
+  }
+
+  @Override
+  public double getSalary(int id) throws IllegalStateException {
+    return model.getSalary(this, id);
+  }
+
+  @Override
+  public void setSalary(int id, double salary)
+      throws IllegalStateException, IllegalArgumentException {
+    model.setSalary(this, id, salary);
+  }
+
+  @Override
+  public SalaryHistory getSalaryHistory(int id) throws IllegalStateException {
+    return model.getSalaryHistory(this, id);
+  }
+
+  @Override
+  public double getSalaryAsOf(int id, Instant time)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.getSalaryAsOf(this, id, time);
+  }
+
+  @Override
+  public List<SalaryChange> getSalaryChanges(int id, Instant from, Instant to)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.getSalaryChanges(this, id, from, to);
+  }
+
+  @Override
+  public int getVacationBalance(int id) throws IllegalStateException {
+    return model.getVacationBalance(this, id);
+  }
+
+  @Override
+  public void setVacationBalance(int id, int vacationBalance)
+      throws IllegalStateException, IllegalArgumentException {
+    model.setVacationBalance(this, id, vacationBalance);
+  }
+
+  @Override
+  public double getAnnualBonus(int id) throws IllegalStateException {
+    return model.getAnnualBonus(this, id);
+  }
+
+  @Override
+  public void setAnnualBonus(int id, double annualBonus)
+      throws IllegalStateException, IllegalArgumentException {
+    model.setAnnualBonus(this, id, annualBonus);
+  }
+
+  @Override
+  public PayrollSummary summarizePayroll(String employeeType, Boolean inHumanResources)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.summarizePayroll(this, employeeType, inHumanResources);
+  }
+
+  @Override
+  public List<Integer> findUsersByName(String prefix)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findUsersByName(this, prefix);
+  }
+
+  @Override
+  public List<Integer> findUsersWithRoles(Role... roles)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findUsersWithRoles(this, roles);
+  }
+
+  @Override
+  public List<Integer> findEmployeesBySalary(double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findEmployeesBySalary(this, min, max);
+  }
+
+  @Override
+  public List<Integer> findEmployeesByAnnualBonus(double min, double max)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findEmployeesByAnnualBonus(this, min, max);
+  }
+
+  @Override
+  public List<Integer> findEmployeesByVacationBalance(int min, int max)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findEmployeesByVacationBalance(this, min, max);
+  }
+
+  @Override
+  public Stream<IUser> findUsers(UserQuery query)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.findUsers(this, query);
+  }
+
+  @Override
+  public ChangeSubscription subscribe(Consumer<ChangeEvent> consumer, BackpressurePolicy policy)
+      throws IllegalStateException, IllegalArgumentException {
+    return model.subscribe(this, consumer, policy);
+  }
+
+  @Override
+  public Transaction beginTransaction() throws IllegalStateException {
+    return model.beginTransaction(this);
+  }
+
+  @Override
+  public ModelSnapshot openSnapshot() throws IllegalStateException {
+    return model.openSnapshot(this);
+  }
+}
@@ -1,7 +1,13 @@
 package model;
 
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import model.users.IUser;
+import model.users.Role;
+import model.users.SalaryChange;
+import model.users.SalaryHistory;
 
 /**
  * An {@code interface} which represents a model for a Human Resources application. A model which
@@ -86,7 +92,8 @@ public interface IHumanResourcesModel {
   void linkEmployeeAndManager(int employeeID, int managerID) throws IllegalStateException;
 
   /**
-   * Promotes the specified {@link model.users.AEmployee} to be a {@link model.users.Manager}.
+   * Promotes the specified {@link model.users.AEmployee} to be a {@link model.users.Manager}. The
+   * employee keeps reporting to their manager, if they have one.
    *
    * @param id The ID of the employee to be promoted.
    * @throws IllegalStateException If there is no user with the given ID, or if the user is already
@@ -98,7 +105,9 @@ public interface IHumanResourcesModel {
 
   /**
    * Demotes the specified {@link model.users.AEmployee} to be a {@link
-   * model.users.StandardEmployee}.
+   * model.users.StandardEmployee}. The employee keeps reporting to their manager, if they have one,
+   * and everyone who reported to them is moved up to report to that manager instead, or is left
+   * without a manager if there is none.
    *
    * @param id The ID of the employee to be demoted.
    * @throws IllegalStateException If there is no user with the given ID, or if the user is already
@@ -108,6 +117,51 @@ public interface IHumanResourcesModel {
    */
   void demoteToStandard(int id) throws IllegalStateException;
 
+  /**
+   * Moves everyone who reports to one {@link model.users.Manager} to report to another, taking
+   * everyone underneath them along, as a single change: it is checked once, recorded once and
+   * published as one {@link ChangeEvent}.
+   *
+   * @param fromManagerID The unique ID of the manager whose reports are moved.
+   * @param toManagerID   The unique ID of the manager they are moved to.
+   * @throws IllegalStateException If either ID doesn't correspond to a manager, or if the second
+   *                               manager is the first or is underneath them, or if the current
+   *                               user doesn't have permission to execute this command.
+   * @author Michael Ruberto
+   */
+  void reassignReports(int fromManagerID, int toManagerID) throws IllegalStateException;
+
+  /**
+   * Merges one {@link model.users.Manager}'s team into another's, as a single change: everyone who
+   * reports to the merged manager, and the merged manager themselves, are moved to report to the
+   * absorbing manager. The merged manager stays a manager, with nobody reporting to them.
+   *
+   * @param absorbingManagerID The unique ID of the manager who takes on the team.
+   * @param mergedManagerID    The unique ID of the manager whose team is merged.
+   * @throws IllegalStateException If either ID doesn't correspond to a manager, or if the
+   *                               absorbing manager is the merged one or is underneath them, or if
+   *                               the current user doesn't have permission to execute this command.
+   * @author Michael Ruberto
+   */
+  void mergeTeams(int absorbingManagerID, int mergedManagerID) throws IllegalStateException;
+
+  /**
+   * Moves each of the given {@link model.users.AEmployee}s, along with everyone underneath them,
+   * to report to the given {@link model.users.Manager}, as a single change. Either all of them are
+   * moved, or none of them are.
+   *
+   * @param employeeIDs The unique IDs of the employees at the tops of the subtrees.
+   * @param managerID   The unique ID of the manager.
+   * @throws IllegalStateException    If any of the IDs doesn't correspond to an employee, or the
+   *                                  manager's ID to a manager, or if the manager is one of the
+   *                                  employees or is underneath one of them, or if the current user
+   *                                  doesn't have permission to execute this command.
+   * @throws IllegalArgumentException If the employee IDs are {@code null}.
+   * @author Michael Ruberto
+   */
+  void moveSubtrees(int[] employeeIDs, int managerID)
+      throws IllegalStateException, IllegalArgumentException;
+
   /**
    * Gets the salary of the specified {@link model.users.AEmployee}.
    *
@@ -132,7 +186,7 @@ public interface IHumanResourcesModel {
   void setSalary(int id, double salary) throws IllegalStateException, IllegalArgumentException;
 
   /**
-   * Gets the salary history of the specified {@link model.users.AEmployee}.
+   * Gets a read-only view of the salary history of the specified {@link model.users.AEmployee}.
    *
    * @param id The unique ID of the employee.
    * @return The employee's salary history.
@@ -140,7 +194,40 @@ public interface IHumanResourcesModel {
    *                               doesn't have permission to execute this command.
    * @author Michael Ruberto
    */
-  ArrayList<Double> getSalaryHistory(int id) throws IllegalStateException;
+  SalaryHistory getSalaryHistory(int id) throws IllegalStateException;
+
+  /**
+   * Gets the salary the specified {@link model.users.AEmployee} was paid at the given moment: the
+   * latest salary they were given at or before it.
+   *
+   * @param id   The unique ID of the employee.
+   * @param time The moment.
+   * @return The employee's salary at that moment.
+   * @throws IllegalStateException    If there is no employee with the given ID or if the current
+   *                                  user doesn't have permission to execute this command.
+   * @throws IllegalArgumentException If the time is {@code null}, or if it is before the employee
+   *                                  had a salary.
+   * @author Michael Ruberto
+   */
+  double getSalaryAsOf(int id, Instant time) throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Gets every salary the specified {@link model.users.AEmployee} was given at or after the start
+   * of the given range and before its end, oldest first. The salary they were first added with
+   * counts as a change.
+   *
+   * @param id   The unique ID of the employee.
+   * @param from The start of the range.
+   * @param to   The end of the range.
+   * @return The salary changes in the range.
+   * @throws IllegalStateException    If there is no employee with the given ID or if the current
+   *                                  user doesn't have permission to execute this command.
+   * @throws IllegalArgumentException If either end of the range is {@code null}, or if the range
+   *                                  ends before it starts.
+   * @author Michael Ruberto
+   */
+  List<SalaryChange> getSalaryChanges(int id, Instant from, Instant to)
+      throws IllegalStateException, IllegalArgumentException;
 
   /**
    * Gets the vacation balance of the specified {@link model.users.AEmployee}.
@@ -189,4 +276,161 @@ public interface IHumanResourcesModel {
    */
   void setAnnualBonus(int id, double annualBonus)
       throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Summarizes the payroll of every {@link model.users.AEmployee} which matches the given filters
+   * and whose information the current user has permission to read. Employees the current user
+   * can't read are left out of the summary rather than causing an error.
+   *
+   * @param employeeType     The type of employee to include (Standard Employee, Manager), or
+   *                         {@code null} to include both.
+   * @param inHumanResources Whether to include only employees who work in Human Resources ({@code
+   *                         true}) or only employees who don't ({@code false}), or {@code null} to
+   *                         include both.
+   * @return The summary of the matching employees.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If {@code employeeType} doesn't represent a valid type of
+   *                                  {@link model.users.AEmployee}.
+   * @author Michael Ruberto
+   */
+  PayrollSummary summarizePayroll(String employeeType, Boolean inHumanResources)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds every {@link IUser} whose name starts with the given prefix, ignoring case, and whose
+   * information the current user has permission to read. Users the current user can't read are
+   * left out rather than causing an error.
+   *
+   * @param prefix The start of the name, which may be empty to match everyone.
+   * @return The IDs of the matching users, in order of name and then ID.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If the prefix is {@code null}.
+   * @author Michael Ruberto
+   */
+  List<Integer> findUsersByName(String prefix)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds every {@link IUser} who holds all of the given {@link Role}s (for example, every manager
+   * who works in Human Resources) and whose information the current user has permission to read.
+   * Users the current user can't read are left out rather than causing an error.
+   *
+   * @param roles The roles the users must hold.
+   * @return The IDs of the matching users, in increasing order.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If no roles are given, or if any of them is {@code null}.
+   * @author Michael Ruberto
+   */
+  List<Integer> findUsersWithRoles(Role... roles)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds every {@link model.users.AEmployee} whose salary is between the given amounts
+   * (inclusive) and whose information the current user has permission to read. Employees the
+   * current user can't read are left out rather than causing an error.
+   *
+   * @param min The lowest salary.
+   * @param max The highest salary.
+   * @return The IDs of the matching employees, in order of salary and then ID.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If {@code min} is more than {@code max}, or either is NaN.
+   * @author Michael Ruberto
+   */
+  List<Integer> findEmployeesBySalary(double min, double max)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds every {@link model.users.AEmployee} whose annual bonus is between the given amounts
+   * (inclusive) and whose information the current user has permission to read. Employees the
+   * current user can't read are left out rather than causing an error.
+   *
+   * @param min The lowest annual bonus.
+   * @param max The highest annual bonus.
+   * @return The IDs of the matching employees, in order of annual bonus and then ID.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If {@code min} is more than {@code max}, or either is NaN.
+   * @author Michael Ruberto
+   */
+  List<Integer> findEmployeesByAnnualBonus(double min, double max)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds every {@link model.users.AEmployee} whose vacation balance is between the given amounts
+   * (inclusive) and whose information the current user has permission to read. Employees the
+   * current user can't read are left out rather than causing an error.
+   *
+   * @param min The lowest vacation balance.
+   * @param max The highest vacation balance.
+   * @return The IDs of the matching employees, in order of vacation balance and then ID.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If {@code min} is more than {@code max}.
+   * @author Michael Ruberto
+   */
+  List<Integer> findEmployeesByVacationBalance(int min, int max)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Finds the {@link IUser}s which match the given {@link UserQuery} and whose information the
+   * current user has permission to read, in the query's order and up to its limit, starting after
+   * its cursor. Users the current user can't read are left out rather than causing an error.
+   * <p>
+   * The results are streamed lazily: users are found as the stream is consumed, so a caller which
+   * stops early (or a query with a small limit) doesn't pay for the rest. Each user is checked
+   * against the query as their information stands when they are reached.
+   * <p>
+   * For the same reason, unlike the other reads of several users, the results aren't read as of
+   * one moment: a {@link Transaction} committed, or a reorganization made, while the stream is
+   * being consumed may be seen partly made. A report which must see the model as it stood at one
+   * moment should read it through {@link #openSnapshot()} instead. The call is measured, for {@link
+   * ModelMetrics} and Flight Recorder, until the stream runs out or is closed.
+   *
+   * @param query The query.
+   * @return The matching users.
+   * @throws IllegalStateException    If no user is logged in.
+   * @throws IllegalArgumentException If the query is {@code null}.
+   * @author Michael Ruberto
+   */
+  Stream<IUser> findUsers(UserQuery query) throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Subscribes the given consumer to every change made to the model from now on. Each change is
+   * handed to the consumer as a {@link ChangeEvent} on the subscription's own thread, in the order
+   * the changes were made, while the threads making the changes carry on without waiting for it.
+   * If the consumer falls so far behind that its events no longer fit in the model's buffer, the
+   * given {@link BackpressurePolicy} decides what happens. Since the events reveal everyone's
+   * information, only administrators may subscribe; the subscription stays open until it is
+   * closed, even if the administrator logs out.
+   *
+   * @param consumer The consumer of the events.
+   * @param policy   What happens if the consumer falls too far behind.
+   * @return The subscription, which can be closed to stop the events.
+   * @throws IllegalStateException    If the current user isn't an administrator.
+   * @throws IllegalArgumentException If the consumer or the policy is {@code null}.
+   * @author Michael Ruberto
+   */
+  ChangeSubscription subscribe(Consumer<ChangeEvent> consumer, BackpressurePolicy policy)
+      throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Begins a {@link Transaction}, on which changes to employees' information and links can be
+   * staged and then committed together, so that either all of them are made or none of them are.
+   * The changes are made on behalf of the current user, and each is checked against their
+   * permissions both when it is staged and when it is committed.
+   *
+   * @return The new transaction.
+   * @throws IllegalStateException If no user is logged in.
+   * @author Michael Ruberto
+   */
+  Transaction beginTransaction() throws IllegalStateException;
+
+  /**
+   * Opens a {@link ModelSnapshot}: a view of every user as they are at this moment, which stays
+   * the same however the users are changed afterwards, until it is closed. Changes carry on while
+   * the snapshot is open. Only administrators may open snapshots.
+   *
+   * @return The new snapshot, which must be closed once it has been read.
+   * @throws IllegalStateException If the current user isn't an administrator.
+   * @author Michael Ruberto
+   */
+  ModelSnapshot openSnapshot() throws IllegalStateException;
 }
@@ -0,0 +1,63 @@
+package model;
+
+/**
+ * An {@code interface} which represents where an {@link HRModel} gets the IDs of the users added to
+ * it. Employees are given positive IDs and administrators non-positive ones, so the two never
+ * collide. Each model owns its own allocator, and an allocator must be safe to call from many
+ * threads at once: no ID may ever be handed out twice.
+ * <p>
+ * An allocator keeps a high-water mark for each kind of user: the first ID past every ID it has
+ * handed out or set aside. The model persists these marks (in its snapshots and write-ahead log),
+ * and after a restart tells the allocator which IDs are taken with {@link #markUsed(int)}.
+ *
+ * @author Michael Ruberto
+ */
+public interface IUserIdAllocator {
+
+  /**
+   * Hands out an ID for a new employee. The ID is positive and has never been handed out before.
+   *
+   * @return The new ID.
+   * @throws IllegalStateException If there are no employee IDs left.
+   * @author Michael Ruberto
+   */
+  int nextEmployeeId() throws IllegalStateException;
+
+  /**
+   * Hands out an ID for a new administrator. The ID is not positive and has never been handed out
+   * before.
+   *
+   * @return The new ID.
+   * @throws IllegalStateException If there are no administrator IDs left.
+   * @author Michael Ruberto
+   */
+  int nextAdministratorId() throws IllegalStateException;
+
+  /**
+   * Gets the employee high-water mark: the lowest employee ID which is greater than every employee
+   * ID handed out or set aside so far.
+   *
+   * @return The employee high-water mark.
+   * @author Michael Ruberto
+   */
+  int getEmployeeHighWaterMark();
+
+  /**
+   * Gets the administrator high-water mark: the highest administrator ID which is less than every
+   * administrator ID handed out or set aside so far.
+   *
+   * @return The administrator high-water mark.
+   * @author Michael Ruberto
+   */
+  int getAdministratorHighWaterMark();
+
+  /**
+   * Makes sure that neither the given ID nor any ID of the same kind closer to zero is handed out
+   * from now on, by moving the matching high-water mark past it if it isn't already. Used when
+   * users with known IDs are restored, before any new IDs are handed out.
+   *
+   * @param id The ID which is already taken.
+   * @author Michael Ruberto
+   */
+  void markUsed(int id);
+}
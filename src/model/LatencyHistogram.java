@@ -0,0 +1,160 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of how long the calls to one operation took, in nanoseconds. Recording a call is an
+ * increment of one counter, and nothing is allocated.
+ * <p>
+ * The counters are log-linear: every power of two is split into {@value #SUB_BUCKETS} equal
+ * buckets, so a recorded time is known to within an eighth of itself, from single nanoseconds up to
+ * {@link #MAX_NANOS} (about 18 minutes), past which times are counted as the maximum. Because every
+ * power of two is a bucket boundary, the counts can also be added up exactly into coarser buckets
+ * with power-of-two bounds (see {@link #countBelow(int)}).
+ *
+ * @author Michael Ruberto
+ */
+public final class LatencyHistogram {
+
+  /**
+   * The number of buckets each power of two is split into.
+   */
+  static final int SUB_BUCKETS = 8;
+
+  /**
+   * The longest time which can be recorded, in nanoseconds; longer times are counted as this long.
+   */
+  public static final long MAX_NANOS = (1L << 40) - 1;
+
+  private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+  private static final int BUCKET_COUNT = bucketOf(MAX_NANOS) + 1;
+
+  private final AtomicLongArray counts;
+  private final LongAdder totalNanos;
+
+  /**
+   * Constructs an empty histogram.
+   *
+   * @author Michael Ruberto
+   */
+  LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKET_COUNT);
+    this.totalNanos = new LongAdder();
+  }
+
+  // Gets the bucket which counts the given time. Times below SUB_BUCKETS have a bucket each; above
+  // that, the bucket is found from the position of the highest bit and the bits just below it.
+  static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return nanos < 0 ? 0 : (int) nanos;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  // Gets the shortest time counted by the given bucket.
+  static long lowestOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+  }
+
+  /**
+   * Counts a call which took the given time.
+   *
+   * @param nanos How long the call took, in nanoseconds.
+   * @author Michael Ruberto
+   */
+  void record(long nanos) {
+    long clamped = Math.min(Math.max(nanos, 0), MAX_NANOS);
+    counts.incrementAndGet(bucketOf(clamped));
+    totalNanos.add(clamped);
+  }
+
+  /**
+   * Gets the number of calls counted so far.
+   *
+   * @return The number of calls.
+   * @author Michael Ruberto
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the total time taken by the calls counted so far.
+   *
+   * @return The total time, in nanoseconds.
+   * @author Michael Ruberto
+   */
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  /**
+   * Gets the number of calls counted so far which took less than the given power of two
+   * nanoseconds.
+   *
+   * @param power The power of two, from 3 to 40.
+   * @return The number of calls which took less than {@code 2^power} nanoseconds.
+   * @throws IllegalArgumentException If the power is out of range.
+   * @author Michael Ruberto
+   */
+  long countBelow(int power) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (power < SUB_BITS || power > 40) {
+      throw new IllegalArgumentException("The power must be from " + SUB_BITS + " to 40.");
+    }
+
+    int end = bucketOf(1L << power);
+    long count = 0;
+    for (int i = 0; i < end; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the time within which the given percentage of the calls counted so far were made. The time
+   * is the upper end of the bucket the call falls in, so it is never less than the actual time, and
+   * at most an eighth more.
+   *
+   * @param percentile The percentage of calls, from 0 to 100.
+   * @return The time, in nanoseconds, or 0 if no calls have been counted.
+   * @throws IllegalArgumentException If the percentage is out of range.
+   * @author Michael Ruberto
+   */
+  public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("The percentile must be from 0 to 100.");
+    }
+
+    // Counted from a copy, so that calls counted meanwhile don't move the target
+    long[] snapshot = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= target) {
+        return i + 1 < BUCKET_COUNT ? lowestOf(i + 1) - 1 : MAX_NANOS;
+      }
+    }
+    return MAX_NANOS;
+  }
+}
@@ -0,0 +1,373 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One change to an {@link HRModel}, as recorded in its {@link WriteAheadLog}. There is a kind of
+ * record for every operation of the {@link IHumanResourcesModel} interface which changes the
+ * model, and each record carries exactly what is needed to make the same change again when the log
+ * is replayed. Permission checks are not recorded: a change is only logged once it has been
+ * allowed and made. The model also records when its {@link IUserIdAllocator} sets aside employee
+ * IDs beyond those of the employees recorded so far, so that those IDs aren't handed out again
+ * after a restart.
+ * <p>
+ * The changes committed together by a {@link Transaction} are recorded as a single record which
+ * holds each of them in turn, so that the log either holds all of them or, if it was torn while
+ * they were being written, none of them. A bulk reorganization (such as reassigning every report
+ * of a manager) is also a single record, which names the managers and, when subtrees are moved,
+ * the employees at their tops; the reports it moves are worked out again when it is replayed.
+ * <p>
+ * Passwords are recorded in the same hashed form in which the model stores them, never as
+ * plaintext.
+ *
+ * @author Michael Ruberto
+ */
+final class LogRecord {
+
+  /**
+   * The kinds of change which can be recorded. The ordinal of each kind is written to the log, so
+   * new kinds must only ever be added to the end.
+   */
+  enum Type {
+    CHANGE_HR_STATUS,
+    ADD_EMPLOYEE,
+    ADD_ADMINISTRATOR,
+    REMOVE_USER,
+    LINK_EMPLOYEE_AND_MANAGER,
+    PROMOTE_TO_MANAGER,
+    DEMOTE_TO_STANDARD,
+    SET_SALARY,
+    SET_VACATION_BALANCE,
+    SET_ANNUAL_BONUS,
+    RESERVE_EMPLOYEE_IDS,
+    TRANSACTION,
+    REASSIGN_REPORTS,
+    MERGE_TEAMS,
+    MOVE_SUBTREES;
+
+    private static final Type[] VALUES = values();
+  }
+
+  final Type type;
+  final int id;
+  final int managerId;
+  final boolean manager;
+  final String name;
+  final String password;
+  final double salary;
+  final int vacationBalance;
+  final double annualBonus;
+  final boolean inHumanResources;
+  // When a new salary took effect, in milliseconds since the epoch
+  final long timestamp;
+  // The changes a transaction record is made of, in order, or null for any other record
+  final LogRecord[] parts;
+  // The employees moved by a record of subtrees being moved, or null for any other record
+  final int[] ids;
+
+  private LogRecord(Type type, int id, int managerId, boolean manager, String name,
+      String password, double salary, int vacationBalance, double annualBonus,
+      boolean inHumanResources, long timestamp) {
+    this.type = type;
+    this.id = id;
+    this.managerId = managerId;
+    this.manager = manager;
+    this.name = name;
+    this.password = password;
+    this.salary = salary;
+    this.vacationBalance = vacationBalance;
+    this.annualBonus = annualBonus;
+    this.inHumanResources = inHumanResources;
+    this.timestamp = timestamp;
+    this.parts = null;
+    this.ids = null;
+  }
+
+  private LogRecord(LogRecord[] parts) {
+    this.type = Type.TRANSACTION;
+    this.id = parts.length;
+    this.managerId = 0;
+    this.manager = false;
+    this.name = null;
+    this.password = null;
+    this.salary = 0;
+    this.vacationBalance = 0;
+    this.annualBonus = 0;
+    this.inHumanResources = false;
+    this.timestamp = 0;
+    this.parts = parts;
+    this.ids = null;
+  }
+
+  private LogRecord(int managerId, int[] ids) {
+    this.type = Type.MOVE_SUBTREES;
+    this.id = managerId;
+    this.managerId = managerId;
+    this.manager = false;
+    this.name = null;
+    this.password = null;
+    this.salary = 0;
+    this.vacationBalance = 0;
+    this.annualBonus = 0;
+    this.inHumanResources = false;
+    this.timestamp = 0;
+    this.parts = null;
+    this.ids = ids;
+  }
+
+  private static LogRecord of(Type type, int id) {
+    return new LogRecord(type, id, 0, false, null, null, 0, 0, 0, false, 0);
+  }
+
+  static LogRecord changeHRStatus(int id, boolean inHumanResources) {
+    return new LogRecord(Type.CHANGE_HR_STATUS, id, 0, false, null, null, 0, 0, 0,
+        inHumanResources, 0);
+  }
+
+  static LogRecord addEmployee(int id, boolean manager, String name, String password,
+      double salary, int vacationBalance, double annualBonus, boolean inHumanResources,
+      long timestamp) {
+    return new LogRecord(Type.ADD_EMPLOYEE, id, 0, manager, name, password, salary,
+        vacationBalance, annualBonus, inHumanResources, timestamp);
+  }
+
+  static LogRecord addAdministrator(int id, String name, String password) {
+    return new LogRecord(Type.ADD_ADMINISTRATOR, id, 0, false, name, password, 0, 0, 0, false,
+        0);
+  }
+
+  static LogRecord removeUser(int id) {
+    return of(Type.REMOVE_USER, id);
+  }
+
+  static LogRecord linkEmployeeAndManager(int id, int managerId) {
+    return new LogRecord(Type.LINK_EMPLOYEE_AND_MANAGER, id, managerId, false, null, null, 0, 0,
+        0, false, 0);
+  }
+
+  static LogRecord promoteToManager(int id) {
+    return of(Type.PROMOTE_TO_MANAGER, id);
+  }
+
+  static LogRecord demoteToStandard(int id) {
+    return of(Type.DEMOTE_TO_STANDARD, id);
+  }
+
+  static LogRecord setSalary(int id, double salary, long timestamp) {
+    return new LogRecord(Type.SET_SALARY, id, 0, false, null, null, salary, 0, 0, false,
+        timestamp);
+  }
+
+  static LogRecord setVacationBalance(int id, int vacationBalance) {
+    return new LogRecord(Type.SET_VACATION_BALANCE, id, 0, false, null, null, 0, vacationBalance,
+        0, false, 0);
+  }
+
+  static LogRecord setAnnualBonus(int id, double annualBonus) {
+    return new LogRecord(Type.SET_ANNUAL_BONUS, id, 0, false, null, null, 0, 0, annualBonus,
+        false, 0);
+  }
+
+  static LogRecord reserveEmployeeIds(int lastId) {
+    return of(Type.RESERVE_EMPLOYEE_IDS, lastId);
+  }
+
+  static LogRecord transaction(LogRecord... parts) {
+    return new LogRecord(parts.clone());
+  }
+
+  static LogRecord reassignReports(int fromManagerId, int toManagerId) {
+    return new LogRecord(Type.REASSIGN_REPORTS, fromManagerId, toManagerId, false, null, null, 0,
+        0, 0, false, 0);
+  }
+
+  static LogRecord mergeTeams(int mergedManagerId, int absorbingManagerId) {
+    return new LogRecord(Type.MERGE_TEAMS, mergedManagerId, absorbingManagerId, false, null, null,
+        0, 0, 0, false, 0);
+  }
+
+  static LogRecord moveSubtrees(int[] ids, int managerId) {
+    return new LogRecord(managerId, ids.clone());
+  }
+
+  /**
+   * Gets the number of bytes {@link #encode(ByteBuffer)} will write for this record.
+   *
+   * @return The encoded size of this record.
+   * @author Michael Ruberto
+   */
+  int encodedSize() {
+    int size = 1 + Integer.BYTES;
+    switch (type) {
+      case CHANGE_HR_STATUS:
+        return size + 1;
+      case ADD_EMPLOYEE:
+        return size + 1 + stringSize(name) + stringSize(password) + Double.BYTES + Integer.BYTES
+            + Double.BYTES + 1 + Long.BYTES;
+      case ADD_ADMINISTRATOR:
+        return size + stringSize(name) + stringSize(password);
+      case LINK_EMPLOYEE_AND_MANAGER:
+      case REASSIGN_REPORTS:
+      case MERGE_TEAMS:
+        return size + Integer.BYTES;
+      case MOVE_SUBTREES:
+        return size + Integer.BYTES * (1 + ids.length);
+      case SET_SALARY:
+        return size + Double.BYTES + Long.BYTES;
+      case SET_VACATION_BALANCE:
+        return size + Integer.BYTES;
+      case SET_ANNUAL_BONUS:
+        return size + Double.BYTES;
+      case TRANSACTION:
+        for (LogRecord part : parts) {
+          size += part.encodedSize();
+        }
+        return size;
+      default:
+        return size;
+    }
+  }
+
+  /**
+   * Writes this record to the given buffer, which must have at least {@link #encodedSize()} bytes
+   * remaining.
+   *
+   * @param buffer The buffer to write to.
+   * @author Michael Ruberto
+   */
+  void encode(ByteBuffer buffer) {
+    buffer.put((byte) type.ordinal());
+    buffer.putInt(id);
+    switch (type) {
+      case CHANGE_HR_STATUS:
+        buffer.put((byte) (inHumanResources ? 1 : 0));
+        break;
+      case ADD_EMPLOYEE:
+        buffer.put((byte) (manager ? 1 : 0));
+        putString(buffer, name);
+        putString(buffer, password);
+        buffer.putDouble(salary);
+        buffer.putInt(vacationBalance);
+        buffer.putDouble(annualBonus);
+        buffer.put((byte) (inHumanResources ? 1 : 0));
+        buffer.putLong(timestamp);
+        break;
+      case ADD_ADMINISTRATOR:
+        putString(buffer, name);
+        putString(buffer, password);
+        break;
+      case LINK_EMPLOYEE_AND_MANAGER:
+      case REASSIGN_REPORTS:
+      case MERGE_TEAMS:
+        buffer.putInt(managerId);
+        break;
+      case MOVE_SUBTREES:
+        buffer.putInt(ids.length);
+        for (int moved : ids) {
+          buffer.putInt(moved);
+        }
+        break;
+      case SET_SALARY:
+        buffer.putDouble(salary);
+        buffer.putLong(timestamp);
+        break;
+      case SET_VACATION_BALANCE:
+        buffer.putInt(vacationBalance);
+        break;
+      case SET_ANNUAL_BONUS:
+        buffer.putDouble(annualBonus);
+        break;
+      case TRANSACTION:
+        for (LogRecord part : parts) {
+          part.encode(buffer);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Reads a record written by {@link #encode(ByteBuffer)} from the given buffer.
+   *
+   * @param buffer The buffer to read from.
+   * @return The record.
+   * @throws IllegalArgumentException If the buffer does not hold a valid record.
+   * @author Michael Ruberto
+   */
+  static LogRecord decode(ByteBuffer buffer) throws IllegalArgumentException {
+    int ordinal = buffer.get();
+    if (ordinal < 0 || ordinal >= Type.VALUES.length) {
+      throw new IllegalArgumentException("Unknown log record type " + ordinal);
+    }
+    Type type = Type.VALUES[ordinal];
+    int id = buffer.getInt();
+    switch (type) {
+      case CHANGE_HR_STATUS:
+        return changeHRStatus(id, buffer.get() != 0);
+      case ADD_EMPLOYEE:
+        return addEmployee(id, buffer.get() != 0, getString(buffer), getString(buffer),
+            buffer.getDouble(), buffer.getInt(), buffer.getDouble(), buffer.get() != 0,
+            buffer.getLong());
+      case ADD_ADMINISTRATOR:
+        return addAdministrator(id, getString(buffer), getString(buffer));
+      case LINK_EMPLOYEE_AND_MANAGER:
+        return linkEmployeeAndManager(id, buffer.getInt());
+      case REASSIGN_REPORTS:
+        return reassignReports(id, buffer.getInt());
+      case MERGE_TEAMS:
+        return mergeTeams(id, buffer.getInt());
+      case MOVE_SUBTREES:
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+          throw new IllegalArgumentException("Invalid number of subtrees " + count);
+        }
+        int[] moved = new int[count];
+        for (int i = 0; i < count; i++) {
+          moved[i] = buffer.getInt();
+        }
+        return new LogRecord(id, moved);
+      case SET_SALARY:
+        return setSalary(id, buffer.getDouble(), buffer.getLong());
+      case SET_VACATION_BALANCE:
+        return setVacationBalance(id, buffer.getInt());
+      case SET_ANNUAL_BONUS:
+        return setAnnualBonus(id, buffer.getDouble());
+      case TRANSACTION:
+        if (id < 0 || id > buffer.remaining()) {
+          throw new IllegalArgumentException("Invalid transaction size " + id);
+        }
+        LogRecord[] parts = new LogRecord[id];
+        for (int i = 0; i < id; i++) {
+          parts[i] = decode(buffer);
+          if (parts[i].type == Type.TRANSACTION) {
+            throw new IllegalArgumentException("Transactions can't be nested.");
+          }
+        }
+        return new LogRecord(parts);
+      default:
+        return of(type, id);
+    }
+  }
+
+  private static int stringSize(String value) {
+    return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static void putString(ByteBuffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) throws IllegalArgumentException {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
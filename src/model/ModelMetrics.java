@@ -0,0 +1,267 @@
+package model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of the calls made to an {@link HRModel} (see {@link
+ * HRModel#setMetrics(ModelMetrics)}): a {@link LatencyHistogram} of how long each {@link
+ * ModelOperation} took, how many calls were allowed and how many were denied (and why), and how
+ * many calls to each operation failed with each type of exception.
+ * <p>
+ * Measuring a call costs two reads of the clock and a few counter increments, none of which lock or
+ * allocate. A model which isn't given any metrics doesn't read the clock at all. A call is timed
+ * until it returns, so the time of {@link ModelOperation#FIND_USERS} covers planning the query but
+ * not reading the stream it returns.
+ * <p>
+ * The measurements can be read one at a time, or all at once in the Prometheus text exposition
+ * format (see {@link #toPrometheus()}), which can be served as it is, or written to a file for a
+ * collector to pick up (see {@link #writePrometheus(Path)}). The latency buckets exported are
+ * powers of four nanoseconds, from 256 ns to about 17 s, and the operations which haven't been
+ * called are left out.
+ *
+ * @author Michael Ruberto
+ */
+public final class ModelMetrics {
+
+  // The powers of two nanoseconds which bound the exported latency buckets
+  private static final int LOWEST_BOUND = 8;
+  private static final int HIGHEST_BOUND = 34;
+  private static final int BOUND_STEP = 2;
+
+  private static final String LATENCY = "hr_model_call_duration_seconds";
+  private static final String DECISIONS = "hr_model_access_decisions_total";
+  private static final String EXCEPTIONS = "hr_model_exceptions_total";
+
+  private final LatencyHistogram[] latencies;
+  private final LongAdder[] decisions;
+  // The number of exceptions of each type thrown by each operation, by the name of the type
+  private final EnumMap<ModelOperation, ConcurrentHashMap<String, LongAdder>> exceptions;
+
+  /**
+   * Constructs a set of metrics in which nothing has been counted yet.
+   *
+   * @author Michael Ruberto
+   */
+  public ModelMetrics() {
+    ModelOperation[] operations = ModelOperation.values();
+    this.latencies = new LatencyHistogram[operations.length];
+    this.exceptions = new EnumMap<ModelOperation, ConcurrentHashMap<String, LongAdder>>(
+        ModelOperation.class);
+    for (ModelOperation operation : operations) {
+      latencies[operation.ordinal()] = new LatencyHistogram();
+      exceptions.put(operation, new ConcurrentHashMap<String, LongAdder>());
+    }
+    this.decisions = new LongAdder[AccessDecision.values().length];
+    for (int i = 0; i < decisions.length; i++) {
+      decisions[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Counts a call to the given operation which took the given time.
+   *
+   * @param operation The operation called.
+   * @param nanos     How long the call took, in nanoseconds.
+   * @author Michael Ruberto
+   */
+  void record(ModelOperation operation, long nanos) {
+    latencies[operation.ordinal()].record(nanos);
+  }
+
+  /**
+   * Counts the outcome of a permission check.
+   *
+   * @param decision Whether the call was allowed, or why it was denied.
+   * @author Michael Ruberto
+   */
+  void countDecision(AccessDecision decision) {
+    decisions[decision.ordinal()].increment();
+  }
+
+  /**
+   * Counts a call to the given operation which failed with the given exception.
+   *
+   * @param operation The operation called.
+   * @param exception The exception the call failed with.
+   * @author Michael Ruberto
+   */
+  void countException(ModelOperation operation, RuntimeException exception) {
+    exceptions.get(operation).computeIfAbsent(exception.getClass().getName(),
+        name -> new LongAdder()).increment();
+  }
+
+  /**
+   * Gets the histogram of how long the calls to the given operation took.
+   *
+   * @param operation The operation.
+   * @return The operation's histogram.
+   * @throws IllegalArgumentException If the operation is null.
+   * @author Michael Ruberto
+   */
+  public LatencyHistogram getLatency(ModelOperation operation) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (operation == null) {
+      throw new IllegalArgumentException("The operation cannot be null.");
+    }
+
+    return latencies[operation.ordinal()];
+  }
+
+  /**
+   * Gets the number of calls which were allowed and went through. A call which passed its
+   * permission check but then failed, for instance on an invalid value, isn't counted.
+   *
+   * @return The number of calls allowed.
+   * @author Michael Ruberto
+   */
+  public long getAllowed() {
+    return decisions[AccessDecision.ALLOWED.ordinal()].sum();
+  }
+
+  /**
+   * Gets the number of calls which were denied, for whatever reason.
+   *
+   * @return The number of calls denied.
+   * @author Michael Ruberto
+   */
+  public long getDenied() {
+    long denied = 0;
+    for (int i = 0; i < decisions.length; i++) {
+      if (!AccessDecision.fromOrdinal(i).isAllowed()) {
+        denied += decisions[i].sum();
+      }
+    }
+    return denied;
+  }
+
+  /**
+   * Gets the number of calls to the given operation which failed, by the name of the type of
+   * exception they failed with.
+   *
+   * @param operation The operation.
+   * @return The number of failed calls, by exception type, in order of the type's name.
+   * @throws IllegalArgumentException If the operation is null.
+   * @author Michael Ruberto
+   */
+  public Map<String, Long> getExceptions(ModelOperation operation)
+      throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (operation == null) {
+      throw new IllegalArgumentException("The operation cannot be null.");
+    }
+
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    exceptions.get(operation).forEach((name, count) -> counts.put(name, count.sum()));
+    return counts;
+  }
+
+  /**
+   * Writes every measurement in the Prometheus text exposition format.
+   *
+   * @param out Where to write the measurements.
+   * @throws IOException If writing fails.
+   * @throws IllegalArgumentException If the destination is null.
+   * @author Michael Ruberto
+   */
+  public void writePrometheus(Appendable out) throws IOException, IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (out == null) {
+      throw new IllegalArgumentException("The destination cannot be null.");
+    }
+
+    out.append("# HELP ").append(LATENCY).append(" How long calls to the model took.\n");
+    out.append("# TYPE ").append(LATENCY).append(" histogram\n");
+    for (ModelOperation operation : ModelOperation.values()) {
+      LatencyHistogram latency = latencies[operation.ordinal()];
+      if (latency.getCount() == 0) {
+        continue;
+      }
+      String label = "operation=\"" + operation + "\"";
+      for (int power = LOWEST_BOUND; power <= HIGHEST_BOUND; power += BOUND_STEP) {
+        out.append(LATENCY).append("_bucket{").append(label).append(",le=\"")
+            .append(Double.toString((1L << power) / 1e9)).append("\"} ")
+            .append(Long.toString(latency.countBelow(power))).append('\n');
+      }
+      // Counted after the buckets, so that calls counted meanwhile can't leave a bucket holding
+      // more calls than the total
+      long count = latency.getCount();
+      out.append(LATENCY).append("_bucket{").append(label).append(",le=\"+Inf\"} ")
+          .append(Long.toString(count)).append('\n');
+      out.append(LATENCY).append("_sum{").append(label).append("} ")
+          .append(Double.toString(latency.getTotalNanos() / 1e9)).append('\n');
+      out.append(LATENCY).append("_count{").append(label).append("} ")
+          .append(Long.toString(count)).append('\n');
+    }
+
+    out.append("# HELP ").append(DECISIONS)
+        .append(" Permission checks, by whether the call was allowed or why it was denied.\n");
+    out.append("# TYPE ").append(DECISIONS).append(" counter\n");
+    for (int i = 0; i < decisions.length; i++) {
+      out.append(DECISIONS).append("{outcome=\"").append(AccessDecision.fromOrdinal(i).name())
+          .append("\"} ").append(Long.toString(decisions[i].sum())).append('\n');
+    }
+
+    out.append("# HELP ").append(EXCEPTIONS)
+        .append(" Calls to the model which failed, by the type of exception.\n");
+    out.append("# TYPE ").append(EXCEPTIONS).append(" counter\n");
+    for (ModelOperation operation : ModelOperation.values()) {
+      for (Map.Entry<String, Long> entry : getExceptions(operation).entrySet()) {
+        out.append(EXCEPTIONS).append("{operation=\"").append(operation.name())
+            .append("\",exception=\"").append(entry.getKey()).append("\"} ")
+            .append(Long.toString(entry.getValue())).append('\n');
+      }
+    }
+  }
+
+  /**
+   * Gets every measurement in the Prometheus text exposition format.
+   *
+   * @return The measurements.
+   * @author Michael Ruberto
+   */
+  public String toPrometheus() {
+    StringBuilder text = new StringBuilder();
+    try {
+      writePrometheus(text);
+    } catch (IOException e) {
+      // A StringBuilder never throws
+      throw new IllegalStateException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes every measurement in the Prometheus text exposition format to the given file, such as
+   * one in the directory read by the node exporter's textfile collector. The measurements are
+   * written to a temporary file next to it first, which then replaces the file in one step, so
+   * that nobody ever reads a half-written file.
+   *
+   * @param file The file.
+   * @throws IOException If the file can't be written.
+   * @throws IllegalArgumentException If the file is null.
+   * @author Michael Ruberto
+   */
+  public void writePrometheus(Path file) throws IOException, IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (file == null) {
+      throw new IllegalArgumentException("The file cannot be null.");
+    }
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      writePrometheus(out);
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,55 @@
+package model;
+
+/**
+ * The operations which can be called on an {@link HRModel}: logging in, and one for every operation
+ * of the {@link IHumanResourcesModel} interface. Calls are audited (see {@link AuditLog}) and
+ * measured (see {@link ModelMetrics}) by operation.
+ *
+ * @author Michael Ruberto
+ */
+public enum ModelOperation {
+  LOG_IN,
+  CHANGE_HR_STATUS,
+  ADD_EMPLOYEE,
+  ADD_ADMINISTRATOR,
+  REMOVE_USER,
+  LINK_EMPLOYEE_AND_MANAGER,
+  PROMOTE_TO_MANAGER,
+  DEMOTE_TO_STANDARD,
+  GET_SALARY,
+  SET_SALARY,
+  GET_SALARY_HISTORY,
+  GET_SALARY_AS_OF,
+  GET_SALARY_CHANGES,
+  GET_VACATION_BALANCE,
+  SET_VACATION_BALANCE,
+  GET_ANNUAL_BONUS,
+  SET_ANNUAL_BONUS,
+  SUMMARIZE_PAYROLL,
+  FIND_USERS_BY_NAME,
+  FIND_USERS_WITH_ROLES,
+  FIND_EMPLOYEES_BY_SALARY,
+  FIND_EMPLOYEES_BY_ANNUAL_BONUS,
+  FIND_EMPLOYEES_BY_VACATION_BALANCE,
+  FIND_USERS,
+  SUBSCRIBE,
+  BEGIN_TRANSACTION,
+  COMMIT_TRANSACTION,
+  OPEN_SNAPSHOT,
+  REASSIGN_REPORTS,
+  MERGE_TEAMS,
+  MOVE_SUBTREES;
+
+  private static final ModelOperation[] VALUES = values();
+
+  /**
+   * Gets the operation with the given ordinal, without copying the array of constants.
+   *
+   * @param ordinal The operation's ordinal.
+   * @return The operation.
+   * @author Michael Ruberto
+   */
+  static ModelOperation fromOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
+}
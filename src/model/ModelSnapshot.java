@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+import model.users.ColumnTotals;
+import model.users.Role;
+
+/**
+ * A consistent view of every user of an {@link HRModel} as they were at one moment (see {@link
+ * IHumanResourcesModel#openSnapshot()}), for reports which take long enough that the users would
+ * otherwise change underneath them. A snapshot sees every change made before it was opened, and
+ * none made after, including the changes of a {@link Transaction}, which it sees all of or none of.
+ * <p>
+ * Changes carry on at full speed while a snapshot is open; the model keeps the state each user had
+ * before their first change after the snapshot was opened, and reads them back through the
+ * snapshot. Those states are held in memory until the snapshot is closed, so a snapshot should be
+ * closed as soon as the report is done. Reading a user locks them for a moment, so that a change
+ * being made to them is either wholly seen or not at all, but nothing is locked between reads.
+ * <p>
+ * This is not the same as the snapshot files written by {@link
+ * HRModel#writeSnapshot(java.nio.file.Path)}, which are for restarts. A snapshot may be read from
+ * several threads at once.
+ *
+ * @author Michael Ruberto
+ */
+public final class ModelSnapshot implements AutoCloseable {
+
+  private final HRModel model;
+  private final long sequence;
+  private volatile boolean open;
+
+  /**
+   * Constructs a snapshot of the given model, which has been registered with it at the given
+   * sequence number.
+   *
+   * @param model    The model.
+   * @param sequence The sequence number the snapshot was opened at.
+   * @author Michael Ruberto
+   */
+  ModelSnapshot(HRModel model, long sequence) {
+    this.model = model;
+    this.sequence = sequence;
+    this.open = true;
+  }
+
+  // Checks that the snapshot can still be read.
+  private void checkOpen() throws IllegalStateException {
+    if (!open) {
+      throw new IllegalStateException("The snapshot has been closed.");
+    }
+  }
+
+  /**
+   * Gets the number of the last change to the model which this snapshot sees.
+   *
+   * @return The sequence number.
+   * @author Michael Ruberto
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Gets the state of the user with the given ID when this snapshot was opened.
+   *
+   * @param id The user's ID.
+   * @return The user's state, or {@code null} if there was no user with that ID.
+   * @throws IllegalStateException If the snapshot has been closed.
+   * @author Michael Ruberto
+   */
+  public UserState getUser(int id) throws IllegalStateException {
+    checkOpen();
+    UserState state = model.stateAt(id, sequence);
+    // Checked again, since the states it read may have been dropped as it was closed
+    checkOpen();
+    return state;
+  }
+
+  /**
+   * Gets the state of every user there was when this snapshot was opened, in no particular order.
+   * The stream reads the users lazily, one at a time.
+   *
+   * @return The users' states.
+   * @throws IllegalStateException If the snapshot has been closed, now or while the stream is read.
+   * @author Michael Ruberto
+   */
+  public Stream<UserState> users() throws IllegalStateException {
+    checkOpen();
+    return model.userIds().mapToObj(this::getUser)
+        .filter(Objects::nonNull);
+  }
+
+  /**
+   * Summarizes the payroll of the employees there were when this snapshot was opened, optionally
+   * only those of one type or HR status, as {@link IHumanResourcesModel#summarizePayroll(String,
+   * Boolean)} does for an administrator.
+   *
+   * @param employeeType     "Standard Employee" or "Manager" to only summarize that type of
+   *                         employee, or {@code null} for both.
+   * @param inHumanResources Whether to only summarize employees in HR, or not in HR, or {@code
+   *                         null} for both.
+   * @return The summary.
+   * @throws IllegalStateException    If the snapshot has been closed.
+   * @throws IllegalArgumentException If the employee type is invalid.
+   * @author Michael Ruberto
+   */
+  public PayrollSummary summarizePayroll(String employeeType, Boolean inHumanResources)
+      throws IllegalStateException, IllegalArgumentException {
+    //VALIDATING INPUTS
+    Role kind;
+    if (employeeType == null) {
+      kind = Role.EMPLOYEE;
+    } else if (employeeType.equals("Standard Employee")) {
+      kind = Role.STANDARD_EMPLOYEE;
+    } else if (employeeType.equals("Manager")) {
+      kind = Role.MANAGER;
+    } else {
+      throw new IllegalArgumentException("Invalid employee type provided.");
+    }
+
+    ColumnTotals totals = new ColumnTotals();
+    users().filter(user -> user.hasRole(kind)
+        && (inHumanResources == null || user.isInHumanResources() == inHumanResources))
+        .forEach(user -> totals.add(user.getSalary(), user.getVacationBalance(),
+            user.getAnnualBonus()));
+    return new PayrollSummary(totals);
+  }
+
+  /**
+   * Is this snapshot still open?
+   *
+   * @return Whether or not the snapshot can be read.
+   * @author Michael Ruberto
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Closes this snapshot, so that the model can drop the older states of users it was keeping for
+   * it. Closing a closed snapshot does nothing.
+   *
+   * @author Michael Ruberto
+   */
+  @Override
+  public synchronized void close() {
+    if (open) {
+      open = false;
+      model.closeSnapshot(sequence);
+    }
+  }
+}
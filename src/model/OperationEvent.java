@@ -0,0 +1,91 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a call to an operation of an {@link HRModel}: which operation,
+ * who called it on whom, how long it took, and the type of exception it failed with, if it did.
+ * Recorded alongside the JVM's own events, these show which calls were running during a pause or
+ * while a lock was contended.
+ * <p>
+ * The event is named {@value #NAME}, and can be turned on and off, or given a threshold, through
+ * the settings of a recording like any other. While nothing is recording it, starting and ending
+ * the event does nothing, and the event object itself is never allocated once the calling code has
+ * been compiled.
+ *
+ * @author Michael Ruberto
+ */
+@Name(OperationEvent.NAME)
+@Label("HR Model Operation")
+@Category("HR Model")
+@Description("A call to an operation of an HRModel")
+@StackTrace(false)
+final class OperationEvent extends Event {
+
+  /**
+   * The name the event is recorded under.
+   */
+  static final String NAME = "model.Operation";
+
+  @Label("Operation")
+  private String operation;
+
+  @Label("Caller ID")
+  @Description("The ID of the user who made the call, or the lowest int if nobody was logged in")
+  private int callerId;
+
+  @Label("Target ID")
+  @Description("The ID of the user the call was about, or the lowest int if it wasn't about one")
+  private int targetId;
+
+  @Label("Failure")
+  @Description("The type of exception the call failed with, if it failed")
+  private Class<?> failure;
+
+  /**
+   * Starts timing a call.
+   *
+   * @return The call's event.
+   * @author Michael Ruberto
+   */
+  static OperationEvent start() {
+    OperationEvent event = new OperationEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Notes that the call failed with the given exception.
+   *
+   * @param exception The exception.
+   * @author Michael Ruberto
+   */
+  void fail(RuntimeException exception) {
+    if (isEnabled()) {
+      failure = exception.getClass();
+    }
+  }
+
+  /**
+   * Ends the call, and records it if it is being recorded.
+   *
+   * @param operation The operation called.
+   * @param session   The session it was called on, or {@code null} for none.
+   * @param targetId  The ID of the user the call was about, or {@link AuditLog#NO_USER}.
+   * @author Michael Ruberto
+   */
+  void end(ModelOperation operation, HRSession session, int targetId) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation.name();
+      this.callerId = session == null ? AuditLog.NO_USER : session.getUserId();
+      this.targetId = targetId;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,348 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+
+/**
+ * An index of the reporting structure of an organization, which can tell whether one employee is
+ * anywhere underneath another in constant time and list everyone underneath a manager.
+ * <p>
+ * The index keeps an Euler tour of the organization: a list in which each employee appears twice,
+ * once when the tour "enters" them and once when it "exits" them, with everyone who reports to them
+ * (directly or indirectly) in between. Every entry in the list carries a numeric label which
+ * increases along the list, so employee X is underneath manager Y exactly when Y's enter label is
+ * less than X's and X's exit label is less than Y's. Employees who don't report to anyone are at
+ * the top level of the tour.
+ * <p>
+ * The tour is kept up to date incrementally. Moving an employee to a new manager moves their whole
+ * stretch of the list (themselves and everyone underneath them) in one splice, and only that
+ * stretch is relabelled, along with a small window of its new neighbours if the labels there have
+ * become too crowded.
+ * <p>
+ * Queries can be made from any thread. Checks of whether someone is underneath someone else don't
+ * lock at all unless they race with a change, in which case they are retried under a read lock.
+ * Changes are made one at a time under a write lock.
+ *
+ * @author Michael Ruberto
+ */
+public final class OrgHierarchy {
+
+  /**
+   * The manager ID used for employees who don't report to anyone.
+   */
+  public static final int NO_MANAGER = 0;
+
+  // Labels are spread over [0, LABEL_SPACE]; the two ends belong to the sentinels
+  private static final long LABEL_SPACE = 1L << 62;
+  // The largest gap left between labels given to new entries at the end of the tour, so that
+  // adding employees one after another doesn't use up the label space
+  private static final long MAX_APPEND_GAP = 1L << 32;
+
+  private final ConcurrentHashMap<Integer, Node> nodes;
+  private final Token head;
+  private final Token tail;
+  private final StampedLock lock;
+
+  /**
+   * Constructs an empty hierarchy.
+   *
+   * @author Michael Ruberto
+   */
+  public OrgHierarchy() {
+    this(16);
+  }
+
+  /**
+   * Constructs an empty hierarchy with room for the given number of employees before it has to
+   * grow.
+   *
+   * @param expectedSize The number of employees expected.
+   * @author Michael Ruberto
+   */
+  public OrgHierarchy(int expectedSize) {
+    nodes = new ConcurrentHashMap<Integer, Node>(expectedSize);
+    head = new Token(null, true);
+    tail = new Token(null, false);
+    head.label = 0;
+    tail.label = LABEL_SPACE;
+    head.next = tail;
+    tail.prev = head;
+    lock = new StampedLock();
+  }
+
+  // One entry in the tour.
+  private static final class Token {
+
+    final Node node;
+    final boolean enter;
+    long label;
+    Token prev;
+    Token next;
+
+    Token(Node node, boolean enter) {
+      this.node = node;
+      this.enter = enter;
+    }
+  }
+
+  // An employee, and their two entries in the tour.
+  private static final class Node {
+
+    final int id;
+    final Token enter;
+    final Token exit;
+
+    Node(int id) {
+      this.id = id;
+      this.enter = new Token(this, true);
+      this.exit = new Token(this, false);
+      enter.next = exit;
+      exit.prev = enter;
+    }
+  }
+
+  /**
+   * Is the employee with the given ID in this hierarchy?
+   *
+   * @param id The employee's ID.
+   * @return Whether or not the employee is in the hierarchy.
+   * @author Michael Ruberto
+   */
+  public boolean contains(int id) {
+    return nodes.containsKey(id);
+  }
+
+  /**
+   * Is the employee with ID {@code id} anywhere underneath the manager with ID {@code managerId},
+   * whether they report to them directly or through other managers? Nobody is underneath
+   * themselves.
+   *
+   * @param id        The employee's ID.
+   * @param managerId The manager's ID.
+   * @return Whether or not the employee is underneath the manager. If either is not in the
+   *     hierarchy, this is {@code false}.
+   * @author Michael Ruberto
+   */
+  public boolean isUnder(int id, int managerId) {
+    Node node = nodes.get(id);
+    Node manager = nodes.get(managerId);
+    if (node == null || manager == null) {
+      return false;
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    boolean under = isUnder(node, manager);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        under = isUnder(node, manager);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return under;
+  }
+
+  private static boolean isUnder(Node node, Node manager) {
+    return manager.enter.label < node.enter.label && node.exit.label < manager.exit.label;
+  }
+
+  /**
+   * Lists the IDs of everyone anywhere underneath the manager with the given ID, in tour order
+   * (each manager is followed by the people underneath them).
+   *
+   * @param managerId The manager's ID.
+   * @return The IDs of everyone underneath the manager. If the manager is not in the hierarchy,
+   *     this is empty.
+   * @author Michael Ruberto
+   */
+  public IntStream subtree(int managerId) {
+    Node manager = nodes.get(managerId);
+    if (manager == null) {
+      return IntStream.empty();
+    }
+
+    IntStream.Builder ids = IntStream.builder();
+    long stamp = lock.readLock();
+    try {
+      for (Token token = manager.enter.next; token != manager.exit; token = token.next) {
+        if (token.enter) {
+          ids.add(token.node.id);
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    return ids.build();
+  }
+
+  /**
+   * Counts the people anywhere underneath the manager with the given ID, stopping once the count
+   * reaches the given limit, so that estimating the size of a large team costs no more than the
+   * caller is willing to spend.
+   *
+   * @param managerId The manager's ID.
+   * @param limit     The most people to count.
+   * @return The number of people underneath the manager, or {@code limit} if there are at least
+   *     that many.
+   * @author Michael Ruberto
+   */
+  public int countUnder(int managerId, int limit) {
+    Node manager = nodes.get(managerId);
+    if (manager == null) {
+      return 0;
+    }
+
+    int count = 0;
+    long stamp = lock.readLock();
+    try {
+      for (Token token = manager.enter.next; token != manager.exit && count < limit;
+          token = token.next) {
+        if (token.enter) {
+          count++;
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    return count;
+  }
+
+  /**
+   * Adds the employee with the given ID to the top level of this hierarchy. Does nothing if they
+   * are already in it.
+   *
+   * @param id The employee's ID.
+   * @author Michael Ruberto
+   */
+  void add(int id) {
+    long stamp = lock.writeLock();
+    try {
+      if (nodes.containsKey(id)) {
+        return;
+      }
+      Node node = new Node(id);
+      insert(node.enter, node.exit, 2, tail.prev);
+      nodes.put(id, node);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the employee with the given ID from this hierarchy. Anyone who reported to them is
+   * moved, along with everyone underneath them, to the top level.
+   *
+   * @param id The employee's ID.
+   * @author Michael Ruberto
+   */
+  void remove(int id) {
+    long stamp = lock.writeLock();
+    try {
+      Node node = nodes.remove(id);
+      if (node == null) {
+        return;
+      }
+
+      if (node.enter.next != node.exit) {
+        Token first = node.enter.next;
+        Token last = node.exit.prev;
+        int count = detach(first, last);
+        insert(first, last, count, tail.prev);
+      }
+      detach(node.enter, node.exit);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Moves the employee with the given ID, along with everyone underneath them, so that they report
+   * to the manager with the given ID.
+   *
+   * @param id        The employee's ID.
+   * @param managerId The new manager's ID, or {@link #NO_MANAGER} to move them to the top level.
+   * @throws IllegalStateException If either employee is not in the hierarchy, or if the move would
+   *                               put an employee underneath themselves.
+   * @author Michael Ruberto
+   */
+  void setManager(int id, int managerId) throws IllegalStateException {
+    long stamp = lock.writeLock();
+    try {
+      Node node = nodes.get(id);
+      Node manager = managerId == NO_MANAGER ? null : nodes.get(managerId);
+      if (node == null || (managerId != NO_MANAGER && manager == null)) {
+        throw new IllegalStateException("Both employees must be in the hierarchy.");
+      }
+      if (manager != null && (manager == node || isUnder(manager, node))) {
+        throw new IllegalStateException("An employee can't report to someone underneath them.");
+      }
+
+      int count = detach(node.enter, node.exit);
+      insert(node.enter, node.exit, count, manager == null ? tail.prev : manager.enter);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Unlinks the run of tokens from first to last from the tour, returning how many there are.
+  private int detach(Token first, Token last) {
+    int count = 1;
+    for (Token token = first; token != last; token = token.next) {
+      count++;
+    }
+    first.prev.next = last.next;
+    last.next.prev = first.prev;
+    first.prev = null;
+    last.next = null;
+    return count;
+  }
+
+  // Links the run of count tokens from first to last into the tour straight after the given token,
+  // and gives them labels.
+  private void insert(Token first, Token last, int count, Token after) {
+    Token before = after.next;
+    first.prev = after;
+    last.next = before;
+    after.next = first;
+    before.prev = last;
+    relabel(after, before, count);
+  }
+
+  // Gives new labels to the count tokens between left and right. If the gap between left and right
+  // is too small to fit them comfortably, the window is widened, doubling the number of neighbours
+  // taken in on each side every time, until it covers a range which is sparse enough. Every token
+  // in the final window is then relabelled evenly. Requiring more room per token for larger
+  // windows keeps the amount of relabelling small on average.
+  private void relabel(Token left, Token right, int count) {
+    long window = count;
+    int reach = 1;
+    while (true) {
+      long slots = window + 1;
+      long range = right.label - left.label;
+      if (range / slots > slots || (left == head && right == tail)) {
+        break;
+      }
+      for (int i = 0; i < reach && left != head; i++) {
+        left = left.prev;
+        window++;
+      }
+      for (int i = 0; i < reach && right != tail; i++) {
+        right = right.next;
+        window++;
+      }
+      reach *= 2;
+    }
+
+    long step = (right.label - left.label) / (window + 1);
+    if (right == tail) {
+      step = Math.min(step, MAX_APPEND_GAP);
+    }
+    long label = left.label;
+    for (Token token = left.next; token != right; token = token.next) {
+      label += step;
+      token.label = label;
+    }
+  }
+}
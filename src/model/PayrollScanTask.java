@@ -0,0 +1,63 @@
+package model;
+
+import java.util.concurrent.RecursiveTask;
+import model.users.ColumnTotals;
+import model.users.EmployeeColumns;
+
+/**
+ * A fork-join task which scans a range of slots of an {@link EmployeeColumns} store, splitting the
+ * range in half until the pieces are small enough to scan directly, and adds up the totals of the
+ * pieces.
+ *
+ * @author Michael Ruberto
+ */
+final class PayrollScanTask extends RecursiveTask<ColumnTotals> {
+
+  private static final long serialVersionUID = 1L;
+
+  // Large enough that the cost of forking is small next to the scan itself
+  private static final int THRESHOLD = 1 << 16;
+
+  private final EmployeeColumns columns;
+  private final int fromSlot;
+  private final int toSlot;
+  private final int mask;
+  private final int match;
+
+  /**
+   * Constructs a task which scans slots {@code fromSlot} (inclusive) to {@code toSlot} (exclusive),
+   * counting the employees whose flags match the filter described in {@link
+   * EmployeeColumns#scan(int, int, int, int, ColumnTotals)}.
+   *
+   * @param columns  The column store to scan.
+   * @param fromSlot The first slot to scan.
+   * @param toSlot   One past the last slot to scan.
+   * @param mask     The flag bits to be compared.
+   * @param match    The value those bits must have.
+   * @author Michael Ruberto
+   */
+  PayrollScanTask(EmployeeColumns columns, int fromSlot, int toSlot, int mask, int match) {
+    this.columns = columns;
+    this.fromSlot = fromSlot;
+    this.toSlot = toSlot;
+    this.mask = mask;
+    this.match = match;
+  }
+
+  @Override
+  protected ColumnTotals compute() {
+    if (toSlot - fromSlot <= THRESHOLD) {
+      ColumnTotals totals = new ColumnTotals();
+      columns.scan(fromSlot, toSlot, mask, match, totals);
+      return totals;
+    }
+
+    int middle = (fromSlot + toSlot) >>> 1;
+    PayrollScanTask left = new PayrollScanTask(columns, fromSlot, middle, mask, match);
+    PayrollScanTask right = new PayrollScanTask(columns, middle, toSlot, mask, match);
+    left.fork();
+    ColumnTotals totals = right.compute();
+    totals.add(left.join());
+    return totals;
+  }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import model.users.ColumnTotals;
+
+/**
+ * A summary of the payroll of a group of employees: how many there are, the total, mean, minimum
+ * and maximum of their salaries, and the totals of their annual bonuses and vacation balances.
+ * Summaries are produced by {@link IHumanResourcesModel#summarizePayroll(String, Boolean)} and
+ * never change once created.
+ *
+ * @author Michael Ruberto
+ */
+public final class PayrollSummary {
+
+  private final int headcount;
+  private final double totalSalary;
+  private final double minSalary;
+  private final double maxSalary;
+  private final double totalAnnualBonus;
+  private final long totalVacationBalance;
+
+  /**
+   * Constructs a summary from the given totals.
+   *
+   * @param totals The totals of the employees being summarized.
+   * @throws IllegalArgumentException If the totals are {@code null}.
+   * @author Michael Ruberto
+   */
+  public PayrollSummary(ColumnTotals totals) throws IllegalArgumentException {
+    //VALIDATE INPUTS
+    if (totals == null) {
+      throw new IllegalArgumentException("The given totals cannot be null.");
+    }
+
+    this.headcount = totals.getCount();
+    this.totalSalary = totals.getSalarySum();
+    this.minSalary = totals.getSalaryMin();
+    this.maxSalary = totals.getSalaryMax();
+    this.totalAnnualBonus = totals.getAnnualBonusSum();
+    this.totalVacationBalance = totals.getVacationBalanceSum();
+  }
+
+  /**
+   * Gets the number of employees in this summary.
+   *
+   * @return The headcount.
+   * @author Michael Ruberto
+   */
+  public int getHeadcount() {
+    return headcount;
+  }
+
+  /**
+   * Gets the sum of the employees' salaries.
+   *
+   * @return The total salary.
+   * @author Michael Ruberto
+   */
+  public double getTotalSalary() {
+    return totalSalary;
+  }
+
+  /**
+   * Gets the mean of the employees' salaries.
+   *
+   * @return The mean salary, or {@code NaN} if there are no employees in this summary.
+   * @author Michael Ruberto
+   */
+  public double getMeanSalary() {
+    return headcount == 0 ? Double.NaN : totalSalary / headcount;
+  }
+
+  /**
+   * Gets the smallest of the employees' salaries.
+   *
+   * @return The minimum salary, or {@code NaN} if there are no employees in this summary.
+   * @author Michael Ruberto
+   */
+  public double getMinSalary() {
+    return minSalary;
+  }
+
+  /**
+   * Gets the largest of the employees' salaries.
+   *
+   * @return The maximum salary, or {@code NaN} if there are no employees in this summary.
+   * @author Michael Ruberto
+   */
+  public double getMaxSalary() {
+    return maxSalary;
+  }
+
+  /**
+   * Gets the sum of the employees' annual bonuses.
+   *
+   * @return The total annual bonus.
+   * @author Michael Ruberto
+   */
+  public double getTotalAnnualBonus() {
+    return totalAnnualBonus;
+  }
+
+  /**
+   * Gets the sum of the employees' vacation balances.
+   *
+   * @return The total vacation balance.
+   * @author Michael Ruberto
+   */
+  public long getTotalVacationBalance() {
+    return totalVacationBalance;
+  }
+}
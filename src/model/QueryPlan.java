@@ -0,0 +1,255 @@
+package model;
+
+import java.util.stream.IntStream;
+import model.users.IUser;
+import model.users.Manager;
+import model.users.Role;
+
+/**
+ * How an {@link HRModel} finds the results of a {@link UserQuery}: where the candidate users come
+ * from, and whether they come out in the order the query wants or still have to be sorted.
+ * <p>
+ * Every condition a query can have, other than a custom predicate, can be answered by one of the
+ * model's indexes. The planner estimates how many users each usable index would produce, and
+ * picks the one which is expected to cost the least. The estimates are cheap: the role bitmaps
+ * keep a count of each role, and the sorted indexes are counted only as far as the best estimate
+ * found so far (a range which would produce more users than that is never chosen for its size).
+ * The cost of a plan is the number of users it visits, plus the cost of sorting them if they
+ * don't already come out in order. A plan whose candidates are in order can stop as soon as it
+ * has filled a limited page, so it only visits as many users as it takes to find that many
+ * matches, assuming the other conditions are independent of the one the index answers.
+ * <p>
+ * Whatever the plan, every candidate is checked against every condition of the query as its
+ * information stands when it is visited, so results are always correct even if an index is
+ * briefly behind a concurrent change.
+ *
+ * @author Michael Ruberto
+ */
+final class QueryPlan {
+
+  /**
+   * Where a plan's candidate users come from.
+   */
+  enum Access {
+
+    /**
+     * Every user holding the required roles (and none of the excluded ones), from the role
+     * bitmaps, in order of ID.
+     */
+    SCAN,
+
+    /**
+     * Every user whose name starts with the query's prefix, from the name index, in order of name.
+     */
+    NAME,
+
+    /**
+     * Every employee within the query's range of one numeric attribute, from that attribute's
+     * index, in order of the attribute.
+     */
+    VALUE,
+
+    /**
+     * Everyone in the query's manager's team, from the manager's reports or the reporting
+     * hierarchy, in no particular order.
+     */
+    MANAGER
+  }
+
+  // Visiting a user through a sorted index or the hierarchy costs about this many times as much
+  // as visiting them in the role bitmaps
+  private static final int INDEX_VISIT_COST = 2;
+
+  private final Access access;
+  private final UserAttribute attribute;
+  private final int estimate;
+  private final boolean ordered;
+  private final double cost;
+
+  // Constructs a plan, costing it for the given query.
+  private QueryPlan(Access access, UserAttribute attribute, int estimate, boolean ordered,
+      UserQuery query, double expectedMatches, int userCount) {
+    this.access = access;
+    this.attribute = attribute;
+    this.estimate = estimate;
+    this.ordered = ordered;
+
+    double visited = estimate;
+    if (ordered && query.getLimit() != Integer.MAX_VALUE) {
+      visited = Math.min(estimate,
+          Math.ceil(query.getLimit() * (estimate / Math.max(expectedMatches, 1))));
+    }
+    double visitCost = access == Access.SCAN ? visited + userCount / 64.0
+        : visited * INDEX_VISIT_COST;
+    double sorted = Math.min(estimate, expectedMatches);
+    double sortCost = ordered ? 0 : sorted * Math.log(sorted + 1) / Math.log(2);
+    this.cost = visitCost + sortCost;
+  }
+
+  /**
+   * Plans how to find the results of the given query.
+   *
+   * @param query     The query.
+   * @param index     The model's secondary indexes.
+   * @param hierarchy The model's reporting structure.
+   * @param directory The model's lookup table of users.
+   * @return The cheapest plan.
+   * @author Michael Ruberto
+   */
+  static QueryPlan plan(UserQuery query, UserIndex index, OrgHierarchy hierarchy,
+      UserDirectory directory) {
+    int userCount = Math.max(index.size(), 1);
+    UserAttribute sortKey = query.getSortKey();
+    int roleRows = index.estimateWithRoles(query.getRequiredRoles(), query.getExcludedRoles());
+    // No index is worth counting past the number of users the role bitmaps would produce
+    int bound = roleRows;
+
+    // Estimate how many users each index would produce, and how many users match in all
+    int nameRows = -1;
+    if (query.getNamePrefix() != null) {
+      nameRows = (int) index.withNamePrefix(query.getNamePrefix(), null).limit(bound).count();
+    }
+    int[] valueRows = new int[UserAttribute.values().length];
+    for (UserAttribute numeric : UserAttribute.NUMERIC) {
+      if (query.hasRange(numeric)) {
+        valueRows[numeric.ordinal()] = (int) index.between(numeric, query.getMin(numeric),
+            query.getMax(numeric), null).limit(bound).count();
+      } else {
+        valueRows[numeric.ordinal()] = index.estimateWithRoles(Role.EMPLOYEE.mask(), 0);
+      }
+    }
+    int managerRows = -1;
+    if (query.hasManager()) {
+      managerRows = query.isDirectReportsOnly() ? reportCount(directory, query.getManagerId())
+          : hierarchy.countUnder(query.getManagerId(), bound);
+    }
+
+    double expectedMatches = roleRows;
+    if (nameRows >= 0) {
+      expectedMatches *= (double) nameRows / userCount;
+    }
+    for (UserAttribute numeric : UserAttribute.NUMERIC) {
+      if (query.hasRange(numeric)) {
+        expectedMatches *= (double) valueRows[numeric.ordinal()] / userCount;
+      }
+    }
+    if (managerRows >= 0) {
+      expectedMatches *= (double) managerRows / userCount;
+    }
+
+    // Cost every usable index, keeping the cheapest
+    QueryPlan best = new QueryPlan(Access.SCAN, null, roleRows, sortKey == UserAttribute.ID,
+        query, expectedMatches, userCount);
+    if (nameRows >= 0) {
+      best = cheaper(best, new QueryPlan(Access.NAME, UserAttribute.NAME, nameRows,
+          sortKey == UserAttribute.NAME, query, expectedMatches, userCount));
+    }
+    for (UserAttribute numeric : UserAttribute.NUMERIC) {
+      if (query.hasRange(numeric) || sortKey == numeric) {
+        best = cheaper(best, new QueryPlan(Access.VALUE, numeric, valueRows[numeric.ordinal()],
+            sortKey == numeric, query, expectedMatches, userCount));
+      }
+    }
+    if (managerRows >= 0) {
+      best = cheaper(best, new QueryPlan(Access.MANAGER, null, managerRows, false, query,
+          expectedMatches, userCount));
+    }
+    return best;
+  }
+
+  // Gets the number of employees reporting directly to the user with the given ID.
+  private static int reportCount(UserDirectory directory, int managerId) {
+    IUser manager = directory.get(managerId);
+    if (manager == null || !manager.hasRole(Role.MANAGER)) {
+      return 0;
+    }
+    return ((Manager) manager).getReportingEmployees().size();
+  }
+
+  // Gets the cheaper of two plans, preferring the first if they cost the same.
+  private static QueryPlan cheaper(QueryPlan first, QueryPlan second) {
+    return second.cost < first.cost ? second : first;
+  }
+
+  /**
+   * Lazily streams the IDs of this plan's candidate users. If the candidates come out in the
+   * query's order, they start after the query's cursor; otherwise the cursor is left to the
+   * caller.
+   *
+   * @param query     The query this plan was made for.
+   * @param index     The model's secondary indexes.
+   * @param hierarchy The model's reporting structure.
+   * @param directory The model's lookup table of users.
+   * @return The candidates' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream candidates(UserQuery query, UserIndex index, OrgHierarchy hierarchy,
+      UserDirectory directory) {
+    UserQuery.Cursor after = ordered ? query.getCursor() : null;
+    switch (access) {
+      case NAME:
+        return index.withNamePrefix(query.getNamePrefix(), after);
+      case VALUE:
+        return index.between(attribute, query.getMin(attribute), query.getMax(attribute), after);
+      case MANAGER:
+        if (!query.isDirectReportsOnly()) {
+          return hierarchy.subtree(query.getManagerId());
+        }
+        IUser manager = directory.get(query.getManagerId());
+        if (manager == null || !manager.hasRole(Role.MANAGER)) {
+          return IntStream.empty();
+        }
+        return ((Manager) manager).getReportingEmployees().keySet().stream()
+            .mapToInt(Integer::intValue);
+      default:
+        return index.withRoles(query.getRequiredRoles(), query.getExcludedRoles(),
+            after == null ? Integer.MIN_VALUE : after.id);
+    }
+  }
+
+  /**
+   * Gets where this plan's candidates come from.
+   *
+   * @return The plan's access path.
+   * @author Michael Ruberto
+   */
+  Access getAccess() {
+    return access;
+  }
+
+  /**
+   * Gets the attribute of the index this plan reads, if it reads a sorted index.
+   *
+   * @return The index's attribute, or {@code null} if the plan doesn't read a sorted index.
+   * @author Michael Ruberto
+   */
+  UserAttribute getAttribute() {
+    return attribute;
+  }
+
+  /**
+   * Gets the estimated number of candidates this plan produces.
+   *
+   * @return The estimate.
+   * @author Michael Ruberto
+   */
+  int getEstimate() {
+    return estimate;
+  }
+
+  /**
+   * Do this plan's candidates come out in the order the query wants?
+   *
+   * @return Whether or not the candidates are in order.
+   * @author Michael Ruberto
+   */
+  boolean isOrdered() {
+    return ordered;
+  }
+
+  @Override
+  public String toString() {
+    return access + (attribute == null ? "" : "(" + attribute + ")") + ", ~" + estimate
+        + " candidates" + (ordered ? "" : ", sorted");
+  }
+}
@@ -0,0 +1,153 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default {@link IUserIdAllocator}. Employee IDs count up from the employee high-water mark and
+ * administrator IDs count down from the administrator high-water mark, each kept in an atomic
+ * counter so that any number of threads can take IDs at once.
+ * <p>
+ * For bulk imports from many threads, the allocator can be given a block size greater than one.
+ * Each thread then sets aside a whole block of employee IDs at a time and hands them out from it
+ * without touching the shared counter, so threads don't contend on it. IDs are then only increasing
+ * within each thread, and IDs left in a thread's block when it stops taking them are never handed
+ * out.
+ *
+ * @author Michael Ruberto
+ */
+public class SequentialUserIdAllocator implements IUserIdAllocator {
+
+  private final AtomicInteger nextEmployeeId;
+  private final AtomicInteger nextAdministratorId;
+  private final int blockSize;
+  // The next ID and the end of the block each thread is handing out from, if blocks are used
+  private final ThreadLocal<int[]> blocks;
+
+  /**
+   * Constructs an allocator which hands out employee IDs from 1 and administrator IDs from 0, one
+   * at a time.
+   *
+   * @author Michael Ruberto
+   */
+  public SequentialUserIdAllocator() {
+    this(1, 0, 1);
+  }
+
+  /**
+   * Constructs an allocator which hands out employee IDs from 1 and administrator IDs from 0,
+   * setting aside employee IDs the given number at a time for each thread.
+   *
+   * @param blockSize How many employee IDs each thread sets aside at once.
+   * @throws IllegalArgumentException If the block size is not positive.
+   * @author Michael Ruberto
+   */
+  public SequentialUserIdAllocator(int blockSize) throws IllegalArgumentException {
+    this(1, 0, blockSize);
+  }
+
+  /**
+   * Constructs an allocator which carries on from the given high-water marks, setting aside
+   * employee IDs the given number at a time for each thread.
+   *
+   * @param nextEmployeeId      The first employee ID to hand out.
+   * @param nextAdministratorId The first administrator ID to hand out.
+   * @param blockSize           How many employee IDs each thread sets aside at once.
+   * @throws IllegalArgumentException If the employee ID is not positive, if the administrator ID is
+   *                                  positive, or if the block size is not positive.
+   * @author Michael Ruberto
+   */
+  public SequentialUserIdAllocator(int nextEmployeeId, int nextAdministratorId, int blockSize)
+      throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (nextEmployeeId < 1) {
+      throw new IllegalArgumentException("Employee IDs must be positive.");
+    }
+    if (nextAdministratorId > 0) {
+      throw new IllegalArgumentException("Administrator IDs must not be positive.");
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("The block size must be positive.");
+    }
+
+    this.nextEmployeeId = new AtomicInteger(nextEmployeeId);
+    this.nextAdministratorId = new AtomicInteger(nextAdministratorId);
+    this.blockSize = blockSize;
+    this.blocks = blockSize == 1 ? null : ThreadLocal.withInitial(() -> new int[2]);
+  }
+
+  /**
+   * Gets how many employee IDs each thread sets aside at once.
+   *
+   * @return The block size.
+   * @author Michael Ruberto
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  @Override
+  public int nextEmployeeId() throws IllegalStateException {
+    if (blocks == null) {
+      return reserveEmployeeIds(1);
+    }
+    int[] block = blocks.get();
+    if (block[0] == block[1]) {
+      block[0] = reserveEmployeeIds(blockSize);
+      block[1] = block[0] + blockSize;
+    }
+    return block[0]++;
+  }
+
+  /**
+   * Sets aside the given number of consecutive employee IDs at once, so that they can be handed
+   * out by the caller without coming back to this allocator.
+   *
+   * @param count How many IDs to set aside.
+   * @return The first of the IDs set aside.
+   * @throws IllegalArgumentException If the count is not positive.
+   * @throws IllegalStateException    If there are not enough employee IDs left.
+   * @author Michael Ruberto
+   */
+  public int reserveEmployeeIds(int count) throws IllegalArgumentException, IllegalStateException {
+    //VALIDATING INPUTS
+    if (count < 1) {
+      throw new IllegalArgumentException("The number of IDs must be positive.");
+    }
+
+    int first = nextEmployeeId.getAndUpdate(
+        next -> next > Integer.MAX_VALUE - count ? next : next + count);
+    if (first > Integer.MAX_VALUE - count) {
+      throw new IllegalStateException("There are no employee IDs left.");
+    }
+    return first;
+  }
+
+  @Override
+  public int nextAdministratorId() throws IllegalStateException {
+    int id = nextAdministratorId.getAndUpdate(
+        next -> next == Integer.MIN_VALUE ? next : next - 1);
+    if (id == Integer.MIN_VALUE) {
+      throw new IllegalStateException("There are no administrator IDs left.");
+    }
+    return id;
+  }
+
+  @Override
+  public int getEmployeeHighWaterMark() {
+    return nextEmployeeId.get();
+  }
+
+  @Override
+  public int getAdministratorHighWaterMark() {
+    return nextAdministratorId.get();
+  }
+
+  @Override
+  public void markUsed(int id) {
+    if (id > 0) {
+      nextEmployeeId.accumulateAndGet(id == Integer.MAX_VALUE ? id : id + 1, Math::max);
+    } else {
+      nextAdministratorId.accumulateAndGet(id == Integer.MIN_VALUE ? id : id - 1, Math::min);
+    }
+  }
+}
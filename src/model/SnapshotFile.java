@@ -0,0 +1,292 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+import model.users.IUser;
+import model.users.UserCodec;
+
+/**
+ * The binary format of a snapshot of an {@link HRModel}'s users (see {@link
+ * HRModel#writeSnapshot(Path)}). A snapshot holds, in order:
+ * <ol>
+ *   <li>A header: a magic number, the format version, the next employee and administrator IDs,
+ *   the position of the model's {@link WriteAheadLog} when the snapshot was taken (or {@link
+ *   #NO_LOG} if the model had none), and the number of users.</li>
+ *   <li>Every user, as written by {@link UserCodec}, each followed by the position in the log of
+ *   the last change made to their information.</li>
+ *   <li>The number of manager links, followed by each link as an employee ID and a manager
+ *   ID.</li>
+ *   <li>A CRC-32 checksum of everything before it.</li>
+ * </ol>
+ * Snapshots are read through a memory-mapped buffer, so loading one costs no copying beyond
+ * building the users themselves.
+ *
+ * @author Michael Ruberto
+ */
+final class SnapshotFile {
+
+  /**
+   * Stands for the log position of a snapshot of a model which had no log.
+   */
+  static final long NO_LOG = -1;
+
+  private static final int MAGIC = 0x48525331;
+  private static final int VERSION = 3;
+  // The smallest a user can be: an administrator with an empty name and password, and their
+  // position in the log
+  private static final int MIN_USER_SIZE = 1 + 3 * Integer.BYTES + Long.BYTES;
+
+  // Snapshots are written one at a time, off the caller's thread
+  private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "snapshot-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final ByteBuffer image;
+  private final int nextEmployeeId;
+  private final int nextAdministratorId;
+  private final long logPosition;
+  private final int userCount;
+
+  private SnapshotFile(ByteBuffer image, int nextEmployeeId, int nextAdministratorId,
+      long logPosition, int userCount) {
+    this.image = image;
+    this.nextEmployeeId = nextEmployeeId;
+    this.nextAdministratorId = nextAdministratorId;
+    this.logPosition = logPosition;
+    this.userCount = userCount;
+  }
+
+  /**
+   * Encodes a snapshot of the given users. Must be called while the set of users and the links
+   * between them can't change. Each user is encoded while holding their lock, so that a change to
+   * their information is either wholly in the snapshot or not at all.
+   *
+   * @param users               The users.
+   * @param nextEmployeeId      The ID the next employee created will have.
+   * @param nextAdministratorId The ID the next administrator created will have.
+   * @param logPosition         The position of the model's log, or {@link #NO_LOG}.
+   * @param userPositions       Gets the position in the log of the last change made to a user's
+   *                            information, while holding their lock.
+   * @return The snapshot.
+   * @author Michael Ruberto
+   */
+  static byte[] encode(Collection<IUser> users, int nextEmployeeId, int nextAdministratorId,
+      long logPosition, ToLongFunction<IUser> userPositions) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * (users.size() + 1));
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(nextEmployeeId);
+      out.writeInt(nextAdministratorId);
+      out.writeLong(logPosition);
+      out.writeInt(users.size());
+      int links = 0;
+      for (IUser user : users) {
+        synchronized (user) {
+          UserCodec.encode(user, out);
+          out.writeLong(userPositions.applyAsLong(user));
+        }
+        if (user.hasManager()) {
+          links++;
+        }
+      }
+      out.writeInt(links);
+      for (IUser user : users) {
+        if (user.hasManager()) {
+          out.writeInt(user.getId());
+          out.writeInt(user.getManagerId());
+        }
+      }
+    } catch (IOException e) {
+      // A byte array stream never fails to write
+      throw new UncheckedIOException(e);
+    }
+
+    CRC32 crc = new CRC32();
+    byte[] body = bytes.toByteArray();
+    crc.update(body);
+    byte[] image = new byte[body.length + Integer.BYTES];
+    ByteBuffer.wrap(image).put(body).putInt((int) crc.getValue());
+    return image;
+  }
+
+  /**
+   * Writes the given snapshot to the given file on a background thread. The snapshot is written to
+   * a temporary file next to the target, forced to disk, and then moved into place atomically.
+   *
+   * @param image The encoded snapshot.
+   * @param file  The file to write to.
+   * @return A future which completes once the snapshot is in place.
+   * @author Michael Ruberto
+   */
+  static CompletableFuture<Void> writeAsync(byte[] image, Path file) {
+    CompletableFuture<Void> done = new CompletableFuture<Void>();
+    WRITER.execute(() -> {
+      try {
+        write(image, file);
+        done.complete(null);
+      } catch (IOException | RuntimeException e) {
+        done.completeExceptionally(e);
+      }
+    });
+    return done;
+  }
+
+  private static void write(byte[] image, Path file) throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(image);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Maps the given snapshot file into memory and checks that it is a complete, valid snapshot.
+   *
+   * @param file The snapshot file.
+   * @return The snapshot, ready for its users to be read.
+   * @throws IllegalStateException If the file is not a valid snapshot.
+   * @throws IOException           If the file can't be read.
+   * @author Michael Ruberto
+   */
+  static SnapshotFile map(Path file) throws IllegalStateException, IOException {
+    MappedByteBuffer image;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("The snapshot is too large to be mapped.");
+      }
+      if (size < 6 * Integer.BYTES + Long.BYTES) {
+        throw new IllegalStateException("The snapshot is truncated.");
+      }
+      // The mapping stays valid after the channel is closed
+      image = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    int bodyLength = image.limit() - Integer.BYTES;
+    CRC32 crc = new CRC32();
+    crc.update(image.duplicate().limit(bodyLength));
+    if ((int) crc.getValue() != image.getInt(bodyLength)) {
+      throw new IllegalStateException("The snapshot is corrupt.");
+    }
+    if (image.getInt() != MAGIC || image.getInt() != VERSION) {
+      throw new IllegalStateException("The file is not a snapshot this model can read.");
+    }
+    image.limit(bodyLength);
+    int nextEmployeeId = image.getInt();
+    int nextAdministratorId = image.getInt();
+    long logPosition = image.getLong();
+    if (logPosition < NO_LOG) {
+      throw new IllegalStateException("The snapshot holds an invalid log position.");
+    }
+    int userCount = image.getInt();
+    if (userCount < 0 || userCount > image.remaining() / MIN_USER_SIZE) {
+      throw new IllegalStateException("The snapshot holds an invalid number of users.");
+    }
+    return new SnapshotFile(image, nextEmployeeId, nextAdministratorId, logPosition, userCount);
+  }
+
+  /**
+   * Gets the ID the next employee created will have.
+   *
+   * @return The next employee ID.
+   * @author Michael Ruberto
+   */
+  int getNextEmployeeId() {
+    return nextEmployeeId;
+  }
+
+  /**
+   * Gets the ID the next administrator created will have.
+   *
+   * @return The next administrator ID.
+   * @author Michael Ruberto
+   */
+  int getNextAdministratorId() {
+    return nextAdministratorId;
+  }
+
+  /**
+   * Gets the position the log of the model was at when the snapshot was taken.
+   *
+   * @return The log position, or {@link #NO_LOG} if the model had no log.
+   * @author Michael Ruberto
+   */
+  long getLogPosition() {
+    return logPosition;
+  }
+
+  /**
+   * Gets the number of users in the snapshot.
+   *
+   * @return The number of users.
+   * @author Michael Ruberto
+   */
+  int getUserCount() {
+    return userCount;
+  }
+
+  /**
+   * Reads every user in the snapshot and passes each to the given consumer, along with the
+   * position in the log of the last change made to their information. Must be called once, before
+   * {@link #readLinks()}.
+   *
+   * @param consumer The consumer of the users and their positions.
+   * @throws IllegalStateException If a user can't be read.
+   * @author Michael Ruberto
+   */
+  void readUsers(ObjLongConsumer<IUser> consumer) throws IllegalStateException {
+    try {
+      for (int i = 0; i < userCount; i++) {
+        IUser user = UserCodec.decode(image);
+        consumer.accept(user, image.getLong());
+      }
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("The snapshot holds a user who can't be read.", e);
+    }
+  }
+
+  /**
+   * Reads the manager links in the snapshot. Must be called once, after {@link
+   * #readUsers(ObjLongConsumer)}.
+   *
+   * @return The links, as pairs of an employee ID followed by their manager's ID.
+   * @throws IllegalStateException If the links can't be read.
+   * @author Michael Ruberto
+   */
+  int[] readLinks() throws IllegalStateException {
+    int count = image.getInt();
+    if (count < 0 || count > image.remaining() / (2 * Integer.BYTES)) {
+      throw new IllegalStateException("The snapshot holds an invalid number of links.");
+    }
+    int[] links = new int[2 * count];
+    image.asIntBuffer().get(links);
+    image.position(image.position() + links.length * Integer.BYTES);
+    return links;
+  }
+}
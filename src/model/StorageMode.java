@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * The ways in which an {@link HRModel} can store the information of its employees.
+ *
+ * @author Michael Ruberto
+ */
+public enum StorageMode {
+
+  /**
+   * Each employee keeps all of their own information in their own object. This is the default.
+   */
+  OBJECTS,
+
+  /**
+   * Employees' salaries, vacation balances, annual bonuses, Human Resources statuses and managers
+   * are kept side by side in the columns of a {@link model.users.EmployeeColumns} store, which
+   * makes scans over the whole company much faster.
+   */
+  COLUMNAR
+}
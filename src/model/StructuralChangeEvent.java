@@ -0,0 +1,91 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for a change to the structure of an {@link HRModel} (adding,
+ * removing, linking, promoting or demoting a user), made under the model's structure lock. The
+ * event lasts from when the lock was asked for until it was released, and records how much of that
+ * time was spent waiting for it, so that contention on the lock can be told apart from slow
+ * changes.
+ * <p>
+ * The event is named {@value #NAME}. While nothing is recording it, it costs nothing.
+ *
+ * @author Michael Ruberto
+ */
+@Name(StructuralChangeEvent.NAME)
+@Label("HR Model Structural Change")
+@Category("HR Model")
+@Description("A change to the structure of an HRModel, made under its structure lock")
+@StackTrace(false)
+final class StructuralChangeEvent extends Event {
+
+  /**
+   * The name the event is recorded under.
+   */
+  static final String NAME = "model.StructuralChange";
+
+  @Label("Operation")
+  private String operation;
+
+  @Label("Target ID")
+  @Description("The ID of the user who was added, removed, linked, promoted or demoted")
+  private int targetId;
+
+  @Label("Lock Wait")
+  @Description("How long the change waited for the structure lock")
+  @Timespan(Timespan.NANOSECONDS)
+  private long lockWait;
+
+  // When the lock was asked for, by System.nanoTime(); not recorded
+  private transient long requested;
+
+  /**
+   * Starts timing a change, just before the structure lock is asked for.
+   *
+   * @return The change's event.
+   * @author Michael Ruberto
+   */
+  static StructuralChangeEvent start() {
+    StructuralChangeEvent event = new StructuralChangeEvent();
+    event.begin();
+    if (event.isEnabled()) {
+      event.requested = System.nanoTime();
+    }
+    return event;
+  }
+
+  /**
+   * Notes that the structure lock has been taken.
+   *
+   * @author Michael Ruberto
+   */
+  void locked() {
+    if (isEnabled()) {
+      lockWait = System.nanoTime() - requested;
+    }
+  }
+
+  /**
+   * Ends the change, just after the structure lock is released, and records it if it is being
+   * recorded.
+   *
+   * @param operation The operation which made the change.
+   * @param targetId  The ID of the user changed.
+   * @author Michael Ruberto
+   */
+  void end(ModelOperation operation, int targetId) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation.name();
+      this.targetId = targetId;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import model.users.IUser;
+
+/**
+ * A group of changes to an {@link HRModel} which are made together or not at all (see {@link
+ * IHumanResourcesModel#beginTransaction()}). Changes are staged on the transaction one at a time,
+ * which checks each of them the way the model would (the values must be valid, the users must
+ * exist and the caller must be allowed to make the change) and notes the version of every user it
+ * touches, but changes nothing. {@link #commit()} then makes every staged change, in the order they
+ * were staged, or none of them.
+ * <p>
+ * Transactions are optimistic: staging doesn't lock anything, so a transaction never holds anyone
+ * else up while it is being put together. At commit, the users the transaction touches are locked
+ * (in order of ID, so that two transactions can't deadlock), and if any of them has been changed by
+ * someone else since it was staged, the commit fails and nothing is changed; the caller can stage
+ * the changes again on a new transaction and retry. Transactions which only change users' salaries,
+ * vacation balances, annual bonuses or HR status lock nothing but those users, so transactions and
+ * single changes to other users carry on in parallel. Transactions which link employees to managers
+ * also take the model's structure lock, as a single link does.
+ * <p>
+ * A committed transaction is recorded in the model's {@link WriteAheadLog} as a single record, so a
+ * restart either restores all of its changes or none of them, and its changes are published to
+ * subscribers one after another. Each change is audited as if it had been made on its own.
+ * <p>
+ * A call which reads several users at once, such as a lookup by salary or a payroll summary, sees
+ * a commit whole or not at all: it reads again if a commit began while it was reading. Separate
+ * calls which each read one user may fall on either side of a commit, and so may the users
+ * streamed lazily by {@link IHumanResourcesModel#findUsers(UserQuery)}. To read several users as
+ * of one moment across calls, read them through a {@link ModelSnapshot}, which sees every commit
+ * whole.
+ * <p>
+ * A transaction is meant to be used by one thread, and can only be committed once; closing it
+ * without committing it discards the staged changes.
+ *
+ * @author Michael Ruberto
+ */
+public final class Transaction implements AutoCloseable {
+
+  /**
+   * The most users a single transaction may touch.
+   */
+  public static final int MAX_USERS = 1024;
+
+  /**
+   * One staged change, with the users it touches as they were when it was staged.
+   */
+  static final class Step {
+
+    final ModelOperation operation;
+    final int id;
+    final IUser target;
+    final long version;
+    final double value;
+    final int managerId;
+    final IUser manager;
+    final long managerVersion;
+
+    Step(ModelOperation operation, int id, IUser target, long version, double value,
+        int managerId, IUser manager, long managerVersion) {
+      this.operation = operation;
+      this.id = id;
+      this.target = target;
+      this.version = version;
+      this.value = value;
+      this.managerId = managerId;
+      this.manager = manager;
+      this.managerVersion = managerVersion;
+    }
+  }
+
+  private final HRModel model;
+  private final HRSession session;
+  private final List<Step> steps;
+  // The IDs of the users the staged changes touch
+  private final Set<Integer> touched;
+  private boolean open;
+
+  /**
+   * Constructs an empty transaction on the given model, acting on behalf of the given session.
+   *
+   * @param model   The model.
+   * @param session The session the changes are made on behalf of.
+   * @author Michael Ruberto
+   */
+  Transaction(HRModel model, HRSession session) {
+    this.model = model;
+    this.session = session;
+    this.steps = new ArrayList<Step>();
+    this.touched = new HashSet<Integer>();
+    this.open = true;
+  }
+
+  // Checks that changes can still be staged on, or committed from, this transaction.
+  private void checkOpen() throws IllegalStateException {
+    if (!open) {
+      throw new IllegalStateException("The transaction has already been committed or closed.");
+    }
+  }
+
+  // Adds a staged change, unless the transaction would then touch too many users.
+  private void add(Step step) throws IllegalStateException {
+    int added = touched.contains(step.id) ? 0 : 1;
+    if (step.manager != null && step.managerId != step.id && !touched.contains(step.managerId)) {
+      added++;
+    }
+    if (touched.size() + added > MAX_USERS) {
+      throw new IllegalStateException(
+          "A transaction can't touch more than " + MAX_USERS + " users.");
+    }
+    touched.add(step.id);
+    if (step.manager != null) {
+      touched.add(step.managerId);
+    }
+    steps.add(step);
+  }
+
+  /**
+   * Stages setting the salary of the employee with the given ID.
+   *
+   * @param id     The employee's ID.
+   * @param salary The new salary.
+   * @throws IllegalStateException    If the transaction is no longer open, if there is no employee
+   *                                  with the given ID, or if the current user may not edit their
+   *                                  information.
+   * @throws IllegalArgumentException If the salary is negative.
+   * @author Michael Ruberto
+   */
+  public void setSalary(int id, double salary)
+      throws IllegalStateException, IllegalArgumentException {
+    checkOpen();
+    //VALIDATING INPUTS
+    if (!(salary >= 0)) {
+      throw new IllegalArgumentException("Salary must be non-negative.");
+    }
+
+    add(model.stageUpdate(session, ModelOperation.SET_SALARY, id, salary));
+  }
+
+  /**
+   * Stages setting the vacation balance of the employee with the given ID.
+   *
+   * @param id              The employee's ID.
+   * @param vacationBalance The new vacation balance.
+   * @throws IllegalStateException    If the transaction is no longer open, if there is no employee
+   *                                  with the given ID, or if the current user may not edit their
+   *                                  information.
+   * @throws IllegalArgumentException If the vacation balance is negative.
+   * @author Michael Ruberto
+   */
+  public void setVacationBalance(int id, int vacationBalance)
+      throws IllegalStateException, IllegalArgumentException {
+    checkOpen();
+    //VALIDATING INPUTS
+    if (vacationBalance < 0) {
+      throw new IllegalArgumentException("Vacation Balance must be non-negative.");
+    }
+
+    add(model.stageUpdate(session, ModelOperation.SET_VACATION_BALANCE, id, vacationBalance));
+  }
+
+  /**
+   * Stages setting the annual bonus of the employee with the given ID.
+   *
+   * @param id          The employee's ID.
+   * @param annualBonus The new annual bonus.
+   * @throws IllegalStateException    If the transaction is no longer open, if there is no employee
+   *                                  with the given ID, or if the current user may not edit their
+   *                                  information.
+   * @throws IllegalArgumentException If the annual bonus is negative.
+   * @author Michael Ruberto
+   */
+  public void setAnnualBonus(int id, double annualBonus)
+      throws IllegalStateException, IllegalArgumentException {
+    checkOpen();
+    //VALIDATING INPUTS
+    if (!(annualBonus >= 0)) {
+      throw new IllegalArgumentException("Annual Bonus must be non-negative.");
+    }
+
+    add(model.stageUpdate(session, ModelOperation.SET_ANNUAL_BONUS, id, annualBonus));
+  }
+
+  /**
+   * Stages changing whether the employee with the given ID works in Human Resources. Only
+   * administrators may change this.
+   *
+   * @param id               The employee's ID.
+   * @param inHumanResources Whether the employee works in Human Resources.
+   * @throws IllegalStateException If the transaction is no longer open, if the current user isn't
+   *                               an administrator, or if there is no employee with the given ID.
+   * @author Michael Ruberto
+   */
+  public void changeHRStatus(int id, boolean inHumanResources) throws IllegalStateException {
+    checkOpen();
+    add(model.stageUpdate(session, ModelOperation.CHANGE_HR_STATUS, id,
+        inHumanResources ? 1 : 0));
+  }
+
+  /**
+   * Stages making the employee with the first ID report to the manager with the second. Only
+   * administrators may link employees. Whether the link would make anyone report to someone
+   * underneath them is checked at commit, against the links staged before it.
+   *
+   * @param employeeID The employee's ID.
+   * @param managerID  The manager's ID.
+   * @throws IllegalStateException If the transaction is no longer open, if the current user isn't
+   *                               an administrator, or if the IDs aren't those of an employee and a
+   *                               manager.
+   * @author Michael Ruberto
+   */
+  public void linkEmployeeAndManager(int employeeID, int managerID) throws IllegalStateException {
+    checkOpen();
+    add(model.stageLink(session, employeeID, managerID));
+  }
+
+  /**
+   * Gets the number of changes staged so far.
+   *
+   * @return The number of staged changes.
+   * @author Michael Ruberto
+   */
+  public int size() {
+    return steps.size();
+  }
+
+  /**
+   * Can changes still be staged on, and committed from, this transaction?
+   *
+   * @return Whether or not the transaction is open.
+   * @author Michael Ruberto
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Makes every staged change, in the order they were staged, or none of them. The transaction is
+   * closed afterwards, whether or not the commit succeeded.
+   *
+   * @throws IllegalStateException If the transaction is no longer open, if any of the users it
+   *                               touches has been changed or removed since it was staged, if the
+   *                               current user is no longer allowed to make one of the changes, or
+   *                               if one of the links would make someone report to someone
+   *                               underneath them. Nothing is changed.
+   * @author Michael Ruberto
+   */
+  public void commit() throws IllegalStateException {
+    checkOpen();
+    open = false;
+    model.commit(session, Collections.unmodifiableList(steps));
+  }
+
+  /**
+   * Discards the staged changes, if the transaction hasn't been committed. Closing a closed
+   * transaction does nothing.
+   *
+   * @author Michael Ruberto
+   */
+  @Override
+  public void close() {
+    open = false;
+    steps.clear();
+    touched.clear();
+  }
+}
@@ -0,0 +1,72 @@
+package model;
+
+import model.users.IUser;
+
+/**
+ * The attributes of an {@link IUser} which a {@link UserQuery} can sort by, and (for the numeric
+ * ones) filter on a range of. The numeric attributes only belong to employees.
+ *
+ * @author Michael Ruberto
+ */
+public enum UserAttribute {
+
+  /**
+   * The user's unique ID.
+   */
+  ID,
+
+  /**
+   * The user's name, compared ignoring case.
+   */
+  NAME,
+
+  /**
+   * An employee's salary.
+   */
+  SALARY,
+
+  /**
+   * An employee's annual bonus.
+   */
+  ANNUAL_BONUS,
+
+  /**
+   * An employee's vacation balance.
+   */
+  VACATION_BALANCE;
+
+  // The numeric attributes
+  static final UserAttribute[] NUMERIC = {SALARY, ANNUAL_BONUS, VACATION_BALANCE};
+
+  /**
+   * Is this one of the numeric attributes which only employees have?
+   *
+   * @return Whether or not this attribute is numeric.
+   * @author Michael Ruberto
+   */
+  public boolean isNumeric() {
+    return this == SALARY || this == ANNUAL_BONUS || this == VACATION_BALANCE;
+  }
+
+  /**
+   * Gets the value of this numeric attribute for the given employee.
+   *
+   * @param user The employee.
+   * @return The employee's value of this attribute.
+   * @throws UnsupportedOperationException If this attribute isn't numeric, or the user isn't an
+   *                                       employee.
+   * @author Michael Ruberto
+   */
+  double valueOf(IUser user) throws UnsupportedOperationException {
+    switch (this) {
+      case SALARY:
+        return user.getSalary();
+      case ANNUAL_BONUS:
+        return user.getAnnualBonus();
+      case VACATION_BALANCE:
+        return user.getVacationBalance();
+      default:
+        throw new UnsupportedOperationException(this + " is not a numeric attribute.");
+    }
+  }
+}
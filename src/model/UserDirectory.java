@@ -0,0 +1,126 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import model.users.IUser;
+
+/**
+ * A lookup table from user IDs to {@link IUser}s which is indexed directly by the (primitive) ID.
+ * {@link HRModel} keeps one alongside its map of users so that the lookups made by every permission
+ * check and getter don't have to box the ID, and therefore never allocate.
+ * <p>
+ * User IDs are handed out sequentially (upwards for employees, and downwards for administrators),
+ * so the table is dense. Non-negative IDs are stored at even indices and negative IDs at odd ones;
+ * since that takes every {@code int} ID to an index below 2<sup>32</sup>, indices are {@code
+ * long}s. The table is split into fixed-size pages which never move once created, and a page is
+ * only created once a user is stored in it, so a model whose IDs start far from 0 only pays for the
+ * pages it uses. Entries are read and written with acquire/release semantics, so lookups never
+ * lock; changes must be made one at a time (by the model, under its structure lock).
+ *
+ * @author Michael Ruberto
+ */
+final class UserDirectory {
+
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  // Enough pages for the index of every int ID
+  private static final int MAX_PAGES = 1 << (Integer.SIZE - PAGE_BITS);
+
+  private static final VarHandle USERS = MethodHandles.arrayElementVarHandle(IUser[].class);
+
+  private volatile IUser[][] pages;
+
+  /**
+   * Constructs an empty directory.
+   *
+   * @author Michael Ruberto
+   */
+  UserDirectory() {
+    this.pages = new IUser[0][];
+  }
+
+  // Maps an ID to its index in the table. Also used by UserIndex to number its bitmaps, and by
+  // UserVersions and UserHistory to lay out their own tables.
+  static long index(int id) {
+    return id >= 0 ? (long) id << 1 : (-(long) id << 1) - 1;
+  }
+
+  // Maps an index in the table back to its ID.
+  static int id(long index) {
+    return (int) ((index & 1) == 0 ? index >>> 1 : -((index + 1) >>> 1));
+  }
+
+  /**
+   * Gets the user with the given ID.
+   *
+   * @param id The user's ID.
+   * @return The user, or {@code null} if there is no user with that ID.
+   * @author Michael Ruberto
+   */
+  IUser get(int id) {
+    long index = index(id);
+    IUser[][] current = pages;
+    int page = (int) (index >>> PAGE_BITS);
+    if (page >= current.length || current[page] == null) {
+      return null;
+    }
+    return (IUser) USERS.getAcquire(current[page], (int) index & PAGE_MASK);
+  }
+
+  /**
+   * Streams every ID whose entry is in a page of the table which has been created so far, in order
+   * of index, whether or not a user is stored under it now. Every user ever stored in the table has
+   * one of these IDs.
+   *
+   * @return The IDs.
+   * @author Michael Ruberto
+   */
+  IntStream ids() {
+    IUser[][] current = pages;
+    return IntStream.range(0, current.length).filter(page -> current[page] != null)
+        .flatMap(page -> LongStream.range((long) page << PAGE_BITS, (long) (page + 1) << PAGE_BITS)
+            .mapToInt(UserDirectory::id));
+  }
+
+  /**
+   * Stores the given user under their ID, replacing anyone who was stored there before.
+   *
+   * @param user The user to store.
+   * @author Michael Ruberto
+   */
+  void put(IUser user) {
+    long index = index(user.getId());
+    int page = (int) (index >>> PAGE_BITS);
+    IUser[][] current = pages;
+    if (page >= current.length || current[page] == null) {
+      IUser[][] grown = current;
+      if (page >= current.length) {
+        grown = new IUser[Math.max(page + 1, Math.min(current.length * 2, MAX_PAGES))][];
+        System.arraycopy(current, 0, grown, 0, current.length);
+      }
+      // Filled in before the table is published, so that readers never see the page missing
+      grown[page] = new IUser[PAGE_SIZE];
+      pages = grown;
+      current = grown;
+    }
+    USERS.setRelease(current[page], (int) index & PAGE_MASK, user);
+  }
+
+  /**
+   * Removes the user with the given ID, if there is one.
+   *
+   * @param id The user's ID.
+   * @author Michael Ruberto
+   */
+  void remove(int id) {
+    long index = index(id);
+    IUser[][] current = pages;
+    int page = (int) (index >>> PAGE_BITS);
+    if (page < current.length && current[page] != null) {
+      USERS.setRelease(current[page], (int) index & PAGE_MASK, (IUser) null);
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import model.users.IUser;
+
+/**
+ * The older states of the users of an {@link HRModel} which its open {@link ModelSnapshot}s still
+ * need. Every change the model makes is given the next number in a single sequence, and a snapshot
+ * sees every change numbered up to the number it was opened at, and none after it.
+ * <p>
+ * Before a change touches a user, the user's state is kept, marked with the number of the change
+ * which replaced it, on a chain of older states belonging to the user, if an open snapshot could
+ * need it. A snapshot then reads a user as the oldest state on their chain which was replaced after
+ * the snapshot was opened, or as the user is now if there is none. A state is only kept if some
+ * snapshot was opened since the user's last kept state was replaced, so a user changed many times
+ * during one long report has one kept state, not one per change, and while no snapshot is open
+ * changes cost nothing but the increment of the sequence.
+ * <p>
+ * When a snapshot is closed, every kept state which no open snapshot reads any more is dropped.
+ * The chains are kept in a table indexed directly by ID, laid out like the {@link UserDirectory},
+ * and are never changed once made (only replaced as a whole), so reading one never locks.
+ *
+ * @author Michael Ruberto
+ */
+final class UserHistory {
+
+  /**
+   * One older state of a user, and the number of the change which replaced it.
+   */
+  static final class Version {
+
+    // The user's state, or null if the user didn't exist yet
+    final UserState state;
+    final long replaced;
+    final Version older;
+
+    Version(UserState state, long replaced, Version older) {
+      this.state = state;
+      this.replaced = replaced;
+      this.older = older;
+    }
+  }
+
+  // Stands for the newest open snapshot when there are none, and while one is being opened
+  private static final long NO_SNAPSHOT = Long.MIN_VALUE;
+  private static final long OPENING = Long.MAX_VALUE;
+
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private volatile AtomicReferenceArray<Version>[] pages;
+  // The number of the latest change
+  private final AtomicLong sequence;
+  // The number of snapshots open at each sequence number. Guarded by this.
+  private final TreeMap<Long, Integer> snapshots;
+  // The sequence number of the newest open snapshot, NO_SNAPSHOT if there are none, or OPENING
+  // while one is being opened, so that the changes numbered meanwhile keep what it may need
+  private volatile long newest;
+  // The IDs of the users who may have older states kept
+  private final Set<Integer> kept;
+
+  /**
+   * Constructs a history in which no changes have been made and no states are kept.
+   *
+   * @author Michael Ruberto
+   */
+  UserHistory() {
+    this.pages = newPages(0);
+    this.sequence = new AtomicLong();
+    this.snapshots = new TreeMap<Long, Integer>();
+    this.newest = NO_SNAPSHOT;
+    this.kept = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Gives a change which is about to be made the next number in the sequence. The change must be
+   * made, and every user it touches kept with {@link #keep(int, IUser, long)} first, while holding
+   * the locks of all of those users.
+   *
+   * @return The number of the change.
+   * @author Michael Ruberto
+   */
+  long nextChange() {
+    return sequence.incrementAndGet();
+  }
+
+  /**
+   * Keeps the current state of the given user, which the given change is about to touch, if an
+   * open snapshot could need it. The caller must hold the user's lock (or the structure lock, for a
+   * user who is being added). A user who is touched more than once by the same change is only kept
+   * the first time.
+   *
+   * @param id     The user's ID.
+   * @param user   The user, or {@code null} if the change adds them.
+   * @param change The number of the change.
+   * @author Michael Ruberto
+   */
+  void keep(int id, IUser user, long change) {
+    // Read after the change was numbered, so that a snapshot opened before it is always seen
+    long latest = newest;
+    if (latest == NO_SNAPSHOT) {
+      return;
+    }
+    Version head = head(id);
+    // Only a snapshot opened since the last kept state was replaced reads the state kept now
+    if (head != null && (head.replaced == change || latest < head.replaced)) {
+      return;
+    }
+    long index = UserDirectory.index(id);
+    int page = (int) (index >>> PAGE_BITS);
+    AtomicReferenceArray<Version>[] current = pages;
+    if (page >= current.length || current[page] == null) {
+      current = grow(page);
+    }
+    UserState state = user == null ? null : UserState.of(user);
+    current[page].set((int) index & PAGE_MASK, new Version(state, change, head));
+    kept.add(id);
+  }
+
+  /**
+   * Gets the state of the given user which the snapshot opened at the given sequence number sees,
+   * if it is an older one. The caller must hold the user's lock, if there is a user with that ID,
+   * so that no change to them is half made.
+   *
+   * @param id       The user's ID.
+   * @param snapshot The sequence number the snapshot was opened at.
+   * @return The older state, or {@code null} if the snapshot sees the user as they are now.
+   * @author Michael Ruberto
+   */
+  Version find(int id, long snapshot) {
+    Version found = null;
+    for (Version version = head(id); version != null && version.replaced > snapshot;
+        version = version.older) {
+      found = version;
+    }
+    return found;
+  }
+
+  /**
+   * Registers a new snapshot, which sees every change numbered so far. Structural changes must be
+   * held off meanwhile, so that none of them is half made at the number the snapshot is opened at.
+   *
+   * @return The sequence number the snapshot is opened at.
+   * @author Michael Ruberto
+   */
+  synchronized long open() {
+    // Published before the sequence is read, so that every change numbered after it keeps states
+    newest = OPENING;
+    long opened = sequence.get();
+    snapshots.merge(opened, 1, Integer::sum);
+    newest = opened;
+    return opened;
+  }
+
+  /**
+   * Unregisters a snapshot, and drops every kept state which no open snapshot reads any more.
+   *
+   * @param opened The sequence number the snapshot was opened at.
+   * @author Michael Ruberto
+   */
+  void close(long opened) {
+    long[] open;
+    long horizon;
+    synchronized (this) {
+      Integer count = snapshots.get(opened);
+      if (count == null) {
+        return;
+      }
+      if (count == 1) {
+        snapshots.remove(opened);
+      } else {
+        snapshots.put(opened, count - 1);
+        return;
+      }
+      newest = snapshots.isEmpty() ? NO_SNAPSHOT : snapshots.lastKey();
+      open = new long[snapshots.size()];
+      int i = 0;
+      for (long number : snapshots.keySet()) {
+        open[i++] = number;
+      }
+      // Any snapshot opened from now on is at least this new
+      horizon = sequence.get();
+    }
+    for (Integer id : kept) {
+      sweep(id, open, horizon);
+    }
+  }
+
+  /**
+   * Gets the number of users who have older states kept.
+   *
+   * @return The number of users.
+   * @author Michael Ruberto
+   */
+  int keptUsers() {
+    return kept.size();
+  }
+
+  // Gets the newest kept state of the user with the given ID, or null if none is kept.
+  private Version head(int id) {
+    long index = UserDirectory.index(id);
+    AtomicReferenceArray<Version>[] current = pages;
+    int page = (int) (index >>> PAGE_BITS);
+    if (page >= current.length || current[page] == null) {
+      return null;
+    }
+    return current[page].get((int) index & PAGE_MASK);
+  }
+
+  // Drops the kept states of the user with the given ID which none of the given open snapshots
+  // reads. States replaced after the given horizon are left, since a snapshot opened during the
+  // sweep may read them. A change made to the user meanwhile replaces the chain, which is then
+  // swept again.
+  private void sweep(int id, long[] open, long horizon) {
+    // Forgotten first, so that a change made meanwhile adds the user back
+    kept.remove(id);
+    long index = UserDirectory.index(id);
+    AtomicReferenceArray<Version> page = pages[(int) (index >>> PAGE_BITS)];
+    while (true) {
+      Version head = page.get((int) index & PAGE_MASK);
+      List<Version> chain = new ArrayList<Version>();
+      for (Version version = head; version != null; version = version.older) {
+        chain.add(version);
+      }
+      // Rebuilt from the oldest state up. A state is read by the snapshots opened after the state
+      // before it was replaced, and before it was.
+      Version pruned = null;
+      for (int i = chain.size() - 1; i >= 0; i--) {
+        Version version = chain.get(i);
+        long from = i + 1 < chain.size() ? chain.get(i + 1).replaced : Long.MIN_VALUE;
+        if (version.replaced > horizon || anyOpen(open, from, version.replaced)) {
+          pruned = new Version(version.state, version.replaced, pruned);
+        }
+      }
+      if (page.compareAndSet((int) index & PAGE_MASK, head, pruned)) {
+        if (pruned != null) {
+          kept.add(id);
+        }
+        return;
+      }
+    }
+  }
+
+  // Is any of the given snapshots, in order, opened at or after the first number and before the
+  // second?
+  private static boolean anyOpen(long[] open, long from, long to) {
+    int position = Arrays.binarySearch(open, from);
+    if (position < 0) {
+      position = -position - 1;
+    }
+    return position < open.length && open[position] < to;
+  }
+
+  // Creates the page with the given number, unless another thread already has, and returns the
+  // pages as they are afterwards.
+  private synchronized AtomicReferenceArray<Version>[] grow(int page) {
+    AtomicReferenceArray<Version>[] current = pages;
+    if (page < current.length && current[page] != null) {
+      return current;
+    }
+    AtomicReferenceArray<Version>[] grown = newPages(Math.max(page + 1, current.length));
+    System.arraycopy(current, 0, grown, 0, current.length);
+    grown[page] = new AtomicReferenceArray<Version>(PAGE_SIZE);
+    pages = grown;
+    return grown;
+  }
+
+  // Creates an empty table of the given number of pages.
+  @SuppressWarnings("unchecked")
+  private static AtomicReferenceArray<Version>[] newPages(int count) {
+    return (AtomicReferenceArray<Version>[]) new AtomicReferenceArray<?>[count];
+  }
+}
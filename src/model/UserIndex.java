@@ -0,0 +1,474 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import model.users.IUser;
+import model.users.Role;
+
+/**
+ * Secondary indexes over the attributes of the {@link IUser}s in an {@link HRModel}, so that
+ * finding users by name, by role or by a range of salaries, annual bonuses or vacation balances
+ * doesn't have to scan every user.
+ * <p>
+ * Three kinds of index are kept:
+ * <ul>
+ *   <li>Names are kept in a sorted set of (lower-case name, ID) entries, so that everyone whose
+ *   name starts with a given prefix sits in one contiguous stretch of the set, found with a single
+ *   ordered search.</li>
+ *   <li>Each {@link Role} has a bitmap with one bit per user, numbered like the slots of a {@link
+ *   UserDirectory}. Users holding several roles at once are found by AND-ing the bitmaps a word at
+ *   a time.</li>
+ *   <li>Salaries, annual bonuses and vacation balances of employees are each kept in a sorted set
+ *   of (value, ID) entries, so a range of values is one contiguous stretch of the set.</li>
+ * </ul>
+ * <p>
+ * Lookups never lock, and see every change completed before they began. The sorted sets are
+ * concurrent skip lists, and bitmap words are read and written atomically; like the directory, the
+ * bitmaps are split into pages which are only created once a user is added to them, and which
+ * never move once created. Users must be added and removed one
+ * at a time (by the model, under its structure lock), but changes to different users' information
+ * may be made concurrently, as long as each user's changes are made under that user's lock.
+ *
+ * @author Michael Ruberto
+ */
+final class UserIndex {
+
+  // Each bitmap page holds 64 words, which is 4096 users (the same as a page of the directory)
+  private static final int PAGE_BITS = 12;
+  private static final int WORDS_PER_PAGE = (1 << PAGE_BITS) >>> 6;
+  // Enough pages for the bit of every int ID
+  private static final int MAX_PAGES = 1 << (Integer.SIZE - PAGE_BITS);
+  // Non-negative IDs (employees and the default administrator) have the even bits, and negative
+  // IDs (the other administrators) the odd ones
+  private static final long EVEN_BITS = 0x5555555555555555L;
+  private static final long ODD_BITS = ~EVEN_BITS;
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final Role[] ROLES = Role.values();
+
+  private final ConcurrentSkipListSet<NameEntry> names;
+  private final EnumMap<UserAttribute, ConcurrentSkipListSet<ValueEntry>> values;
+  // The pages of each role's bitmap, indexed by the role's ordinal and then the page number
+  private volatile long[][][] roleBitmaps;
+  // The number of users holding each role, indexed by the role's ordinal
+  private final AtomicIntegerArray roleCounts;
+
+  /**
+   * Constructs an empty index.
+   *
+   * @author Michael Ruberto
+   */
+  UserIndex() {
+    names = new ConcurrentSkipListSet<NameEntry>();
+    values = new EnumMap<UserAttribute, ConcurrentSkipListSet<ValueEntry>>(UserAttribute.class);
+    for (UserAttribute attribute : UserAttribute.NUMERIC) {
+      values.put(attribute, new ConcurrentSkipListSet<ValueEntry>());
+    }
+    roleBitmaps = new long[ROLES.length][0][];
+    roleCounts = new AtomicIntegerArray(ROLES.length);
+  }
+
+  // An entry in the name index. Names are compared ignoring case, and then by ID.
+  private static final class NameEntry implements Comparable<NameEntry> {
+
+    final String key;
+    final int id;
+
+    NameEntry(String key, int id) {
+      this.key = key;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(NameEntry other) {
+      int byKey = key.compareTo(other.key);
+      return byKey != 0 ? byKey : Integer.compare(id, other.id);
+    }
+  }
+
+  // An entry in one of the value indexes, ordered by value and then by ID.
+  private static final class ValueEntry implements Comparable<ValueEntry> {
+
+    final double value;
+    final int id;
+
+    ValueEntry(double value, int id) {
+      this.value = value;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(ValueEntry other) {
+      int byValue = Double.compare(value, other.value);
+      return byValue != 0 ? byValue : Integer.compare(id, other.id);
+    }
+  }
+
+  /**
+   * Gets the key a name is indexed (and sorted) under.
+   *
+   * @param name The name.
+   * @return The name's key.
+   * @author Michael Ruberto
+   */
+  static String nameKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Gets the number of users in this index.
+   *
+   * @return The number of users.
+   * @author Michael Ruberto
+   */
+  int size() {
+    // Every user is either an administrator or an employee
+    return roleCounts.get(Role.ADMINISTRATOR.ordinal()) + roleCounts.get(Role.EMPLOYEE.ordinal());
+  }
+
+  /**
+   * Adds the given user to every index. Must be called while holding the model's structure lock.
+   *
+   * @param user The user to add.
+   * @author Michael Ruberto
+   */
+  void add(IUser user) {
+    int id = user.getId();
+    long bit = UserDirectory.index(id);
+    growBitmaps((int) (bit >>> PAGE_BITS));
+    names.add(new NameEntry(nameKey(user.getName()), id));
+    setRoles(bit, user.getRoles(), true);
+    if (user.hasRole(Role.EMPLOYEE)) {
+      for (UserAttribute attribute : UserAttribute.NUMERIC) {
+        values.get(attribute).add(new ValueEntry(attribute.valueOf(user), id));
+      }
+    }
+  }
+
+  /**
+   * Removes the given user from every index. Must be called while holding the model's structure
+   * lock and the user's own lock.
+   *
+   * @param user The user to remove.
+   * @author Michael Ruberto
+   */
+  void remove(IUser user) {
+    int id = user.getId();
+    names.remove(new NameEntry(nameKey(user.getName()), id));
+    setRoles(UserDirectory.index(id), user.getRoles(), false);
+    if (user.hasRole(Role.EMPLOYEE)) {
+      for (UserAttribute attribute : UserAttribute.NUMERIC) {
+        values.get(attribute).remove(new ValueEntry(attribute.valueOf(user), id));
+      }
+    }
+  }
+
+  /**
+   * Applies the given change to a user's information and moves the user's entries in the indexes
+   * whose values it changed. Must be called while holding the user's lock.
+   *
+   * @param user   The user to change.
+   * @param change The change to make.
+   * @author Michael Ruberto
+   */
+  void update(IUser user, Consumer<IUser> change) {
+    int roles = user.getRoles();
+    if (!Role.EMPLOYEE.in(roles)) {
+      change.accept(user);
+      updateRoles(user.getId(), roles, user.getRoles());
+      return;
+    }
+
+    double[] before = new double[UserAttribute.NUMERIC.length];
+    for (int i = 0; i < UserAttribute.NUMERIC.length; i++) {
+      before[i] = UserAttribute.NUMERIC[i].valueOf(user);
+    }
+    change.accept(user);
+    int id = user.getId();
+    updateRoles(id, roles, user.getRoles());
+    for (int i = 0; i < UserAttribute.NUMERIC.length; i++) {
+      double after = UserAttribute.NUMERIC[i].valueOf(user);
+      if (Double.compare(before[i], after) != 0) {
+        ConcurrentSkipListSet<ValueEntry> index = values.get(UserAttribute.NUMERIC[i]);
+        index.add(new ValueEntry(after, id));
+        index.remove(new ValueEntry(before[i], id));
+      }
+    }
+  }
+
+  /**
+   * Updates the role bitmaps of the user with the given ID after their roles changed (for
+   * example, when they were promoted or demoted). Must be called while holding the user's lock.
+   *
+   * @param id       The user's ID.
+   * @param oldRoles The user's roles before the change.
+   * @param newRoles The user's roles after the change.
+   * @author Michael Ruberto
+   */
+  void updateRoles(int id, int oldRoles, int newRoles) {
+    if (oldRoles != newRoles) {
+      long bit = UserDirectory.index(id);
+      setRoles(bit, oldRoles & ~newRoles, false);
+      setRoles(bit, newRoles & ~oldRoles, true);
+    }
+  }
+
+  // Makes sure every role's bitmap has the given page. Every role's bitmap has the same pages.
+  // Must be called while holding the model's structure lock.
+  private void growBitmaps(int page) {
+    long[][][] current = roleBitmaps;
+    if (page < current[0].length && current[0][page] != null) {
+      return;
+    }
+    long[][][] grown = new long[ROLES.length][][];
+    int length = Math.max(page + 1, Math.min(current[0].length * 2, MAX_PAGES));
+    for (int role = 0; role < ROLES.length; role++) {
+      grown[role] = new long[Math.max(length, current[role].length)][];
+      System.arraycopy(current[role], 0, grown[role], 0, current[role].length);
+      grown[role][page] = new long[WORDS_PER_PAGE];
+    }
+    roleBitmaps = grown;
+  }
+
+  // Sets (or clears) the given bit in the bitmap of every role in the bitmask, counting the users
+  // who gain or lose each role. The bit's page must exist.
+  private void setRoles(long bit, int roleMask, boolean set) {
+    long[][][] current = roleBitmaps;
+    int page = (int) (bit >>> PAGE_BITS);
+    int word = (int) (bit >>> 6) & (WORDS_PER_PAGE - 1);
+    long mask = 1L << bit;
+    for (int role = 0; role < ROLES.length; role++) {
+      if (ROLES[role].in(roleMask)) {
+        if (set) {
+          long previous = (long) WORDS.getAndBitwiseOr(current[role][page], word, mask);
+          if ((previous & mask) == 0) {
+            roleCounts.incrementAndGet(role);
+          }
+        } else {
+          long previous = (long) WORDS.getAndBitwiseAnd(current[role][page], word, ~mask);
+          if ((previous & mask) != 0) {
+            roleCounts.decrementAndGet(role);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the IDs of every user whose name starts with the given prefix, ignoring case, in order of
+   * name and then ID.
+   *
+   * @param prefix The prefix.
+   * @return The users' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withNamePrefix(String prefix) {
+    return withNamePrefix(prefix, null);
+  }
+
+  /**
+   * Lazily streams the IDs of every user whose name starts with the given prefix, ignoring case,
+   * in order of name and then ID, starting after the given cursor.
+   *
+   * @param prefix The prefix.
+   * @param after  A cursor into a query sorted by name, or {@code null} to start at the beginning.
+   * @return The users' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withNamePrefix(String prefix, UserQuery.Cursor after) {
+    String key = nameKey(prefix);
+    NameEntry from = new NameEntry(key, Integer.MIN_VALUE);
+    boolean inclusive = true;
+    if (after != null) {
+      NameEntry cursor = new NameEntry(after.name, after.id);
+      if (cursor.compareTo(from) >= 0) {
+        from = cursor;
+        inclusive = false;
+      }
+    }
+    return names.tailSet(from, inclusive).stream().takeWhile(entry -> entry.key.startsWith(key))
+        .mapToInt(entry -> entry.id);
+  }
+
+  /**
+   * Gets the IDs of every user who holds all of the roles in the given bitmask, in increasing
+   * order.
+   *
+   * @param roleMask A bitmask of roles, which must hold at least one role.
+   * @return The users' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withRoles(int roleMask) {
+    return withRoles(roleMask, 0, Integer.MIN_VALUE);
+  }
+
+  /**
+   * Lazily streams the IDs of every user who holds all of the roles in one bitmask and none of the
+   * roles in another, in increasing order, starting after the given ID. The bitmaps are combined a
+   * word (64 users) at a time.
+   *
+   * @param required The roles the users must hold, or 0 to start from everyone.
+   * @param excluded The roles the users must not hold.
+   * @param afterId  The ID to start after.
+   * @return The users' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withRoles(int required, int excluded, int afterId) {
+    long[][][] current = roleBitmaps;
+    int pages = current[0].length;
+    int afterWord = (int) (UserDirectory.index(afterId) >>> 6);
+
+    // Negative IDs increase as their bit index decreases
+    IntStream administrators = IntStream.empty();
+    if (afterId < -1 && pages > 0) {
+      int last = Math.min(afterWord, pages * WORDS_PER_PAGE - 1);
+      administrators = IntStream.iterate(last / WORDS_PER_PAGE, page -> page >= 0,
+          page -> page - 1).filter(page -> current[0][page] != null)
+          .flatMap(page -> IntStream.iterate(Math.min(last, (page + 1) * WORDS_PER_PAGE - 1),
+              word -> word >= page * WORDS_PER_PAGE, word -> word - 1))
+          .flatMap(word -> descendingIds(combine(current, required, excluded, word) & ODD_BITS,
+              word));
+    }
+    int first = afterId < 0 ? 0 : afterWord;
+    IntStream employees = IntStream.range(first / WORDS_PER_PAGE, pages)
+        .filter(page -> current[0][page] != null)
+        .flatMap(page -> IntStream.range(Math.max(first, page * WORDS_PER_PAGE),
+            (page + 1) * WORDS_PER_PAGE))
+        .flatMap(word -> ascendingIds(combine(current, required, excluded, word) & EVEN_BITS,
+            word));
+    return IntStream.concat(administrators, employees).filter(id -> id > afterId);
+  }
+
+  // Combines one word of the role bitmaps: the users in it who hold every required role (or any
+  // role at all, if none are required) and no excluded role. The word's page must exist.
+  private static long combine(long[][][] bitmaps, int required, int excluded, int word) {
+    int page = word / WORDS_PER_PAGE;
+    int offset = word % WORDS_PER_PAGE;
+    long all = -1L;
+    long any = 0;
+    long none = 0;
+    for (int role = 0; role < ROLES.length; role++) {
+      long bits = (long) WORDS.getAcquire(bitmaps[role][page], offset);
+      any |= bits;
+      if (ROLES[role].in(required)) {
+        all &= bits;
+      }
+      if (ROLES[role].in(excluded)) {
+        none |= bits;
+      }
+    }
+    return (required == 0 ? any : all) & ~none;
+  }
+
+  // Streams the IDs of the set bits of the given word, lowest bit first.
+  private static IntStream ascendingIds(long bits, int word) {
+    return LongStream.iterate(bits, rest -> rest != 0, rest -> rest & (rest - 1))
+        .mapToInt(rest -> UserDirectory.id(((long) word << 6) + Long.numberOfTrailingZeros(rest)));
+  }
+
+  // Streams the IDs of the set bits of the given word, highest bit first.
+  private static IntStream descendingIds(long bits, int word) {
+    return LongStream.iterate(bits, rest -> rest != 0, rest -> rest & ~Long.highestOneBit(rest))
+        .mapToInt(rest -> UserDirectory.id(((long) word << 6) + 63
+            - Long.numberOfLeadingZeros(rest)));
+  }
+
+  /**
+   * Estimates how many users hold all of the roles in one bitmask and none of the roles in
+   * another, without looking at the bitmaps. The estimate is never less than the true number.
+   *
+   * @param required The roles the users must hold, or 0 to start from everyone.
+   * @param excluded The roles the users must not hold.
+   * @return The estimated number of users.
+   * @author Michael Ruberto
+   */
+  int estimateWithRoles(int required, int excluded) {
+    int total = size();
+    int estimate = total;
+    for (int role = 0; role < ROLES.length; role++) {
+      if (ROLES[role].in(required)) {
+        estimate = Math.min(estimate, roleCounts.get(role));
+      } else if (ROLES[role].in(excluded) && required == 0) {
+        estimate = Math.min(estimate, total - roleCounts.get(role));
+      }
+    }
+    return Math.max(estimate, 0);
+  }
+
+  /**
+   * Gets the IDs of every employee whose salary is within the given range (inclusive), in order
+   * of salary and then ID.
+   *
+   * @param min The lowest salary.
+   * @param max The highest salary.
+   * @return The employees' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withSalaryBetween(double min, double max) {
+    return between(UserAttribute.SALARY, min, max, null);
+  }
+
+  /**
+   * Gets the IDs of every employee whose annual bonus is within the given range (inclusive), in
+   * order of annual bonus and then ID.
+   *
+   * @param min The lowest annual bonus.
+   * @param max The highest annual bonus.
+   * @return The employees' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withAnnualBonusBetween(double min, double max) {
+    return between(UserAttribute.ANNUAL_BONUS, min, max, null);
+  }
+
+  /**
+   * Gets the IDs of every employee whose vacation balance is within the given range (inclusive),
+   * in order of vacation balance and then ID.
+   *
+   * @param min The lowest vacation balance.
+   * @param max The highest vacation balance.
+   * @return The employees' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream withVacationBalanceBetween(int min, int max) {
+    return between(UserAttribute.VACATION_BALANCE, min, max, null);
+  }
+
+  /**
+   * Lazily streams the IDs of every employee whose value of the given numeric attribute is within
+   * the given range (inclusive), in order of that value and then ID, starting after the given
+   * cursor.
+   *
+   * @param attribute The numeric attribute.
+   * @param min       The lowest value.
+   * @param max       The highest value.
+   * @param after     A cursor into a query sorted by the attribute, or {@code null} to start at
+   *                  the beginning.
+   * @return The employees' IDs.
+   * @author Michael Ruberto
+   */
+  IntStream between(UserAttribute attribute, double min, double max, UserQuery.Cursor after) {
+    ValueEntry from = new ValueEntry(min, Integer.MIN_VALUE);
+    ValueEntry to = new ValueEntry(max, Integer.MAX_VALUE);
+    boolean inclusive = true;
+    if (after != null) {
+      ValueEntry cursor = new ValueEntry(after.value, after.id);
+      if (cursor.compareTo(from) >= 0) {
+        from = cursor;
+        inclusive = false;
+      }
+    }
+    if (from.compareTo(to) > 0) {
+      return IntStream.empty();
+    }
+    return values.get(attribute).subSet(from, inclusive, to, true).stream()
+        .mapToInt(entry -> entry.id);
+  }
+}
@@ -0,0 +1,511 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Predicate;
+import model.users.IUser;
+import model.users.Role;
+
+/**
+ * A description of which {@link IUser}s to find with {@link IHumanResourcesModel#findUsers(
+ * UserQuery)}, in what order, and which page of them to return. Queries are immutable: each method
+ * returns a new query with one more condition, so queries can be built up step by step and reused.
+ * For example, every employee outside HR underneath manager 42 who earns more than 90,000, by
+ * annual bonus, twenty at a time:
+ * <pre>
+ *   UserQuery query = UserQuery.all()
+ *       .withRoles(Role.EMPLOYEE)
+ *       .withoutRoles(Role.HUMAN_RESOURCES)
+ *       .underManager(42)
+ *       .between(UserAttribute.SALARY, 90000, Double.MAX_VALUE)
+ *       .sortedBy(UserAttribute.ANNUAL_BONUS)
+ *       .limit(20);
+ * </pre>
+ * Results are sorted in increasing order of the sort attribute, with ties broken by ID. Filtering
+ * on or sorting by a numeric attribute leaves out everyone who isn't an employee.
+ * <p>
+ * Pages are found with cursors rather than by counting results, so a page never repeats or skips
+ * a user because of changes made while the caller was paging. To get the next page, pass the last
+ * user of the current page to {@link #cursorAfter(IUser)} and give the cursor to {@link
+ * #after(String)}. Cursors are opaque strings which can be handed to a client and back.
+ *
+ * @author Michael Ruberto
+ */
+public final class UserQuery {
+
+  private static final UserQuery ALL = new UserQuery();
+
+  private String namePrefix;
+  private int requiredRoles;
+  private int excludedRoles;
+  private int managerId;
+  private boolean directReportsOnly;
+  private boolean hasManager;
+  // The range of each numeric attribute, indexed by the attribute's ordinal
+  private double[] min;
+  private double[] max;
+  private Predicate<IUser> predicate;
+  private UserAttribute sortKey;
+  private int limit;
+  private Cursor after;
+
+  // Constructs the query which matches everyone.
+  private UserQuery() {
+    int attributes = UserAttribute.values().length;
+    min = new double[attributes];
+    max = new double[attributes];
+    for (int i = 0; i < attributes; i++) {
+      min[i] = Double.NEGATIVE_INFINITY;
+      max[i] = Double.POSITIVE_INFINITY;
+    }
+    sortKey = UserAttribute.ID;
+    limit = Integer.MAX_VALUE;
+  }
+
+  // Copies the given query, so that the copy can be changed without changing the original.
+  private UserQuery(UserQuery other) {
+    namePrefix = other.namePrefix;
+    requiredRoles = other.requiredRoles;
+    excludedRoles = other.excludedRoles;
+    managerId = other.managerId;
+    directReportsOnly = other.directReportsOnly;
+    hasManager = other.hasManager;
+    min = other.min.clone();
+    max = other.max.clone();
+    predicate = other.predicate;
+    sortKey = other.sortKey;
+    limit = other.limit;
+    after = other.after;
+  }
+
+  /**
+   * Gets the query which matches every user, sorted by ID, all on one page.
+   *
+   * @return The query.
+   * @author Michael Ruberto
+   */
+  public static UserQuery all() {
+    return ALL;
+  }
+
+  /**
+   * Narrows this query to users whose name starts with the given prefix, ignoring case.
+   *
+   * @param prefix The start of the name.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If the prefix is {@code null}, or this query already has a
+   *                                  different name prefix.
+   * @author Michael Ruberto
+   */
+  public UserQuery withNamePrefix(String prefix) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (prefix == null) {
+      throw new IllegalArgumentException("The prefix cannot be null.");
+    }
+    if (namePrefix != null && !namePrefix.equals(UserIndex.nameKey(prefix))) {
+      throw new IllegalArgumentException("The query already has a different name prefix.");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.namePrefix = UserIndex.nameKey(prefix);
+    return query;
+  }
+
+  /**
+   * Narrows this query to users who hold all of the given roles.
+   *
+   * @param roles The roles.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If no roles are given, or if any of them is {@code null}.
+   * @author Michael Ruberto
+   */
+  public UserQuery withRoles(Role... roles) throws IllegalArgumentException {
+    UserQuery query = new UserQuery(this);
+    query.requiredRoles |= maskOf(roles);
+    return query;
+  }
+
+  /**
+   * Narrows this query to users who hold none of the given roles.
+   *
+   * @param roles The roles.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If no roles are given, or if any of them is {@code null}.
+   * @author Michael Ruberto
+   */
+  public UserQuery withoutRoles(Role... roles) throws IllegalArgumentException {
+    UserQuery query = new UserQuery(this);
+    query.excludedRoles |= maskOf(roles);
+    return query;
+  }
+
+  // Builds the bitmask of the given roles, checking that there is at least one.
+  private static int maskOf(Role... roles) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (roles == null || roles.length == 0) {
+      throw new IllegalArgumentException("At least one role must be given.");
+    }
+    for (Role role : roles) {
+      if (role == null) {
+        throw new IllegalArgumentException("The roles cannot be null.");
+      }
+    }
+    return Role.maskOf(roles);
+  }
+
+  /**
+   * Narrows this query to employees anywhere underneath the manager with the given ID, whether
+   * they report to them directly or through other managers.
+   *
+   * @param managerId The manager's ID.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If this query is already narrowed to a manager's team.
+   * @author Michael Ruberto
+   */
+  public UserQuery underManager(int managerId) throws IllegalArgumentException {
+    return withManager(managerId, false);
+  }
+
+  /**
+   * Narrows this query to employees who report directly to the manager with the given ID.
+   *
+   * @param managerId The manager's ID.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If this query is already narrowed to a manager's team.
+   * @author Michael Ruberto
+   */
+  public UserQuery reportingTo(int managerId) throws IllegalArgumentException {
+    return withManager(managerId, true);
+  }
+
+  // Narrows this query to a manager's team.
+  private UserQuery withManager(int managerId, boolean directReportsOnly)
+      throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (hasManager) {
+      throw new IllegalArgumentException("The query is already narrowed to a manager's team.");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.hasManager = true;
+    query.managerId = managerId;
+    query.directReportsOnly = directReportsOnly;
+    return query;
+  }
+
+  /**
+   * Narrows this query to employees whose value of the given numeric attribute is between the
+   * given values (inclusive). Giving the same attribute twice narrows it to both ranges.
+   *
+   * @param attribute The numeric attribute.
+   * @param min       The lowest value.
+   * @param max       The highest value.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If the attribute is {@code null} or not numeric, or if
+   *                                  {@code min} is more than {@code max} or either is NaN.
+   * @author Michael Ruberto
+   */
+  public UserQuery between(UserAttribute attribute, double min, double max)
+      throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (attribute == null || !attribute.isNumeric()) {
+      throw new IllegalArgumentException("Only numeric attributes can be given a range.");
+    }
+    if (Double.isNaN(min) || Double.isNaN(max) || min > max) {
+      throw new IllegalArgumentException("The lowest value can't be more than the highest.");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.requiredRoles |= Role.EMPLOYEE.mask();
+    query.min[attribute.ordinal()] = Math.max(this.min[attribute.ordinal()], min);
+    query.max[attribute.ordinal()] = Math.min(this.max[attribute.ordinal()], max);
+    return query;
+  }
+
+  /**
+   * Narrows this query to users who also match the given predicate. Predicates can't use the
+   * model's indexes, so they are checked after every other condition.
+   *
+   * @param predicate The predicate.
+   * @return The narrowed query.
+   * @throws IllegalArgumentException If the predicate is {@code null}.
+   * @author Michael Ruberto
+   */
+  public UserQuery matching(Predicate<IUser> predicate) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (predicate == null) {
+      throw new IllegalArgumentException("The predicate cannot be null.");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.predicate = this.predicate == null ? predicate : this.predicate.and(predicate);
+    return query;
+  }
+
+  /**
+   * Sorts the results of this query by the given attribute (and then by ID). Sorting by a numeric
+   * attribute leaves out everyone who isn't an employee.
+   *
+   * @param attribute The attribute to sort by.
+   * @return The sorted query.
+   * @throws IllegalArgumentException If the attribute is {@code null}, or this query has a cursor
+   *                                  into results sorted some other way.
+   * @author Michael Ruberto
+   */
+  public UserQuery sortedBy(UserAttribute attribute) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (attribute == null) {
+      throw new IllegalArgumentException("The sort attribute cannot be null.");
+    }
+    if (after != null && after.attribute != attribute) {
+      throw new IllegalArgumentException("The query's cursor is for results sorted by "
+          + after.attribute + ".");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.sortKey = attribute;
+    if (attribute.isNumeric()) {
+      query.requiredRoles |= Role.EMPLOYEE.mask();
+    }
+    return query;
+  }
+
+  /**
+   * Limits this query to the given number of results.
+   *
+   * @param limit The most results to return.
+   * @return The limited query.
+   * @throws IllegalArgumentException If the limit is less than 1.
+   * @author Michael Ruberto
+   */
+  public UserQuery limit(int limit) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (limit < 1) {
+      throw new IllegalArgumentException("The limit must be at least 1.");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.limit = limit;
+    return query;
+  }
+
+  /**
+   * Starts the results of this query after the user the given cursor was made from.
+   *
+   * @param cursor A cursor made by {@link #cursorAfter(IUser)} for a query sorted the same way.
+   * @return The query for the next page.
+   * @throws IllegalArgumentException If the cursor is {@code null} or not a valid cursor, or if it
+   *                                  was made for a query sorted some other way.
+   * @author Michael Ruberto
+   */
+  public UserQuery after(String cursor) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (cursor == null) {
+      throw new IllegalArgumentException("The cursor cannot be null.");
+    }
+    Cursor decoded = Cursor.decode(cursor);
+    if (decoded.attribute != sortKey) {
+      throw new IllegalArgumentException("The cursor is for results sorted by "
+          + decoded.attribute + ".");
+    }
+
+    UserQuery query = new UserQuery(this);
+    query.after = decoded;
+    return query;
+  }
+
+  /**
+   * Makes a cursor which starts the results of this query (or a copy of it with a different
+   * cursor or limit) after the given user.
+   *
+   * @param user The last user of the current page.
+   * @return The cursor.
+   * @throws IllegalArgumentException If the user is {@code null}, or this query is sorted by a
+   *                                  numeric attribute and the user isn't an employee.
+   * @author Michael Ruberto
+   */
+  public String cursorAfter(IUser user) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (user == null) {
+      throw new IllegalArgumentException("The user cannot be null.");
+    }
+    if (sortKey.isNumeric() && !user.hasRole(Role.EMPLOYEE)) {
+      throw new IllegalArgumentException("Only employees have a " + sortKey + ".");
+    }
+
+    return Cursor.of(sortKey, user).encode();
+  }
+
+  /**
+   * Gets the attribute the results of this query are sorted by.
+   *
+   * @return The sort attribute.
+   * @author Michael Ruberto
+   */
+  public UserAttribute getSortKey() {
+    return sortKey;
+  }
+
+  /**
+   * Gets the most results this query returns.
+   *
+   * @return The limit, which is {@link Integer#MAX_VALUE} if the query isn't limited.
+   * @author Michael Ruberto
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  // The prefix (as a name key) users' names must start with, or null if any name matches.
+  String getNamePrefix() {
+    return namePrefix;
+  }
+
+  int getRequiredRoles() {
+    return requiredRoles;
+  }
+
+  int getExcludedRoles() {
+    return excludedRoles;
+  }
+
+  boolean hasManager() {
+    return hasManager;
+  }
+
+  int getManagerId() {
+    return managerId;
+  }
+
+  boolean isDirectReportsOnly() {
+    return directReportsOnly;
+  }
+
+  // Has the given numeric attribute been narrowed to a range?
+  boolean hasRange(UserAttribute attribute) {
+    return min[attribute.ordinal()] != Double.NEGATIVE_INFINITY
+        || max[attribute.ordinal()] != Double.POSITIVE_INFINITY;
+  }
+
+  double getMin(UserAttribute attribute) {
+    return min[attribute.ordinal()];
+  }
+
+  double getMax(UserAttribute attribute) {
+    return max[attribute.ordinal()];
+  }
+
+  // The cursor the results start after, or null if they start at the beginning.
+  Cursor getCursor() {
+    return after;
+  }
+
+  /**
+   * Does the given user match every condition of this query, as their information stands now?
+   *
+   * @param user      The user.
+   * @param hierarchy The reporting structure, for queries narrowed to a manager's team.
+   * @return Whether or not the user matches.
+   * @author Michael Ruberto
+   */
+  boolean matches(IUser user, OrgHierarchy hierarchy) {
+    int roles = user.getRoles();
+    if ((roles & requiredRoles) != requiredRoles || (roles & excludedRoles) != 0) {
+      return false;
+    }
+    if (namePrefix != null && !UserIndex.nameKey(user.getName()).startsWith(namePrefix)) {
+      return false;
+    }
+    if (hasManager && (directReportsOnly ? user.getManagerId() != managerId
+        : !hierarchy.isUnder(user.getId(), managerId))) {
+      return false;
+    }
+    if (Role.EMPLOYEE.in(roles)) {
+      for (UserAttribute attribute : UserAttribute.NUMERIC) {
+        if (hasRange(attribute)) {
+          double value = attribute.valueOf(user);
+          if (value < min[attribute.ordinal()] || value > max[attribute.ordinal()]) {
+            return false;
+          }
+        }
+      }
+    }
+    return predicate == null || predicate.test(user);
+  }
+
+  /**
+   * A position in the results of a query: the sort attribute, and the values of it and the ID of
+   * the user the results continue after.
+   *
+   * @author Michael Ruberto
+   */
+  static final class Cursor implements Comparable<Cursor> {
+
+    final UserAttribute attribute;
+    final int id;
+    final double value;
+    // The user's name key, when sorting by name
+    final String name;
+
+    Cursor(UserAttribute attribute, int id, double value, String name) {
+      this.attribute = attribute;
+      this.id = id;
+      this.value = value;
+      this.name = name;
+    }
+
+    /**
+     * Gets the position of the given user in results sorted by the given attribute, taking the
+     * user's information as it stands now.
+     *
+     * @param attribute The sort attribute.
+     * @param user      The user.
+     * @return The user's position.
+     * @author Michael Ruberto
+     */
+    static Cursor of(UserAttribute attribute, IUser user) {
+      return new Cursor(attribute, user.getId(),
+          attribute.isNumeric() ? attribute.valueOf(user) : 0,
+          attribute == UserAttribute.NAME ? UserIndex.nameKey(user.getName()) : "");
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      int bySortKey = attribute == UserAttribute.NAME ? name.compareTo(other.name)
+          : Double.compare(value, other.value);
+      return bySortKey != 0 ? bySortKey : Integer.compare(id, other.id);
+    }
+
+    /**
+     * Encodes this cursor as an opaque string.
+     *
+     * @return The encoded cursor.
+     * @author Michael Ruberto
+     */
+    String encode() {
+      String plain = attribute.name() + ":" + id + ":" + Long.toHexString(
+          Double.doubleToLongBits(value)) + ":" + name;
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor made by {@link #encode()}.
+     *
+     * @param encoded The encoded cursor.
+     * @return The cursor.
+     * @throws IllegalArgumentException If the string is not a valid cursor.
+     * @author Michael Ruberto
+     */
+    static Cursor decode(String encoded) throws IllegalArgumentException {
+      try {
+        String plain = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        String[] parts = plain.split(":", 4);
+        return new Cursor(UserAttribute.valueOf(parts[0]), Integer.parseInt(parts[1]),
+            Double.longBitsToDouble(Long.parseUnsignedLong(parts[2], 16)), parts[3]);
+      } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("The cursor is not valid.", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package model;
+
+import model.users.EmployeeColumns;
+import model.users.IUser;
+import model.users.Role;
+
+/**
+ * The information of one {@link IUser} as it was at one moment, as read through a {@link
+ * ModelSnapshot}. A user state never changes once taken, however the user changes afterwards.
+ *
+ * @author Michael Ruberto
+ */
+public final class UserState {
+
+  private final int id;
+  private final String name;
+  private final int roles;
+  private final double salary;
+  private final int vacationBalance;
+  private final double annualBonus;
+  private final int managerId;
+
+  // Constructs a user state from its parts.
+  private UserState(int id, String name, int roles, double salary, int vacationBalance,
+      double annualBonus, int managerId) {
+    this.id = id;
+    this.name = name;
+    this.roles = roles;
+    this.salary = salary;
+    this.vacationBalance = vacationBalance;
+    this.annualBonus = annualBonus;
+    this.managerId = managerId;
+  }
+
+  /**
+   * Takes the state of the given user as it is now. The caller must hold the user's lock, so that
+   * no change to the user is half made while it is read.
+   *
+   * @param user The user.
+   * @return The user's state.
+   * @author Michael Ruberto
+   */
+  static UserState of(IUser user) {
+    int roles = user.getRoles();
+    if (!Role.EMPLOYEE.in(roles)) {
+      return new UserState(user.getId(), user.getName(), roles, Double.NaN, 0, Double.NaN,
+          EmployeeColumns.NO_MANAGER);
+    }
+    return new UserState(user.getId(), user.getName(), roles, user.getSalary(),
+        user.getVacationBalance(), user.getAnnualBonus(), user.getManagerId());
+  }
+
+  // Checks that the user was an employee, who has a salary, vacation balance and annual bonus.
+  private void checkEmployee(String information) throws UnsupportedOperationException {
+    if (!Role.EMPLOYEE.in(roles)) {
+      throw new UnsupportedOperationException(
+          "This type of user (Administrator) does not have " + information + ".");
+    }
+  }
+
+  /**
+   * Gets the user's unique ID.
+   *
+   * @return The user's ID.
+   * @author Michael Ruberto
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Gets the user's name.
+   *
+   * @return The user's name.
+   * @author Michael Ruberto
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the roles the user held.
+   *
+   * @return The bitmask of the user's roles (see {@link Role#mask()}).
+   * @author Michael Ruberto
+   */
+  public int getRoles() {
+    return roles;
+  }
+
+  /**
+   * Did the user hold the given role?
+   *
+   * @param role The role.
+   * @return Whether or not the user held the role.
+   * @author Michael Ruberto
+   */
+  public boolean hasRole(Role role) {
+    return role.in(roles);
+  }
+
+  /**
+   * Did the user work in Human Resources?
+   *
+   * @return Whether or not the user was in Human Resources.
+   * @author Michael Ruberto
+   */
+  public boolean isInHumanResources() {
+    return Role.HUMAN_RESOURCES.in(roles);
+  }
+
+  /**
+   * Gets the user's salary.
+   *
+   * @return The user's salary.
+   * @throws UnsupportedOperationException If the user wasn't an employee.
+   * @author Michael Ruberto
+   */
+  public double getSalary() throws UnsupportedOperationException {
+    checkEmployee("a salary");
+    return salary;
+  }
+
+  /**
+   * Gets the user's vacation balance.
+   *
+   * @return The user's vacation balance.
+   * @throws UnsupportedOperationException If the user wasn't an employee.
+   * @author Michael Ruberto
+   */
+  public int getVacationBalance() throws UnsupportedOperationException {
+    checkEmployee("a vacation balance");
+    return vacationBalance;
+  }
+
+  /**
+   * Gets the user's annual bonus.
+   *
+   * @return The user's annual bonus.
+   * @throws UnsupportedOperationException If the user wasn't an employee.
+   * @author Michael Ruberto
+   */
+  public double getAnnualBonus() throws UnsupportedOperationException {
+    checkEmployee("an annual bonus");
+    return annualBonus;
+  }
+
+  /**
+   * Gets the ID of the manager the user reported to.
+   *
+   * @return The manager's ID, or {@link EmployeeColumns#NO_MANAGER} if the user had no manager.
+   * @author Michael Ruberto
+   */
+  public int getManagerId() {
+    return managerId;
+  }
+
+  /**
+   * Did the user report to a manager?
+   *
+   * @return Whether or not the user had a manager.
+   * @author Michael Ruberto
+   */
+  public boolean hasManager() {
+    return managerId != EmployeeColumns.NO_MANAGER;
+  }
+
+  @Override
+  public String toString() {
+    return "UserState[id=" + id + ", name=" + name + ", roles=" + roles + "]";
+  }
+}
@@ -0,0 +1,103 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The version of every user of an {@link HRModel}: a counter which goes up whenever a change to the
+ * user is recorded, so that a {@link Transaction} can tell at commit whether anyone has changed the
+ * users it staged changes for since it looked at them. Versions are never reset, not even when a
+ * user is removed, so a version only ever matches if nothing has happened in between.
+ * <p>
+ * A model with a {@link WriteAheadLog} keeps a second table of the same kind, holding the position
+ * in the log of the last change made to each user's information, which its snapshots note so that
+ * the changes after them can be replayed without making any twice (see {@link
+ * HRModel#writeSnapshot(java.nio.file.Path)}).
+ * <p>
+ * The versions are kept in a table indexed directly by ID, laid out like the {@link UserDirectory},
+ * in fixed-size pages which are created as they are first needed and never move. Reading or
+ * bumping a version never locks.
+ *
+ * @author Michael Ruberto
+ */
+final class UserVersions {
+
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private volatile AtomicLongArray[] pages;
+
+  /**
+   * Constructs a table in which every user is at version 0.
+   *
+   * @author Michael Ruberto
+   */
+  UserVersions() {
+    this.pages = new AtomicLongArray[0];
+  }
+
+  /**
+   * Gets the version of the user with the given ID.
+   *
+   * @param id The user's ID.
+   * @return The user's version.
+   * @author Michael Ruberto
+   */
+  long get(int id) {
+    long index = UserDirectory.index(id);
+    AtomicLongArray[] current = pages;
+    int page = (int) (index >>> PAGE_BITS);
+    if (page >= current.length || current[page] == null) {
+      return 0;
+    }
+    return current[page].get((int) index & PAGE_MASK);
+  }
+
+  /**
+   * Moves the user with the given ID on to their next version.
+   *
+   * @param id The user's ID.
+   * @author Michael Ruberto
+   */
+  void increment(int id) {
+    long index = UserDirectory.index(id);
+    int page = (int) (index >>> PAGE_BITS);
+    AtomicLongArray[] current = pages;
+    if (page >= current.length || current[page] == null) {
+      current = grow(page);
+    }
+    current[page].incrementAndGet((int) index & PAGE_MASK);
+  }
+
+  /**
+   * Moves the user with the given ID on to the given version, unless they are already at or past
+   * it.
+   *
+   * @param id      The user's ID.
+   * @param version The version.
+   * @author Michael Ruberto
+   */
+  void advance(int id, long version) {
+    long index = UserDirectory.index(id);
+    int page = (int) (index >>> PAGE_BITS);
+    AtomicLongArray[] current = pages;
+    if (page >= current.length || current[page] == null) {
+      current = grow(page);
+    }
+    current[page].accumulateAndGet((int) index & PAGE_MASK, version, Math::max);
+  }
+
+  // Creates the page with the given number, unless another thread already has, and returns the
+  // pages as they are afterwards.
+  private synchronized AtomicLongArray[] grow(int page) {
+    AtomicLongArray[] current = pages;
+    if (page < current.length && current[page] != null) {
+      return current;
+    }
+    AtomicLongArray[] grown = new AtomicLongArray[Math.max(page + 1, current.length)];
+    System.arraycopy(current, 0, grown, 0, current.length);
+    grown[page] = new AtomicLongArray(PAGE_SIZE);
+    pages = grown;
+    return grown;
+  }
+}
@@ -0,0 +1,379 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, append-only log of every change made to an {@link HRModel}, so that the model can be
+ * rebuilt after a restart. A model constructed with a log (see {@link HRModel#HRModel(String,
+ * StorageMode, WriteAheadLog)}) first replays every change already in it, and from then on appends
+ * a {@link LogRecord} for each change it makes.
+ * <p>
+ * Forcing the log to disk after every change would limit the model to a few hundred changes a
+ * second, so changes are committed in groups instead. Appending a record only copies it into an
+ * in-memory buffer; a background thread writes the buffer to the file and forces it to disk every
+ * {@code syncIntervalMillis} milliseconds, or as soon as {@code syncBatchSize} records are waiting,
+ * whichever comes first. A crash can therefore lose at most the changes made in the last interval
+ * (or batch). Callers which need a change to be durable before they carry on can call {@link
+ * #sync()}. While one batch is being forced, the next one fills up in a second buffer, so appending
+ * never waits for the disk.
+ * <p>
+ * Each record is written with its length and a CRC-32 checksum. If the process dies part way
+ * through writing a record, the torn record fails its checksum when the log is next replayed, and
+ * it (and anything after it) is cut off.
+ * <p>
+ * Every record has a position in the log: the offset in the file just past its end. Positions only
+ * grow, so a {@link HRModel} snapshot can note the position of the log when it is taken, and be
+ * brought up to date later by replaying only the records after it.
+ *
+ * @author Michael Ruberto
+ */
+public final class WriteAheadLog implements Closeable {
+
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final long syncIntervalMillis;
+  private final int syncBatchSize;
+  private final ReentrantLock lock;
+  private final Condition batchReady;
+  private final ReentrantLock flushLock;
+  private final CRC32 checksum;
+  private final Thread flusher;
+
+  // Guarded by lock
+  private ByteBuffer pending;
+  private int pendingRecords;
+  // The position of the last record appended, or of the end of the file if none has been
+  private long end;
+  private boolean closed;
+  private IOException failure;
+
+  // Guarded by flushLock
+  private ByteBuffer spare;
+
+  private WriteAheadLog(FileChannel channel, long end, long syncIntervalMillis,
+      int syncBatchSize) {
+    this.channel = channel;
+    this.end = end;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.syncBatchSize = syncBatchSize;
+    this.lock = new ReentrantLock();
+    this.batchReady = lock.newCondition();
+    this.flushLock = new ReentrantLock();
+    this.checksum = new CRC32();
+    this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.flusher = new Thread(this::runFlusher, "write-ahead-log-flusher");
+    this.flusher.setDaemon(true);
+  }
+
+  /**
+   * Opens the log in the given file, creating the file if it doesn't exist. New records are
+   * appended to the end of whatever the file already holds.
+   *
+   * @param file               The file holding the log.
+   * @param syncIntervalMillis The longest time, in milliseconds, a record may wait before it is
+   *                           forced to disk.
+   * @param syncBatchSize      The number of waiting records which causes them to be forced to disk
+   *                           straight away. A batch size of 1 forces every record on its own.
+   * @return The open log.
+   * @throws IllegalArgumentException If the file is {@code null}, or if the interval or batch size
+   *                                  is not positive.
+   * @throws IOException              If the file can't be opened.
+   * @author Michael Ruberto
+   */
+  public static WriteAheadLog open(Path file, long syncIntervalMillis, int syncBatchSize)
+      throws IllegalArgumentException, IOException {
+    //VALIDATING INPUTS
+    if (file == null) {
+      throw new IllegalArgumentException("The log file cannot be null.");
+    }
+    if (syncIntervalMillis <= 0 || syncBatchSize <= 0) {
+      throw new IllegalArgumentException("The sync interval and batch size must be positive.");
+    }
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long size = channel.size();
+    channel.position(size);
+    WriteAheadLog log = new WriteAheadLog(channel, size, syncIntervalMillis, syncBatchSize);
+    log.flusher.start();
+    return log;
+  }
+
+  /**
+   * Gets the longest time a record may wait before it is forced to disk.
+   *
+   * @return The sync interval, in milliseconds.
+   * @author Michael Ruberto
+   */
+  public long getSyncIntervalMillis() {
+    return syncIntervalMillis;
+  }
+
+  /**
+   * Gets the number of waiting records which causes them to be forced to disk straight away.
+   *
+   * @return The sync batch size.
+   * @author Michael Ruberto
+   */
+  public int getSyncBatchSize() {
+    return syncBatchSize;
+  }
+
+  /**
+   * Gets the position of the last record appended to the log, or of the end of the log as it was
+   * opened if none has been appended since. Every record appended from now on will have a greater
+   * position.
+   *
+   * @return The position.
+   * @author Michael Ruberto
+   */
+  long position() {
+    lock.lock();
+    try {
+      return end;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads every record in the log, oldest first, and passes each to the given consumer. If the log
+   * ends with a torn or corrupt record, the log is cut off just before it.
+   *
+   * @param consumer The consumer of the records.
+   * @throws IOException If the log can't be read.
+   * @author Michael Ruberto
+   */
+  void replay(Consumer<LogRecord> consumer) throws IOException {
+    replay(0, (record, position) -> consumer.accept(record));
+  }
+
+  /**
+   * Reads every record in the log past the given position, oldest first, and passes each to the
+   * given consumer along with its position. If the log ends with a torn or corrupt record, the log
+   * is cut off just before it.
+   *
+   * @param after    The position of the last record which shouldn't be passed on.
+   * @param consumer The consumer of the records and their positions.
+   * @throws IOException If the log can't be read.
+   * @author Michael Ruberto
+   */
+  void replay(long after, ObjLongConsumer<LogRecord> consumer) throws IOException {
+    flushLock.lock();
+    try {
+      long size = channel.size();
+      long position = 0;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      while (position + HEADER_SIZE <= size) {
+        header.clear();
+        readFully(header, position);
+        int length = header.getInt(0);
+        int expected = header.getInt(Integer.BYTES);
+        if (length <= 0 || position + HEADER_SIZE + length > size) {
+          break;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(body, position + HEADER_SIZE);
+        crc.reset();
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != expected) {
+          break;
+        }
+        position += HEADER_SIZE + length;
+        if (position > after) {
+          consumer.accept(LogRecord.decode(body.flip()), position);
+        }
+      }
+
+      if (position < size) {
+        channel.truncate(position);
+        channel.force(false);
+      }
+      channel.position(position);
+      lock.lock();
+      try {
+        end = position;
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  // Reads from the given position of the file until the buffer is full.
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of the write-ahead log.");
+      }
+    }
+  }
+
+  /**
+   * Appends the given record to the log. The record is forced to disk with the rest of its group.
+   *
+   * @param record The record to append.
+   * @return The position of the record in the log.
+   * @throws IllegalStateException If the log has been closed.
+   * @throws UncheckedIOException  If an earlier attempt to write the log to disk failed.
+   * @author Michael Ruberto
+   */
+  long append(LogRecord record) throws IllegalStateException, UncheckedIOException {
+    int length = record.encodedSize();
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("The write-ahead log has been closed.");
+      }
+      if (failure != null) {
+        throw new UncheckedIOException("The write-ahead log could not be written.", failure);
+      }
+
+      if (pending.remaining() < HEADER_SIZE + length) {
+        ByteBuffer grown = ByteBuffer.allocate(
+            Math.max(pending.capacity() * 2, pending.position() + HEADER_SIZE + length));
+        grown.put(pending.flip());
+        pending = grown;
+      }
+      int start = pending.position();
+      pending.position(start + HEADER_SIZE);
+      record.encode(pending);
+      checksum.reset();
+      checksum.update(pending.array(), start + HEADER_SIZE, length);
+      pending.putInt(start, length);
+      pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+
+      pendingRecords++;
+      if (pendingRecords >= syncBatchSize) {
+        batchReady.signal();
+      }
+      end += HEADER_SIZE + length;
+      return end;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes every record appended so far to the file and forces it to disk, without waiting for the
+   * rest of the group.
+   *
+   * @throws IOException If the log can't be written.
+   * @author Michael Ruberto
+   */
+  public void sync() throws IOException {
+    flushLock.lock();
+    try {
+      ByteBuffer batch;
+      lock.lock();
+      try {
+        if (failure != null) {
+          throw failure;
+        }
+        if (pendingRecords == 0) {
+          return;
+        }
+        batch = pending;
+        pending = spare;
+        pendingRecords = 0;
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        batch.flip();
+        while (batch.hasRemaining()) {
+          channel.write(batch);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        lock.lock();
+        try {
+          failure = e;
+        } finally {
+          lock.unlock();
+        }
+        throw e;
+      }
+      spare = batch.clear();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  // Forces each group to disk once it is full or its interval has passed, until the log is closed.
+  private void runFlusher() {
+    while (true) {
+      lock.lock();
+      try {
+        if (!closed && pendingRecords < syncBatchSize) {
+          batchReady.await(syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (closed) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        sync();
+      } catch (IOException e) {
+        // The failure is remembered and reported to the next caller to append
+        return;
+      }
+    }
+  }
+
+  /**
+   * Forces every record appended so far to disk and closes the log. Further appends will fail.
+   *
+   * @throws IOException If the log can't be written or closed.
+   * @author Michael Ruberto
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      batchReady.signal();
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,681 @@
+package model.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import model.BackpressurePolicy;
+import model.ChangeEvent;
+import model.ChangeSubscription;
+import model.HRModel;
+import model.HRSession;
+
+/**
+ * An embedded HTTP service which lets clients call an {@link HRModel} with JSON, each on behalf of
+ * the user they logged in as. Many clients can be served at once, since every call runs on the
+ * caller's own {@link HRSession} and the model is safe to share between threads.
+ * <p>
+ * Every call is a {@code POST} to the path named after the operation, with the operation's
+ * parameters as a JSON object in the body (or an empty body, if it takes none):
+ * <ul>
+ *   <li>{@code /login} takes {@code id} and {@code password}, opens a session, and answers with
+ *   its {@code token}. Every other call must carry the token in an {@code Authorization: Bearer}
+ *   header.</li>
+ *   <li>{@code /logout} closes the caller's session.</li>
+ *   <li>Every operation of {@link model.IHumanResourcesModel} is at the path of the same name (for
+ *   example {@code /setSalary}, which takes {@code id} and {@code salary}); see {@link
+ *   ServiceOperations} for the two which are reshaped for HTTP.</li>
+ *   <li>{@code /subscribe} takes an optional {@code policy} (see {@link BackpressurePolicy}) and
+ *   streams every change made to the model as server-sent events until the client disconnects.
+ *   </li>
+ * </ul>
+ * A successful call is answered with status 200 and {@code {"result": ...}}. A failed one is
+ * answered with {@code {"error": "..."}} and status 400 if the request was invalid, 401 if the
+ * caller isn't logged in (or gave the wrong password), 404 or 405 if there is no such operation,
+ * 409 if the model refused the call (such as for lack of permission), 503 if the service was too
+ * busy to take the call, and 504 if it couldn't finish the call in time.
+ * <p>
+ * Calls are run on the executor the service is started with: by default a virtual thread per call
+ * where the JDK has them, or else a fixed pool of worker threads. Either way only so many calls
+ * run at once. A call which arrives while every worker is busy waits for one, but only a bounded
+ * number of calls may wait: any more are turned away at once, so that a burst of traffic is shed
+ * instead of queueing without limit. A call which hasn't been answered within the timeout is
+ * answered with a 504 error. If its worker hadn't started on the model yet, the call is never
+ * made, and the error says so; if it had, the call still completes, so the error says that
+ * whether it took effect is unknown, and its worker is only counted free once it has.
+ * <p>
+ * A session opened through {@code /login} which goes unused for longer than the idle timeout is
+ * logged out, so that sessions whose clients have gone away without logging out don't pile up.
+ * A session with an event stream open counts as in use for as long as the stream is.
+ *
+ * @author Michael Ruberto
+ */
+public final class HRService implements AutoCloseable {
+
+  private static final String LOGIN = "login";
+  private static final String LOGOUT = "logout";
+  private static final String SUBSCRIBE = "subscribe";
+  /**
+   * How long a session opened through the service may go unused before it is logged out, unless
+   * the service is started with another idle timeout.
+   */
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+  // No operation's parameters come anywhere near this size
+  private static final int MAX_BODY = 1 << 20;
+
+  private final HRModel model;
+  private final HttpServer server;
+  private final Executor workers;
+  // The executor the service made for itself, and shuts down along with it, or null
+  private final ExecutorService ownWorkers;
+  private final ScheduledThreadPoolExecutor timer;
+  private final int capacity;
+  // A permit for every call being run or waiting for a worker
+  private final Semaphore admission;
+  // A permit for every call being run
+  private final Semaphore running;
+  private final long timeoutNanos;
+  private final long idleNanos;
+  // The tokens of the sessions opened through this service, which are closed along with it, each
+  // with the System.nanoTime() at which it was last used
+  private final ConcurrentHashMap<String, Long> tokens;
+  private final Set<EventStream> streams;
+  private final LongAdder completed;
+  private final LongAdder rejected;
+  private final LongAdder timedOut;
+
+  // Constructs a service around the given server, which hasn't been started yet.
+  private HRService(HRModel model, HttpServer server, int workerCount, int maxWaiting,
+      Duration timeout, Duration idleTimeout, Executor executor) {
+    this.model = model;
+    this.server = server;
+    this.ownWorkers = executor == null ? defaultWorkers(workerCount) : null;
+    this.workers = executor == null ? ownWorkers : executor;
+    this.timer = new ScheduledThreadPoolExecutor(1, threads("hr-service-timer-"));
+    this.timer.setRemoveOnCancelPolicy(true);
+    this.capacity = workerCount + maxWaiting;
+    this.admission = new Semaphore(capacity);
+    this.running = new Semaphore(workerCount);
+    this.timeoutNanos = timeout.toNanos();
+    this.idleNanos = idleTimeout.toNanos();
+    this.tokens = new ConcurrentHashMap<String, Long>();
+    this.streams = ConcurrentHashMap.newKeySet();
+    this.completed = new LongAdder();
+    this.rejected = new LongAdder();
+    this.timedOut = new LongAdder();
+  }
+
+  /**
+   * Starts serving the given model at the given address, running calls on the default executor
+   * and logging out sessions after the {@linkplain #DEFAULT_IDLE_TIMEOUT default idle timeout}.
+   *
+   * @param model       The model to serve.
+   * @param address     The address to listen at. A port of 0 picks a free port (see {@link
+   *                    #getAddress()}).
+   * @param workerCount The number of calls which can be run at once.
+   * @param maxWaiting  The number of calls which can wait for a worker before any more are turned
+   *                    away.
+   * @param timeout     How long a call may take, from when it arrives, before it is answered with
+   *                    an error.
+   * @return The running service.
+   * @throws IllegalArgumentException If the model or address is {@code null}, or if there are no
+   *                                  workers, or if the number of waiting calls is negative, or if
+   *                                  the timeout is {@code null} or not positive.
+   * @throws IOException              If the service can't listen at the address.
+   * @author Michael Ruberto
+   */
+  public static HRService start(HRModel model, InetSocketAddress address, int workerCount,
+      int maxWaiting, Duration timeout) throws IllegalArgumentException, IOException {
+    return start(model, address, workerCount, maxWaiting, timeout, DEFAULT_IDLE_TIMEOUT, null);
+  }
+
+  /**
+   * Starts serving the given model at the given address, running calls on the given executor.
+   *
+   * @param model       The model to serve.
+   * @param address     The address to listen at. A port of 0 picks a free port (see {@link
+   *                    #getAddress()}).
+   * @param workerCount The number of calls which can be run at once.
+   * @param maxWaiting  The number of calls which can wait for a worker before any more are turned
+   *                    away.
+   * @param timeout     How long a call may take, from when it arrives, before it is answered with
+   *                    an error.
+   * @param idleTimeout How long a session opened through the service may go unused before it is
+   *                    logged out. Sessions are checked every half of this, so one may outlive it
+   *                    by up to half as much again.
+   * @param executor    The executor to run calls on, which the service leaves running when it is
+   *                    closed, or {@code null} for a virtual thread per call where the JDK has
+   *                    them, and a fixed pool of {@code workerCount} threads where it doesn't.
+   * @return The running service.
+   * @throws IllegalArgumentException If the model or address is {@code null}, or if there are no
+   *                                  workers, or if the number of waiting calls is negative, or if
+   *                                  either timeout is {@code null} or not positive.
+   * @throws IOException              If the service can't listen at the address.
+   * @author Michael Ruberto
+   */
+  public static HRService start(HRModel model, InetSocketAddress address, int workerCount,
+      int maxWaiting, Duration timeout, Duration idleTimeout, Executor executor)
+      throws IllegalArgumentException, IOException {
+    //VALIDATING INPUTS
+    if (model == null || address == null) {
+      throw new IllegalArgumentException("The model and the address cannot be null.");
+    }
+    if (workerCount < 1 || maxWaiting < 0) {
+      throw new IllegalArgumentException(
+          "There must be at least one worker, and the calls waiting cannot be negative.");
+    }
+    if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("The timeout must be positive.");
+    }
+    if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+      throw new IllegalArgumentException("The idle timeout must be positive.");
+    }
+
+    HttpServer server = HttpServer.create(address, workerCount + maxWaiting);
+    HRService service = new HRService(model, server, workerCount, maxWaiting, timeout,
+        idleTimeout, executor);
+    server.createContext("/", service::admit);
+    // Calls are admitted on the server's own thread, and handed to the workers from there
+    server.setExecutor(null);
+    long sweep = Math.max(service.idleNanos / 2, 1);
+    service.timer.scheduleAtFixedRate(service::expireIdleSessions, sweep, sweep,
+        TimeUnit.NANOSECONDS);
+    server.start();
+    return service;
+  }
+
+  // Creates the executor calls are run on when none is given: a virtual thread per call where the
+  // JDK has them, or else a fixed pool of the given number of daemon threads. Virtual threads are
+  // looked up by name so that the service still builds and runs on JDKs without them.
+  private static ExecutorService defaultWorkers(int workerCount) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(workerCount, threads("hr-service-worker-"));
+    }
+  }
+
+  // Creates the daemon threads of a pool, naming them with the given prefix.
+  private static ThreadFactory threads(String prefix) {
+    AtomicInteger number = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, prefix + number.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Gets the address the service is listening at.
+   *
+   * @return The address.
+   * @author Michael Ruberto
+   */
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Gets the number of calls which have been run to the end, whether they succeeded or not.
+   *
+   * @return The number of calls.
+   * @author Michael Ruberto
+   */
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  /**
+   * Gets the number of calls which were turned away because too many were waiting already.
+   *
+   * @return The number of calls.
+   * @author Michael Ruberto
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * Gets the number of calls which were answered with an error because they took too long.
+   *
+   * @return The number of calls.
+   * @author Michael Ruberto
+   */
+  public long getTimedOut() {
+    return timedOut.sum();
+  }
+
+  /**
+   * Gets the number of calls which have been admitted but not yet run to the end, whether they
+   * are being run or are waiting for a worker.
+   *
+   * @return The number of calls.
+   * @author Michael Ruberto
+   */
+  public int getInFlight() {
+    return capacity - admission.availablePermits();
+  }
+
+  /**
+   * Gets the number of sessions opened through the service which are still open.
+   *
+   * @return The number of sessions.
+   * @author Michael Ruberto
+   */
+  public int getSessionCount() {
+    return tokens.size();
+  }
+
+  /**
+   * Stops the service. Calls which haven't been answered yet are dropped, every event stream is
+   * ended, and every session opened through the service is logged out.
+   *
+   * @author Michael Ruberto
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    if (ownWorkers != null) {
+      ownWorkers.shutdownNow();
+    }
+    timer.shutdownNow();
+    for (EventStream stream : streams) {
+      stream.stop();
+    }
+    for (String token : tokens.keySet()) {
+      logOut(token);
+    }
+    tokens.clear();
+  }
+
+  // Logs out every session opened through the service which has gone unused for longer than the
+  // idle timeout. Runs on the timer's thread.
+  private void expireIdleSessions() {
+    long now = System.nanoTime();
+    // A session streaming events is in use for as long as the stream is open
+    for (EventStream stream : streams) {
+      tokens.replace(stream.token, now);
+    }
+    for (Map.Entry<String, Long> entry : tokens.entrySet()) {
+      Long used = entry.getValue();
+      // A session used since it was looked at is left alone
+      if (now - used > idleNanos && tokens.remove(entry.getKey(), used)) {
+        logOut(entry.getKey());
+      }
+    }
+  }
+
+  // Logs out the session with the given token, if it is still open.
+  private void logOut(String token) {
+    try {
+      model.getSession(token).logOut();
+    } catch (IllegalStateException e) {
+      // Already closed
+    }
+  }
+
+  // Admits the given call if there is room for it, handing it to a worker, or turns it away. Runs
+  // on the server's thread, so it must never block.
+  private void admit(HttpExchange exchange) {
+    Call call = new Call(exchange);
+    if (!admission.tryAcquire()) {
+      rejected.increment();
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      call.answer(503, error("The service is too busy. Try again later."));
+      return;
+    }
+    try {
+      call.timeout = timer.schedule(() -> expire(call), timeoutNanos, TimeUnit.NANOSECONDS);
+      workers.execute(() -> serve(call));
+    } catch (RejectedExecutionException e) {
+      admission.release();
+      call.answer(503, error("The service is shutting down."));
+    }
+  }
+
+  // Answers the given call with an error once it has run out of time, saying whether it may still
+  // have been made.
+  private void expire(Call call) {
+    if (call.claimUnstarted()) {
+      timedOut.increment();
+      call.send(504, error("The call did not start in time, so it was not made."));
+    } else if (call.claim()) {
+      timedOut.increment();
+      call.send(504, error("The call did not finish in time; whether it took effect is unknown."));
+    }
+  }
+
+  // Runs and answers the given call, once no more than the allowed number of other calls are being
+  // run. Runs on a worker thread.
+  private void serve(Call call) {
+    boolean started = false;
+    try {
+      running.acquire();
+      started = true;
+      // A call which ran out of time while waiting for a worker isn't run at all
+      if (!call.isAnswered()) {
+        route(call);
+      }
+    } catch (InterruptedException e) {
+      // The service is closing
+      Thread.currentThread().interrupt();
+      call.abandon();
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      call.answer(400, error(e.getMessage()));
+    } catch (IllegalStateException e) {
+      call.answer(409, error(e.getMessage()));
+    } catch (IOException e) {
+      // The client has gone, so there is nobody left to answer
+      call.abandon();
+    } catch (RuntimeException e) {
+      call.answer(500, error("The call failed unexpectedly."));
+    } finally {
+      ScheduledFuture<?> timeout = call.timeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      if (started) {
+        running.release();
+      }
+      // Freed before the call is counted, so that a completed call no longer holds a place
+      admission.release();
+      completed.increment();
+    }
+  }
+
+  // Finds the operation the call is for, checks who is calling, and makes the call.
+  private void route(Call call) throws IOException {
+    HttpExchange exchange = call.exchange;
+    String name = exchange.getRequestURI().getPath().substring(1);
+    ServiceOperations.IOperation operation = ServiceOperations.get(name);
+    if (operation == null && !name.equals(LOGIN) && !name.equals(LOGOUT)
+        && !name.equals(SUBSCRIBE)) {
+      call.answer(404, error("There is no operation called '" + name + "'."));
+      return;
+    }
+    if (!exchange.getRequestMethod().equals("POST")) {
+      exchange.getResponseHeaders().set("Allow", "POST");
+      call.answer(405, error("Operations must be called with POST."));
+      return;
+    }
+    Parameters parameters = Parameters.parse(readBody(exchange));
+    // A call which ran out of time while its request was read isn't made either
+    if (!call.start()) {
+      return;
+    }
+
+    if (name.equals(LOGIN)) {
+      logIn(call, parameters);
+      return;
+    }
+    HRSession session = session(exchange);
+    if (session == null) {
+      call.answer(401, error("You must log in, and give your session's token, to call this."));
+      return;
+    }
+    if (name.equals(LOGOUT)) {
+      session.logOut();
+      tokens.remove(session.getToken());
+      call.answer(200, result(null));
+    } else if (name.equals(SUBSCRIBE)) {
+      subscribe(call, session, parameters);
+    } else {
+      call.answer(200, result(operation.call(session, parameters)));
+    }
+  }
+
+  // Opens a session for the user named in the parameters, and answers with its token.
+  private void logIn(Call call, Parameters parameters) {
+    HRSession session;
+    try {
+      session = model.openSession(parameters.getInt("id"), parameters.getString("password"));
+    } catch (IllegalStateException e) {
+      call.answer(401, error(e.getMessage()));
+      return;
+    }
+    tokens.put(session.getToken(), System.nanoTime());
+    Map<String, Object> login = new LinkedHashMap<String, Object>();
+    login.put("token", session.getToken());
+    login.put("userId", session.getUserId());
+    if (!call.answer(200, result(login))) {
+      // Nobody will ever see the token
+      session.logOut();
+      tokens.remove(session.getToken());
+    }
+  }
+
+  // Gets the open session whose token the call carries, or null if there is none.
+  private HRSession session(HttpExchange exchange) {
+    String header = exchange.getRequestHeaders().getFirst("Authorization");
+    if (header == null || !header.startsWith("Bearer ")) {
+      return null;
+    }
+    String token = header.substring("Bearer ".length()).trim();
+    try {
+      HRSession session = model.getSession(token);
+      // Only sessions opened through the service are tracked; others are their opener's to close
+      tokens.replace(token, System.nanoTime());
+      return session;
+    } catch (IllegalStateException e) {
+      tokens.remove(token);
+      return null;
+    }
+  }
+
+  // Subscribes the session to the model's changes, and streams them back to the caller as the
+  // answer to the call. The stream is written from the subscription's own thread, so the worker
+  // is free again straight away.
+  private void subscribe(Call call, HRSession session, Parameters parameters)
+      throws IOException {
+    BackpressurePolicy policy = parameters.has("policy") ? ServiceOperations.named(
+        BackpressurePolicy.class, "policy", parameters.getString("policy"))
+        : BackpressurePolicy.DROP_OLDEST;
+    EventStream stream = new EventStream(call.exchange, session.getToken());
+    ChangeSubscription subscription = session.subscribe(stream, policy);
+    if (!call.claim()) {
+      subscription.close();
+      stream.stop();
+      return;
+    }
+    stream.start(subscription);
+  }
+
+  // Reads the whole body of the call's request.
+  private static String readBody(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      byte[] body = in.readNBytes(MAX_BODY + 1);
+      if (body.length > MAX_BODY) {
+        throw new IllegalArgumentException("The request body is too large.");
+      }
+      return new String(body, StandardCharsets.UTF_8);
+    }
+  }
+
+  // Builds the body of a successful answer.
+  private static String result(Object result) {
+    return Json.write(Collections.singletonMap("result", result));
+  }
+
+  // Builds the body of an error.
+  private static String error(String message) {
+    return Json.write(Collections.singletonMap("error", message));
+  }
+
+  /**
+   * One call to the service, which is answered exactly once: by its worker, or with an error if
+   * it runs out of time or is turned away first. A call is waiting until its worker starts making
+   * it, then started, then answered.
+   */
+  private static final class Call {
+
+    private static final int WAITING = 0;
+    private static final int STARTED = 1;
+    private static final int ANSWERED = 2;
+
+    final HttpExchange exchange;
+    private final AtomicInteger state;
+    // Answers the call with an error once it has run out of time; set once the call is admitted
+    volatile ScheduledFuture<?> timeout;
+
+    Call(HttpExchange exchange) {
+      this.exchange = exchange;
+      this.state = new AtomicInteger(WAITING);
+    }
+
+    // Has the call been answered (or claimed to be) already?
+    boolean isAnswered() {
+      return state.get() == ANSWERED;
+    }
+
+    // Marks the call as being made, just before it is, and says whether it was still unanswered.
+    // Once it is started, a timeout can no longer stop it.
+    boolean start() {
+      return state.compareAndSet(WAITING, STARTED);
+    }
+
+    // Claims the right to answer the call, and says whether it was still unanswered.
+    boolean claim() {
+      int current = state.get();
+      while (current != ANSWERED) {
+        if (state.compareAndSet(current, ANSWERED)) {
+          return true;
+        }
+        current = state.get();
+      }
+      return false;
+    }
+
+    // Claims the right to answer the call only if it hasn't been started, and says whether it
+    // claimed it.
+    boolean claimUnstarted() {
+      return state.compareAndSet(WAITING, ANSWERED);
+    }
+
+    // Answers the call with the given status and JSON body, unless it has been answered already,
+    // and says whether it was.
+    boolean answer(int status, String body) {
+      if (!claim()) {
+        return false;
+      }
+      send(status, body);
+      return true;
+    }
+
+    // Sends the given status and JSON body, once the right to answer the call has been claimed.
+    void send(int status, String body) {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      try {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(bytes);
+        }
+      } catch (IOException e) {
+        // The client has gone, so there is nobody left to answer
+      } finally {
+        exchange.close();
+      }
+    }
+
+    // Gives up on answering the call.
+    void abandon() {
+      claim();
+      exchange.close();
+    }
+  }
+
+  /**
+   * Writes the changes delivered to a subscription back to the client who subscribed, one
+   * server-sent event per change, until the client goes away or the service is closed.
+   */
+  private final class EventStream implements Consumer<ChangeEvent> {
+
+    private final HttpExchange exchange;
+    // The token of the session which subscribed
+    final String token;
+    // Counted down once the stream can be written to, or has been stopped
+    private final CountDownLatch started;
+    private volatile ChangeSubscription subscription;
+    private volatile OutputStream out;
+
+    EventStream(HttpExchange exchange, String token) {
+      this.exchange = exchange;
+      this.token = token;
+      this.started = new CountDownLatch(1);
+    }
+
+    // Starts the stream for the given subscription, which delivers to it.
+    void start(ChangeSubscription subscription) throws IOException {
+      this.subscription = subscription;
+      streams.add(this);
+      try {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        out = exchange.getResponseBody();
+        out.flush();
+      } catch (IOException e) {
+        stop();
+        throw e;
+      } finally {
+        started.countDown();
+      }
+    }
+
+    @Override
+    public void accept(ChangeEvent event) {
+      try {
+        started.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      OutputStream current = out;
+      if (current == null) {
+        return;
+      }
+      String data = "data: " + Json.write(ServiceOperations.event(event)) + "\n\n";
+      try {
+        current.write(data.getBytes(StandardCharsets.UTF_8));
+        current.flush();
+      } catch (IOException e) {
+        stop();
+      }
+    }
+
+    // Ends the stream and its subscription.
+    void stop() {
+      streams.remove(this);
+      ChangeSubscription current = subscription;
+      if (current != null) {
+        current.close();
+      }
+      out = null;
+      started.countDown();
+      exchange.close();
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package model.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes JSON text for the {@link HRService}. Objects are read as {@link Map}s (keeping
+ * the order of their members), arrays as {@link List}s, numbers as {@link Double}s, and {@code
+ * true}, {@code false} and {@code null} as themselves. Values are written from the same types, as
+ * well as from any other {@link Number}, any {@link Iterable}, and {@code int} or {@code double}
+ * arrays. Numbers which aren't finite are written as {@code null}, since JSON has no way of
+ * writing them.
+ *
+ * @author Michael Ruberto
+ */
+final class Json {
+
+  // Deeper nesting than any request needs, but shallow enough that reading can't overflow a stack
+  private static final int MAX_DEPTH = 32;
+  // Every integer up to this size is exactly representable as a double
+  private static final double MAX_EXACT = 9007199254740992.0;
+
+  private final String text;
+  private int position;
+
+  // Constructs a reader of the given text, positioned at its start.
+  private Json(String text) {
+    this.text = text;
+    this.position = 0;
+  }
+
+  /**
+   * Reads the JSON value which makes up the whole of the given text.
+   *
+   * @param text The JSON text.
+   * @return The value.
+   * @throws IllegalArgumentException If the text is {@code null} or isn't a single valid JSON
+   *                                  value.
+   * @author Michael Ruberto
+   */
+  static Object parse(String text) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (text == null) {
+      throw new IllegalArgumentException("The JSON text cannot be null.");
+    }
+
+    Json reader = new Json(text);
+    reader.skipWhitespace();
+    Object value = reader.value(0);
+    reader.skipWhitespace();
+    if (reader.position != text.length()) {
+      throw reader.error("Unexpected text after the value");
+    }
+    return value;
+  }
+
+  /**
+   * Writes the given value as JSON text.
+   *
+   * @param value The value.
+   * @return The JSON text.
+   * @throws IllegalArgumentException If the value, or anything in it, can't be written as JSON.
+   * @author Michael Ruberto
+   */
+  static String write(Object value) throws IllegalArgumentException {
+    StringBuilder out = new StringBuilder();
+    append(out, value);
+    return out.toString();
+  }
+
+  // Reads the value starting at the current position.
+  private Object value(int depth) throws IllegalArgumentException {
+    if (depth > MAX_DEPTH) {
+      throw error("Values are nested too deeply");
+    }
+    if (position >= text.length()) {
+      throw error("Expected a value");
+    }
+    char next = text.charAt(position);
+    switch (next) {
+      case '{':
+        return object(depth);
+      case '[':
+        return array(depth);
+      case '"':
+        return string();
+      case 't':
+        return literal("true", Boolean.TRUE);
+      case 'f':
+        return literal("false", Boolean.FALSE);
+      case 'n':
+        return literal("null", null);
+      default:
+        return number();
+    }
+  }
+
+  // Reads the object starting at the current position.
+  private Map<String, Object> object(int depth) throws IllegalArgumentException {
+    Map<String, Object> members = new LinkedHashMap<String, Object>();
+    position++;
+    skipWhitespace();
+    if (consume('}')) {
+      return members;
+    }
+    do {
+      skipWhitespace();
+      if (position >= text.length() || text.charAt(position) != '"') {
+        throw error("Expected a member name");
+      }
+      String name = string();
+      skipWhitespace();
+      expect(':');
+      skipWhitespace();
+      members.put(name, value(depth + 1));
+      skipWhitespace();
+    } while (consume(','));
+    expect('}');
+    return members;
+  }
+
+  // Reads the array starting at the current position.
+  private List<Object> array(int depth) throws IllegalArgumentException {
+    List<Object> elements = new ArrayList<Object>();
+    position++;
+    skipWhitespace();
+    if (consume(']')) {
+      return elements;
+    }
+    do {
+      skipWhitespace();
+      elements.add(value(depth + 1));
+      skipWhitespace();
+    } while (consume(','));
+    expect(']');
+    return elements;
+  }
+
+  // Reads the string starting at the current position, which is its opening quote.
+  private String string() throws IllegalArgumentException {
+    StringBuilder out = new StringBuilder();
+    position++;
+    while (position < text.length()) {
+      char next = text.charAt(position++);
+      if (next == '"') {
+        return out.toString();
+      }
+      if (next < ' ') {
+        throw error("Control characters must be escaped in strings");
+      }
+      if (next != '\\') {
+        out.append(next);
+        continue;
+      }
+      if (position >= text.length()) {
+        break;
+      }
+      char escaped = text.charAt(position++);
+      switch (escaped) {
+        case '"':
+        case '\\':
+        case '/':
+          out.append(escaped);
+          break;
+        case 'b':
+          out.append('\b');
+          break;
+        case 'f':
+          out.append('\f');
+          break;
+        case 'n':
+          out.append('\n');
+          break;
+        case 'r':
+          out.append('\r');
+          break;
+        case 't':
+          out.append('\t');
+          break;
+        case 'u':
+          if (position + 4 > text.length()) {
+            throw error("Incomplete unicode escape");
+          }
+          try {
+            out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          position += 4;
+          break;
+        default:
+          throw error("Invalid escape '\\" + escaped + "'");
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  // Reads the number starting at the current position.
+  private Double number() throws IllegalArgumentException {
+    int start = position;
+    while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+      position++;
+    }
+    // Double.parseDouble would also accept forms JSON doesn't, such as "NaN" or a trailing "d"
+    String number = text.substring(start, position);
+    if (number.isEmpty() || number.startsWith("+") || number.startsWith(".")) {
+      throw error("Expected a value");
+    }
+    try {
+      return Double.valueOf(number);
+    } catch (NumberFormatException e) {
+      throw error("Invalid number '" + number + "'");
+    }
+  }
+
+  // Reads the given literal, which stands for the given value.
+  private Object literal(String literal, Object value) throws IllegalArgumentException {
+    if (!text.startsWith(literal, position)) {
+      throw error("Expected a value");
+    }
+    position += literal.length();
+    return value;
+  }
+
+  // Skips past the given character if it is next, and says whether it was.
+  private boolean consume(char expected) {
+    if (position < text.length() && text.charAt(position) == expected) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  // Skips past the given character, which must be next.
+  private void expect(char expected) throws IllegalArgumentException {
+    if (!consume(expected)) {
+      throw error("Expected '" + expected + "'");
+    }
+  }
+
+  // Skips past any whitespace at the current position.
+  private void skipWhitespace() {
+    while (position < text.length()) {
+      char next = text.charAt(position);
+      if (next != ' ' && next != '\t' && next != '\n' && next != '\r') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  // Builds the error for invalid text at the current position.
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at position " + position + " of the JSON.");
+  }
+
+  // Writes the given value to the given builder.
+  private static void append(StringBuilder out, Object value) throws IllegalArgumentException {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof String) {
+      appendString(out, (String) value);
+    } else if (value instanceof Boolean) {
+      out.append(value);
+    } else if (value instanceof Integer || value instanceof Long) {
+      out.append(value);
+    } else if (value instanceof Number) {
+      appendNumber(out, ((Number) value).doubleValue());
+    } else if (value instanceof Map) {
+      out.append('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> member : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          out.append(',');
+        }
+        first = false;
+        appendString(out, String.valueOf(member.getKey()));
+        out.append(':');
+        append(out, member.getValue());
+      }
+      out.append('}');
+    } else if (value instanceof Iterable) {
+      out.append('[');
+      boolean first = true;
+      for (Object element : (Iterable<?>) value) {
+        if (!first) {
+          out.append(',');
+        }
+        first = false;
+        append(out, element);
+      }
+      out.append(']');
+    } else if (value instanceof int[]) {
+      int[] elements = (int[]) value;
+      out.append('[');
+      for (int i = 0; i < elements.length; i++) {
+        out.append(i == 0 ? "" : ",").append(elements[i]);
+      }
+      out.append(']');
+    } else if (value instanceof double[]) {
+      double[] elements = (double[]) value;
+      out.append('[');
+      for (int i = 0; i < elements.length; i++) {
+        out.append(i == 0 ? "" : ",");
+        appendNumber(out, elements[i]);
+      }
+      out.append(']');
+    } else {
+      throw new IllegalArgumentException(
+          "Values of type " + value.getClass().getName() + " can't be written as JSON.");
+    }
+  }
+
+  // Writes the given number, without a fraction if it is a whole number which fits in a long.
+  private static void appendNumber(StringBuilder out, double number) {
+    if (Double.isNaN(number) || Double.isInfinite(number)) {
+      out.append("null");
+    } else if (number == Math.rint(number) && Math.abs(number) <= MAX_EXACT) {
+      out.append((long) number);
+    } else {
+      out.append(number);
+    }
+  }
+
+  // Writes the given string in quotes, escaping anything which must be.
+  private static void appendString(StringBuilder out, String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char next = value.charAt(i);
+      switch (next) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (next < ' ') {
+            out.append(String.format("\\u%04x", (int) next));
+          } else {
+            out.append(next);
+          }
+          break;
+      }
+    }
+    out.append('"');
+  }
+}
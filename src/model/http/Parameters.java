@@ -0,0 +1,242 @@
+package model.http;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The named parameters of a call to the {@link HRService}, read from the JSON object in the body of
+ * the request. Each getter checks that the parameter is there and has the right type, so that a
+ * bad request is answered with an error saying which parameter is wrong.
+ *
+ * @author Michael Ruberto
+ */
+final class Parameters {
+
+  private final Map<String, Object> values;
+
+  /**
+   * Constructs the parameters held in the given JSON object.
+   *
+   * @param values The object's members.
+   * @author Michael Ruberto
+   */
+  Parameters(Map<String, Object> values) {
+    this.values = values;
+  }
+
+  /**
+   * Reads the parameters from the given request body, which must be a JSON object, or empty if
+   * the call takes no parameters.
+   *
+   * @param body The request body.
+   * @return The parameters.
+   * @throws IllegalArgumentException If the body isn't empty or a JSON object.
+   * @author Michael Ruberto
+   */
+  @SuppressWarnings("unchecked")
+  static Parameters parse(String body) throws IllegalArgumentException {
+    if (body.trim().isEmpty()) {
+      return new Parameters(Collections.<String, Object>emptyMap());
+    }
+    Object value = Json.parse(body);
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("The request body must be a JSON object.");
+    }
+    return new Parameters((Map<String, Object>) value);
+  }
+
+  /**
+   * Is the given parameter present, and not {@code null}?
+   *
+   * @param name The parameter's name.
+   * @return Whether or not the parameter has a value.
+   * @author Michael Ruberto
+   */
+  boolean has(String name) {
+    return values.get(name) != null;
+  }
+
+  // Gets the value of the given parameter, which must be present and of the given type.
+  private <T> T get(String name, Class<T> type, String description)
+      throws IllegalArgumentException {
+    Object value = values.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("The parameter '" + name + "' is required.");
+    }
+    if (!type.isInstance(value)) {
+      throw new IllegalArgumentException("The parameter '" + name + "' must be " + description
+          + ".");
+    }
+    return type.cast(value);
+  }
+
+  /**
+   * Gets the value of a number parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value.
+   * @throws IllegalArgumentException If the parameter is missing or isn't a number.
+   * @author Michael Ruberto
+   */
+  double getDouble(String name) throws IllegalArgumentException {
+    return get(name, Double.class, "a number");
+  }
+
+  /**
+   * Gets the value of a whole number parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value.
+   * @throws IllegalArgumentException If the parameter is missing or isn't a whole number which
+   *                                  fits in an {@code int}.
+   * @author Michael Ruberto
+   */
+  int getInt(String name) throws IllegalArgumentException {
+    return toInt(name, getDouble(name));
+  }
+
+  /**
+   * Gets the value of a string parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value.
+   * @throws IllegalArgumentException If the parameter is missing or isn't a string.
+   * @author Michael Ruberto
+   */
+  String getString(String name) throws IllegalArgumentException {
+    return get(name, String.class, "a string");
+  }
+
+  /**
+   * Gets the value of an optional string parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value, or {@code null} if the parameter is missing.
+   * @throws IllegalArgumentException If the parameter isn't a string.
+   * @author Michael Ruberto
+   */
+  String getOptionalString(String name) throws IllegalArgumentException {
+    return has(name) ? getString(name) : null;
+  }
+
+  /**
+   * Gets the value of a boolean parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value.
+   * @throws IllegalArgumentException If the parameter is missing or isn't a boolean.
+   * @author Michael Ruberto
+   */
+  boolean getBoolean(String name) throws IllegalArgumentException {
+    return get(name, Boolean.class, "true or false");
+  }
+
+  /**
+   * Gets the value of an optional boolean parameter.
+   *
+   * @param name The parameter's name.
+   * @return The value, or {@code null} if the parameter is missing.
+   * @throws IllegalArgumentException If the parameter isn't a boolean.
+   * @author Michael Ruberto
+   */
+  Boolean getOptionalBoolean(String name) throws IllegalArgumentException {
+    return has(name) ? getBoolean(name) : null;
+  }
+
+  /**
+   * Gets the value of a moment in time, given as an ISO-8601 string such as {@code
+   * "2024-01-31T12:00:00Z"}.
+   *
+   * @param name The parameter's name.
+   * @return The moment.
+   * @throws IllegalArgumentException If the parameter is missing or isn't a valid moment.
+   * @author Michael Ruberto
+   */
+  Instant getInstant(String name) throws IllegalArgumentException {
+    String value = get(name, String.class, "an ISO-8601 moment, such as 2024-01-31T12:00:00Z");
+    try {
+      return Instant.parse(value);
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("The parameter '" + name
+          + "' must be an ISO-8601 moment, such as 2024-01-31T12:00:00Z.");
+    }
+  }
+
+  /**
+   * Gets the value of an array of whole numbers.
+   *
+   * @param name The parameter's name.
+   * @return The numbers.
+   * @throws IllegalArgumentException If the parameter is missing or isn't an array of whole
+   *                                  numbers which fit in an {@code int}.
+   * @author Michael Ruberto
+   */
+  int[] getIntArray(String name) throws IllegalArgumentException {
+    List<?> elements = get(name, List.class, "an array");
+    int[] numbers = new int[elements.size()];
+    for (int i = 0; i < numbers.length; i++) {
+      if (!(elements.get(i) instanceof Double)) {
+        throw new IllegalArgumentException("The parameter '" + name
+            + "' must only hold numbers.");
+      }
+      numbers[i] = toInt(name, (Double) elements.get(i));
+    }
+    return numbers;
+  }
+
+  /**
+   * Gets the value of an array of strings.
+   *
+   * @param name The parameter's name.
+   * @return The strings.
+   * @throws IllegalArgumentException If the parameter is missing or isn't an array of strings.
+   * @author Michael Ruberto
+   */
+  List<String> getStrings(String name) throws IllegalArgumentException {
+    List<?> elements = get(name, List.class, "an array");
+    List<String> strings = new ArrayList<String>(elements.size());
+    for (Object element : elements) {
+      if (!(element instanceof String)) {
+        throw new IllegalArgumentException("The parameter '" + name
+            + "' must only hold strings.");
+      }
+      strings.add((String) element);
+    }
+    return strings;
+  }
+
+  /**
+   * Gets the value of an array of objects, each of which holds parameters of its own.
+   *
+   * @param name The parameter's name.
+   * @return The parameters held in each object.
+   * @throws IllegalArgumentException If the parameter is missing or isn't an array of objects.
+   * @author Michael Ruberto
+   */
+  @SuppressWarnings("unchecked")
+  List<Parameters> getObjects(String name) throws IllegalArgumentException {
+    List<?> elements = get(name, List.class, "an array");
+    List<Parameters> objects = new ArrayList<Parameters>(elements.size());
+    for (Object element : elements) {
+      if (!(element instanceof Map)) {
+        throw new IllegalArgumentException("The parameter '" + name
+            + "' must only hold objects.");
+      }
+      objects.add(new Parameters((Map<String, Object>) element));
+    }
+    return objects;
+  }
+
+  // Converts the value of the given parameter to an int, which it must be exactly.
+  private static int toInt(String name, double value) throws IllegalArgumentException {
+    if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The parameter '" + name
+          + "' must be a whole number.");
+    }
+    return (int) value;
+  }
+}
@@ -0,0 +1,403 @@
+package model.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import model.ChangeEvent;
+import model.HRSession;
+import model.ModelSnapshot;
+import model.PayrollSummary;
+import model.Transaction;
+import model.UserAttribute;
+import model.UserQuery;
+import model.UserState;
+import model.users.IUser;
+import model.users.Role;
+import model.users.SalaryChange;
+
+/**
+ * The operations of the {@link model.IHumanResourcesModel} interface which the {@link HRService}
+ * answers with a single JSON response, each named after the method it calls, along with the JSON
+ * form of every value they return. Each operation reads its arguments from the request's {@link
+ * Parameters}, named after the method's parameters, and calls the method on the caller's session.
+ * <p>
+ * Two of the interface's operations hand back objects which live on after the call, so over HTTP
+ * they are made whole within one request instead: {@code transaction} stages a list of steps on a
+ * {@link Transaction} and commits it, and {@code snapshot} reads every user through a {@link
+ * ModelSnapshot} and closes it.
+ *
+ * @author Michael Ruberto
+ */
+final class ServiceOperations {
+
+  /**
+   * One operation, which calls the model on behalf of a session.
+   */
+  @FunctionalInterface
+  interface IOperation {
+
+    /**
+     * Calls the operation.
+     *
+     * @param session    The caller's session.
+     * @param parameters The call's parameters.
+     * @return The result, as something {@link Json#write(Object)} can write, or {@code null} if
+     *     the operation doesn't return anything.
+     * @throws IllegalArgumentException If a parameter is missing or invalid.
+     * @throws IllegalStateException    If the model refuses the call.
+     * @author Michael Ruberto
+     */
+    Object call(HRSession session, Parameters parameters)
+        throws IllegalArgumentException, IllegalStateException;
+  }
+
+  private static final Map<String, IOperation> OPERATIONS = operations();
+
+  private ServiceOperations() {
+  }
+
+  /**
+   * Gets the operation with the given name.
+   *
+   * @param name The operation's name.
+   * @return The operation, or {@code null} if there is none with that name.
+   * @author Michael Ruberto
+   */
+  static IOperation get(String name) {
+    return OPERATIONS.get(name);
+  }
+
+  // Builds the table of operations by name.
+  private static Map<String, IOperation> operations() {
+    Map<String, IOperation> operations = new HashMap<String, IOperation>();
+    operations.put("changeHRStatus", (session, p) -> {
+      session.changeHRStatus(p.getInt("id"), p.getBoolean("inHumanResources"));
+      return null;
+    });
+    operations.put("addEmployee", (session, p) -> {
+      session.addEmployee(p.getString("employeeType"), p.getString("name"),
+          p.getString("password"), p.getDouble("salary"), p.getInt("vacationBalance"),
+          p.getDouble("annualBonus"), p.getBoolean("inHumanResources"));
+      return null;
+    });
+    operations.put("addAdministrator", (session, p) -> {
+      session.addAdministrator(p.getString("name"), p.getString("password"));
+      return null;
+    });
+    operations.put("removeUser", (session, p) -> user(session.removeUser(p.getInt("id"))));
+    operations.put("linkEmployeeAndManager", (session, p) -> {
+      session.linkEmployeeAndManager(p.getInt("employeeID"), p.getInt("managerID"));
+      return null;
+    });
+    operations.put("promoteToManager", (session, p) -> {
+      session.promoteToManager(p.getInt("id"));
+      return null;
+    });
+    operations.put("demoteToStandard", (session, p) -> {
+      session.demoteToStandard(p.getInt("id"));
+      return null;
+    });
+    operations.put("reassignReports", (session, p) -> {
+      session.reassignReports(p.getInt("fromManagerID"), p.getInt("toManagerID"));
+      return null;
+    });
+    operations.put("mergeTeams", (session, p) -> {
+      session.mergeTeams(p.getInt("absorbingManagerID"), p.getInt("mergedManagerID"));
+      return null;
+    });
+    operations.put("moveSubtrees", (session, p) -> {
+      session.moveSubtrees(p.getIntArray("employeeIDs"), p.getInt("managerID"));
+      return null;
+    });
+    operations.put("getSalary", (session, p) -> session.getSalary(p.getInt("id")));
+    operations.put("setSalary", (session, p) -> {
+      session.setSalary(p.getInt("id"), p.getDouble("salary"));
+      return null;
+    });
+    operations.put("getSalaryHistory",
+        (session, p) -> session.getSalaryHistory(p.getInt("id")).toArray());
+    operations.put("getSalaryAsOf",
+        (session, p) -> session.getSalaryAsOf(p.getInt("id"), p.getInstant("time")));
+    operations.put("getSalaryChanges", (session, p) -> session.getSalaryChanges(p.getInt("id"),
+        p.getInstant("from"), p.getInstant("to")).stream().map(ServiceOperations::change)
+        .collect(Collectors.toList()));
+    operations.put("getVacationBalance",
+        (session, p) -> session.getVacationBalance(p.getInt("id")));
+    operations.put("setVacationBalance", (session, p) -> {
+      session.setVacationBalance(p.getInt("id"), p.getInt("vacationBalance"));
+      return null;
+    });
+    operations.put("getAnnualBonus", (session, p) -> session.getAnnualBonus(p.getInt("id")));
+    operations.put("setAnnualBonus", (session, p) -> {
+      session.setAnnualBonus(p.getInt("id"), p.getDouble("annualBonus"));
+      return null;
+    });
+    operations.put("summarizePayroll", (session, p) -> summary(session.summarizePayroll(
+        p.getOptionalString("employeeType"), p.getOptionalBoolean("inHumanResources"))));
+    operations.put("findUsersByName",
+        (session, p) -> session.findUsersByName(p.getString("prefix")));
+    operations.put("findUsersWithRoles",
+        (session, p) -> session.findUsersWithRoles(roles(p, "roles")));
+    operations.put("findEmployeesBySalary",
+        (session, p) -> session.findEmployeesBySalary(p.getDouble("min"), p.getDouble("max")));
+    operations.put("findEmployeesByAnnualBonus", (session, p) -> session
+        .findEmployeesByAnnualBonus(p.getDouble("min"), p.getDouble("max")));
+    operations.put("findEmployeesByVacationBalance", (session, p) -> session
+        .findEmployeesByVacationBalance(p.getInt("min"), p.getInt("max")));
+    operations.put("findUsers", ServiceOperations::findUsers);
+    operations.put("transaction", ServiceOperations::transaction);
+    operations.put("snapshot", ServiceOperations::snapshot);
+    return Collections.unmodifiableMap(operations);
+  }
+
+  // Finds the users matching the query described by the parameters, and returns them along with
+  // the cursor of the next page, if the page was full.
+  private static Object findUsers(HRSession session, Parameters p)
+      throws IllegalArgumentException, IllegalStateException {
+    UserQuery query = UserQuery.all();
+    if (p.has("namePrefix")) {
+      query = query.withNamePrefix(p.getString("namePrefix"));
+    }
+    if (p.has("withRoles")) {
+      query = query.withRoles(roles(p, "withRoles"));
+    }
+    if (p.has("withoutRoles")) {
+      query = query.withoutRoles(roles(p, "withoutRoles"));
+    }
+    if (p.has("underManager")) {
+      query = query.underManager(p.getInt("underManager"));
+    }
+    if (p.has("reportingTo")) {
+      query = query.reportingTo(p.getInt("reportingTo"));
+    }
+    if (p.has("between")) {
+      for (Parameters range : p.getObjects("between")) {
+        query = query.between(attribute(range, "attribute"), range.getDouble("min"),
+            range.getDouble("max"));
+      }
+    }
+    if (p.has("sortedBy")) {
+      query = query.sortedBy(attribute(p, "sortedBy"));
+    }
+    if (p.has("limit")) {
+      query = query.limit(p.getInt("limit"));
+    }
+    if (p.has("after")) {
+      query = query.after(p.getString("after"));
+    }
+
+    List<IUser> found = session.findUsers(query).collect(Collectors.toList());
+    Map<String, Object> page = new LinkedHashMap<String, Object>();
+    page.put("users", found.stream().map(ServiceOperations::user).collect(Collectors.toList()));
+    page.put("next", found.isEmpty() || found.size() < query.getLimit() ? null
+        : query.cursorAfter(found.get(found.size() - 1)));
+    return page;
+  }
+
+  // Stages each of the steps given in the parameters on a new transaction, and commits it.
+  private static Object transaction(HRSession session, Parameters p)
+      throws IllegalArgumentException, IllegalStateException {
+    List<Parameters> steps = p.getObjects("steps");
+    try (Transaction transaction = session.beginTransaction()) {
+      for (Parameters step : steps) {
+        String operation = step.getString("operation");
+        switch (operation) {
+          case "setSalary":
+            transaction.setSalary(step.getInt("id"), step.getDouble("salary"));
+            break;
+          case "setVacationBalance":
+            transaction.setVacationBalance(step.getInt("id"), step.getInt("vacationBalance"));
+            break;
+          case "setAnnualBonus":
+            transaction.setAnnualBonus(step.getInt("id"), step.getDouble("annualBonus"));
+            break;
+          case "changeHRStatus":
+            transaction.changeHRStatus(step.getInt("id"), step.getBoolean("inHumanResources"));
+            break;
+          case "linkEmployeeAndManager":
+            transaction.linkEmployeeAndManager(step.getInt("employeeID"),
+                step.getInt("managerID"));
+            break;
+          default:
+            throw new IllegalArgumentException(
+                "Transactions can't include the operation '" + operation + "'.");
+        }
+      }
+      transaction.commit();
+      return steps.size();
+    }
+  }
+
+  // Reads every user through a new snapshot, which is closed again before returning.
+  private static Object snapshot(HRSession session, Parameters p)
+      throws IllegalStateException {
+    try (ModelSnapshot snapshot = session.openSnapshot()) {
+      Map<String, Object> result = new LinkedHashMap<String, Object>();
+      result.put("sequence", snapshot.getSequence());
+      result.put("users", snapshot.users().map(ServiceOperations::state)
+          .collect(Collectors.toList()));
+      return result;
+    }
+  }
+
+  // Reads the roles named in the given parameter.
+  private static Role[] roles(Parameters p, String name) throws IllegalArgumentException {
+    List<String> names = p.getStrings(name);
+    Role[] roles = new Role[names.size()];
+    for (int i = 0; i < roles.length; i++) {
+      roles[i] = named(Role.class, name, names.get(i));
+    }
+    return roles;
+  }
+
+  // Reads the user attribute named in the given parameter.
+  private static UserAttribute attribute(Parameters p, String name)
+      throws IllegalArgumentException {
+    return named(UserAttribute.class, name, p.getString(name));
+  }
+
+  /**
+   * Gets the constant of the given enum with the given name, as given in the named parameter.
+   *
+   * @param type      The enum.
+   * @param parameter The name of the parameter the constant was given in.
+   * @param name      The constant's name.
+   * @param <E>       The type of the enum.
+   * @return The constant.
+   * @throws IllegalArgumentException If the enum has no constant with that name.
+   * @author Michael Ruberto
+   */
+  static <E extends Enum<E>> E named(Class<E> type, String parameter, String name)
+      throws IllegalArgumentException {
+    try {
+      return Enum.valueOf(type, name);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "The parameter '" + parameter + "' holds an unknown value '" + name + "'.");
+    }
+  }
+
+  // Gets the names of the roles in the given bitmask.
+  private static List<String> roleNames(int roles) {
+    List<String> names = new ArrayList<String>();
+    for (Role role : Role.values()) {
+      if (role.in(roles)) {
+        names.add(role.name());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Gets the JSON form of the given user.
+   *
+   * @param user The user.
+   * @return The user's information, leaving out their password.
+   * @author Michael Ruberto
+   */
+  static Map<String, Object> user(IUser user) {
+    Map<String, Object> json = new LinkedHashMap<String, Object>();
+    json.put("id", user.getId());
+    json.put("name", user.getName());
+    json.put("roles", roleNames(user.getRoles()));
+    if (user.hasRole(Role.EMPLOYEE)) {
+      json.put("salary", user.getSalary());
+      json.put("vacationBalance", user.getVacationBalance());
+      json.put("annualBonus", user.getAnnualBonus());
+      json.put("managerId", user.hasManager() ? user.getManagerId() : null);
+    }
+    return json;
+  }
+
+  // Gets the JSON form of the given user state, laid out as for a user.
+  private static Map<String, Object> state(UserState state) {
+    Map<String, Object> json = new LinkedHashMap<String, Object>();
+    json.put("id", state.getId());
+    json.put("name", state.getName());
+    json.put("roles", roleNames(state.getRoles()));
+    if (state.hasRole(Role.EMPLOYEE)) {
+      json.put("salary", state.getSalary());
+      json.put("vacationBalance", state.getVacationBalance());
+      json.put("annualBonus", state.getAnnualBonus());
+      json.put("managerId", state.hasManager() ? state.getManagerId() : null);
+    }
+    return json;
+  }
+
+  // Gets the JSON form of the given salary change.
+  private static Map<String, Object> change(SalaryChange change) {
+    Map<String, Object> json = new LinkedHashMap<String, Object>();
+    json.put("time", change.getTime().toString());
+    json.put("amount", change.getAmount());
+    return json;
+  }
+
+  // Gets the JSON form of the given payroll summary.
+  private static Map<String, Object> summary(PayrollSummary summary) {
+    Map<String, Object> json = new LinkedHashMap<String, Object>();
+    json.put("headcount", summary.getHeadcount());
+    json.put("totalSalary", summary.getTotalSalary());
+    json.put("meanSalary", summary.getMeanSalary());
+    json.put("minSalary", summary.getMinSalary());
+    json.put("maxSalary", summary.getMaxSalary());
+    json.put("totalAnnualBonus", summary.getTotalAnnualBonus());
+    json.put("totalVacationBalance", summary.getTotalVacationBalance());
+    return json;
+  }
+
+  /**
+   * Gets the JSON form of the given change event.
+   *
+   * @param event The event.
+   * @return The event's information.
+   * @author Michael Ruberto
+   */
+  static Map<String, Object> event(ChangeEvent event) {
+    Map<String, Object> json = new LinkedHashMap<String, Object>();
+    json.put("sequence", event.getSequence());
+    json.put("type", event.getType().name());
+    json.put("userId", event.getUserId());
+    json.put("time", event.getTime().toString());
+    switch (event.getType()) {
+      case EMPLOYEE_ADDED:
+        json.put("name", event.getName());
+        json.put("manager", event.isManager());
+        json.put("salary", event.getSalary());
+        json.put("vacationBalance", event.getVacationBalance());
+        json.put("annualBonus", event.getAnnualBonus());
+        json.put("inHumanResources", event.isInHumanResources());
+        break;
+      case ADMINISTRATOR_ADDED:
+        json.put("name", event.getName());
+        break;
+      case EMPLOYEE_LINKED:
+      case REPORTS_REASSIGNED:
+      case TEAMS_MERGED:
+        json.put("managerId", event.getManagerId());
+        break;
+      case SUBTREES_MOVED:
+        json.put("managerId", event.getManagerId());
+        json.put("movedIds", event.getMovedIds());
+        break;
+      case HR_STATUS_CHANGED:
+        json.put("inHumanResources", event.isInHumanResources());
+        break;
+      case SALARY_CHANGED:
+        json.put("salary", event.getSalary());
+        break;
+      case VACATION_BALANCE_CHANGED:
+        json.put("vacationBalance", event.getVacationBalance());
+        break;
+      case ANNUAL_BONUS_CHANGED:
+        json.put("annualBonus", event.getAnnualBonus());
+        break;
+      default:
+        break;
+    }
+    return json;
+  }
+}
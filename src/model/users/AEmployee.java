@@ -1,45 +1,82 @@
 package model.users;
 
-import java.util.ArrayList;
+import java.lang.invoke.VarHandle;
 
 /**
  * An abstract implementation of the {@link IUser} interface which represents an employee in the
  * application.
+ * <p>
+ * Employees are safe to share between threads. Every field can be read without locking, and
+ * writes which must happen together (such as recording the old salary in the salary history while
+ * setting the new one) are made while holding this employee's lock.
+ * <p>
+ * An employee can optionally be attached to an {@link EmployeeColumns} store, in which case their
+ * salary, vacation balance, annual bonus, Human Resources status and manager ID are kept in the
+ * store's columns instead of in this object.
  *
  * @author Michael Ruberto
  */
 public abstract class AEmployee implements IUser {
 
-  private static int currentId = 1;
-  private int id;
+  private final int id;
   private String name;
   private String password;
-  private double salary;
-  private ArrayList<Double> salaryHistory;
-  private int vacationBalance;
-  private double annualBonus;
-  private boolean inHumanResources;
-  private Manager manager;
+  private volatile double salary;
+  private final SalaryTimeSeries salaryTimeSeries;
+  private final SalaryHistory salaryHistory;
+  private volatile int vacationBalance;
+  private volatile double annualBonus;
+  private volatile boolean inHumanResources;
+  private volatile Manager manager;
+  private volatile EmployeeColumns columns;
+  private int slot;
 
   /**
-   * Constructs an instance of an AEmployee. The IDs will be automatically assigned to the {@code
-   * currentId} value, which will then be incremented. Initially, the AEmployee will not report to
-   * any {@link Manager}.
+   * Constructs an instance of an AEmployee with the given ID, whose salary takes effect now.
+   * Initially, the AEmployee will not report to any {@link Manager}.
    *
+   * @param id               The ID of the employee, which must be positive.
    * @param name             The name of the employee.
    * @param password         The password of the employee.
    * @param salary           The salary of the employee.
    * @param vacationBalance  The vacation balance of the employee.
    * @param annualBonus      The annual bonus of the employee.
    * @param inHumanResources Whether or not the employee works in Human Resources.
-   * @throws IllegalArgumentException If name is {@code null}, or if password is {@code null} or
-   *                                  empty, or if any of the salary, vacationBalance, or
-   *                                  annualBonus is negative.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
    * @author Michael Ruberto
    */
-  public AEmployee(String name, String password, double salary, int vacationBalance,
+  public AEmployee(int id, String name, String password, double salary, int vacationBalance,
       double annualBonus, boolean inHumanResources) throws IllegalArgumentException {
+    this(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+        System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs an instance of an AEmployee with the given ID, whose salary took effect at the given
+   * moment. Initially, the AEmployee will not report to any {@link Manager}.
+   *
+   * @param id               The ID of the employee, which must be positive.
+   * @param name             The name of the employee.
+   * @param password         The password of the employee.
+   * @param salary           The salary of the employee.
+   * @param vacationBalance  The vacation balance of the employee.
+   * @param annualBonus      The annual bonus of the employee.
+   * @param inHumanResources Whether or not the employee works in Human Resources.
+   * @param salaryTimestamp  When the salary took effect, in milliseconds since the epoch.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
+   * @author Michael Ruberto
+   */
+  public AEmployee(int id, String name, String password, double salary, int vacationBalance,
+      double annualBonus, boolean inHumanResources, long salaryTimestamp)
+      throws IllegalArgumentException {
     //VALIDATE INPUTS
+    if (id < 1) {
+      throw new IllegalArgumentException("Employee IDs must be positive.");
+    }
     if (name == null) {
       throw new IllegalArgumentException("Name cannot be null.");
     }
@@ -51,13 +88,13 @@ public abstract class AEmployee implements IUser {
           "Salary, Vacation Balance, and Annual Bonus must be non-negative.");
     }
 
-    this.id = this.currentId;
-    this.currentId++;
-
+    this.id = id;
     this.name = name;
     this.password = password;
     this.salary = salary;
-    this.salaryHistory = new ArrayList<Double>();
+    this.salaryTimeSeries = new SalaryTimeSeries();
+    this.salaryTimeSeries.add(salaryTimestamp, salary);
+    this.salaryHistory = new SalaryHistory(salaryTimeSeries);
     this.vacationBalance = vacationBalance;
     this.annualBonus = annualBonus;
     this.inHumanResources = inHumanResources;
@@ -66,7 +103,8 @@ public abstract class AEmployee implements IUser {
 
   /**
    * Constructs a new instance of AEmployee from an existing instance by copying all of its
-   * information.
+   * information. If the existing employee is attached to a column store, the copy takes over their
+   * slot and the existing employee is detached, without the slot being released.
    *
    * @param emp The existing AEmployee to be copied.
    * @throws IllegalArgumentException The given AEmployee is null
@@ -76,28 +114,109 @@ public abstract class AEmployee implements IUser {
     if (emp == null) {
       throw new IllegalArgumentException("The given employee cannot be null.");
     }
-    this.id = emp.id;
-    this.name = emp.name;
-    this.password = emp.password;
-    this.salary = emp.salary;
-    this.salaryHistory = emp.salaryHistory;
-    this.vacationBalance = emp.vacationBalance;
-    this.annualBonus = emp.annualBonus;
-    this.inHumanResources = emp.inHumanResources;
-    this.manager = emp.manager;
+    synchronized (emp) {
+      this.id = emp.id;
+      this.name = emp.name;
+      this.password = emp.password;
+      this.salary = emp.salary;
+      this.salaryTimeSeries = emp.salaryTimeSeries;
+      this.salaryHistory = emp.salaryHistory;
+      this.vacationBalance = emp.vacationBalance;
+      this.annualBonus = emp.annualBonus;
+      this.inHumanResources = emp.inHumanResources;
+      this.manager = emp.manager;
+      this.slot = emp.slot;
+      this.columns = emp.columns;
+      if (columns != null) {
+        columns.setKind(slot, columnKind());
+        // The copy takes the slot over, and the original keeps its information as it is now, since
+        // the slot will be given to someone else once the copy is done with it
+        emp.salary = columns.getSalary(slot);
+        emp.vacationBalance = columns.getVacationBalance(slot);
+        emp.annualBonus = columns.getAnnualBonus(slot);
+        emp.inHumanResources = columns.isInHumanResources(slot);
+        emp.columns = null;
+      }
+    }
+  }
+
+  /**
+   * Attaches this employee to the given column store. A new slot is reserved for the employee and
+   * their current information is moved into it; from then on their information is read from and
+   * written to the store.
+   *
+   * @param columns The column store.
+   * @throws IllegalArgumentException If the given store is {@code null}.
+   * @throws IllegalStateException    If this employee is already attached to a column store.
+   * @author Michael Ruberto
+   */
+  public synchronized void attachColumns(EmployeeColumns columns)
+      throws IllegalArgumentException, IllegalStateException {
+    //VALIDATE INPUTS
+    if (columns == null) {
+      throw new IllegalArgumentException("The given column store cannot be null.");
+    }
+    if (this.columns != null) {
+      throw new IllegalStateException("This employee is already attached to a column store.");
+    }
+
+    int newSlot = columns.allocate(id);
+    columns.setSalary(newSlot, salary);
+    columns.setVacationBalance(newSlot, vacationBalance);
+    columns.setAnnualBonus(newSlot, annualBonus);
+    columns.setInHumanResources(newSlot, inHumanResources);
+    columns.setManagerId(newSlot, manager == null ? EmployeeColumns.NO_MANAGER : manager.getId());
+    // Setting the kind last makes the slot visible to scans only once it has been filled in
+    columns.setKind(newSlot, columnKind());
+
+    this.slot = newSlot;
+    this.columns = columns;
   }
 
   /**
-   * Changes {@code currentId} to the given value so that the next AEmployee created will have that
-   * ID.
+   * Detaches this employee from their column store, moving their information back into this object
+   * and releasing their slot. Does nothing if the employee is not attached to a column store.
    *
-   * @param id The next ID.
    * @author Michael Ruberto
    */
-  public static void setNextID(int id) {
-    currentId = id;
+  public synchronized void detachColumns() {
+    EmployeeColumns current = columns;
+    if (current == null) {
+      return;
+    }
+
+    salary = current.getSalary(slot);
+    vacationBalance = current.getVacationBalance(slot);
+    annualBonus = current.getAnnualBonus(slot);
+    inHumanResources = current.isInHumanResources(slot);
+    columns = null;
+    current.release(slot);
+  }
+
+  // Checks that this employee still held their slot in the given column store when a value was
+  // read from it without locking, since a slot may be given to someone else once it is released.
+  // If not, the value is read from this object, where detaching left it.
+  private boolean stillAttached(EmployeeColumns current) {
+    // Keeps the read of the value from being moved after the check, as in StampedLock.validate
+    VarHandle.acquireFence();
+    return columns == current;
   }
 
+  // Gets the kind of slot this employee occupies in a column store.
+  private int columnKind() {
+    return Role.MANAGER.in(getKindRoles()) ? EmployeeColumns.MANAGER
+        : EmployeeColumns.STANDARD_EMPLOYEE;
+  }
+
+  /**
+   * Gets the roles which come with this kind of employee, which don't change over the life of the
+   * object (unlike working in Human Resources).
+   *
+   * @return The bitmask of this kind of employee's roles.
+   * @author Michael Ruberto
+   */
+  protected abstract int getKindRoles();
+
   @Override
   public int getId() {
     return id;
@@ -113,69 +232,149 @@ public abstract class AEmployee implements IUser {
     return password.equals(guess);
   }
 
+  // Gets the (already hashed) password, so that it can be written to a snapshot.
+  String getHashedPassword() {
+    return password;
+  }
+
   @Override
   public String getUserType() {
     return "AEmployee";
   }
 
+  @Override
+  public int getRoles() {
+    return isInHumanResources() ? getKindRoles() | Role.HUMAN_RESOURCES.mask() : getKindRoles();
+  }
+
   @Override
   public double getSalary() {
+    EmployeeColumns current = columns;
+    if (current != null) {
+      double value = current.getSalary(slot);
+      if (stillAttached(current)) {
+        return value;
+      }
+    }
     return salary;
   }
 
   @Override
   public void setSalary(double salary) throws IllegalArgumentException {
+    setSalary(salary, System.currentTimeMillis());
+  }
+
+  @Override
+  public synchronized void setSalary(double salary, long timestamp)
+      throws IllegalArgumentException {
     //VALIDATE INPUTS
     if (salary < 0) {
       throw new IllegalArgumentException("Salary must be non-negative.");
     }
 
-    salaryHistory.add(this.salary);
-    this.salary = salary;
+    salaryTimeSeries.add(timestamp, salary);
+    EmployeeColumns current = columns;
+    if (current == null) {
+      this.salary = salary;
+    } else {
+      current.setSalary(slot, salary);
+    }
   }
 
   @Override
-  public ArrayList<Double> getSalaryHistory() {
+  public SalaryHistory getSalaryHistory() {
     return salaryHistory;
   }
 
+  @Override
+  public SalaryTimeSeries getSalaryTimeSeries() {
+    return salaryTimeSeries;
+  }
+
   @Override
   public int getVacationBalance() {
+    EmployeeColumns current = columns;
+    if (current != null) {
+      int value = current.getVacationBalance(slot);
+      if (stillAttached(current)) {
+        return value;
+      }
+    }
     return vacationBalance;
   }
 
   @Override
-  public void setVacationBalance(int vacationBalance) {
+  public synchronized void setVacationBalance(int vacationBalance) {
     //VALIDATE INPUTS
     if (vacationBalance < 0) {
       throw new IllegalArgumentException("Vacation Balance must be non-negative.");
     }
 
-    this.vacationBalance = vacationBalance;
+    EmployeeColumns current = columns;
+    if (current == null) {
+      this.vacationBalance = vacationBalance;
+    } else {
+      current.setVacationBalance(slot, vacationBalance);
+    }
   }
 
   @Override
   public double getAnnualBonus() {
+    EmployeeColumns current = columns;
+    if (current != null) {
+      double value = current.getAnnualBonus(slot);
+      if (stillAttached(current)) {
+        return value;
+      }
+    }
     return annualBonus;
   }
 
   @Override
-  public void setAnnualBonus(double annualBonus) {
+  public synchronized void setAnnualBonus(double annualBonus) {
     //VALIDATE INPUTS
     if (annualBonus < 0) {
       throw new IllegalArgumentException("Annual Bonus must be non-negative.");
     }
-    this.annualBonus = annualBonus;
+    EmployeeColumns current = columns;
+    if (current == null) {
+      this.annualBonus = annualBonus;
+    } else {
+      current.setAnnualBonus(slot, annualBonus);
+    }
   }
 
   @Override
   public boolean isInHumanResources() {
+    EmployeeColumns current = columns;
+    if (current != null) {
+      boolean value = current.isInHumanResources(slot);
+      if (stillAttached(current)) {
+        return value;
+      }
+    }
     return inHumanResources;
   }
 
   @Override
-  public void setInHumanResources(boolean inHumanResources) {
-    this.inHumanResources = inHumanResources;
+  public synchronized void setInHumanResources(boolean inHumanResources) {
+    EmployeeColumns current = columns;
+    if (current == null) {
+      this.inHumanResources = inHumanResources;
+    } else {
+      current.setInHumanResources(slot, inHumanResources);
+    }
+  }
+
+  @Override
+  public boolean hasManager() {
+    return manager != null;
+  }
+
+  @Override
+  public int getManagerId() {
+    Manager current = manager;
+    return current == null ? EmployeeColumns.NO_MANAGER : current.getId();
   }
 
   @Override
@@ -187,7 +386,12 @@ public abstract class AEmployee implements IUser {
   }
 
   @Override
-  public void setManager(Manager manager) {
+  public synchronized void setManager(Manager manager) {
     this.manager = manager;
+    EmployeeColumns current = columns;
+    if (current != null) {
+      current.setManagerId(slot,
+          manager == null ? EmployeeColumns.NO_MANAGER : manager.getId());
+    }
   }
 }
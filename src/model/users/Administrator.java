@@ -13,22 +13,27 @@ package model.users;
  */
 public class Administrator implements IUser {
 
-  private static int currentId = 0;
-  private int id;
+  private static final int ROLES = Role.ADMINISTRATOR.mask();
+
+  private final int id;
   private String name;
   private String password;
 
   /**
-   * Constructs an instance of an Administrator. The IDs will be automatically assigned to the
-   * {@code currentId} value, which will then be decremented.
+   * Constructs an instance of an Administrator with the given ID.
    *
+   * @param id       The ID of this administrator, which must not be positive.
    * @param name     The name of this administrator.
    * @param password The password for this administrator.
-   * @throws IllegalArgumentException If the name is null or the password is null or empty.
+   * @throws IllegalArgumentException If the ID is positive, or if the name is null or the password
+   *                                  is null or empty.
    * @author Michael Ruberto
    */
-  public Administrator(String name, String password) throws IllegalArgumentException {
+  public Administrator(int id, String name, String password) throws IllegalArgumentException {
     //VALIDATE INPUTS
+    if (id > 0) {
+      throw new IllegalArgumentException("Administrator IDs must not be positive.");
+    }
     if (name == null) {
       throw new IllegalArgumentException("Name cannot be null.");
     }
@@ -36,24 +41,11 @@ public class Administrator implements IUser {
       throw new IllegalArgumentException("Password must be a non-empty String.");
     }
 
-    this.id = this.currentId;
-    this.currentId--;
-
+    this.id = id;
     this.name = name;
     this.password = password;
   }
 
-  /**
-   * Changes {@code currentId} to the given value so that the next Administrator created will have
-   * that ID.
-   *
-   * @param id The next ID.
-   * @author Michael Ruberto
-   */
-  public static void setNextID(int id) {
-    currentId = id;
-  }
-
   @Override
   public int getId() {
     return id;
@@ -69,11 +61,21 @@ public class Administrator implements IUser {
     return password.equals(guess);
   }
 
+  // Gets the (already hashed) password, so that it can be written to a snapshot.
+  String getHashedPassword() {
+    return password;
+  }
+
   @Override
   public String getUserType() {
     return "Administrator";
   }
 
+  @Override
+  public int getRoles() {
+    return ROLES;
+  }
+
   @Override
   public boolean isInHumanResources() {
     return false;
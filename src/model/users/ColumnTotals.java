@@ -0,0 +1,136 @@
+package model.users;
+
+/**
+ * A mutable running total of the employees visited by a scan of {@link EmployeeColumns}: how many
+ * there were, the sum, minimum and maximum of their salaries, and the sums of their annual bonuses
+ * and vacation balances. Totals for separate parts of a scan can be combined with {@link
+ * #add(ColumnTotals)}, so a large scan can be split up and run in parallel.
+ *
+ * @author Michael Ruberto
+ */
+public final class ColumnTotals {
+
+  private int count;
+  private double salarySum;
+  private double salaryMin;
+  private double salaryMax;
+  private double annualBonusSum;
+  private long vacationBalanceSum;
+
+  /**
+   * Constructs an empty set of totals.
+   *
+   * @author Michael Ruberto
+   */
+  public ColumnTotals() {
+    this.count = 0;
+    this.salarySum = 0;
+    this.salaryMin = Double.POSITIVE_INFINITY;
+    this.salaryMax = Double.NEGATIVE_INFINITY;
+    this.annualBonusSum = 0;
+    this.vacationBalanceSum = 0;
+  }
+
+  /**
+   * Adds a single employee to these totals.
+   *
+   * @param salary          The employee's salary.
+   * @param vacationBalance The employee's vacation balance.
+   * @param annualBonus     The employee's annual bonus.
+   * @author Michael Ruberto
+   */
+  public void add(double salary, int vacationBalance, double annualBonus) {
+    count++;
+    salarySum += salary;
+    salaryMin = Math.min(salaryMin, salary);
+    salaryMax = Math.max(salaryMax, salary);
+    annualBonusSum += annualBonus;
+    vacationBalanceSum += vacationBalance;
+  }
+
+  /**
+   * Adds the given totals to these totals.
+   *
+   * @param other The totals to be added.
+   * @author Michael Ruberto
+   */
+  public void add(ColumnTotals other) {
+    count += other.count;
+    salarySum += other.salarySum;
+    salaryMin = Math.min(salaryMin, other.salaryMin);
+    salaryMax = Math.max(salaryMax, other.salaryMax);
+    annualBonusSum += other.annualBonusSum;
+    vacationBalanceSum += other.vacationBalanceSum;
+  }
+
+  // Adds a block of employees whose salaries have already been summed up by the caller.
+  void add(int count, double salarySum, double salaryMin, double salaryMax, double annualBonusSum,
+      long vacationBalanceSum) {
+    this.count += count;
+    this.salarySum += salarySum;
+    this.salaryMin = Math.min(this.salaryMin, salaryMin);
+    this.salaryMax = Math.max(this.salaryMax, salaryMax);
+    this.annualBonusSum += annualBonusSum;
+    this.vacationBalanceSum += vacationBalanceSum;
+  }
+
+  /**
+   * Gets the number of employees counted.
+   *
+   * @return The number of employees.
+   * @author Michael Ruberto
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the sum of the salaries counted.
+   *
+   * @return The total salary.
+   * @author Michael Ruberto
+   */
+  public double getSalarySum() {
+    return salarySum;
+  }
+
+  /**
+   * Gets the smallest salary counted.
+   *
+   * @return The minimum salary, or {@code NaN} if no employees were counted.
+   * @author Michael Ruberto
+   */
+  public double getSalaryMin() {
+    return count == 0 ? Double.NaN : salaryMin;
+  }
+
+  /**
+   * Gets the largest salary counted.
+   *
+   * @return The maximum salary, or {@code NaN} if no employees were counted.
+   * @author Michael Ruberto
+   */
+  public double getSalaryMax() {
+    return count == 0 ? Double.NaN : salaryMax;
+  }
+
+  /**
+   * Gets the sum of the annual bonuses counted.
+   *
+   * @return The total annual bonus.
+   * @author Michael Ruberto
+   */
+  public double getAnnualBonusSum() {
+    return annualBonusSum;
+  }
+
+  /**
+   * Gets the sum of the vacation balances counted.
+   *
+   * @return The total vacation balance.
+   * @author Michael Ruberto
+   */
+  public long getVacationBalanceSum() {
+    return vacationBalanceSum;
+  }
+}
@@ -0,0 +1,290 @@
+package model.users;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A column store for the numeric information of {@link AEmployee}s. Instead of each employee
+ * keeping their salary, vacation balance, annual bonus, Human Resources status and manager in their
+ * own object, the values for every employee are kept side by side in parallel primitive arrays,
+ * indexed by a dense "slot" number given to each employee when they are added. An employee who has
+ * been attached to a column store (see {@link AEmployee#attachColumns(EmployeeColumns)}) acts as a
+ * lightweight view of their slot.
+ * <p>
+ * Keeping each value in its own array means that a scan over the whole company, such as adding up
+ * the payroll, reads memory sequentially and touches nothing but the values it needs. See {@link
+ * #scan(int, int, int, int, ColumnTotals)}.
+ * <p>
+ * The arrays are split into fixed-size pages which never move once created, so the store can grow
+ * without copying (or losing concurrent writes to) existing values. Single values are read and
+ * written with acquire/release semantics so that they can be shared between threads without
+ * locking; each slot is only ever written by its employee while holding that employee's lock.
+ * <p>
+ * A removed employee's slot stops being counted by scans at once, and is given to the next employee
+ * added, so that the columns (and every scan) stay as long as the most employees there have been at
+ * once rather than growing with every removal. The new employee's information is written before
+ * their kind, just as for a new slot, so a scan never counts the slot half filled in; like any
+ * change, a slot changing hands while a scan runs may or may not be seen by it.
+ *
+ * @author Michael Ruberto
+ */
+public final class EmployeeColumns {
+
+  /**
+   * The manager ID stored for an employee who doesn't report to anyone. No employee has this ID,
+   * as employee IDs start at 1.
+   */
+  public static final int NO_MANAGER = 0;
+
+  /**
+   * The bits of a slot's flags which hold the kind of employee in that slot.
+   */
+  public static final int KIND_MASK = 3;
+
+  /**
+   * The kind of a slot holding a {@link StandardEmployee}.
+   */
+  public static final int STANDARD_EMPLOYEE = 1;
+
+  /**
+   * The kind of a slot holding a {@link Manager}.
+   */
+  public static final int MANAGER = 2;
+
+  /**
+   * The flag bit which is set for employees who work in Human Resources.
+   */
+  public static final int IN_HUMAN_RESOURCES = 4;
+
+  private static final int FREE = 0;
+  private static final int PAGE_BITS = 14;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+  private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+  private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+
+  private volatile Page[] pages;
+  private volatile int size;
+  // The slots which have been released and not yet given out again, as a stack. Guarded by this.
+  private int[] freeSlots;
+  private int freeCount;
+
+  /**
+   * Constructs an empty column store.
+   *
+   * @author Michael Ruberto
+   */
+  public EmployeeColumns() {
+    this.pages = new Page[0];
+    this.size = 0;
+    this.freeSlots = new int[16];
+    this.freeCount = 0;
+  }
+
+  // One page of every column.
+  private static final class Page {
+
+    final int[] ids = new int[PAGE_SIZE];
+    final byte[] flags = new byte[PAGE_SIZE];
+    final double[] salaries = new double[PAGE_SIZE];
+    final int[] vacationBalances = new int[PAGE_SIZE];
+    final double[] annualBonuses = new double[PAGE_SIZE];
+    final int[] managerIds = new int[PAGE_SIZE];
+  }
+
+  /**
+   * Reserves a slot for the employee with the given ID, reusing the most recently released one if
+   * there is any. The slot is not counted by scans until its kind has been set.
+   *
+   * @param id The ID of the employee.
+   * @return The slot.
+   * @author Michael Ruberto
+   */
+  synchronized int allocate(int id) {
+    if (freeCount > 0) {
+      int slot = freeSlots[--freeCount];
+      page(slot).ids[slot & PAGE_MASK] = id;
+      return slot;
+    }
+    int slot = size;
+    Page[] directory = pages;
+    if (slot >>> PAGE_BITS == directory.length) {
+      Page[] grown = new Page[directory.length + 1];
+      System.arraycopy(directory, 0, grown, 0, directory.length);
+      grown[directory.length] = new Page();
+      pages = grown;
+      directory = grown;
+    }
+    directory[slot >>> PAGE_BITS].ids[slot & PAGE_MASK] = id;
+    size = slot + 1;
+    return slot;
+  }
+
+  /**
+   * Releases the given slot so that it is no longer counted by scans, and can be given to another
+   * employee. Whoever held the slot must not use it again.
+   *
+   * @param slot The slot to be released.
+   * @author Michael Ruberto
+   */
+  synchronized void release(int slot) {
+    BYTES.setRelease(page(slot).flags, slot & PAGE_MASK, (byte) FREE);
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+    }
+    freeSlots[freeCount++] = slot;
+  }
+
+  private Page page(int slot) {
+    return pages[slot >>> PAGE_BITS];
+  }
+
+  /**
+   * Gets one past the highest slot which has ever been given out. Every slot in use is less than
+   * this, and, since released slots are given out again first, it is never more than the most
+   * employees who have been attached at once.
+   *
+   * @return The number of slots.
+   * @author Michael Ruberto
+   */
+  public int getSlotCount() {
+    return size;
+  }
+
+  /**
+   * Gets the ID of the employee in the given slot.
+   *
+   * @param slot The slot.
+   * @return The employee's ID.
+   * @author Michael Ruberto
+   */
+  public int getId(int slot) {
+    return page(slot).ids[slot & PAGE_MASK];
+  }
+
+  /**
+   * Gets the flags of the given slot: its kind ({@link #STANDARD_EMPLOYEE}, {@link #MANAGER}, or 0
+   * if the slot is not in use) and whether the employee works in Human Resources ({@link
+   * #IN_HUMAN_RESOURCES}).
+   *
+   * @param slot The slot.
+   * @return The slot's flags.
+   * @author Michael Ruberto
+   */
+  public int getFlags(int slot) {
+    return (byte) BYTES.getAcquire(page(slot).flags, slot & PAGE_MASK);
+  }
+
+  void setKind(int slot, int kind) {
+    Page page = page(slot);
+    int flags = (byte) BYTES.getAcquire(page.flags, slot & PAGE_MASK);
+    BYTES.setRelease(page.flags, slot & PAGE_MASK, (byte) ((flags & ~KIND_MASK) | kind));
+  }
+
+  boolean isInHumanResources(int slot) {
+    return (getFlags(slot) & IN_HUMAN_RESOURCES) != 0;
+  }
+
+  void setInHumanResources(int slot, boolean inHumanResources) {
+    Page page = page(slot);
+    int flags = (byte) BYTES.getAcquire(page.flags, slot & PAGE_MASK);
+    flags = inHumanResources ? flags | IN_HUMAN_RESOURCES : flags & ~IN_HUMAN_RESOURCES;
+    BYTES.setRelease(page.flags, slot & PAGE_MASK, (byte) flags);
+  }
+
+  double getSalary(int slot) {
+    return (double) DOUBLES.getAcquire(page(slot).salaries, slot & PAGE_MASK);
+  }
+
+  void setSalary(int slot, double salary) {
+    DOUBLES.setRelease(page(slot).salaries, slot & PAGE_MASK, salary);
+  }
+
+  int getVacationBalance(int slot) {
+    return (int) INTS.getAcquire(page(slot).vacationBalances, slot & PAGE_MASK);
+  }
+
+  void setVacationBalance(int slot, int vacationBalance) {
+    INTS.setRelease(page(slot).vacationBalances, slot & PAGE_MASK, vacationBalance);
+  }
+
+  double getAnnualBonus(int slot) {
+    return (double) DOUBLES.getAcquire(page(slot).annualBonuses, slot & PAGE_MASK);
+  }
+
+  void setAnnualBonus(int slot, double annualBonus) {
+    DOUBLES.setRelease(page(slot).annualBonuses, slot & PAGE_MASK, annualBonus);
+  }
+
+  /**
+   * Gets the ID of the manager of the employee in the given slot.
+   *
+   * @param slot The slot.
+   * @return The manager's ID, or {@link #NO_MANAGER} if the employee has no manager.
+   * @author Michael Ruberto
+   */
+  public int getManagerId(int slot) {
+    return (int) INTS.getAcquire(page(slot).managerIds, slot & PAGE_MASK);
+  }
+
+  void setManagerId(int slot, int managerId) {
+    INTS.setRelease(page(slot).managerIds, slot & PAGE_MASK, managerId);
+  }
+
+  /**
+   * Adds every employee in slots {@code fromSlot} (inclusive) to {@code toSlot} (exclusive) whose
+   * flags match the given filter to the given totals. An employee matches if {@code (flags & mask)
+   * == match}; for example, a mask of {@link #KIND_MASK} {@code |} {@link #IN_HUMAN_RESOURCES} and
+   * a match of {@link #MANAGER} counts only the managers who don't work in Human Resources, and a
+   * mask and match of 0 counts everyone. Slots which are not in use are always skipped.
+   * <p>
+   * The scan walks each column page by page with plain array reads, so it sees every change made
+   * before it started but may or may not see changes made while it is running.
+   *
+   * @param fromSlot The first slot to scan.
+   * @param toSlot   One past the last slot to scan. Slots past {@link #getSlotCount()} are ignored.
+   * @param mask     The flag bits to be compared.
+   * @param match    The value those bits must have.
+   * @param totals   The totals to which matching employees are added.
+   * @author Michael Ruberto
+   */
+  public void scan(int fromSlot, int toSlot, int mask, int match, ColumnTotals totals) {
+    Page[] directory = pages;
+    int end = Math.min(toSlot, size);
+    int slot = Math.max(fromSlot, 0);
+
+    while (slot < end) {
+      Page page = directory[slot >>> PAGE_BITS];
+      int first = slot & PAGE_MASK;
+      int last = Math.min(PAGE_SIZE, first + (end - slot));
+      byte[] flags = page.flags;
+      double[] salaries = page.salaries;
+      int[] vacationBalances = page.vacationBalances;
+      double[] annualBonuses = page.annualBonuses;
+
+      int count = 0;
+      double salarySum = 0;
+      double salaryMin = Double.POSITIVE_INFINITY;
+      double salaryMax = Double.NEGATIVE_INFINITY;
+      double annualBonusSum = 0;
+      long vacationBalanceSum = 0;
+      for (int i = first; i < last; i++) {
+        int flag = flags[i];
+        if ((flag & KIND_MASK) != FREE && (flag & mask) == match) {
+          double salary = salaries[i];
+          count++;
+          salarySum += salary;
+          salaryMin = Math.min(salaryMin, salary);
+          salaryMax = Math.max(salaryMax, salary);
+          annualBonusSum += annualBonuses[i];
+          vacationBalanceSum += vacationBalances[i];
+        }
+      }
+      totals.add(count, salarySum, salaryMin, salaryMax, annualBonusSum, vacationBalanceSum);
+      slot += last - first;
+    }
+  }
+}
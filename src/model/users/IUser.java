@@ -1,7 +1,5 @@
 package model.users;
 
-import java.util.ArrayList;
-
 /**
  * An {@code interface} which represents a user account for a Human Resources application.
  *
@@ -41,6 +39,25 @@ public interface IUser {
    */
   String getUserType();
 
+  /**
+   * Gets the roles this user holds, as a bitmask of {@link Role#mask()} bits.
+   *
+   * @return The user's roles.
+   * @author Michael Ruberto
+   */
+  int getRoles();
+
+  /**
+   * Does this user hold the given role?
+   *
+   * @param role The role.
+   * @return Whether or not the user holds the role.
+   * @author Michael Ruberto
+   */
+  default boolean hasRole(Role role) {
+    return role.in(getRoles());
+  }
+
   /**
    * Does this user work in Human Resources?
    *
@@ -77,7 +94,7 @@ public interface IUser {
   }
 
   /**
-   * Changes the salary of this user. Adds the old salary to this user's salary history.
+   * Changes the salary of this user, as of now. Adds the old salary to this user's salary history.
    *
    * @param salary The new salary.
    * @throws UnsupportedOperationException If this user cannot have a salary.
@@ -91,17 +108,46 @@ public interface IUser {
   }
 
   /**
-   * Gets this user's salary history.
+   * Changes the salary of this user, as of the given moment. Adds the new salary to this user's
+   * salary time series, so the old one becomes part of their salary history.
+   *
+   * @param salary    The new salary.
+   * @param timestamp When the new salary takes effect, in milliseconds since the epoch.
+   * @throws UnsupportedOperationException If this user cannot have a salary.
+   * @throws IllegalArgumentException      If the salary is negative.
+   * @author Michael Ruberto
+   */
+  default void setSalary(double salary, long timestamp)
+      throws UnsupportedOperationException, IllegalArgumentException {
+    throw new UnsupportedOperationException(
+        "This type of user (" + getUserType() + ") does not have a salary.");
+  }
+
+  /**
+   * Gets a read-only view of this user's salary history. The view grows as the salary changes.
    *
    * @return This user's salary history.
    * @throws UnsupportedOperationException If this user cannot have a salary history.
    * @author Michael Ruberto
    */
-  default ArrayList<Double> getSalaryHistory() throws UnsupportedOperationException {
+  default SalaryHistory getSalaryHistory() throws UnsupportedOperationException {
     throw new UnsupportedOperationException(
         "This type of user (" + getUserType() + ") does not have a salary history.");
   }
 
+  /**
+   * Gets a read-only view of every salary this user has had, each with the moment it took effect.
+   * The view grows as the salary changes.
+   *
+   * @return This user's salary time series.
+   * @throws UnsupportedOperationException If this user cannot have a salary.
+   * @author Michael Ruberto
+   */
+  default SalaryTimeSeries getSalaryTimeSeries() throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(
+        "This type of user (" + getUserType() + ") does not have a salary.");
+  }
+
   /**
    * Gets this user's vacation balance.
    *
@@ -154,6 +200,27 @@ public interface IUser {
         "This type of user (" + getUserType() + ") does not have an annual bonus.");
   }
 
+  /**
+   * Does this user have a manager assigned to them?
+   *
+   * @return Whether or not this user has a manager.
+   * @author Michael Ruberto
+   */
+  default boolean hasManager() {
+    return false;
+  }
+
+  /**
+   * Gets the ID of the {@link Manager} to whom this user reports, without throwing if they have
+   * none.
+   *
+   * @return The manager's ID, or {@link EmployeeColumns#NO_MANAGER} if this user has no manager.
+   * @author Michael Ruberto
+   */
+  default int getManagerId() {
+    return EmployeeColumns.NO_MANAGER;
+  }
+
   /**
    * Gets the {@link Manager} to whom this user reports.
    *
@@ -1,36 +1,68 @@
 package model.users;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A concrete implementation of {@link AEmployee} which represents a manager in the application. A
  * unique feature of a manager is that they may have one or more employees who report to them.
+ * The reporting employees are kept in a concurrent map, so they can be added, removed and read
+ * from many threads at once.
  *
  * @author Michael Ruberto
  */
 public class Manager extends AEmployee {
 
-  private HashMap<Integer, AEmployee> reportingEmployees;
+  private static final int ROLES = Role.maskOf(Role.EMPLOYEE, Role.MANAGER);
+
+  private final ConcurrentHashMap<Integer, AEmployee> reportingEmployees;
 
   /**
-   * Constructs an instance of a Manager. Initially, the manager will have no employees reporting to
-   * them.
+   * Constructs an instance of a Manager whose salary takes effect now. Initially, the manager will
+   * have no employees reporting to them.
    *
+   * @param id               The ID of the manager, which must be positive.
    * @param name             The name of the manager.
    * @param password         The password of the manager.
    * @param salary           The salary of the manager.
    * @param vacationBalance  The vacation balance of the manager.
    * @param annualBonus      The annual bonus of the manager.
    * @param inHumanResources Whether or not the manager works in Human Resources.
-   * @throws IllegalArgumentException If name is {@code null}, or if password is {@code null} or
-   *                                  empty, or if any of the salary, vacationBalance, or
-   *                                  annualBonus is negative.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
    * @author Michael Ruberto
    */
-  public Manager(String name, String password, double salary, int vacationBalance,
+  public Manager(int id, String name, String password, double salary, int vacationBalance,
       double annualBonus, boolean inHumanResources) throws IllegalArgumentException {
-    super(name, password, salary, vacationBalance, annualBonus, inHumanResources);
-    this.reportingEmployees = new HashMap<Integer, AEmployee>();
+    this(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+        System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs an instance of a Manager whose salary took effect at the given moment. Initially,
+   * the manager will have no employees reporting to them.
+   *
+   * @param id               The ID of the manager, which must be positive.
+   * @param name             The name of the manager.
+   * @param password         The password of the manager.
+   * @param salary           The salary of the manager.
+   * @param vacationBalance  The vacation balance of the manager.
+   * @param annualBonus      The annual bonus of the manager.
+   * @param inHumanResources Whether or not the manager works in Human Resources.
+   * @param salaryTimestamp  When the salary took effect, in milliseconds since the epoch.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
+   * @author Michael Ruberto
+   */
+  public Manager(int id, String name, String password, double salary, int vacationBalance,
+      double annualBonus, boolean inHumanResources, long salaryTimestamp)
+      throws IllegalArgumentException {
+    super(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+        salaryTimestamp);
+    this.reportingEmployees = new ConcurrentHashMap<Integer, AEmployee>();
   }
 
   /**
@@ -43,12 +75,17 @@ public class Manager extends AEmployee {
    */
   public Manager(AEmployee emp) throws IllegalArgumentException {
     super(emp);
-    this.reportingEmployees = new HashMap<Integer, AEmployee>();
+    this.reportingEmployees = new ConcurrentHashMap<Integer, AEmployee>();
   }
 
   @Override
   public String getUserType() {
-    return super.getUserType() + ", Manager";
+    return "AEmployee, Manager";
+  }
+
+  @Override
+  protected int getKindRoles() {
+    return ROLES;
   }
 
   /**
@@ -80,12 +117,12 @@ public class Manager extends AEmployee {
   }
 
   /**
-   * Gets the map of {@code reportingEmployees}.
+   * Gets a read-only view of the map of {@code reportingEmployees}.
    *
    * @return The map of {@link AEmployee}s.
    * @author Michael Ruberto
    */
-  public HashMap<Integer, AEmployee> getReportingEmployees() {
-    return reportingEmployees;
+  public Map<Integer, AEmployee> getReportingEmployees() {
+    return Collections.unmodifiableMap(reportingEmployees);
   }
 }
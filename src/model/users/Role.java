@@ -0,0 +1,78 @@
+package model.users;
+
+/**
+ * The roles an {@link IUser} can hold, which determine what they are allowed to do in the
+ * application. A user can hold several roles at once (a manager is also an employee, and may also
+ * work in Human Resources), so a user's roles are represented as a bitmask in which each role has
+ * its own bit (see {@link #mask()}). Checking whether a user holds a role is then a single bitwise
+ * operation.
+ * <p>
+ * New roles can be added to the end of this enum; each gets the next free bit.
+ *
+ * @author Michael Ruberto
+ */
+public enum Role {
+
+  /**
+   * A user who manages the system: adding, removing, linking, promoting and demoting users.
+   */
+  ADMINISTRATOR,
+
+  /**
+   * A user who is employed by the company, and so has a salary, vacation balance and annual bonus.
+   */
+  EMPLOYEE,
+
+  /**
+   * An employee who can have other employees report to them.
+   */
+  MANAGER,
+
+  /**
+   * An employee who is not a manager.
+   */
+  STANDARD_EMPLOYEE,
+
+  /**
+   * An employee who works in Human Resources.
+   */
+  HUMAN_RESOURCES;
+
+  private final int mask = 1 << ordinal();
+
+  /**
+   * Gets the bit which represents this role in a bitmask of roles.
+   *
+   * @return This role's bit.
+   * @author Michael Ruberto
+   */
+  public int mask() {
+    return mask;
+  }
+
+  /**
+   * Is this role present in the given bitmask of roles?
+   *
+   * @param roles A bitmask of roles.
+   * @return Whether or not this role's bit is set.
+   * @author Michael Ruberto
+   */
+  public boolean in(int roles) {
+    return (roles & mask) != 0;
+  }
+
+  /**
+   * Builds the bitmask containing exactly the given roles.
+   *
+   * @param roles The roles.
+   * @return The bitmask of the roles.
+   * @author Michael Ruberto
+   */
+  public static int maskOf(Role... roles) {
+    int mask = 0;
+    for (Role role : roles) {
+      mask |= role.mask;
+    }
+    return mask;
+  }
+}
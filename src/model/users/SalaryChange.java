@@ -0,0 +1,77 @@
+package model.users;
+
+import java.time.Instant;
+
+/**
+ * One entry in an {@link AEmployee}'s {@link SalaryTimeSeries}: the salary they were given and the
+ * moment it took effect. Salary changes never change once created.
+ *
+ * @author Michael Ruberto
+ */
+public final class SalaryChange {
+
+  private final long timestamp;
+  private final double amount;
+
+  /**
+   * Constructs a salary change.
+   *
+   * @param timestamp The moment the salary took effect, in milliseconds since the epoch.
+   * @param amount    The salary.
+   * @author Michael Ruberto
+   */
+  public SalaryChange(long timestamp, double amount) {
+    this.timestamp = timestamp;
+    this.amount = amount;
+  }
+
+  /**
+   * Gets the moment the salary took effect, in milliseconds since the epoch.
+   *
+   * @return The timestamp of this change.
+   * @author Michael Ruberto
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the moment the salary took effect.
+   *
+   * @return The time of this change.
+   * @author Michael Ruberto
+   */
+  public Instant getTime() {
+    return Instant.ofEpochMilli(timestamp);
+  }
+
+  /**
+   * Gets the salary the employee was given.
+   *
+   * @return The salary.
+   * @author Michael Ruberto
+   */
+  public double getAmount() {
+    return amount;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof SalaryChange)) {
+      return false;
+    }
+    SalaryChange change = (SalaryChange) other;
+    return timestamp == change.timestamp
+        && Double.doubleToLongBits(amount) == Double.doubleToLongBits(change.amount);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(timestamp) + Double.hashCode(amount);
+  }
+
+  @Override
+  public String toString() {
+    return getTime() + "=" + amount;
+  }
+}
@@ -0,0 +1,79 @@
+package model.users;
+
+import java.util.Arrays;
+
+/**
+ * A read-only view of an {@link AEmployee}'s salary history: every salary they had before their
+ * current one, oldest first.
+ * <p>
+ * The history is a view of the employee's {@link SalaryTimeSeries} without its last entry (which is
+ * their current salary), so it takes no memory of its own and shares the time series' compression.
+ * Reading never locks: the view grows as the time series does.
+ *
+ * @author Michael Ruberto
+ */
+public final class SalaryHistory {
+
+  private final SalaryTimeSeries timeSeries;
+
+  /**
+   * Constructs a view of the given time series.
+   *
+   * @param timeSeries The time series, whose last entry is the current salary.
+   * @author Michael Ruberto
+   */
+  SalaryHistory(SalaryTimeSeries timeSeries) {
+    this.timeSeries = timeSeries;
+  }
+
+  /**
+   * Gets the number of salaries in this history.
+   *
+   * @return The number of salaries.
+   * @author Michael Ruberto
+   */
+  public int size() {
+    return Math.max(0, timeSeries.size() - 1);
+  }
+
+  /**
+   * Is this history empty?
+   *
+   * @return Whether or not the employee has ever had their salary changed.
+   * @author Michael Ruberto
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Gets the salary at the given position in this history, where 0 is the oldest.
+   *
+   * @param index The position of the salary.
+   * @return The salary at that position.
+   * @throws IndexOutOfBoundsException If the index is negative or not less than {@link #size()}.
+   * @author Michael Ruberto
+   */
+  public double get(int index) throws IndexOutOfBoundsException {
+    int count = size();
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + count);
+    }
+    return timeSeries.getAmount(index);
+  }
+
+  /**
+   * Copies the salaries in this history into a new array, oldest first.
+   *
+   * @return The salaries.
+   * @author Michael Ruberto
+   */
+  public double[] toArray() {
+    return timeSeries.amounts(size());
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
@@ -0,0 +1,438 @@
+package model.users;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A read-only view of every salary an {@link AEmployee} has had, each with the moment it took
+ * effect, oldest first. The last entry is always their current salary. Timestamps are in
+ * milliseconds since the epoch and never decrease: a change stamped earlier than the one before it
+ * is treated as taking effect at the same moment as that one.
+ * <p>
+ * Entries are compressed as they are added, in the style of time series databases. They are
+ * grouped into blocks of {@value #BLOCK_SIZE}; the first entry of each block is kept whole in a
+ * small index, and every other entry is written to a bit stream as the difference from the entry
+ * before it:
+ * <ul>
+ *   <li>The timestamp is written as the time since the previous one. A change at the same moment
+ *   costs one bit and a change after the same gap as the one before it costs two. Any other gap is
+ *   written in the largest of days, minutes, seconds or milliseconds which divides it exactly,
+ *   using only as many bits as it needs.</li>
+ *   <li>The salary is XORed with the previous one. Salaries usually share their sign, exponent and
+ *   most of their leading mantissa bits, and round amounts end in a long run of zero bits, so only
+ *   the short run of bits in between is written. A repeated salary costs a single bit.</li>
+ * </ul>
+ * A typical raise takes two to four bytes instead of the sixteen a timestamp and a {@code double}
+ * take uncompressed. Looking up the salary at a given moment binary-searches the block index and
+ * then decodes at most one block, so it never scans the whole history.
+ * <p>
+ * Only the employee who owns a time series can add to it, which they do while holding their own
+ * lock. Reading never locks: a new entry is completely written before the size is increased, and a
+ * bit once written is never changed, so a reader can never see an entry which has not been filled
+ * in.
+ *
+ * @author Michael Ruberto
+ */
+public final class SalaryTimeSeries {
+
+  /**
+   * The number of entries in each block.
+   */
+  public static final int BLOCK_SIZE = 64;
+
+  // The bits used to write the length of a timestamp gap, and the leading zeros and length of a
+  // XORed salary
+  private static final int LENGTH_BITS = 6;
+  // The units timestamp gaps can be written in, largest first, and the bits used to pick one
+  private static final long[] UNITS = {86_400_000, 60_000, 1000, 1};
+  private static final int UNIT_BITS = 2;
+
+  private volatile long[] blockTimestamps;
+  private volatile long[] blockAmounts;
+  private volatile int[] blockOffsets;
+  private volatile long[] words;
+  private volatile int size;
+
+  // The writer's state, only used while holding the owning employee's lock
+  private int bitCount;
+  private long lastTimestamp;
+  private long lastDelta;
+  private long lastAmountBits;
+  private int lastLeading;
+  private int lastTrailing;
+
+  /**
+   * Constructs an empty time series.
+   *
+   * @author Michael Ruberto
+   */
+  SalaryTimeSeries() {
+    this.blockTimestamps = new long[1];
+    this.blockAmounts = new long[1];
+    this.blockOffsets = new int[1];
+    this.words = new long[2];
+    this.size = 0;
+  }
+
+  /**
+   * Adds the given salary to the end of this time series. Must only be called by the owning
+   * employee while holding their lock.
+   *
+   * @param timestamp The moment the salary took effect, in milliseconds since the epoch. If it is
+   *                  earlier than the last entry's, the last entry's is used instead.
+   * @param amount    The salary.
+   * @throws IllegalStateException If this time series has grown too large to add to.
+   * @author Michael Ruberto
+   */
+  void add(long timestamp, double amount) throws IllegalStateException {
+    int count = size;
+    long amountBits = Double.doubleToRawLongBits(amount);
+    if (count > 0) {
+      timestamp = Math.max(timestamp, lastTimestamp);
+    }
+    if (count % BLOCK_SIZE == 0) {
+      startBlock(count / BLOCK_SIZE, timestamp, amountBits);
+    } else {
+      writeTimestamp(timestamp - lastTimestamp);
+      writeAmount(amountBits ^ lastAmountBits);
+    }
+    lastTimestamp = timestamp;
+    lastAmountBits = amountBits;
+    size = count + 1;
+  }
+
+  // Keeps the first entry of a block whole in the block index. The XOR window starts over, so each
+  // block can be decoded on its own.
+  private void startBlock(int block, long timestamp, long amountBits) {
+    long[] timestamps = blockTimestamps;
+    long[] amounts = blockAmounts;
+    int[] offsets = blockOffsets;
+    if (block == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, block * 2);
+      amounts = Arrays.copyOf(amounts, block * 2);
+      offsets = Arrays.copyOf(offsets, block * 2);
+    }
+    timestamps[block] = timestamp;
+    amounts[block] = amountBits;
+    offsets[block] = bitCount;
+    blockTimestamps = timestamps;
+    blockAmounts = amounts;
+    blockOffsets = offsets;
+    lastDelta = 0;
+    lastLeading = -1;
+  }
+
+  // Writes the gap since the previous timestamp: a 0 bit if there is none, 10 if it is the same as
+  // the gap before it, or otherwise 11, the unit, the number of bits in the gap in that unit and
+  // then those bits.
+  private void writeTimestamp(long delta) {
+    if (delta == 0) {
+      writeBits(0, 1);
+      return;
+    }
+    if (delta == lastDelta) {
+      writeBits(0b10, 2);
+      return;
+    }
+    int unit = 0;
+    while (delta % UNITS[unit] != 0) {
+      unit++;
+    }
+    long units = delta / UNITS[unit];
+    int length = Long.SIZE - Long.numberOfLeadingZeros(units);
+    writeBits(0b11, 2);
+    writeBits(unit, UNIT_BITS);
+    writeBits(length - 1, LENGTH_BITS);
+    writeBits(units, length);
+    lastDelta = delta;
+  }
+
+  // Writes a salary XORed with the previous one: a single 0 bit if they are the same; otherwise a
+  // 1 bit followed by either a 0 bit and the changed bits within the previous window, or a 1 bit,
+  // the new window and the changed bits within it.
+  private void writeAmount(long xor) {
+    if (xor == 0) {
+      writeBits(0, 1);
+      return;
+    }
+    int leading = Long.numberOfLeadingZeros(xor);
+    int trailing = Long.numberOfTrailingZeros(xor);
+    if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+      writeBits(0b10, 2);
+      writeBits(xor >>> lastTrailing, Long.SIZE - lastLeading - lastTrailing);
+    } else {
+      int length = Long.SIZE - leading - trailing;
+      writeBits(0b11, 2);
+      writeBits(leading, LENGTH_BITS);
+      writeBits(length - 1, LENGTH_BITS);
+      writeBits(xor >>> trailing, length);
+      lastLeading = leading;
+      lastTrailing = trailing;
+    }
+  }
+
+  // Writes the lowest count bits of the given value to the end of the bit stream, most significant
+  // first.
+  private void writeBits(long value, int count) throws IllegalStateException {
+    if (bitCount > Integer.MAX_VALUE - count) {
+      throw new IllegalStateException("The salary history is too large.");
+    }
+    long[] current = words;
+    int last = (bitCount + count - 1) >>> 6;
+    if (last >= current.length) {
+      current = Arrays.copyOf(current, Math.max(current.length * 2, last + 1));
+      words = current;
+    }
+    if (count < Long.SIZE) {
+      value &= (1L << count) - 1;
+    }
+    int word = bitCount >>> 6;
+    int free = Long.SIZE - (bitCount & 63);
+    if (count <= free) {
+      current[word] |= value << (free - count);
+    } else {
+      current[word] |= value >>> (count - free);
+      current[word + 1] |= value << (Long.SIZE - (count - free));
+    }
+    bitCount += count;
+  }
+
+  /**
+   * Gets the number of entries in this time series.
+   *
+   * @return The number of entries.
+   * @author Michael Ruberto
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the entry at the given position in this time series, where 0 is the oldest.
+   *
+   * @param index The position of the entry.
+   * @return The entry at that position.
+   * @throws IndexOutOfBoundsException If the index is negative or not less than {@link #size()}.
+   * @author Michael Ruberto
+   */
+  public SalaryChange get(int index) throws IndexOutOfBoundsException {
+    Cursor cursor = cursorAt(index, size);
+    return new SalaryChange(cursor.timestamp, cursor.amount());
+  }
+
+  /**
+   * Gets the salary at the given position in this time series, where 0 is the oldest.
+   *
+   * @param index The position of the salary.
+   * @return The salary at that position.
+   * @throws IndexOutOfBoundsException If the index is negative or not less than {@link #size()}.
+   * @author Michael Ruberto
+   */
+  public double getAmount(int index) throws IndexOutOfBoundsException {
+    return cursorAt(index, size).amount();
+  }
+
+  /**
+   * Gets the salary which was in effect at the given moment: the latest entry whose timestamp is no
+   * later than it.
+   *
+   * @param timestamp The moment, in milliseconds since the epoch.
+   * @return The salary in effect at that moment.
+   * @throws IllegalArgumentException If the moment is before the first entry.
+   * @author Michael Ruberto
+   */
+  public double amountAsOf(long timestamp) throws IllegalArgumentException {
+    int count = size;
+    // The last block which starts no later than the moment; no later block can hold the answer
+    int block = lastBlockBefore(timestamp, count, true);
+    if (block < 0) {
+      throw new IllegalArgumentException("There was no salary at the given time.");
+    }
+    Cursor cursor = new Cursor(block);
+    int end = Math.min(count, (block + 1) * BLOCK_SIZE);
+    for (int i = block * BLOCK_SIZE + 1; i < end; i++) {
+      long previousAmount = cursor.amountBits;
+      cursor.next();
+      if (cursor.timestamp > timestamp) {
+        return Double.longBitsToDouble(previousAmount);
+      }
+    }
+    return cursor.amount();
+  }
+
+  /**
+   * Gets every entry whose timestamp is at or after the start of the given range and before its
+   * end, oldest first.
+   *
+   * @param from The start of the range, in milliseconds since the epoch.
+   * @param to   The end of the range, in milliseconds since the epoch.
+   * @return The entries in the range.
+   * @throws IllegalArgumentException If the range ends before it starts.
+   * @author Michael Ruberto
+   */
+  public List<SalaryChange> changesBetween(long from, long to) throws IllegalArgumentException {
+    //VALIDATING INPUTS
+    if (to < from) {
+      throw new IllegalArgumentException("The range cannot end before it starts.");
+    }
+
+    int count = size;
+    List<SalaryChange> changes = new ArrayList<SalaryChange>();
+    // Every entry before the last block which starts strictly earlier than the range is earlier
+    // than that block's first entry, and so earlier than the range
+    int block = Math.max(0, lastBlockBefore(from, count, false));
+    for (int i = block * BLOCK_SIZE; i < count; ) {
+      Cursor cursor = new Cursor(i / BLOCK_SIZE);
+      int end = Math.min(count, i + BLOCK_SIZE);
+      while (true) {
+        if (cursor.timestamp >= to) {
+          return changes;
+        }
+        if (cursor.timestamp >= from) {
+          changes.add(new SalaryChange(cursor.timestamp, cursor.amount()));
+        }
+        if (++i == end) {
+          break;
+        }
+        cursor.next();
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Copies the first given number of salaries in this time series into a new array, oldest first.
+   *
+   * @param count The number of salaries to copy, no more than {@link #size()}.
+   * @return The salaries.
+   * @author Michael Ruberto
+   */
+  double[] amounts(int count) {
+    double[] amounts = new double[count];
+    Cursor cursor = null;
+    for (int i = 0; i < count; i++) {
+      if (i % BLOCK_SIZE == 0) {
+        cursor = new Cursor(i / BLOCK_SIZE);
+      } else {
+        cursor.next();
+      }
+      amounts[i] = cursor.amount();
+    }
+    return amounts;
+  }
+
+  /**
+   * Copies every entry in this time series into a new list, oldest first.
+   *
+   * @return The entries.
+   * @author Michael Ruberto
+   */
+  public List<SalaryChange> toList() {
+    return changesBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Gets roughly how many bytes this time series takes up, counting the arrays it keeps but not
+   * object headers.
+   *
+   * @return The size of this time series in bytes.
+   * @author Michael Ruberto
+   */
+  public long sizeInBytes() {
+    return (long) blockTimestamps.length * (Long.BYTES + Long.BYTES + Integer.BYTES)
+        + (long) words.length * Long.BYTES;
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+
+  // Finds the last of the first count entries' blocks whose first timestamp is before the given
+  // moment (or at it, if inclusive), or -1 if there is none.
+  private int lastBlockBefore(long timestamp, int count, boolean inclusive) {
+    long[] timestamps = blockTimestamps;
+    int low = 0;
+    int high = (count + BLOCK_SIZE - 1) / BLOCK_SIZE - 1;
+    int found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long start = timestamps[middle];
+      if (start < timestamp || (inclusive && start == timestamp)) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+
+  // Decodes up to the entry at the given position, given that the time series had the given size
+  private Cursor cursorAt(int index, int count) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + count);
+    }
+    Cursor cursor = new Cursor(index / BLOCK_SIZE);
+    for (int i = index % BLOCK_SIZE; i > 0; i--) {
+      cursor.next();
+    }
+    return cursor;
+  }
+
+  // Decodes the entries of one block in order, starting on its first entry.
+  private final class Cursor {
+
+    private final long[] bits;
+    private int position;
+    private long timestamp;
+    private long delta;
+    private long amountBits;
+    private int leading;
+    private int trailing;
+
+    private Cursor(int block) {
+      this.bits = words;
+      this.position = blockOffsets[block];
+      this.timestamp = blockTimestamps[block];
+      this.amountBits = blockAmounts[block];
+      this.leading = -1;
+    }
+
+    private double amount() {
+      return Double.longBitsToDouble(amountBits);
+    }
+
+    // Moves on to the next entry in the block
+    private void next() {
+      if (readBits(1) != 0) {
+        if (readBits(1) != 0) {
+          long unit = UNITS[(int) readBits(UNIT_BITS)];
+          delta = readBits((int) readBits(LENGTH_BITS) + 1) * unit;
+        }
+        timestamp += delta;
+      }
+      if (readBits(1) != 0) {
+        if (readBits(1) != 0) {
+          leading = (int) readBits(LENGTH_BITS);
+          int length = (int) readBits(LENGTH_BITS) + 1;
+          trailing = Long.SIZE - leading - length;
+        }
+        amountBits ^= readBits(Long.SIZE - leading - trailing) << trailing;
+      }
+    }
+
+    private long readBits(int count) {
+      int word = position >>> 6;
+      int used = position & 63;
+      long value = (bits[word] << used) >>> (Long.SIZE - count);
+      int rest = count - (Long.SIZE - used);
+      if (rest > 0) {
+        value |= bits[word + 1] >>> (Long.SIZE - rest);
+      }
+      position += count;
+      return value;
+    }
+  }
+}
@@ -8,23 +8,50 @@ package model.users;
  */
 public class StandardEmployee extends AEmployee {
 
+  private static final int ROLES = Role.maskOf(Role.EMPLOYEE, Role.STANDARD_EMPLOYEE);
+
   /**
-   * Constructs an instance of a StandardEmployee.
+   * Constructs an instance of a StandardEmployee whose salary takes effect now.
    *
+   * @param id               The ID of the standard employee, which must be positive.
    * @param name             The name of the standard employee.
    * @param password         The password of the standard employee.
    * @param salary           The salary of the standard employee.
    * @param vacationBalance  The vacation balance of the standard employee.
    * @param annualBonus      The annual bonus of the standard employee.
    * @param inHumanResources Whether or not the standard employee works in Human Resources.
-   * @throws IllegalArgumentException If name is {@code null}, or if password is {@code null} or
-   *                                  empty, or if any of the salary, vacationBalance, or
-   *                                  annualBonus is negative.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
    * @author Michael Ruberto
    */
-  public StandardEmployee(String name, String password, double salary, int vacationBalance,
+  public StandardEmployee(int id, String name, String password, double salary, int vacationBalance,
       double annualBonus, boolean inHumanResources) throws IllegalArgumentException {
-    super(name, password, salary, vacationBalance, annualBonus, inHumanResources);
+    this(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+        System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs an instance of a StandardEmployee whose salary took effect at the given moment.
+   *
+   * @param id               The ID of the standard employee, which must be positive.
+   * @param name             The name of the standard employee.
+   * @param password         The password of the standard employee.
+   * @param salary           The salary of the standard employee.
+   * @param vacationBalance  The vacation balance of the standard employee.
+   * @param annualBonus      The annual bonus of the standard employee.
+   * @param inHumanResources Whether or not the standard employee works in Human Resources.
+   * @param salaryTimestamp  When the salary took effect, in milliseconds since the epoch.
+   * @throws IllegalArgumentException If the ID is not positive, or if name is {@code null}, or if
+   *                                  password is {@code null} or empty, or if any of the salary,
+   *                                  vacationBalance, or annualBonus is negative.
+   * @author Michael Ruberto
+   */
+  public StandardEmployee(int id, String name, String password, double salary, int vacationBalance,
+      double annualBonus, boolean inHumanResources, long salaryTimestamp)
+      throws IllegalArgumentException {
+    super(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+        salaryTimestamp);
   }
 
   /**
@@ -41,6 +68,11 @@ public class StandardEmployee extends AEmployee {
 
   @Override
   public String getUserType() {
-    return super.getUserType() + ", StandardEmployee";
+    return "AEmployee, StandardEmployee";
+  }
+
+  @Override
+  protected int getKindRoles() {
+    return ROLES;
   }
 }
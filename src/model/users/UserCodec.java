@@ -0,0 +1,131 @@
+package model.users;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Converts {@link IUser}s to and from a compact binary form, for snapshots of a whole model. Each
+ * user is written with their ID, name and hashed password, and each employee also with their
+ * vacation balance, annual bonus, Human Resources status and salary time series (every salary they
+ * have had, with when it took effect). Links to managers are not written, since they refer to other
+ * users; whoever writes the users is expected to write the links separately.
+ * <p>
+ * Numbers are written big-endian, so users written through a {@link DataOutput} can be read back
+ * through a {@link ByteBuffer} (including a memory-mapped one) in its default byte order.
+ *
+ * @author Michael Ruberto
+ */
+public final class UserCodec {
+
+  private static final byte ADMINISTRATOR = 0;
+  private static final byte STANDARD_EMPLOYEE = 1;
+  private static final byte MANAGER = 2;
+
+  private UserCodec() {
+  }
+
+  /**
+   * Writes the given user. An employee is written while holding their lock, so that their salary
+   * time series is written as of one moment.
+   *
+   * @param user The user to be written.
+   * @param out  Where the user is written to.
+   * @throws IllegalArgumentException If the user is not an {@link Administrator} or an {@link
+   *                                  AEmployee}.
+   * @throws IOException              If the user can't be written.
+   * @author Michael Ruberto
+   */
+  public static void encode(IUser user, DataOutput out)
+      throws IllegalArgumentException, IOException {
+    if (user instanceof Administrator) {
+      Administrator admin = (Administrator) user;
+      out.writeByte(ADMINISTRATOR);
+      out.writeInt(admin.getId());
+      writeString(out, admin.getName());
+      writeString(out, admin.getHashedPassword());
+    } else if (user instanceof AEmployee) {
+      AEmployee employee = (AEmployee) user;
+      synchronized (employee) {
+        out.writeByte(employee.hasRole(Role.MANAGER) ? MANAGER : STANDARD_EMPLOYEE);
+        out.writeInt(employee.getId());
+        writeString(out, employee.getName());
+        writeString(out, employee.getHashedPassword());
+        out.writeInt(employee.getVacationBalance());
+        out.writeDouble(employee.getAnnualBonus());
+        out.writeBoolean(employee.isInHumanResources());
+        List<SalaryChange> salaries = employee.getSalaryTimeSeries().toList();
+        out.writeInt(salaries.size());
+        for (SalaryChange change : salaries) {
+          out.writeLong(change.getTimestamp());
+          out.writeDouble(change.getAmount());
+        }
+      }
+    } else {
+      throw new IllegalArgumentException("Unknown type of user: " + user.getUserType());
+    }
+  }
+
+  /**
+   * Reads a user written by {@link #encode(IUser, DataOutput)}. The user is given the ID they were
+   * written with.
+   *
+   * @param buffer The buffer to read from.
+   * @return The user, with no manager.
+   * @throws IllegalArgumentException If the buffer does not hold a valid user.
+   * @author Michael Ruberto
+   */
+  public static IUser decode(ByteBuffer buffer) throws IllegalArgumentException {
+    byte type = buffer.get();
+    int id = buffer.getInt();
+    String name = readString(buffer);
+    String password = readString(buffer);
+    if (type == ADMINISTRATOR) {
+      return new Administrator(id, name, password);
+    }
+    if (type != STANDARD_EMPLOYEE && type != MANAGER) {
+      throw new IllegalArgumentException("Unknown type of user: " + type);
+    }
+
+    int vacationBalance = buffer.getInt();
+    double annualBonus = buffer.getDouble();
+    boolean inHumanResources = buffer.get() != 0;
+    int size = buffer.getInt();
+    if (size < 1 || size > buffer.remaining() / (Long.BYTES + Double.BYTES)) {
+      throw new IllegalArgumentException("Invalid salary time series size " + size);
+    }
+
+    // The employee starts on their oldest salary, and each later one is set in turn so that the
+    // time series is rebuilt exactly
+    long timestamp = buffer.getLong();
+    double salary = buffer.getDouble();
+    AEmployee employee = type == MANAGER
+        ? new Manager(id, name, password, salary, vacationBalance, annualBonus, inHumanResources,
+            timestamp)
+        : new StandardEmployee(id, name, password, salary, vacationBalance, annualBonus,
+            inHumanResources, timestamp);
+    for (int i = 1; i < size; i++) {
+      timestamp = buffer.getLong();
+      employee.setSalary(buffer.getDouble(), timestamp);
+    }
+    return employee;
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) throws IllegalArgumentException {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link AccessCache} to ensure that decisions are remembered, and only
+ * answered while the access version they were made at is still current.
+ *
+ * @author Michael Ruberto
+ */
+public class AccessCacheTest {
+
+  @Test
+  public void testEmptyCacheMisses() {
+    AccessCache cache = new AccessCache();
+    assertFalse(cache.isHit(cache.get(1, false), 1, false, 0));
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testStoreAndHit() {
+    AccessCache cache = new AccessCache();
+    cache.store(1, false, AccessDecision.ALLOWED, 0);
+    cache.store(1, true, AccessDecision.NOT_PERMITTED, 0);
+
+    long read = cache.get(1, false);
+    assertTrue(cache.isHit(read, 1, false, 0));
+    assertEquals(AccessDecision.ALLOWED, AccessCache.decision(read));
+    long write = cache.get(1, true);
+    assertTrue(cache.isHit(write, 1, true, 0));
+    assertEquals(AccessDecision.NOT_PERMITTED, AccessCache.decision(write));
+    assertEquals(2, cache.getHits());
+  }
+
+  @Test
+  public void testDifferentTargetMisses() {
+    AccessCache cache = new AccessCache();
+    cache.store(1, false, AccessDecision.ALLOWED, 0);
+    assertFalse(cache.isHit(cache.get(2, false), 2, false, 0));
+    assertFalse(cache.isHit(cache.get(1, true), 1, true, 0));
+  }
+
+  @Test
+  public void testNewVersionMisses() {
+    AccessCache cache = new AccessCache();
+    cache.store(1, false, AccessDecision.ALLOWED, 5);
+    cache.store(2, false, AccessDecision.ALLOWED, 3);
+    assertFalse(cache.isHit(cache.get(1, false), 1, false, 6));
+    // Other targets keep their decisions
+    assertTrue(cache.isHit(cache.get(2, false), 2, false, 3));
+
+    cache.store(1, false, AccessDecision.NOT_PERMITTED, 6);
+    long entry = cache.get(1, false);
+    assertTrue(cache.isHit(entry, 1, false, 6));
+    assertEquals(AccessDecision.NOT_PERMITTED, AccessCache.decision(entry));
+  }
+
+  @Test
+  public void testStaleStoreNeverHits() {
+    AccessCache cache = new AccessCache();
+    // The decision was made at version 4, but the target changed while it was being made...
+    cache.store(1, false, AccessDecision.ALLOWED, 4);
+    // ...so it isn't answered at the version after the change
+    assertFalse(cache.isHit(cache.get(1, false), 1, false, 5));
+  }
+
+  @Test
+  public void testLargeVersions() {
+    AccessCache cache = new AccessCache();
+    long version = (1L << 40) + 7;
+    cache.store(1, true, AccessDecision.ALLOWED, version);
+    assertTrue(cache.isHit(cache.get(1, true), 1, true, version));
+    assertFalse(cache.isHit(cache.get(1, true), 1, true, version + 1));
+  }
+}
@@ -0,0 +1,49 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.StandardEmployee;
+import org.junit.Test;
+
+/**
+ * Tests for the enum {@link AccessDecision} to ensure that decisions report whether they allow
+ * access and turn into the right exceptions.
+ *
+ * @author Michael Ruberto
+ */
+public class AccessDecisionTest {
+
+  @Test
+  public void testIsAllowed() {
+    assertTrue(AccessDecision.ALLOWED.isAllowed());
+    assertFalse(AccessDecision.NOT_LOGGED_IN.isAllowed());
+    assertFalse(AccessDecision.NOT_ADMINISTRATOR.isAllowed());
+    assertFalse(AccessDecision.NOT_PERMITTED.isAllowed());
+  }
+
+  @Test
+  public void testFromOrdinal() {
+    for (AccessDecision decision : AccessDecision.values()) {
+      assertSame(decision, AccessDecision.fromOrdinal(decision.ordinal()));
+    }
+  }
+
+  @Test
+  public void testNotLoggedInException() {
+    IllegalStateException ise = AccessDecision.NOT_LOGGED_IN.toException(null);
+    assertEquals("You must log in to perform this action.", ise.getMessage());
+  }
+
+  @Test
+  public void testNotPermittedException() {
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, false);
+    IllegalStateException ise = AccessDecision.NOT_PERMITTED.toException(employee);
+    assertEquals("The current user (Emp) does not have permission to perform this action.",
+        ise.getMessage());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAllowedHasNoException() {
+    AccessDecision.ALLOWED.toException(null);
+  }
+}
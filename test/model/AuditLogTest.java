@@ -0,0 +1,218 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the class {@link AuditLog}, and for auditing the calls made to an {@link HRModel}.
+ *
+ * @author Michael Ruberto
+ */
+public class AuditLogTest {
+
+  private static final String TIME = "1970-01-01T00:00:01.000Z";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setUp() {
+    directory = folder.getRoot().toPath().resolve("audit");
+  }
+
+  // Reads the lines of the given audit file after its header.
+  private static List<String> records(AuditLog log, int number) throws IOException {
+    List<String> lines = Files.readAllLines(log.file(number));
+    assertEquals(AuditLog.HEADER, lines.get(0));
+    return lines.subList(1, lines.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenNullDirectory() throws IOException {
+    AuditLog.open(null, 1000, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenBadFileSize() throws IOException {
+    AuditLog.open(directory, 0, 10);
+  }
+
+  @Test
+  public void testRecordAndFlush() throws IOException {
+    try (AuditLog log = AuditLog.open(directory, 1 << 20, 60000)) {
+      log.record(1000, 0, ModelOperation.SET_SALARY, 3, 100, 200, AccessDecision.ALLOWED);
+      log.record(1000, AuditLog.NO_USER, ModelOperation.FIND_USERS, AuditLog.NO_USER,
+          Double.NaN, Double.NaN, AccessDecision.NOT_LOGGED_IN);
+      log.flush();
+      assertEquals(Arrays.asList(TIME + ",0,3,SET_SALARY,100.0,200.0,ALLOWED",
+          TIME + ",,,FIND_USERS,,,NOT_LOGGED_IN"), records(log, 1));
+    }
+  }
+
+  @Test
+  public void testBackgroundThreadWritesBatches() throws IOException, InterruptedException {
+    try (AuditLog log = AuditLog.open(directory, 1 << 20, 10)) {
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+        int caller = t;
+        threads[t] = new Thread(() -> {
+          for (int i = 0; i < 1000; i++) {
+            log.record(1000, caller, ModelOperation.GET_SALARY, i, i, Double.NaN,
+                AccessDecision.ALLOWED);
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      // Every record is written within the interval, without being flushed
+      long deadline = System.nanoTime() + 10_000_000_000L;
+      Path file = log.file(1);
+      while ((!Files.exists(file) || Files.readAllLines(file).size() < 4001)
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      List<String> lines = records(log, 1);
+      assertEquals(4000, lines.size());
+      // Each thread's records are in the order they were made
+      int[] next = new int[threads.length];
+      for (String line : lines) {
+        String[] fields = line.split(",");
+        int caller = Integer.parseInt(fields[1]);
+        assertEquals(next[caller]++, Integer.parseInt(fields[2]));
+      }
+    }
+  }
+
+  @Test
+  public void testRollsOver() throws IOException {
+    String record = TIME + ",0,3,GET_SALARY,100.0,,ALLOWED\n";
+    long fileSize = AuditLog.HEADER.length() + 1 + 3 * record.length();
+    try (AuditLog log = AuditLog.open(directory, fileSize, 60000)) {
+      for (int i = 0; i < 7; i++) {
+        log.record(1000, 0, ModelOperation.GET_SALARY, 3, 100, Double.NaN,
+            AccessDecision.ALLOWED);
+      }
+      log.flush();
+      assertEquals(3, log.getFileNumber());
+      assertEquals(3, records(log, 1).size());
+      assertEquals(3, records(log, 2).size());
+      assertEquals(1, records(log, 3).size());
+      assertEquals(fileSize, Files.size(log.file(1)));
+    }
+
+    // A reopened log starts a new file after the last one
+    try (AuditLog log = AuditLog.open(directory, fileSize, 60000)) {
+      log.record(1000, 0, ModelOperation.GET_SALARY, 3, 100, Double.NaN,
+          AccessDecision.ALLOWED);
+      log.flush();
+      assertEquals(4, log.getFileNumber());
+      assertEquals(1, records(log, 4).size());
+    }
+  }
+
+  @Test
+  public void testRecordsAfterCloseAreIgnored() throws IOException {
+    AuditLog log = AuditLog.open(directory, 1 << 20, 60000);
+    log.record(1000, 0, ModelOperation.GET_SALARY, 3, 100, Double.NaN,
+        AccessDecision.ALLOWED);
+    log.close();
+    log.record(1000, 0, ModelOperation.GET_SALARY, 4, 100, Double.NaN,
+        AccessDecision.ALLOWED);
+    log.close();
+    assertEquals(1, records(log, 1).size());
+  }
+
+  @Test
+  public void testModelCallsAreAudited() throws IOException {
+    HRModel model = new HRModel("Password");
+    model.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+    try (AuditLog log = AuditLog.open(directory, 1 << 20, 60000)) {
+      model.setAuditLog(log);
+      assertSame(log, model.getAuditLog());
+      HRSession admin = model.openSession(0, "Password");
+      admin.addEmployee("Manager", "Manager", "Test", 100, 1, 10, false);
+      admin.addEmployee("Standard Employee", "Employee", "Test", 50, 1, 10, false);
+      admin.linkEmployeeAndManager(2, 1);
+      HRSession employee = model.openSession(2, "Test");
+      employee.getSalary(2);
+      try {
+        employee.setSalary(2, 1000);
+        fail();
+      } catch (IllegalStateException e) {
+        // Denied, and audited as such
+      }
+      model.openSession(1, "Test").setSalary(2, 60);
+      employee.findUsersByName("");
+      admin.changeHRStatus(2, true);
+      employee.logOut();
+      try {
+        employee.getVacationBalance(2);
+        fail();
+      } catch (IllegalStateException e) {
+        // Logged out
+      }
+      model.setAuditLog(null);
+      admin.getSalary(1);
+      log.flush();
+
+      assertEquals(Arrays.asList(
+          TIME + ",0,1,ADD_EMPLOYEE,,100.0,ALLOWED",
+          TIME + ",0,2,ADD_EMPLOYEE,,50.0,ALLOWED",
+          TIME + ",0,2,LINK_EMPLOYEE_AND_MANAGER,,1.0,ALLOWED",
+          TIME + ",2,2,GET_SALARY,50.0,,ALLOWED",
+          TIME + ",2,2,SET_SALARY,,,NOT_PERMITTED",
+          TIME + ",1,2,SET_SALARY,50.0,60.0,ALLOWED",
+          TIME + ",2,,FIND_USERS_BY_NAME,,,ALLOWED",
+          TIME + ",0,2,CHANGE_HR_STATUS,0.0,1.0,ALLOWED",
+          TIME + ",2,2,GET_VACATION_BALANCE,,,NOT_LOGGED_IN"), records(log, 1));
+    }
+  }
+
+  @Test
+  public void testDeniedAdministratorCallsAreAudited() throws IOException {
+    HRModel model = new HRModel("Password");
+    model.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "Employee", "Test", 50, 1, 10, false);
+    try (AuditLog log = AuditLog.open(directory, 1 << 20, 60000)) {
+      model.setAuditLog(log);
+      List<String> denied = new ArrayList<String>();
+      HRSession employee = model.openSession(1, "Test");
+      try {
+        employee.removeUser(0);
+      } catch (IllegalStateException e) {
+        denied.add(e.getMessage());
+      }
+      try {
+        employee.summarizePayroll(null, null);
+        employee.addAdministrator("Admin", "Test");
+      } catch (IllegalStateException e) {
+        denied.add(e.getMessage());
+      }
+      assertEquals(2, denied.size());
+      log.flush();
+      assertEquals(Arrays.asList(
+          TIME + ",1,0,REMOVE_USER,,,NOT_ADMINISTRATOR",
+          TIME + ",1,,SUMMARIZE_PAYROLL,,,ALLOWED",
+          TIME + ",1,,ADD_ADMINISTRATOR,,,NOT_ADMINISTRATOR"), records(log, 1));
+    }
+  }
+}
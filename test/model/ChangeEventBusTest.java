@@ -0,0 +1,188 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests for the classes {@link ChangeEventBus} and {@link ChangeSubscription} to ensure that events
+ * reach every subscriber in order, that subscribers which fall behind are dealt with by their
+ * policy without holding up publishers, and that each subscription keeps count of how it is doing.
+ *
+ * @author Michael Ruberto
+ */
+public class ChangeEventBusTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC);
+
+  // Publishes a salary change for the user with the given ID.
+  private static void publish(ChangeEventBus bus, int id) {
+    bus.publish(LogRecord.setSalary(id, id * 10, 500), CLOCK);
+  }
+
+  // Takes the next event handed to a subscriber, waiting for it if need be.
+  private static ChangeEvent next(BlockingQueue<ChangeEvent> events) throws InterruptedException {
+    ChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+    assertNotNull(event);
+    return event;
+  }
+
+  // Waits until the subscription has been handed the given number of events.
+  private static void awaitDelivered(ChangeSubscription subscription, long delivered)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscription.getDelivered() < delivered && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(delivered, subscription.getDelivered());
+  }
+
+  // Waits until the subscriber has taken every event but the given number, so that it is busy
+  // with (or done with) the latest one.
+  private static void awaitLag(ChangeSubscription subscription, long lag)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscription.getLag() > lag && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(lag, subscription.getLag());
+  }
+
+  @Test
+  public void testEventsReachEverySubscriberInOrder() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(32);
+    publish(bus, 99);
+    BlockingQueue<ChangeEvent> first = new LinkedBlockingQueue<ChangeEvent>();
+    BlockingQueue<ChangeEvent> second = new LinkedBlockingQueue<ChangeEvent>();
+    ChangeSubscription firstSubscription = bus.subscribe(first::add,
+        BackpressurePolicy.DROP_OLDEST);
+    bus.subscribe(second::add, BackpressurePolicy.DISCONNECT);
+    for (int id = 1; id <= 20; id++) {
+      publish(bus, id);
+    }
+    for (int id = 1; id <= 20; id++) {
+      ChangeEvent event = next(first);
+      assertEquals(id, event.getUserId());
+      assertEquals(id - 1, event.getSequence());
+      assertEquals(id * 10, event.getSalary(), 0.01);
+      assertEquals(500, event.getTime().toEpochMilli());
+      assertEquals(id, next(second).getUserId());
+    }
+    awaitDelivered(firstSubscription, 20);
+    assertEquals(0, firstSubscription.getLag());
+  }
+
+  @Test
+  public void testRecordsWhichArentChangesAreNotPublished() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(8);
+    BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<ChangeEvent>();
+    bus.subscribe(events::add, BackpressurePolicy.DROP_OLDEST);
+    bus.publish(LogRecord.reserveEmployeeIds(100), CLOCK);
+    bus.publish(LogRecord.changeHRStatus(3, true), CLOCK);
+    ChangeEvent event = next(events);
+    assertEquals(ChangeEvent.Type.HR_STATUS_CHANGED, event.getType());
+    assertEquals(0, event.getSequence());
+    assertEquals(1000, event.getTime().toEpochMilli());
+  }
+
+  @Test
+  public void testSlowSubscriberDropsOldest() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(4);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<ChangeEvent>();
+    ChangeSubscription subscription = bus.subscribe(event -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      events.add(event);
+    }, BackpressurePolicy.DROP_OLDEST);
+
+    // The first event holds up the subscriber while nine more are published
+    publish(bus, 1);
+    awaitLag(subscription, 0);
+    for (int id = 2; id <= 10; id++) {
+      publish(bus, id);
+    }
+    assertEquals(9, subscription.getLag());
+    release.countDown();
+
+    // Only the last four are still in the buffer
+    assertEquals(1, next(events).getUserId());
+    for (int id = 7; id <= 10; id++) {
+      assertEquals(id, next(events).getUserId());
+    }
+    awaitDelivered(subscription, 5);
+    assertEquals(5, subscription.getDropped());
+    assertTrue(subscription.isOpen());
+  }
+
+  @Test
+  public void testSlowSubscriberDisconnects() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(4);
+    CountDownLatch release = new CountDownLatch(1);
+    ChangeSubscription subscription = bus.subscribe(event -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, BackpressurePolicy.DISCONNECT);
+
+    publish(bus, 1);
+    awaitLag(subscription, 0);
+    for (int id = 2; id <= 10; id++) {
+      publish(bus, id);
+    }
+    release.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscription.isOpen() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertFalse(subscription.isOpen());
+    assertEquals(1, subscription.getDelivered());
+    assertEquals(5, subscription.getDropped());
+  }
+
+  @Test
+  public void testFailuresAreCounted() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(8);
+    ChangeSubscription subscription = bus.subscribe(event -> {
+      if (event.getUserId() % 2 == 0) {
+        throw new IllegalStateException("Even");
+      }
+    }, BackpressurePolicy.DROP_OLDEST);
+    for (int id = 1; id <= 6; id++) {
+      publish(bus, id);
+    }
+    awaitDelivered(subscription, 6);
+    assertEquals(3, subscription.getFailures());
+  }
+
+  @Test
+  public void testClose() throws InterruptedException {
+    ChangeEventBus bus = new ChangeEventBus(8);
+    BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<ChangeEvent>();
+    ChangeSubscription subscription = bus.subscribe(events::add, BackpressurePolicy.DROP_OLDEST);
+    subscription.close();
+    subscription.close();
+    publish(bus, 1);
+    assertFalse(subscription.isOpen());
+    assertNull(events.poll(50, TimeUnit.MILLISECONDS));
+    // With nobody subscribed, nothing is numbered
+    assertEquals(0, bus.getNextSequence());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCapacityNotPowerOfTwo() {
+    new ChangeEventBus(6);
+  }
+}
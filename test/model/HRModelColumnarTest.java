@@ -0,0 +1,84 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.AEmployee;
+import model.users.Manager;
+import org.junit.Test;
+
+/**
+ * Tests for an {@link HRModel} in {@link StorageMode#COLUMNAR} mode, to ensure that it behaves the
+ * same way as a model which stores its employees as plain objects.
+ *
+ * @author Michael Ruberto
+ */
+public class HRModelColumnarTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNullMode() {
+    new HRModel("Password", null);
+  }
+
+  @Test
+  public void testStorageMode() {
+    assertEquals(StorageMode.OBJECTS, new HRModel("Password").getStorageMode());
+    assertEquals(StorageMode.COLUMNAR,
+        new HRModel("Password", StorageMode.COLUMNAR).getStorageMode());
+  }
+
+  @Test
+  public void testReadsAndWrites() {
+    HRModel model = new HRModel("Password", StorageMode.COLUMNAR);
+    model.logIn(0, "Password");
+    model.addEmployee("Standard Employee", "Emp", "Test", 100, 5, 10, false);
+
+    model.setSalary(1, 200);
+    model.setVacationBalance(1, 6);
+    model.setAnnualBonus(1, 20);
+    model.changeHRStatus(1, true);
+
+    assertEquals(200, model.getSalary(1), 0.01);
+    assertEquals(100, model.getSalaryHistory(1).get(0), 0.01);
+    assertEquals(6, model.getVacationBalance(1));
+    assertEquals(20, model.getAnnualBonus(1), 0.01);
+    assertTrue(model.getUsers().get(1).isInHumanResources());
+  }
+
+  @Test
+  public void testPromoteKeepsInformation() {
+    HRModel model = new HRModel("Password", StorageMode.COLUMNAR);
+    model.logIn(0, "Password");
+    model.addEmployee("Standard Employee", "Emp", "Test", 100, 5, 10, false);
+    model.setSalary(1, 200);
+    model.promoteToManager(1);
+
+    assertEquals("AEmployee, Manager", model.getUsers().get(1).getUserType());
+    assertEquals(200, model.getSalary(1), 0.01);
+    assertEquals(1, model.getSalaryHistory(1).size());
+  }
+
+  @Test
+  public void testRemovedUserKeepsInformation() {
+    HRModel model = new HRModel("Password", StorageMode.COLUMNAR);
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 100, 5, 10, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 50, 5, 10, false);
+    model.linkEmployeeAndManager(2, 1);
+    Manager manager = (Manager) model.getUsers().get(1);
+
+    AEmployee removed = (AEmployee) model.removeUser(2);
+    assertEquals(50, removed.getSalary(), 0.01);
+    assertEquals(0, manager.getReportingEmployees().size());
+  }
+
+  @Test
+  public void testManagerReadAccess() {
+    HRModel model = new HRModel("Password", StorageMode.COLUMNAR);
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 70, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.logIn(1, "Test");
+    assertEquals(70, model.getSalary(2), 0.01);
+  }
+}
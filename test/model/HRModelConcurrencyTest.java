@@ -0,0 +1,237 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.users.IUser;
+import model.users.Manager;
+import org.junit.Test;
+
+/**
+ * Stress tests for {@link HRModel} which run many sessions against the same model from many threads
+ * at once, to ensure that no updates are lost and that manager links stay consistent.
+ *
+ * @author Michael Ruberto
+ */
+public class HRModelConcurrencyTest {
+
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 2000;
+
+  // Runs the given task on THREADS threads at once, passing each its thread number, and waits for
+  // all of them to finish. Fails if any thread throws.
+  private void runConcurrently(ThreadTask task) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger failures = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < THREADS; i++) {
+      final int threadNumber = i;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          task.run(threadNumber);
+        } catch (Exception e) {
+          failures.incrementAndGet();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.get());
+  }
+
+  private interface ThreadTask {
+
+    void run(int threadNumber) throws Exception;
+  }
+
+  // Builds a model whose allocator sets aside employee IDs in blocks, and records every ID it
+  // hands out in the given queue.
+  private static HRModel recordingModel(Queue<Integer> ids) {
+    return new HRModel("Password", StorageMode.OBJECTS, null, new SequentialUserIdAllocator(16) {
+      @Override
+      public int nextEmployeeId() {
+        int id = super.nextEmployeeId();
+        ids.add(id);
+        return id;
+      }
+
+      @Override
+      public int nextAdministratorId() {
+        int id = super.nextAdministratorId();
+        ids.add(id);
+        return id;
+      }
+    });
+  }
+
+  @Test
+  public void testConcurrentAddsGetDistinctIds() throws InterruptedException {
+    Queue<Integer> firstIds = new ConcurrentLinkedQueue<Integer>();
+    Queue<Integer> secondIds = new ConcurrentLinkedQueue<Integer>();
+    HRModel first = recordingModel(firstIds);
+    HRModel second = recordingModel(secondIds);
+    int perThread = 200;
+
+    // Every thread adds to both models, but twice as many employees to one of them as the other,
+    // so that each thread holds a block of IDs from each model at once and uses them up unevenly
+    runConcurrently(threadNumber -> {
+      HRSession more = (threadNumber % 2 == 0 ? first : second).openSession(0, "Password");
+      HRSession fewer = (threadNumber % 2 == 0 ? second : first).openSession(0, "Password");
+      for (int i = 0; i < perThread; i++) {
+        more.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+        fewer.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+        more.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+        more.addAdministrator("Admin", "Test");
+        fewer.addAdministrator("Admin", "Test");
+      }
+    });
+
+    for (HRModel model : new HRModel[] {first, second}) {
+      Queue<Integer> ids = model == first ? firstIds : secondIds;
+      Set<Integer> distinct = new HashSet<Integer>(ids);
+      // No ID was handed out twice, and every one handed out went to a user of this model
+      assertEquals(ids.size(), distinct.size());
+      assertFalse(distinct.contains(0));
+      distinct.add(0);
+      assertEquals(distinct, model.getUsers().keySet());
+    }
+  }
+
+  @Test
+  public void testConcurrentSetSalaryKeepsEveryHistoryEntry() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+
+    runConcurrently(threadNumber -> {
+      HRSession session = model.openSession(0, "Password");
+      for (int i = 0; i < ITERATIONS; i++) {
+        session.setSalary(1, threadNumber * ITERATIONS + i + 1);
+        session.getSalary(1);
+      }
+    });
+
+    assertEquals(THREADS * ITERATIONS, admin.getSalaryHistory(1).size());
+  }
+
+  @Test
+  public void testConcurrentWritesDuringPromotionAreNotLost() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+
+    runConcurrently(threadNumber -> {
+      HRSession session = model.openSession(0, "Password");
+      for (int i = 0; i < ITERATIONS; i++) {
+        if (threadNumber == 0) {
+          if (i % 2 == 0) {
+            session.promoteToManager(1);
+          } else {
+            session.demoteToStandard(1);
+          }
+        } else {
+          session.setSalary(1, i + 1);
+        }
+      }
+    });
+
+    assertEquals((THREADS - 1) * ITERATIONS, admin.getSalaryHistory(1).size());
+  }
+
+  @Test
+  public void testConcurrentLinksKeepReportsConsistent() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "First", "Test", 0, 0, 0, false);
+    admin.addEmployee("Manager", "Second", "Test", 0, 0, 0, false);
+    int employees = 50;
+    for (int i = 0; i < employees; i++) {
+      admin.addEmployee("Standard Employee", "Emp " + i, "Test", 0, 0, 0, false);
+    }
+
+    runConcurrently(threadNumber -> {
+      HRSession session = model.openSession(0, "Password");
+      for (int i = 0; i < ITERATIONS; i++) {
+        int employeeId = 3 + (threadNumber * 31 + i) % employees;
+        session.linkEmployeeAndManager(employeeId, 1 + (i + threadNumber) % 2);
+      }
+    });
+
+    Manager first = (Manager) model.getUsers().get(1);
+    Manager second = (Manager) model.getUsers().get(2);
+    assertEquals(employees,
+        first.getReportingEmployees().size() + second.getReportingEmployees().size());
+    for (int id = 3; id < 3 + employees; id++) {
+      IUser employee = model.getUsers().get(id);
+      Manager manager = employee.getManager();
+      assertSame(employee, manager.getReportingEmployees().get(id));
+      Manager other = manager == first ? second : first;
+      assertNull(other.getReportingEmployees().get(id));
+    }
+  }
+
+  @Test
+  public void testReadersNeverSeeHalfMadeCommits() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "First", "Test", 100, 0, 0, false);
+    admin.addEmployee("Standard Employee", "Second", "Test", 0, 0, 0, false);
+    AtomicBoolean committing = new AtomicBoolean(true);
+    AtomicInteger halfMade = new AtomicInteger();
+
+    runConcurrently(threadNumber -> {
+      HRSession session = model.openSession(0, "Password");
+      if (threadNumber == 0) {
+        // Moves salary between the two, so that together they always earn 100
+        try {
+          for (int i = 0; i < ITERATIONS; i++) {
+            try (Transaction transaction = session.beginTransaction()) {
+              transaction.setSalary(1, i % 101);
+              transaction.setSalary(2, 100 - i % 101);
+              transaction.commit();
+            }
+          }
+        } finally {
+          committing.set(false);
+        }
+      } else {
+        while (committing.get()) {
+          // One of the two always earns at least half
+          if (session.summarizePayroll(null, null).getTotalSalary() != 100
+              || session.findEmployeesBySalary(50, 100).isEmpty()) {
+            halfMade.incrementAndGet();
+          }
+        }
+      }
+    });
+
+    assertEquals(0, halfMade.get());
+  }
+
+  @Test
+  public void testConcurrentAddsGetUniqueIDs() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+
+    runConcurrently(threadNumber -> {
+      HRSession session = model.openSession(0, "Password");
+      for (int i = 0; i < ITERATIONS / 10; i++) {
+        session.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+      }
+    });
+
+    assertEquals(1 + THREADS * (ITERATIONS / 10), model.getUsers().size());
+  }
+}
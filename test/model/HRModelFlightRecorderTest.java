@@ -0,0 +1,133 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the Java Flight Recorder events emitted by an {@link HRModel}: {@link OperationEvent},
+ * {@link AccessCheckEvent} and {@link StructuralChangeEvent}.
+ *
+ * @author Michael Ruberto
+ */
+public class HRModelFlightRecorderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // Records the calls made by the given action with the model's events turned on, and returns the
+  // events with the given name, in the order they were recorded.
+  private List<RecordedEvent> record(Runnable action, String name) throws IOException {
+    Path file = folder.newFile().toPath();
+    try (Recording recording = new Recording()) {
+      recording.enable(OperationEvent.NAME);
+      recording.enable(AccessCheckEvent.NAME);
+      recording.enable(StructuralChangeEvent.NAME);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals(name)) {
+        events.add(event);
+      }
+    }
+    events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+    return events;
+  }
+
+  // Builds a model with a manager and a standard employee who reports to them.
+  private static HRModel model() {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Manager", "Test", 100, 1, 10, false);
+    admin.addEmployee("Standard Employee", "Employee", "Test", 50, 1, 10, false);
+    admin.linkEmployeeAndManager(2, 1);
+    return model;
+  }
+
+  @Test
+  public void testOperationEvents() throws IOException {
+    HRModel model = model();
+    HRSession employee = model.openSession(2, "Test");
+    List<RecordedEvent> events = record(() -> {
+      employee.getSalary(2);
+      try {
+        employee.setSalary(2, 1000);
+        fail();
+      } catch (IllegalStateException e) {
+        // Denied
+      }
+      employee.findUsersByName("");
+    }, OperationEvent.NAME);
+
+    assertEquals(3, events.size());
+    assertEquals("GET_SALARY", events.get(0).getString("operation"));
+    assertEquals(2, events.get(0).getInt("callerId"));
+    assertEquals(2, events.get(0).getInt("targetId"));
+    assertNull(events.get(0).getClass("failure"));
+    assertEquals("SET_SALARY", events.get(1).getString("operation"));
+    assertEquals(IllegalStateException.class.getName(),
+        events.get(1).getClass("failure").getName());
+    assertEquals("FIND_USERS_BY_NAME", events.get(2).getString("operation"));
+    assertEquals(AuditLog.NO_USER, events.get(2).getInt("targetId"));
+  }
+
+  @Test
+  public void testAccessCheckEvents() throws IOException {
+    HRModel model = model();
+    HRSession employee = model.openSession(2, "Test");
+    List<RecordedEvent> events = record(() -> {
+      employee.getSalary(2);
+      employee.getSalary(2);
+      try {
+        employee.removeUser(1);
+        fail();
+      } catch (IllegalStateException e) {
+        // Denied
+      }
+    }, AccessCheckEvent.NAME);
+
+    assertEquals(3, events.size());
+    assertEquals("READ", events.get(0).getString("access"));
+    assertEquals("ALLOWED", events.get(0).getString("decision"));
+    assertFalse(events.get(0).getBoolean("cached"));
+    assertTrue(events.get(1).getBoolean("cached"));
+    assertEquals("ADMINISTRATOR", events.get(2).getString("access"));
+    assertEquals("NOT_ADMINISTRATOR", events.get(2).getString("decision"));
+    assertEquals(2, events.get(2).getInt("callerId"));
+    assertEquals(1, events.get(2).getInt("targetId"));
+  }
+
+  @Test
+  public void testStructuralChangeEvents() throws IOException {
+    HRModel model = model();
+    HRSession admin = model.openSession(0, "Password");
+    List<RecordedEvent> events = record(() -> {
+      admin.promoteToManager(2);
+      admin.demoteToStandard(2);
+      admin.removeUser(2);
+    }, StructuralChangeEvent.NAME);
+
+    assertEquals(3, events.size());
+    assertEquals("PROMOTE_TO_MANAGER", events.get(0).getString("operation"));
+    assertEquals("DEMOTE_TO_STANDARD", events.get(1).getString("operation"));
+    assertEquals("REMOVE_USER", events.get(2).getString("operation"));
+    for (RecordedEvent event : events) {
+      assertEquals(2, event.getInt("targetId"));
+      assertTrue(event.getLong("lockWait") >= 0);
+      assertTrue(event.getLong("lockWait") <= event.getDuration().toNanos());
+    }
+  }
+}
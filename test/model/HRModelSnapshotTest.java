@@ -0,0 +1,214 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import model.users.Role;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for writing snapshots of an {@link HRModel} and loading models back from them.
+ *
+ * @author Michael Ruberto
+ */
+public class HRModelSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() {
+    file = folder.getRoot().toPath().resolve("hr.snapshot");
+  }
+
+  // Builds a model with a manager, a report in HR with a salary history, a second administrator,
+  // and a removed employee
+  private HRModel populate(StorageMode storageMode) {
+    HRModel model = new HRModel("Password", storageMode);
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+    model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, true);
+    model.addEmployee("Standard Employee", "Gone", "GonePW", 50, 2, 5, false);
+    model.addAdministrator("Admin", "AdminPW");
+    model.linkEmployeeAndManager(2, 1);
+    model.setSalary(2, 60);
+    model.setSalary(2, 70);
+    model.removeUser(3);
+    return model;
+  }
+
+  // Simulates a restart: the model is rebuilt from nothing but the snapshot
+  private HRModel reload(StorageMode storageMode) throws IOException {
+    return HRModel.loadSnapshot(file, storageMode);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteNullFile() {
+    new HRModel("Password").writeSnapshot(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadNullFile() throws IOException {
+    HRModel.loadSnapshot(null, StorageMode.OBJECTS);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, InterruptedException, ExecutionException {
+    populate(StorageMode.OBJECTS).writeSnapshot(file).get();
+    assertFalse(Files.exists(file.resolveSibling("hr.snapshot.tmp")));
+
+    HRModel model = reload(StorageMode.OBJECTS);
+    assertEquals(4, model.getUsers().size());
+    assertNull(model.getUsers().get(3));
+
+    model.logIn(-1, "AdminPW");
+    assertEquals(70, model.getSalary(2), 0.01);
+    assertArrayEquals(new double[]{50, 60}, model.getSalaryHistory(2).toArray(), 0.01);
+    assertTrue(model.getUsers().get(2).isInHumanResources());
+    assertEquals(1, model.getUsers().get(2).getManagerId());
+    assertTrue(model.getOrgHierarchy().isUnder(2, 1));
+    assertEquals(10, model.getAnnualBonus(1), 0.01);
+    assertEquals(Arrays.asList(2), model.findEmployeesBySalary(60, 90));
+    assertEquals(Arrays.asList(2), model.findUsersWithRoles(Role.HUMAN_RESOURCES));
+    assertEquals(Arrays.asList(-1, 0), model.findUsersWithRoles(Role.ADMINISTRATOR));
+
+    // The default administrator's password comes from the snapshot, too
+    model.logIn(0, "Password");
+
+    // New IDs carry on from the high-water marks in the snapshot
+    model.addEmployee("Standard Employee", "New", "NewPW", 50, 2, 5, false);
+    model.addAdministrator("New Admin", "NewAdminPW");
+    assertNotNull(model.getUsers().get(4));
+    assertNotNull(model.getUsers().get(-2));
+  }
+
+  @Test
+  public void testColumnarRoundTrip() throws IOException, InterruptedException, ExecutionException {
+    populate(StorageMode.COLUMNAR).writeSnapshot(file).get();
+
+    HRModel model = reload(StorageMode.COLUMNAR);
+    assertEquals(StorageMode.COLUMNAR, model.getStorageMode());
+    model.logIn(0, "Password");
+    PayrollSummary summary = model.summarizePayroll(null, null);
+    assertEquals(2, summary.getHeadcount());
+    assertEquals(170, summary.getTotalSalary(), 0.01);
+  }
+
+  @Test
+  public void testSnapshotReplacesPreviousOne()
+      throws IOException, InterruptedException, ExecutionException {
+    HRModel model = populate(StorageMode.OBJECTS);
+    model.writeSnapshot(file).get();
+    model.setSalary(1, 500);
+    model.writeSnapshot(file).get();
+
+    HRModel reloaded = reload(StorageMode.OBJECTS);
+    reloaded.logIn(0, "Password");
+    assertEquals(500, reloaded.getSalary(1), 0.01);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCorruptSnapshot() throws IOException, InterruptedException, ExecutionException {
+    populate(StorageMode.OBJECTS).writeSnapshot(file).get();
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(file, bytes);
+    reload(StorageMode.OBJECTS);
+  }
+
+  @Test
+  public void testLogAfterSnapshotIsReplayed()
+      throws IOException, InterruptedException, ExecutionException {
+    Path logFile = folder.getRoot().toPath().resolve("hr.log");
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      model.setSalary(2, 60);
+      model.writeSnapshot(file).get();
+      model.setSalary(2, 70);
+      model.addEmployee("Standard Employee", "Late", "LatePW", 40, 2, 5, false);
+      model.linkEmployeeAndManager(3, 1);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 100)) {
+      HRModel model = HRModel.loadSnapshot(file, StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      assertEquals(70, model.getSalary(2), 0.01);
+      // The changes the snapshot already held weren't made again
+      assertArrayEquals(new double[]{50, 60}, model.getSalaryHistory(2).toArray(), 0.01);
+      assertEquals(40, model.getSalary(3), 0.01);
+      assertEquals(1, model.getUsers().get(3).getManagerId());
+
+      // The loaded model carries on recording its changes in the log
+      model.setSalary(3, 45);
+    }
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 100)) {
+      HRModel model = HRModel.loadSnapshot(file, StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      assertEquals(45, model.getSalary(3), 0.01);
+    }
+  }
+
+  @Test
+  public void testChangesCaughtBySnapshotAreNotMadeTwice() throws Exception {
+    Path logFile = folder.getRoot().toPath().resolve("hr.log");
+    double[] history;
+    double salary;
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 1000)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      HRSession admin = model.openSession(0, "Password");
+      for (int i = 0; i < 200; i++) {
+        admin.addEmployee("Standard Employee", "Emp", "EmpPW", 0, 0, 0, false);
+      }
+      // Changes race with the snapshot, so some of those logged after its position are caught
+      Thread writer = new Thread(() -> {
+        for (int i = 1; i <= 2000; i++) {
+          admin.setSalary(1 + i % 200, i);
+        }
+      });
+      writer.start();
+      model.writeSnapshot(file).get();
+      writer.join();
+      history = admin.getSalaryHistory(7).toArray();
+      salary = admin.getSalary(7);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 1000)) {
+      HRModel model = HRModel.loadSnapshot(file, StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      assertArrayEquals(history, model.getSalaryHistory(7).toArray(), 0.0);
+      assertEquals(salary, model.getSalary(7), 0.0);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSnapshotWithoutLogCantBeBroughtUpToDate()
+      throws IOException, InterruptedException, ExecutionException {
+    populate(StorageMode.OBJECTS).writeSnapshot(file).get();
+    Path logFile = folder.getRoot().toPath().resolve("hr.log");
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 100)) {
+      new HRModel("Password", StorageMode.OBJECTS, log).logIn(0, "Password");
+      log.append(LogRecord.removeUser(1));
+    }
+    try (WriteAheadLog log = WriteAheadLog.open(logFile, 5, 100)) {
+      HRModel.loadSnapshot(file, StorageMode.OBJECTS, log);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTruncatedSnapshot() throws IOException {
+    Files.write(file, new byte[]{1, 2, 3});
+    reload(StorageMode.OBJECTS);
+  }
+}
@@ -2,10 +2,24 @@ package model;
 
 import static org.junit.Assert.*;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import model.users.AEmployee;
-import model.users.Administrator;
+import model.users.IUser;
 import model.users.Manager;
-import org.junit.Before;
+import model.users.Role;
+import model.users.SalaryChange;
 import org.junit.Test;
 
 /**
@@ -15,12 +29,6 @@ import org.junit.Test;
  */
 public class HRModelTest {
 
-  @Before
-  public void resetIDs() {
-    Administrator.setNextID(0);
-    AEmployee.setNextID(1);
-  }
-
   @Test(expected = IllegalArgumentException.class)
   public void testHRModelConstructorNoPassword() {
     HRModel model = new HRModel(null);
@@ -37,6 +45,52 @@ public class HRModelTest {
     assertNotNull(model);
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void testHRModelConstructorNullIdAllocator() {
+    HRModel model = new HRModel("Password", StorageMode.OBJECTS, null, null);
+  }
+
+  @Test
+  public void testLargeStartingIds() {
+    HRModel model = new HRModel("Password", StorageMode.OBJECTS, null,
+        new SequentialUserIdAllocator(1 << 30, 0, 1));
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "First", "Test", 10, 0, 0, false);
+    model.addEmployee("Standard Employee", "Second", "Test", 20, 0, 0, true);
+    model.linkEmployeeAndManager((1 << 30) + 1, 1 << 30);
+    assertEquals(20, model.getSalary((1 << 30) + 1), 0.0001);
+    assertArrayEquals(new int[]{1 << 30, (1 << 30) + 1},
+        model.findUsers(UserQuery.all().withRoles(Role.EMPLOYEE)).mapToInt(IUser::getId)
+            .toArray());
+    try (ModelSnapshot snapshot = model.openSnapshot()) {
+      assertEquals(3, snapshot.users().count());
+    }
+  }
+
+  @Test
+  public void testModelsHaveSeparateIds() {
+    HRModel first = new HRModel("Password");
+    HRModel second = new HRModel("Password");
+    first.logIn(0, "Password");
+    second.logIn(0, "Password");
+    first.addEmployee("Standard Employee", "First", "Test", 0, 0, 0, false);
+    second.addEmployee("Standard Employee", "Second", "Test", 0, 0, 0, false);
+    assertEquals("First", first.getUsers().get(1).getName());
+    assertEquals("Second", second.getUsers().get(1).getName());
+  }
+
+  @Test
+  public void testInvalidEmployeeUsesNoId() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    try {
+      model.addEmployee("Standard Employee", "Employee", "Test", -1, 0, 0, false);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(1, model.getIdAllocator().getEmployeeHighWaterMark());
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testLogInNoPassword() {
     HRModel model = new HRModel("Password");
@@ -544,6 +598,58 @@ public class HRModelTest {
     model.setSalary(1, 100);
   }
 
+  // Creates a model where employee 1 was added on 2024-01-01 on 100, raised to 200 on 2024-03-01
+  // and to 300 on 2024-06-01
+  private HRModel salaryTimeline() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.setClock(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC));
+    model.addEmployee("Standard Employee", "Emp", "Test", 100, 0, 0, false);
+    model.setClock(Clock.fixed(Instant.parse("2024-03-01T00:00:00Z"), ZoneOffset.UTC));
+    model.setSalary(1, 200);
+    model.setClock(Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC));
+    model.setSalary(1, 300);
+    return model;
+  }
+
+  @Test
+  public void testGetSalaryAsOf() {
+    HRModel model = salaryTimeline();
+    assertEquals(100, model.getSalaryAsOf(1, Instant.parse("2024-02-29T23:59:59Z")), 0.01);
+    assertEquals(200, model.getSalaryAsOf(1, Instant.parse("2024-03-01T00:00:00Z")), 0.01);
+    assertEquals(300, model.getSalaryAsOf(1, Instant.parse("2025-01-01T00:00:00Z")), 0.01);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetSalaryAsOfBeforeHired() {
+    salaryTimeline().getSalaryAsOf(1, Instant.parse("2023-12-31T00:00:00Z"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGetSalaryAsOfNoPermission() {
+    HRModel model = salaryTimeline();
+    model.addEmployee("Standard Employee", "Other", "Test", 0, 0, 0, false);
+    model.logOut();
+    model.logIn(2, "Test");
+    model.getSalaryAsOf(1, Instant.parse("2024-03-01T00:00:00Z"));
+  }
+
+  @Test
+  public void testGetSalaryChanges() {
+    HRModel model = salaryTimeline();
+    List<SalaryChange> changes = model.getSalaryChanges(1, Instant.parse("2024-01-01T00:00:00Z"),
+        Instant.parse("2024-06-01T00:00:00Z"));
+    assertEquals(2, changes.size());
+    assertEquals(100, changes.get(0).getAmount(), 0.01);
+    assertEquals(Instant.parse("2024-03-01T00:00:00Z"), changes.get(1).getTime());
+    assertEquals(200, changes.get(1).getAmount(), 0.01);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetSalaryChangesNullRange() {
+    salaryTimeline().getSalaryChanges(1, null, Instant.now());
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testReadNoSuchUser() {
     HRModel model = new HRModel("Password");
@@ -557,4 +663,508 @@ public class HRModelTest {
     model.logIn(0, "Password");
     model.setSalary(1, 100);
   }
-}
\ No newline at end of file
+
+  @Test(expected = IllegalStateException.class)
+  public void testLinkCycle() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Middle", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(1, 2);
+  }
+
+  @Test
+  public void testOrgHierarchyFollowsLinks() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Middle", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 2);
+    assertTrue(model.getOrgHierarchy().isUnder(3, 1));
+    assertArrayEquals(new int[]{2, 3}, model.getOrgHierarchy().subtree(1).sorted().toArray());
+
+    model.demoteToStandard(2);
+    assertTrue(model.getOrgHierarchy().isUnder(2, 1));
+    assertFalse(model.getOrgHierarchy().isUnder(3, 2));
+    assertTrue(model.getOrgHierarchy().isUnder(3, 1));
+    assertEquals(0, model.getOrgHierarchy().subtree(2).count());
+  }
+
+  @Test
+  public void testPromoteKeepsManager() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 10, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.promoteToManager(2);
+
+    IUser promoted = model.getUsers().get(2);
+    assertEquals(1, promoted.getManagerId());
+    assertTrue(model.getOrgHierarchy().isUnder(2, 1));
+    // The manager's reports hold the promoted object, not the one it replaced
+    Manager manager = (Manager) model.getUsers().get(1);
+    assertSame(promoted, manager.getReportingEmployees().get(2));
+
+    // The manager can still reach their report
+    model.logIn(1, "Test");
+    model.setSalary(2, 20);
+    assertEquals(20, model.getUsers().get(2).getSalary(), 0.0);
+  }
+
+  @Test
+  public void testDemoteMovesReportsUp() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Middle", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "First", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Second", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 2);
+    model.linkEmployeeAndManager(4, 2);
+    model.demoteToStandard(2);
+
+    Manager top = (Manager) model.getUsers().get(1);
+    assertEquals(Set.of(2, 3, 4), top.getReportingEmployees().keySet());
+    assertSame(model.getUsers().get(2), top.getReportingEmployees().get(2));
+    for (int id = 2; id <= 4; id++) {
+      assertSame(top, model.getUsers().get(id).getManager());
+    }
+  }
+
+  @Test
+  public void testDemoteWithoutManagerUnlinksReports() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.demoteToStandard(1);
+    assertFalse(model.getUsers().get(2).hasManager());
+    assertFalse(model.getOrgHierarchy().isUnder(2, 1));
+  }
+
+  // Builds a model with two teams: managers 1 and 2, each with two reports, and manager 7, who
+  // reports to manager 2 and has a report of their own.
+  private static HRModel teams() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "First", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Second", "Test", 0, 0, 0, false);
+    for (int i = 0; i < 4; i++) {
+      model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    }
+    model.addEmployee("Manager", "Lead", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(3, 1);
+    model.linkEmployeeAndManager(4, 1);
+    model.linkEmployeeAndManager(5, 2);
+    model.linkEmployeeAndManager(6, 2);
+    model.linkEmployeeAndManager(7, 2);
+    model.linkEmployeeAndManager(8, 7);
+    return model;
+  }
+
+  @Test
+  public void testReassignReports() {
+    HRModel model = teams();
+    model.reassignReports(2, 1);
+    Manager first = (Manager) model.getUsers().get(1);
+    assertEquals(Set.of(3, 4, 5, 6, 7), first.getReportingEmployees().keySet());
+    assertTrue(((Manager) model.getUsers().get(2)).getReportingEmployees().isEmpty());
+    for (int id = 5; id <= 7; id++) {
+      assertSame(first, model.getUsers().get(id).getManager());
+    }
+    // Everyone underneath the reports comes along
+    assertTrue(model.getOrgHierarchy().isUnder(8, 1));
+    assertFalse(model.getOrgHierarchy().isUnder(8, 2));
+  }
+
+  @Test
+  public void testReassignReportsUnderneath() {
+    HRModel model = teams();
+    try {
+      model.reassignReports(2, 7);
+      fail("Reports can't be moved to someone among them.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+    try {
+      model.reassignReports(2, 3);
+      fail("Reports can only be moved to a manager.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+    assertEquals(2, model.getUsers().get(5).getManagerId());
+    assertEquals(7, model.getUsers().get(8).getManagerId());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReassignReportsNotAdmin() {
+    HRModel model = teams();
+    model.logIn(2, "Test");
+    model.reassignReports(2, 1);
+  }
+
+  @Test
+  public void testMergeTeams() {
+    HRModel model = teams();
+    model.mergeTeams(1, 2);
+    Manager first = (Manager) model.getUsers().get(1);
+    assertEquals(Set.of(2, 3, 4, 5, 6, 7), first.getReportingEmployees().keySet());
+    assertTrue(model.getUsers().get(2).hasRole(Role.MANAGER));
+    assertTrue(((Manager) model.getUsers().get(2)).getReportingEmployees().isEmpty());
+    assertEquals(1, model.getUsers().get(2).getManagerId());
+    assertArrayEquals(new int[]{2, 3, 4, 5, 6, 7, 8},
+        model.getOrgHierarchy().subtree(1).sorted().toArray());
+
+    // The merged manager can no longer edit their old team
+    model.logIn(2, "Test");
+    try {
+      model.setSalary(5, 10);
+      fail("A merged manager shouldn't be able to edit their former report.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMergeTeamsIntoOwnTeam() {
+    teams().mergeTeams(7, 2);
+  }
+
+  @Test
+  public void testMoveSubtrees() {
+    HRModel model = teams();
+    model.moveSubtrees(new int[]{3, 7}, 2);
+    assertEquals(2, model.getUsers().get(3).getManagerId());
+    assertEquals(2, model.getUsers().get(7).getManagerId());
+    assertEquals(7, model.getUsers().get(8).getManagerId());
+    assertEquals(Set.of(4), ((Manager) model.getUsers().get(1)).getReportingEmployees().keySet());
+    model.moveSubtrees(new int[]{2}, 1);
+    assertArrayEquals(new int[]{2, 3, 4, 5, 6, 7, 8},
+        model.getOrgHierarchy().subtree(1).sorted().toArray());
+  }
+
+  @Test
+  public void testMoveSubtreesAllOrNothing() {
+    HRModel model = teams();
+    try {
+      model.moveSubtrees(new int[]{3, 2}, 7);
+      fail("A manager can't take on someone above them.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+    try {
+      model.moveSubtrees(new int[]{3, 100}, 2);
+      fail("Every ID must be an employee.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+    assertEquals(1, model.getUsers().get(3).getManagerId());
+    assertFalse(model.getUsers().get(2).hasManager());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMoveSubtreesNull() {
+    teams().moveSubtrees(null, 1);
+  }
+
+  @Test
+  public void testReorganizationIsOneEvent() throws InterruptedException {
+    HRModel model = teams();
+    BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<ChangeEvent>();
+    ChangeSubscription subscription = model.subscribe(events::add,
+        BackpressurePolicy.DROP_OLDEST);
+    model.reassignReports(2, 1);
+    model.mergeTeams(2, 7);
+    model.moveSubtrees(new int[]{3, 4}, 2);
+
+    ChangeEvent reassigned = next(events);
+    assertEquals(ChangeEvent.Type.REPORTS_REASSIGNED, reassigned.getType());
+    assertEquals(2, reassigned.getUserId());
+    assertEquals(1, reassigned.getManagerId());
+    ChangeEvent merged = next(events);
+    assertEquals(ChangeEvent.Type.TEAMS_MERGED, merged.getType());
+    assertEquals(7, merged.getUserId());
+    assertEquals(2, merged.getManagerId());
+    ChangeEvent moved = next(events);
+    assertEquals(ChangeEvent.Type.SUBTREES_MOVED, moved.getType());
+    assertEquals(2, moved.getManagerId());
+    assertArrayEquals(new int[]{3, 4}, moved.getMovedIds());
+    assertEquals(0, reassigned.getMovedIds().length);
+    subscription.close();
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void testRemoveManagerUnlinksReports() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.removeUser(1);
+    assertFalse(model.getOrgHierarchy().contains(1));
+    try {
+      model.getUsers().get(2).getManager();
+      fail("The employee should no longer have a manager.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIndirectReportNotReadableByDefault() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Middle", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 2);
+    model.logIn(1, "Test");
+    model.getSalary(3);
+  }
+
+  @Test
+  public void testTransitiveManagerAccess() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    model.addEmployee("Manager", "Middle", "Test", 0, 0, 0, false);
+    model.addEmployee("Standard Employee", "Emp", "Test", 10, 0, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 2);
+    model.setTransitiveManagerAccess(true);
+    assertTrue(model.isTransitiveManagerAccess());
+    model.logIn(1, "Test");
+    assertEquals(10, model.getSalary(3), 0.01);
+    model.setSalary(3, 20);
+    assertEquals(20, model.getSalary(3), 0.01);
+    assertEquals(3, model.summarizePayroll(null, null).getHeadcount());
+  }
+
+  // A model with a manager in HR, two reports (one also in HR) and an employee elsewhere
+  private HRModel directory() {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Alice Adams", "Test", 90000, 20, 5000, true);
+    model.addEmployee("Standard Employee", "alfred Brown", "Test", 50000, 10, 1000, false);
+    model.addEmployee("Standard Employee", "Bob Carter", "Test", 60000, 15, 2000, true);
+    model.addEmployee("Standard Employee", "Carol Davis", "Test", 70000, 5, 0, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 1);
+    return model;
+  }
+
+  @Test
+  public void testFindUsersByName() {
+    HRModel model = directory();
+    assertEquals(Arrays.asList(2, 1), model.findUsersByName("AL"));
+    assertEquals(Arrays.asList(2, 1, 3, 4, 0), model.findUsersByName(""));
+    assertEquals(Arrays.asList(), model.findUsersByName("Dave"));
+  }
+
+  @Test
+  public void testFindUsersWithRoles() {
+    HRModel model = directory();
+    assertEquals(Arrays.asList(1, 3), model.findUsersWithRoles(Role.HUMAN_RESOURCES));
+    assertEquals(Arrays.asList(1), model.findUsersWithRoles(Role.MANAGER, Role.HUMAN_RESOURCES));
+    assertEquals(Arrays.asList(0), model.findUsersWithRoles(Role.ADMINISTRATOR));
+  }
+
+  @Test
+  public void testFindEmployeesByValue() {
+    HRModel model = directory();
+    assertEquals(Arrays.asList(2, 3, 4), model.findEmployeesBySalary(50000, 70000));
+    assertEquals(Arrays.asList(4, 2), model.findEmployeesByAnnualBonus(0, 1000));
+    assertEquals(Arrays.asList(2, 3, 1), model.findEmployeesByVacationBalance(10, 100));
+  }
+
+  @Test
+  public void testIndexesFollowChanges() {
+    HRModel model = directory();
+    model.setSalary(2, 80000);
+    model.changeHRStatus(4, true);
+    model.promoteToManager(4);
+    model.demoteToStandard(1);
+    model.removeUser(3);
+    assertEquals(Arrays.asList(4, 2, 1), model.findEmployeesBySalary(70000, 100000));
+    assertEquals(Arrays.asList(1, 4), model.findUsersWithRoles(Role.HUMAN_RESOURCES));
+    assertEquals(Arrays.asList(4), model.findUsersWithRoles(Role.MANAGER));
+    assertEquals(Arrays.asList(), model.findUsersByName("bob"));
+  }
+
+  @Test
+  public void testFindOnlyReturnsReadableUsers() {
+    HRModel model = directory();
+    // The manager is in HR, so can read their reports and everyone outside HR
+    model.logIn(1, "Test");
+    assertEquals(Arrays.asList(2, 3, 4, 1), model.findEmployeesBySalary(0, 100000));
+    model.logIn(2, "Test");
+    assertEquals(Arrays.asList(2), model.findUsersByName(""));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFindLoggedOut() {
+    HRModel model = directory();
+    model.logOut();
+    model.findUsersByName("A");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindBackwardsRange() {
+    directory().findEmployeesBySalary(2, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindNoRoles() {
+    directory().findUsersWithRoles();
+  }
+
+  // Gets the IDs of the users found by a query.
+  private static List<Integer> ids(Stream<IUser> users) {
+    return users.map(IUser::getId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testFindUsers() {
+    HRModel model = directory();
+    model.addEmployee("Standard Employee", "Dan Evans", "Test", 95000, 5, 3000, false);
+    model.addEmployee("Standard Employee", "Eve Fox", "Test", 99000, 5, 1500, false);
+    model.addEmployee("Standard Employee", "Fay Gray", "Test", 98000, 5, 2500, true);
+    model.linkEmployeeAndManager(5, 1);
+    model.linkEmployeeAndManager(6, 1);
+    model.linkEmployeeAndManager(7, 1);
+    UserQuery query = UserQuery.all()
+        .withoutRoles(Role.HUMAN_RESOURCES)
+        .underManager(1)
+        .between(UserAttribute.SALARY, 90000, Double.MAX_VALUE)
+        .sortedBy(UserAttribute.ANNUAL_BONUS);
+    assertEquals(Arrays.asList(6, 5), ids(model.findUsers(query)));
+    assertEquals(Arrays.asList(2, 4, 5, 6), ids(model.findUsers(UserQuery.all()
+        .withoutRoles(Role.HUMAN_RESOURCES, Role.ADMINISTRATOR))));
+  }
+
+  @Test
+  public void testFindUsersPages() {
+    HRModel model = directory();
+    for (UserAttribute sortKey : UserAttribute.values()) {
+      // Every employee, two at a time, however they are sorted and whichever plan is used
+      UserQuery query = UserQuery.all().withRoles(Role.EMPLOYEE).sortedBy(sortKey).limit(2);
+      List<Integer> seen = new ArrayList<Integer>();
+      while (true) {
+        List<IUser> page = model.findUsers(query).collect(Collectors.toList());
+        page.forEach(user -> seen.add(user.getId()));
+        if (page.size() < 2) {
+          break;
+        }
+        query = query.after(query.cursorAfter(page.get(page.size() - 1)));
+      }
+      Collections.sort(seen);
+      assertEquals(Arrays.asList(1, 2, 3, 4), seen);
+    }
+
+    UserQuery byName = UserQuery.all().withNamePrefix("a").sortedBy(UserAttribute.NAME);
+    IUser first = model.findUsers(byName).findFirst().get();
+    assertEquals(Arrays.asList(1), ids(model.findUsers(byName.after(byName.cursorAfter(first)))));
+  }
+
+  @Test
+  public void testFindUsersOnlyReadable() {
+    HRModel model = directory();
+    model.logIn(2, "Test");
+    assertEquals(Arrays.asList(2), ids(model.findUsers(UserQuery.all())));
+  }
+
+  @Test
+  public void testFindUsersChecksUsersWhenReached() {
+    HRModel model = directory();
+    UserQuery query = UserQuery.all().between(UserAttribute.SALARY, 0, 55000);
+    assertEquals(Arrays.asList(2), ids(model.findUsers(query)));
+    Stream<IUser> found = model.findUsers(query);
+    model.setSalary(2, 60000);
+    assertEquals(Arrays.asList(), ids(found));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindUsersNullQuery() {
+    directory().findUsers(null);
+  }
+
+  // Takes the next event handed to a subscriber, waiting for it if need be.
+  private static ChangeEvent next(BlockingQueue<ChangeEvent> events) throws InterruptedException {
+    ChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+    assertNotNull(event);
+    return event;
+  }
+
+  @Test
+  public void testSubscribe() throws InterruptedException {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Before", "Test", 0, 0, 0, false);
+    BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<ChangeEvent>();
+    ChangeSubscription subscription = model.subscribe(events::add,
+        BackpressurePolicy.DROP_OLDEST);
+    model.addEmployee("Standard Employee", "Stan", "Test", 100, 2, 3, true);
+    model.setSalary(2, 200);
+    model.setVacationBalance(2, 5);
+    model.setAnnualBonus(2, 7);
+    model.changeHRStatus(2, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.promoteToManager(2);
+    model.demoteToStandard(2);
+    model.addAdministrator("Admin", "Test");
+    model.removeUser(2);
+
+    ChangeEvent added = next(events);
+    assertEquals(ChangeEvent.Type.EMPLOYEE_ADDED, added.getType());
+    assertEquals(2, added.getUserId());
+    assertEquals("Stan", added.getName());
+    assertFalse(added.isManager());
+    assertEquals(100, added.getSalary(), 0.01);
+    assertEquals(2, added.getVacationBalance());
+    assertEquals(3, added.getAnnualBonus(), 0.01);
+    assertTrue(added.isInHumanResources());
+    assertEquals(200, next(events).getSalary(), 0.01);
+    assertEquals(5, next(events).getVacationBalance());
+    assertEquals(7, next(events).getAnnualBonus(), 0.01);
+    assertEquals(ChangeEvent.Type.HR_STATUS_CHANGED, next(events).getType());
+    assertEquals(1, next(events).getManagerId());
+    assertEquals(ChangeEvent.Type.PROMOTED_TO_MANAGER, next(events).getType());
+    assertEquals(ChangeEvent.Type.DEMOTED_TO_STANDARD, next(events).getType());
+    assertEquals(-1, next(events).getUserId());
+    ChangeEvent removed = next(events);
+    assertEquals(ChangeEvent.Type.USER_REMOVED, removed.getType());
+    assertEquals(added.getSequence() + 9, removed.getSequence());
+
+    // The last event is counted once the consumer returns, which may be after it was taken
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscription.getDelivered() < 10 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    subscription.close();
+    model.setSalary(1, 10);
+    assertFalse(subscription.isOpen());
+    assertEquals(10, subscription.getDelivered());
+    assertEquals(0, subscription.getDropped());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSubscribeNotAdministrator() {
+    HRModel model = directory();
+    model.logIn(1, "Test");
+    model.subscribe(event -> { }, BackpressurePolicy.DISCONNECT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSubscribeNullPolicy() {
+    directory().subscribe(event -> { }, null);
+  }
+}
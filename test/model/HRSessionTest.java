@@ -0,0 +1,318 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link HRSession} to ensure that sessions act independently on behalf of the
+ * users who opened them.
+ *
+ * @author Michael Ruberto
+ */
+public class HRSessionTest {
+
+  // Creates a model with a manager (ID 1) and a standard employee (ID 2) who reports to them.
+  private HRModel modelWithTeam() {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Man", "Test", 100, 0, 0, false);
+    admin.addEmployee("Standard Employee", "Emp", "Test", 50, 0, 0, false);
+    admin.linkEmployeeAndManager(2, 1);
+    admin.logOut();
+    return model;
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOpenSessionBadPassword() {
+    HRModel model = new HRModel("Password");
+    model.openSession(0, "password");
+  }
+
+  @Test
+  public void testOpenSession() {
+    HRModel model = new HRModel("Password");
+    HRSession session = model.openSession(0, "Password");
+    assertTrue(session.isOpen());
+    assertEquals(0, session.getUserId());
+    assertEquals("Default Admin", session.getUser().getName());
+    assertNull(model.getCurrentUser());
+  }
+
+  @Test
+  public void testGetSession() {
+    HRModel model = new HRModel("Password");
+    HRSession session = model.openSession(0, "Password");
+    assertSame(session, model.getSession(session.getToken()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGetSessionAfterLogOut() {
+    HRModel model = new HRModel("Password");
+    HRSession session = model.openSession(0, "Password");
+    session.logOut();
+    model.getSession(session.getToken());
+  }
+
+  @Test
+  public void testTokensAreUnique() {
+    HRModel model = new HRModel("Password");
+    HRSession first = model.openSession(0, "Password");
+    HRSession second = model.openSession(0, "Password");
+    assertNotEquals(first.getToken(), second.getToken());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testClosedSession() {
+    HRModel model = modelWithTeam();
+    HRSession session = model.openSession(1, "Test");
+    session.logOut();
+    assertFalse(session.isOpen());
+    session.getSalary(1);
+  }
+
+  @Test
+  public void testSessionsAreIndependent() {
+    HRModel model = modelWithTeam();
+    HRSession manager = model.openSession(1, "Test");
+    HRSession employee = model.openSession(2, "Test");
+
+    manager.setSalary(2, 75);
+    assertEquals(75, employee.getSalary(2), 0.01);
+
+    boolean denied = false;
+    try {
+      employee.getSalary(1);
+    } catch (IllegalStateException ise) {
+      denied = true;
+    }
+    assertTrue(denied);
+    assertEquals(100, manager.getSalary(1), 0.01);
+  }
+
+  @Test
+  public void testLogInReturnsCurrentSession() {
+    HRModel model = modelWithTeam();
+    HRSession session = model.logIn(1, "Test");
+    assertEquals(session.getUser(), model.getCurrentUser());
+    model.logOut();
+    assertFalse(session.isOpen());
+  }
+
+  @Test
+  public void testRemovedUserSessionClosed() {
+    HRModel model = modelWithTeam();
+    HRSession employee = model.openSession(2, "Test");
+    HRSession admin = model.openSession(0, "Password");
+    admin.removeUser(2);
+    assertFalse(employee.isOpen());
+    assertNull(employee.getUser());
+  }
+
+  @Test
+  public void testSessionSeesPromotion() {
+    HRModel model = modelWithTeam();
+    HRSession employee = model.openSession(2, "Test");
+    HRSession admin = model.openSession(0, "Password");
+    admin.promoteToManager(2);
+    assertEquals("AEmployee, Manager", employee.getUser().getUserType());
+  }
+
+  @Test
+  public void testConcurrentSessions() throws InterruptedException {
+    HRModel model = modelWithTeam();
+    AtomicInteger failures = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+
+    for (int i = 0; i < 8; i++) {
+      final int userId = i % 2 == 0 ? 1 : 2;
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 200; j++) {
+          HRSession session = model.openSession(userId, "Test");
+          if (session.getSalary(2) < 0 || session.getUser().getId() != userId) {
+            failures.incrementAndGet();
+          }
+          session.logOut();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(0, failures.get());
+  }
+
+  @Test
+  public void testRepeatedReadsHitCache() {
+    HRModel model = modelWithTeam();
+    HRSession manager = model.openSession(1, "Test");
+    for (int i = 0; i < 5; i++) {
+      assertEquals(50, manager.getSalary(2), 0.01);
+    }
+    assertEquals(1, manager.getAccessCacheMisses());
+    assertEquals(4, manager.getAccessCacheHits());
+  }
+
+  @Test
+  public void testCachedDenialStillThrows() {
+    HRModel model = modelWithTeam();
+    HRSession employee = model.openSession(2, "Test");
+    for (int i = 0; i < 3; i++) {
+      try {
+        employee.getSalary(1);
+        fail("A standard employee shouldn't be able to read their manager's salary.");
+      } catch (IllegalStateException ise) {
+        // Expected
+      }
+    }
+    assertEquals(2, employee.getAccessCacheHits());
+  }
+
+  @Test
+  public void testAccessChangesOnlyMissForTheUsersChanged() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "Other", "Test", 0, 0, 0, false);
+    HRSession manager = model.openSession(1, "Test");
+    manager.getSalary(2);
+    manager.getSalary(2);
+    assertEquals(1, manager.getAccessCacheMisses());
+
+    // A change to someone else leaves the decision about the report cached
+    admin.changeHRStatus(3, true);
+    manager.getSalary(2);
+    assertEquals(1, manager.getAccessCacheMisses());
+    assertEquals(2, manager.getAccessCacheHits());
+
+    // A change to the report means the decision is made again, and then cached again
+    admin.changeHRStatus(2, true);
+    manager.getSalary(2);
+    manager.getSalary(2);
+    assertEquals(2, manager.getAccessCacheMisses());
+    assertEquals(3, manager.getAccessCacheHits());
+  }
+
+  @Test
+  public void testLinkInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Other", "Test", 0, 0, 0, false);
+    HRSession manager = model.openSession(1, "Test");
+    assertEquals(50, manager.getSalary(2), 0.01);
+
+    admin.linkEmployeeAndManager(2, 3);
+    try {
+      manager.getSalary(2);
+      fail("The manager should no longer be able to read their former report.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+    assertEquals(50, model.openSession(3, "Test").getSalary(2), 0.01);
+  }
+
+  @Test
+  public void testChangeHRStatusInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    HRSession employee = model.openSession(2, "Test");
+    try {
+      employee.getSalary(1);
+      fail("A standard employee shouldn't be able to read their manager's salary.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+
+    // Moving the caller into HR lets them read anyone outside HR
+    admin.changeHRStatus(2, true);
+    assertEquals(100, employee.getSalary(1), 0.01);
+
+    // Moving the target into HR takes that away again
+    admin.changeHRStatus(1, true);
+    try {
+      employee.getSalary(1);
+      fail("Someone in HR shouldn't be able to read another HR employee's salary.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testDemoteInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    HRSession manager = model.openSession(1, "Test");
+    manager.setSalary(2, 60);
+
+    admin.demoteToStandard(1);
+    try {
+      manager.setSalary(2, 70);
+      fail("A demoted manager shouldn't be able to edit their former report.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testTransitiveAccessToggleInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    admin.linkEmployeeAndManager(1, 3);
+    HRSession top = model.openSession(3, "Test");
+    try {
+      top.getSalary(2);
+      fail("Managers only have access to their direct reports by default.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+
+    model.setTransitiveManagerAccess(true);
+    assertEquals(50, top.getSalary(2), 0.01);
+  }
+
+  @Test
+  public void testTransitiveLinkInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Top", "Test", 0, 0, 0, false);
+    admin.addEmployee("Manager", "Other", "Test", 0, 0, 0, false);
+    admin.linkEmployeeAndManager(1, 3);
+    model.setTransitiveManagerAccess(true);
+    HRSession top = model.openSession(3, "Test");
+    assertEquals(50, top.getSalary(2), 0.01);
+
+    // Moving the manager in between takes the report out from under the top manager, though the
+    // report's own link is unchanged
+    admin.linkEmployeeAndManager(1, 4);
+    try {
+      top.getSalary(2);
+      fail("The report is no longer underneath the top manager.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testPromotionInvalidatesCache() {
+    HRModel model = modelWithTeam();
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Standard Employee", "Lead", "Test", 0, 0, 0, false);
+    HRSession lead = model.openSession(3, "Test");
+    try {
+      lead.getSalary(2);
+      fail("A standard employee shouldn't be able to read someone else's salary.");
+    } catch (IllegalStateException ise) {
+      // Expected
+    }
+
+    admin.promoteToManager(3);
+    admin.linkEmployeeAndManager(2, 3);
+    assertEquals(50, lead.getSalary(2), 0.01);
+  }
+}
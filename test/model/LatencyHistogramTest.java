@@ -0,0 +1,89 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link LatencyHistogram} to ensure that times are counted in the right
+ * buckets, and that counts and percentiles are read back to within a bucket.
+ *
+ * @author Michael Ruberto
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsCoverEveryTime() {
+    // Every bucket starts where the one before it ends
+    for (int bucket = 1; bucket <= LatencyHistogram.bucketOf(LatencyHistogram.MAX_NANOS);
+        bucket++) {
+      long lowest = LatencyHistogram.lowestOf(bucket);
+      assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+      assertEquals(bucket - 1, LatencyHistogram.bucketOf(lowest - 1));
+    }
+    assertEquals(0, LatencyHistogram.bucketOf(-5));
+    assertEquals(7, LatencyHistogram.bucketOf(7));
+    assertEquals(8, LatencyHistogram.bucketOf(8));
+    // Each power of two is split into eight
+    assertEquals(LatencyHistogram.bucketOf(1024), LatencyHistogram.bucketOf(1151));
+    assertEquals(LatencyHistogram.bucketOf(1024) + 1, LatencyHistogram.bucketOf(1152));
+  }
+
+  @Test
+  public void testCountAndTotal() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    histogram.record(100);
+    histogram.record(300);
+    histogram.record(-20);
+    assertEquals(3, histogram.getCount());
+    assertEquals(400, histogram.getTotalNanos());
+  }
+
+  @Test
+  public void testLongTimesAreCountedAsTheMaximum() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(1, histogram.getCount());
+    assertEquals(LatencyHistogram.MAX_NANOS, histogram.getTotalNanos());
+    assertEquals(LatencyHistogram.MAX_NANOS, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testValueAtPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    long median = histogram.getValueAtPercentile(50);
+    assertTrue(median >= 500000 && median <= 500000 * 9 / 8);
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(p99 >= 990000 && p99 <= 990000 * 9 / 8);
+    long smallest = histogram.getValueAtPercentile(0);
+    assertTrue(smallest >= 1000 && smallest <= 1000 * 9 / 8);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testValueAtBadPercentile() {
+    new LatencyHistogram().getValueAtPercentile(101);
+  }
+
+  @Test
+  public void testCountBelow() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(255);
+    histogram.record(256);
+    histogram.record(1023);
+    histogram.record(1 << 20);
+    assertEquals(1, histogram.countBelow(8));
+    assertEquals(3, histogram.countBelow(10));
+    assertEquals(3, histogram.countBelow(20));
+    assertEquals(4, histogram.countBelow(40));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCountBelowBadPower() {
+    new LatencyHistogram().countBelow(41);
+  }
+}
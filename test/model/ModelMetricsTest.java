@@ -0,0 +1,176 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import model.users.IUser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the class {@link ModelMetrics}, and for measuring the calls made to an {@link
+ * HRModel}.
+ *
+ * @author Michael Ruberto
+ */
+public class ModelMetricsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // Builds a model with a manager and a standard employee who reports to them.
+  private static HRModel model() {
+    HRModel model = new HRModel("Password");
+    HRSession admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Manager", "Test", 100, 1, 10, false);
+    admin.addEmployee("Standard Employee", "Employee", "Test", 50, 1, 10, false);
+    admin.linkEmployeeAndManager(2, 1);
+    return model;
+  }
+
+  @Test
+  public void testCallsAreMeasured() {
+    HRModel model = model();
+    ModelMetrics metrics = new ModelMetrics();
+    model.setMetrics(metrics);
+    assertSame(metrics, model.getMetrics());
+
+    HRSession employee = model.openSession(2, "Test");
+    employee.getSalary(2);
+    employee.getSalary(2);
+    try {
+      employee.setSalary(2, 1000);
+      fail();
+    } catch (IllegalStateException e) {
+      // Denied
+    }
+    try {
+      employee.getSalary(99);
+      fail();
+    } catch (IllegalStateException e) {
+      // No such user
+    }
+    try {
+      model.openSession(1, "Test").setSalary(2, -5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Allowed, but not a valid salary
+    }
+
+    assertEquals(2, metrics.getLatency(ModelOperation.LOG_IN).getCount());
+    assertEquals(3, metrics.getLatency(ModelOperation.GET_SALARY).getCount());
+    assertEquals(2, metrics.getLatency(ModelOperation.SET_SALARY).getCount());
+    assertEquals(0, metrics.getLatency(ModelOperation.ADD_EMPLOYEE).getCount());
+    assertTrue(metrics.getLatency(ModelOperation.GET_SALARY).getTotalNanos() > 0);
+    assertEquals(2, metrics.getAllowed());
+    assertEquals(1, metrics.getDenied());
+    assertEquals(Collections.singletonMap("java.lang.IllegalStateException", 1L),
+        metrics.getExceptions(ModelOperation.GET_SALARY));
+    assertEquals(2, metrics.getExceptions(ModelOperation.SET_SALARY).size());
+    assertTrue(metrics.getExceptions(ModelOperation.LOG_IN).isEmpty());
+
+    // Calls made once the metrics are taken away aren't measured
+    model.setMetrics(null);
+    employee.getSalary(2);
+    assertEquals(3, metrics.getLatency(ModelOperation.GET_SALARY).getCount());
+    assertEquals(2, metrics.getAllowed());
+  }
+
+  @Test
+  public void testFindUsersIsMeasuredOnceConsumed() {
+    HRModel model = model();
+    ModelMetrics metrics = new ModelMetrics();
+    model.setMetrics(metrics);
+    HRSession manager = model.openSession(1, "Test");
+
+    Stream<IUser> found = manager.findUsers(UserQuery.all());
+    // Nothing has been found yet
+    assertEquals(0, metrics.getLatency(ModelOperation.FIND_USERS).getCount());
+    assertEquals(2, found.collect(Collectors.toList()).size());
+    assertEquals(1, metrics.getLatency(ModelOperation.FIND_USERS).getCount());
+
+    // A stream closed before it runs out is measured when it is closed, and only once
+    try (Stream<IUser> closed = manager.findUsers(UserQuery.all())) {
+      assertTrue(closed.findFirst().isPresent());
+    }
+    assertEquals(2, metrics.getLatency(ModelOperation.FIND_USERS).getCount());
+
+    // A failure while finding users counts against the call, but one in the caller's code doesn't
+    try {
+      manager.findUsers(UserQuery.all().matching(user -> {
+        throw new IllegalStateException("Bad predicate");
+      })).count();
+      fail();
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    try {
+      manager.findUsers(UserQuery.all()).forEach(user -> {
+        throw new UnsupportedOperationException("Caller's own failure");
+      });
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    assertEquals(Collections.singletonMap("java.lang.IllegalStateException", 1L),
+        metrics.getExceptions(ModelOperation.FIND_USERS));
+    assertEquals(3, metrics.getLatency(ModelOperation.FIND_USERS).getCount());
+  }
+
+  @Test
+  public void testPrometheusText() {
+    ModelMetrics metrics = new ModelMetrics();
+    metrics.record(ModelOperation.GET_SALARY, 300);
+    metrics.record(ModelOperation.GET_SALARY, 2000);
+    metrics.countDecision(AccessDecision.ALLOWED);
+    metrics.countDecision(AccessDecision.NOT_PERMITTED);
+    metrics.countException(ModelOperation.SET_SALARY, new IllegalStateException());
+    String text = metrics.toPrometheus();
+
+    assertTrue(text.contains("# TYPE hr_model_call_duration_seconds histogram\n"));
+    assertTrue(text.contains(
+        "hr_model_call_duration_seconds_bucket{operation=\"GET_SALARY\",le=\"2.56E-7\"} 0\n"));
+    assertTrue(text.contains(
+        "hr_model_call_duration_seconds_bucket{operation=\"GET_SALARY\",le=\"1.024E-6\"} 1\n"));
+    assertTrue(text.contains(
+        "hr_model_call_duration_seconds_bucket{operation=\"GET_SALARY\",le=\"4.096E-6\"} 2\n"));
+    assertTrue(text.contains(
+        "hr_model_call_duration_seconds_bucket{operation=\"GET_SALARY\",le=\"+Inf\"} 2\n"));
+    assertTrue(text.contains(
+        "hr_model_call_duration_seconds_sum{operation=\"GET_SALARY\"} 2.3E-6\n"));
+    assertTrue(text.contains("hr_model_call_duration_seconds_count{operation=\"GET_SALARY\"} 2\n"));
+    // Operations which haven't been called are left out
+    assertFalse(text.contains("operation=\"SET_SALARY\",le="));
+    assertTrue(text.contains("hr_model_access_decisions_total{outcome=\"ALLOWED\"} 1\n"));
+    assertTrue(text.contains("hr_model_access_decisions_total{outcome=\"NOT_PERMITTED\"} 1\n"));
+    assertTrue(text.contains("hr_model_access_decisions_total{outcome=\"NOT_LOGGED_IN\"} 0\n"));
+    assertTrue(text.contains("hr_model_exceptions_total{operation=\"SET_SALARY\","
+        + "exception=\"java.lang.IllegalStateException\"} 1\n"));
+  }
+
+  @Test
+  public void testWritePrometheusFile() throws IOException {
+    ModelMetrics metrics = new ModelMetrics();
+    metrics.record(ModelOperation.FIND_USERS, 5000);
+    Path file = folder.getRoot().toPath().resolve("hr_model.prom");
+    metrics.writePrometheus(file);
+    metrics.record(ModelOperation.FIND_USERS, 5000);
+    metrics.writePrometheus(file);
+
+    List<String> lines = Files.readAllLines(file);
+    assertTrue(lines.contains("hr_model_call_duration_seconds_count{operation=\"FIND_USERS\"} 2"));
+    assertFalse(Files.exists(file.resolveSibling("hr_model.prom.tmp")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetLatencyNullOperation() {
+    new ModelMetrics().getLatency(null);
+  }
+}
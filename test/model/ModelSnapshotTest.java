@@ -0,0 +1,239 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import model.users.Role;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link ModelSnapshot} to ensure that a snapshot keeps seeing every user as
+ * they were when it was opened while the model is changed, and that the older states kept for it
+ * are dropped once it is closed.
+ *
+ * @author Michael Ruberto
+ */
+public class ModelSnapshotTest {
+
+  private HRModel model;
+  private HRSession admin;
+
+  @Before
+  public void setUp() {
+    model = new HRModel("Password");
+    admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Boss", "BossPW", 200, 10, 20, false);
+    admin.addEmployee("Standard Employee", "First", "FirstPW", 50, 5, 5, false);
+    admin.addEmployee("Standard Employee", "Second", "SecondPW", 60, 6, 6, true);
+    admin.linkEmployeeAndManager(2, 1);
+  }
+
+  // Gets the number of users the model keeps older states of.
+  private int keptUsers() {
+    return model.history().keptUsers();
+  }
+
+  @Test
+  public void testSnapshotSeesStateWhenOpened() {
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      admin.setSalary(2, 55);
+      admin.setVacationBalance(2, 7);
+      admin.setAnnualBonus(3, 9);
+      admin.changeHRStatus(2, true);
+      admin.linkEmployeeAndManager(3, 1);
+
+      UserState first = snapshot.getUser(2);
+      assertEquals("First", first.getName());
+      assertEquals(50, first.getSalary(), 0.0);
+      assertEquals(5, first.getVacationBalance());
+      assertFalse(first.isInHumanResources());
+      assertEquals(1, first.getManagerId());
+      UserState second = snapshot.getUser(3);
+      assertEquals(6, second.getAnnualBonus(), 0.0);
+      assertTrue(second.isInHumanResources());
+      assertFalse(second.hasManager());
+
+      // A snapshot opened now sees the changes
+      try (ModelSnapshot later = admin.openSnapshot()) {
+        assertEquals(55, later.getUser(2).getSalary(), 0.0);
+        assertEquals(1, later.getUser(3).getManagerId());
+        assertTrue(later.getSequence() > snapshot.getSequence());
+      }
+    }
+    assertEquals(0, keptUsers());
+  }
+
+  @Test
+  public void testAddedAndRemovedUsers() {
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      admin.addEmployee("Standard Employee", "New", "NewPW", 10, 1, 1, false);
+      admin.addAdministrator("Admin", "AdminPW");
+      admin.removeUser(1);
+
+      assertNull(snapshot.getUser(4));
+      assertNull(snapshot.getUser(-1));
+      assertEquals("Boss", snapshot.getUser(1).getName());
+      assertTrue(snapshot.getUser(1).hasRole(Role.MANAGER));
+      // Still linked to the removed manager, as they were then
+      assertEquals(1, snapshot.getUser(2).getManagerId());
+      assertEquals(0, model.getUsers().get(2).getManagerId());
+
+      List<Integer> ids = snapshot.users().map(UserState::getId).sorted()
+          .collect(Collectors.toList());
+      assertEquals(List.of(0, 1, 2, 3), ids);
+    }
+  }
+
+  @Test
+  public void testPromotionsAndDemotions() {
+    admin.promoteToManager(3);
+    admin.linkEmployeeAndManager(2, 3);
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      admin.demoteToStandard(3);
+      admin.promoteToManager(2);
+      assertTrue(snapshot.getUser(3).hasRole(Role.MANAGER));
+      assertTrue(snapshot.getUser(2).hasRole(Role.STANDARD_EMPLOYEE));
+      assertEquals(3, snapshot.getUser(2).getManagerId());
+    }
+  }
+
+  @Test
+  public void testTransactionIsSeenWhole() {
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      try (Transaction transaction = admin.beginTransaction()) {
+        transaction.setSalary(2, 70);
+        transaction.setSalary(3, 80);
+        transaction.linkEmployeeAndManager(3, 1);
+        transaction.commit();
+      }
+      assertEquals(50, snapshot.getUser(2).getSalary(), 0.0);
+      assertEquals(60, snapshot.getUser(3).getSalary(), 0.0);
+      assertFalse(snapshot.getUser(3).hasManager());
+    }
+  }
+
+  @Test
+  public void testSummarizePayroll() {
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      admin.setSalary(2, 1000);
+      admin.removeUser(3);
+      PayrollSummary all = snapshot.summarizePayroll(null, null);
+      assertEquals(3, all.getHeadcount());
+      assertEquals(310, all.getTotalSalary(), 0.0);
+      assertEquals(31, all.getTotalAnnualBonus(), 0.0);
+      assertEquals(21, all.getTotalVacationBalance());
+      assertEquals(1, snapshot.summarizePayroll("Manager", null).getHeadcount());
+      PayrollSummary human = snapshot.summarizePayroll("Standard Employee", true);
+      assertEquals(1, human.getHeadcount());
+      assertEquals(60, human.getTotalSalary(), 0.0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSummarizeBadType() {
+    try (ModelSnapshot snapshot = admin.openSnapshot()) {
+      snapshot.summarizePayroll("Intern", null);
+    }
+  }
+
+  @Test
+  public void testOnlyAdministratorsMayOpen() {
+    HRSession employee = model.openSession(2, "FirstPW");
+    try {
+      employee.openSnapshot();
+      fail();
+    } catch (IllegalStateException e) {
+      // Not an administrator
+    }
+    assertEquals(0, keptUsers());
+  }
+
+  @Test
+  public void testClosedSnapshotCannotBeRead() {
+    ModelSnapshot snapshot = admin.openSnapshot();
+    snapshot.close();
+    snapshot.close();
+    assertFalse(snapshot.isOpen());
+    try {
+      snapshot.getUser(2);
+      fail();
+    } catch (IllegalStateException e) {
+      // Closed
+    }
+    try {
+      snapshot.users();
+      fail();
+    } catch (IllegalStateException e) {
+      // Closed
+    }
+  }
+
+  @Test
+  public void testOlderStatesAreDroppedOnceUnneeded() {
+    // Nothing is kept while no snapshot is open
+    admin.setSalary(2, 51);
+    assertEquals(0, keptUsers());
+
+    ModelSnapshot first = admin.openSnapshot();
+    for (int i = 0; i < 100; i++) {
+      admin.setSalary(2, 100 + i);
+    }
+    // One state for the whole run of changes
+    assertNotNull(model.history().find(2, first.getSequence()));
+    assertNull(model.history().find(2, first.getSequence()).older);
+    ModelSnapshot second = admin.openSnapshot();
+    admin.setSalary(2, 300);
+    admin.setSalary(3, 300);
+    assertEquals(2, keptUsers());
+
+    first.close();
+    // The second snapshot still needs the states before its changes
+    assertEquals(2, keptUsers());
+    assertEquals(199, second.getUser(2).getSalary(), 0.0);
+    assertEquals(60, second.getUser(3).getSalary(), 0.0);
+    second.close();
+    assertEquals(0, keptUsers());
+  }
+
+  @Test
+  public void testConsistentWhileWritersRun() throws InterruptedException {
+    // Writers move money between two employees, so the total never changes
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicInteger failures = new AtomicInteger();
+    Thread writer = new Thread(() -> {
+      HRSession session = model.openSession(0, "Password");
+      try {
+        for (int i = 1; running.get(); i++) {
+          try (Transaction transaction = session.beginTransaction()) {
+            transaction.setSalary(2, 50 + i % 10);
+            transaction.setSalary(3, 60 - i % 10);
+            transaction.commit();
+          }
+        }
+      } catch (RuntimeException e) {
+        failures.incrementAndGet();
+      }
+    });
+    writer.start();
+    try {
+      for (int i = 0; i < 200; i++) {
+        try (ModelSnapshot snapshot = admin.openSnapshot()) {
+          double first = snapshot.getUser(2).getSalary();
+          Thread.yield();
+          double second = snapshot.getUser(3).getSalary();
+          assertEquals(110, first + second, 0.0);
+          assertEquals(first, snapshot.getUser(2).getSalary(), 0.0);
+        }
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+    assertEquals(0, failures.get());
+    assertEquals(0, keptUsers());
+  }
+}
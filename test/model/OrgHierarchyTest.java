@@ -0,0 +1,188 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link OrgHierarchy} to ensure that it keeps track of who is underneath whom
+ * as employees are added, moved and removed.
+ *
+ * @author Michael Ruberto
+ */
+public class OrgHierarchyTest {
+
+  // Builds the hierarchy 1 <- 2 <- 3 and 1 <- 4, with 5 on its own.
+  private OrgHierarchy sample() {
+    OrgHierarchy hierarchy = new OrgHierarchy();
+    for (int id = 1; id <= 5; id++) {
+      hierarchy.add(id);
+    }
+    hierarchy.setManager(2, 1);
+    hierarchy.setManager(3, 2);
+    hierarchy.setManager(4, 1);
+    return hierarchy;
+  }
+
+  @Test
+  public void testEmptyHierarchy() {
+    OrgHierarchy hierarchy = new OrgHierarchy();
+    assertFalse(hierarchy.contains(1));
+    assertFalse(hierarchy.isUnder(1, 2));
+    assertEquals(0, hierarchy.subtree(1).count());
+  }
+
+  @Test
+  public void testIsUnder() {
+    OrgHierarchy hierarchy = sample();
+    assertTrue(hierarchy.isUnder(2, 1));
+    assertTrue(hierarchy.isUnder(3, 1));
+    assertTrue(hierarchy.isUnder(3, 2));
+    assertTrue(hierarchy.isUnder(4, 1));
+    assertFalse(hierarchy.isUnder(1, 1));
+    assertFalse(hierarchy.isUnder(1, 3));
+    assertFalse(hierarchy.isUnder(4, 2));
+    assertFalse(hierarchy.isUnder(5, 1));
+    assertFalse(hierarchy.isUnder(1, 5));
+  }
+
+  @Test
+  public void testSubtree() {
+    OrgHierarchy hierarchy = sample();
+    int[] ids = hierarchy.subtree(1).sorted().toArray();
+    assertArrayEquals(new int[]{2, 3, 4}, ids);
+    assertArrayEquals(new int[]{3}, hierarchy.subtree(2).toArray());
+    assertEquals(0, hierarchy.subtree(5).count());
+  }
+
+  @Test
+  public void testCountUnder() {
+    OrgHierarchy hierarchy = sample();
+    assertEquals(3, hierarchy.countUnder(1, 10));
+    assertEquals(2, hierarchy.countUnder(1, 2));
+    assertEquals(0, hierarchy.countUnder(5, 10));
+    assertEquals(0, hierarchy.countUnder(6, 10));
+  }
+
+  @Test
+  public void testMoveSubtree() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.setManager(2, 5);
+    assertTrue(hierarchy.isUnder(3, 5));
+    assertTrue(hierarchy.isUnder(2, 5));
+    assertFalse(hierarchy.isUnder(3, 1));
+    assertArrayEquals(new int[]{4}, hierarchy.subtree(1).toArray());
+  }
+
+  @Test
+  public void testMoveToTopLevel() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.setManager(2, OrgHierarchy.NO_MANAGER);
+    assertFalse(hierarchy.isUnder(2, 1));
+    assertFalse(hierarchy.isUnder(3, 1));
+    assertTrue(hierarchy.isUnder(3, 2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCycle() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.setManager(1, 3);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReportToSelf() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.setManager(1, 1);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnknownManager() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.setManager(1, 99);
+  }
+
+  @Test
+  public void testRemove() {
+    OrgHierarchy hierarchy = sample();
+    hierarchy.remove(2);
+    assertFalse(hierarchy.contains(2));
+    assertFalse(hierarchy.isUnder(3, 1));
+    assertFalse(hierarchy.isUnder(3, 2));
+    assertArrayEquals(new int[]{4}, hierarchy.subtree(1).toArray());
+  }
+
+  @Test
+  public void testManyReportsToOneManager() {
+    OrgHierarchy hierarchy = new OrgHierarchy();
+    hierarchy.add(1);
+    for (int id = 2; id <= 20000; id++) {
+      hierarchy.add(id);
+      hierarchy.setManager(id, 1);
+    }
+    assertEquals(19999, hierarchy.subtree(1).count());
+    for (int id = 2; id <= 20000; id++) {
+      assertTrue(hierarchy.isUnder(id, 1));
+    }
+  }
+
+  @Test
+  public void testDeepChain() {
+    OrgHierarchy hierarchy = new OrgHierarchy();
+    hierarchy.add(1);
+    for (int id = 2; id <= 5000; id++) {
+      hierarchy.add(id);
+      hierarchy.setManager(id, id - 1);
+    }
+    assertTrue(hierarchy.isUnder(5000, 1));
+    assertTrue(hierarchy.isUnder(2500, 2499));
+    assertFalse(hierarchy.isUnder(2499, 2500));
+    assertEquals(2500, hierarchy.subtree(2500).count());
+  }
+
+  @Test
+  public void testRandomMovesMatchParentLinks() {
+    int size = 300;
+    int[] parents = new int[size + 1];
+    OrgHierarchy hierarchy = new OrgHierarchy();
+    for (int id = 1; id <= size; id++) {
+      hierarchy.add(id);
+    }
+
+    Random random = new Random(42);
+    for (int move = 0; move < 3000; move++) {
+      int id = 1 + random.nextInt(size);
+      int manager = random.nextInt(size + 1);
+      if (manager == id || (manager != 0 && isUnder(parents, manager, id))) {
+        continue;
+      }
+      hierarchy.setManager(id, manager);
+      parents[id] = manager;
+    }
+
+    for (int id = 1; id <= size; id++) {
+      for (int manager = 1; manager <= size; manager++) {
+        assertEquals(isUnder(parents, id, manager), hierarchy.isUnder(id, manager));
+      }
+      int[] expected = new int[0];
+      for (int other = 1; other <= size; other++) {
+        if (isUnder(parents, other, id)) {
+          expected = Arrays.copyOf(expected, expected.length + 1);
+          expected[expected.length - 1] = other;
+        }
+      }
+      assertArrayEquals(expected, hierarchy.subtree(id).sorted().toArray());
+    }
+  }
+
+  // Walks up the parent links to check if id is underneath manager.
+  private static boolean isUnder(int[] parents, int id, int manager) {
+    for (int up = parents[id]; up != 0; up = parents[up]) {
+      if (up == manager) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
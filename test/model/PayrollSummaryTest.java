@@ -0,0 +1,136 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.ColumnTotals;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link PayrollSummary} and for {@link HRModel#summarizePayroll(String,
+ * Boolean)}, to ensure that summaries are correct and only include employees the caller can read,
+ * whichever way the model stores its employees.
+ *
+ * @author Michael Ruberto
+ */
+public class PayrollSummaryTest {
+
+  // Creates a model containing:
+  //   1: Manager, salary 1000, not in HR
+  //   2: Standard Employee reporting to 1, salary 200, in HR
+  //   3: Standard Employee reporting to 1, salary 300, not in HR
+  //   4: Standard Employee, salary 400, in HR
+  //   5: Manager, salary 500, not in HR
+  private HRModel model(StorageMode mode) {
+    HRModel model = new HRModel("Password", mode);
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "Test", 1000, 10, 100, false);
+    model.addEmployee("Standard Employee", "Two", "Test", 200, 2, 20, true);
+    model.addEmployee("Standard Employee", "Three", "Test", 300, 3, 30, false);
+    model.addEmployee("Standard Employee", "Four", "Test", 400, 4, 40, true);
+    model.addEmployee("Manager", "Five", "Test", 500, 5, 50, false);
+    model.linkEmployeeAndManager(2, 1);
+    model.linkEmployeeAndManager(3, 1);
+    return model;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNull() {
+    new PayrollSummary(null);
+  }
+
+  @Test
+  public void testEmptySummary() {
+    PayrollSummary summary = new PayrollSummary(new ColumnTotals());
+    assertEquals(0, summary.getHeadcount());
+    assertTrue(Double.isNaN(summary.getMeanSalary()));
+    assertTrue(Double.isNaN(summary.getMinSalary()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testLoggedOut() {
+    HRModel model = model(StorageMode.OBJECTS);
+    model.logOut();
+    model.summarizePayroll(null, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadEmployeeType() {
+    HRModel model = model(StorageMode.OBJECTS);
+    model.summarizePayroll("Administrator", null);
+  }
+
+  @Test
+  public void testAdministrator() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      PayrollSummary summary = model.summarizePayroll(null, null);
+      assertEquals(5, summary.getHeadcount());
+      assertEquals(2400, summary.getTotalSalary(), 0.01);
+      assertEquals(480, summary.getMeanSalary(), 0.01);
+      assertEquals(200, summary.getMinSalary(), 0.01);
+      assertEquals(1000, summary.getMaxSalary(), 0.01);
+      assertEquals(240, summary.getTotalAnnualBonus(), 0.01);
+      assertEquals(24, summary.getTotalVacationBalance());
+    }
+  }
+
+  @Test
+  public void testFilters() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      assertEquals(1500, model.summarizePayroll("Manager", null).getTotalSalary(), 0.01);
+      assertEquals(900, model.summarizePayroll("Standard Employee", null).getTotalSalary(),
+          0.01);
+      assertEquals(600, model.summarizePayroll(null, true).getTotalSalary(), 0.01);
+      assertEquals(300, model.summarizePayroll("Standard Employee", false).getTotalSalary(),
+          0.01);
+      assertEquals(0, model.summarizePayroll("Manager", true).getHeadcount());
+    }
+  }
+
+  @Test
+  public void testManagerSeesSelfAndReports() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      model.logIn(1, "Test");
+      PayrollSummary summary = model.summarizePayroll(null, null);
+      assertEquals(3, summary.getHeadcount());
+      assertEquals(1500, summary.getTotalSalary(), 0.01);
+      assertEquals(500, model.summarizePayroll("Standard Employee", null).getTotalSalary(), 0.01);
+    }
+  }
+
+  @Test
+  public void testHumanResourcesSeesNonHRAndSelf() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      model.logIn(2, "Test");
+      PayrollSummary summary = model.summarizePayroll(null, null);
+      // Everyone outside HR (1, 3, 5) plus themselves (2), but not 4
+      assertEquals(4, summary.getHeadcount());
+      assertEquals(2000, summary.getTotalSalary(), 0.01);
+      assertEquals(200, model.summarizePayroll(null, true).getTotalSalary(), 0.01);
+    }
+  }
+
+  @Test
+  public void testStandardEmployeeSeesSelf() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      model.logIn(3, "Test");
+      PayrollSummary summary = model.summarizePayroll(null, null);
+      assertEquals(1, summary.getHeadcount());
+      assertEquals(300, summary.getTotalSalary(), 0.01);
+      assertEquals(0, model.summarizePayroll("Manager", null).getHeadcount());
+    }
+  }
+
+  @Test
+  public void testRemovedEmployeesNotCounted() {
+    for (StorageMode mode : StorageMode.values()) {
+      HRModel model = model(mode);
+      model.removeUser(5);
+      assertEquals(4, model.summarizePayroll(null, null).getHeadcount());
+    }
+  }
+}
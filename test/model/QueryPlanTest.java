@@ -0,0 +1,91 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.Role;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link QueryPlan} to ensure that the planner picks the index which makes
+ * the fewest users have to be visited.
+ *
+ * @author Michael Ruberto
+ */
+public class QueryPlanTest {
+
+  private HRModel model;
+
+  // 1000 employees: every tenth a manager of the nine after them, every twentieth in HR, with
+  // salaries spread evenly from 50,000 to 149,900 and bonuses repeating every 50 employees
+  @Before
+  public void setUp() {
+    model = new HRModel("Password");
+    model.logIn(0, "Password");
+    int manager = 0;
+    for (int id = 1; id <= 1000; id++) {
+      model.addEmployee(id % 10 == 1 ? "Manager" : "Standard Employee", "Employee " + id, "Test",
+          50000 + (id - 1) * 100, id % 30, id % 50 * 10, id % 20 == 5);
+      if (id % 10 == 1) {
+        manager = id;
+      } else {
+        model.linkEmployeeAndManager(id, manager);
+      }
+    }
+  }
+
+  @Test
+  public void testPlainQueryScans() {
+    QueryPlan plan = model.planQuery(UserQuery.all());
+    assertEquals(QueryPlan.Access.SCAN, plan.getAccess());
+    assertTrue(plan.isOrdered());
+    assertEquals(1001, plan.getEstimate());
+  }
+
+  @Test
+  public void testNarrowRangeUsesValueIndex() {
+    QueryPlan plan = model.planQuery(UserQuery.all().between(UserAttribute.SALARY, 90000, 91000));
+    assertEquals(QueryPlan.Access.VALUE, plan.getAccess());
+    assertEquals(UserAttribute.SALARY, plan.getAttribute());
+    assertEquals(11, plan.getEstimate());
+  }
+
+  @Test
+  public void testWideRangeScans() {
+    QueryPlan plan = model.planQuery(UserQuery.all().between(UserAttribute.SALARY, 0, 1e9));
+    assertEquals(QueryPlan.Access.SCAN, plan.getAccess());
+  }
+
+  @Test
+  public void testRareRoleUsesBitmap() {
+    QueryPlan plan = model.planQuery(UserQuery.all().withRoles(Role.HUMAN_RESOURCES)
+        .between(UserAttribute.SALARY, 0, 1e9));
+    assertEquals(QueryPlan.Access.SCAN, plan.getAccess());
+    assertEquals(50, plan.getEstimate());
+  }
+
+  @Test
+  public void testNamePrefixUsesNameIndex() {
+    QueryPlan plan = model.planQuery(UserQuery.all().withNamePrefix("employee 99"));
+    assertEquals(QueryPlan.Access.NAME, plan.getAccess());
+    assertFalse(plan.isOrdered());
+    assertEquals(11, plan.getEstimate());
+  }
+
+  @Test
+  public void testSmallTeamUsesManager() {
+    QueryPlan plan = model.planQuery(UserQuery.all().underManager(41)
+        .sortedBy(UserAttribute.ANNUAL_BONUS));
+    assertEquals(QueryPlan.Access.MANAGER, plan.getAccess());
+    assertEquals(9, plan.getEstimate());
+  }
+
+  @Test
+  public void testLimitedSortWalksSortIndex() {
+    QueryPlan plan = model.planQuery(UserQuery.all().sortedBy(UserAttribute.ANNUAL_BONUS)
+        .limit(10));
+    assertEquals(QueryPlan.Access.VALUE, plan.getAccess());
+    assertEquals(UserAttribute.ANNUAL_BONUS, plan.getAttribute());
+    assertTrue(plan.isOrdered());
+  }
+}
@@ -0,0 +1,119 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link SequentialUserIdAllocator} to ensure that it never hands out the same
+ * ID twice, whether IDs are taken one at a time, in blocks, or from many threads at once.
+ *
+ * @author Michael Ruberto
+ */
+public class SequentialUserIdAllocatorTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBadEmployeeId() {
+    new SequentialUserIdAllocator(0, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBadAdministratorId() {
+    new SequentialUserIdAllocator(1, 1, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBadBlockSize() {
+    new SequentialUserIdAllocator(0);
+  }
+
+  @Test
+  public void testSequentialIds() {
+    SequentialUserIdAllocator allocator = new SequentialUserIdAllocator();
+    assertEquals(1, allocator.nextEmployeeId());
+    assertEquals(2, allocator.nextEmployeeId());
+    assertEquals(0, allocator.nextAdministratorId());
+    assertEquals(-1, allocator.nextAdministratorId());
+    assertEquals(3, allocator.getEmployeeHighWaterMark());
+    assertEquals(-2, allocator.getAdministratorHighWaterMark());
+  }
+
+  @Test
+  public void testReserveEmployeeIds() {
+    SequentialUserIdAllocator allocator = new SequentialUserIdAllocator();
+    assertEquals(1, allocator.reserveEmployeeIds(100));
+    assertEquals(101, allocator.nextEmployeeId());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReserveNoEmployeeIds() {
+    new SequentialUserIdAllocator().reserveEmployeeIds(0);
+  }
+
+  @Test
+  public void testRunningOutOfIds() {
+    SequentialUserIdAllocator allocator = new SequentialUserIdAllocator(Integer.MAX_VALUE - 1,
+        Integer.MIN_VALUE + 1, 1);
+    assertEquals(Integer.MAX_VALUE - 1, allocator.nextEmployeeId());
+    assertEquals(Integer.MIN_VALUE + 1, allocator.nextAdministratorId());
+    try {
+      allocator.nextEmployeeId();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(Integer.MAX_VALUE, allocator.getEmployeeHighWaterMark());
+    }
+    try {
+      allocator.nextAdministratorId();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(Integer.MIN_VALUE, allocator.getAdministratorHighWaterMark());
+    }
+  }
+
+  @Test
+  public void testBlocksSetAsideIdsPerThread() {
+    SequentialUserIdAllocator allocator = new SequentialUserIdAllocator(10);
+    assertEquals(1, allocator.nextEmployeeId());
+    assertEquals(11, allocator.getEmployeeHighWaterMark());
+    assertEquals(2, allocator.nextEmployeeId());
+    assertEquals(11, allocator.getEmployeeHighWaterMark());
+  }
+
+  @Test
+  public void testMarkUsed() {
+    SequentialUserIdAllocator allocator = new SequentialUserIdAllocator();
+    allocator.markUsed(5);
+    allocator.markUsed(3);
+    allocator.markUsed(-2);
+    allocator.markUsed(0);
+    assertEquals(6, allocator.nextEmployeeId());
+    assertEquals(-3, allocator.nextAdministratorId());
+  }
+
+  @Test
+  public void testConcurrentIdsAreDistinct() throws InterruptedException {
+    for (int blockSize : new int[]{1, 7}) {
+      SequentialUserIdAllocator allocator = new SequentialUserIdAllocator(blockSize);
+      Set<Integer> ids = ConcurrentHashMap.newKeySet();
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 8; i++) {
+        Thread thread = new Thread(() -> {
+          for (int j = 0; j < 5000; j++) {
+            ids.add(allocator.nextEmployeeId());
+            ids.add(allocator.nextAdministratorId());
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(2 * 8 * 5000, ids.size());
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link Transaction} to ensure that staged changes are made all together or
+ * not at all, and that changes made by others since staging are caught at commit.
+ *
+ * @author Michael Ruberto
+ */
+public class TransactionTest {
+
+  private HRModel model;
+  private HRSession admin;
+
+  @Before
+  public void setUp() {
+    model = new HRModel("Password");
+    admin = model.openSession(0, "Password");
+    admin.addEmployee("Manager", "Boss", "BossPW", 200, 10, 20, false);
+    admin.addEmployee("Manager", "Lead", "LeadPW", 150, 10, 20, false);
+    admin.addEmployee("Standard Employee", "First", "FirstPW", 50, 5, 5, false);
+    admin.addEmployee("Standard Employee", "Second", "SecondPW", 60, 5, 5, false);
+    admin.linkEmployeeAndManager(2, 1);
+    admin.linkEmployeeAndManager(3, 2);
+  }
+
+  @Test
+  public void testCommitMakesEveryChange() {
+    try (Transaction transaction = admin.beginTransaction()) {
+      transaction.setSalary(3, 55);
+      transaction.setVacationBalance(3, 7);
+      transaction.setAnnualBonus(4, 9);
+      transaction.changeHRStatus(4, true);
+      transaction.linkEmployeeAndManager(4, 2);
+      assertEquals(5, transaction.size());
+      // Nothing changes until the commit
+      assertEquals(50, admin.getSalary(3), 0.0);
+      transaction.commit();
+      assertFalse(transaction.isOpen());
+    }
+    assertEquals(55, admin.getSalary(3), 0.0);
+    assertEquals(7, admin.getVacationBalance(3));
+    assertEquals(9, admin.getAnnualBonus(4), 0.0);
+    assertTrue(model.getUsers().get(4).isInHumanResources());
+    assertEquals(2, model.getUsers().get(4).getManagerId());
+    assertTrue(model.getOrgHierarchy().isUnder(4, 1));
+  }
+
+  @Test
+  public void testConcurrentChangeFailsCommit() {
+    Transaction transaction = admin.beginTransaction();
+    transaction.setSalary(3, 55);
+    transaction.setSalary(4, 65);
+    admin.setSalary(4, 70);
+    try {
+      transaction.commit();
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("User 4"));
+    }
+    assertFalse(transaction.isOpen());
+    assertEquals(50, admin.getSalary(3), 0.0);
+    assertEquals(70, admin.getSalary(4), 0.0);
+  }
+
+  @Test
+  public void testPromotionFailsCommit() {
+    Transaction transaction = admin.beginTransaction();
+    transaction.setSalary(3, 55);
+    admin.promoteToManager(3);
+    try {
+      transaction.commit();
+      fail();
+    } catch (IllegalStateException e) {
+      // The promoted employee is no longer the user the change was staged for
+    }
+    assertEquals(50, admin.getSalary(3), 0.0);
+  }
+
+  @Test
+  public void testCycleFailsCommit() {
+    admin.promoteToManager(4);
+    try (Transaction cycle = admin.beginTransaction()) {
+      cycle.setSalary(3, 55);
+      cycle.linkEmployeeAndManager(4, 2);
+      // Lead would end up underneath their own report
+      cycle.linkEmployeeAndManager(2, 4);
+      cycle.commit();
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("underneath"));
+    }
+    assertEquals(50, admin.getSalary(3), 0.0);
+    assertEquals(1, model.getUsers().get(2).getManagerId());
+    assertEquals(OrgHierarchy.NO_MANAGER, model.getUsers().get(4).getManagerId());
+  }
+
+  @Test
+  public void testStagingIsChecked() {
+    HRSession employee = model.openSession(3, "FirstPW");
+    try (Transaction transaction = employee.beginTransaction()) {
+      try {
+        transaction.setSalary(3, 1000);
+        fail();
+      } catch (IllegalStateException e) {
+        // Employees can't set their own salary
+      }
+      try {
+        transaction.linkEmployeeAndManager(3, 1);
+        fail();
+      } catch (IllegalStateException e) {
+        // Only administrators can link
+      }
+      assertEquals(0, transaction.size());
+    }
+    try (Transaction transaction = admin.beginTransaction()) {
+      try {
+        transaction.setSalary(0, 10);
+        fail();
+      } catch (IllegalStateException e) {
+        // Administrators have no salary
+      }
+      try {
+        transaction.setSalary(3, -1);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // Invalid value
+      }
+      try {
+        transaction.linkEmployeeAndManager(1, 3);
+        fail();
+      } catch (IllegalStateException e) {
+        // Not a manager
+      }
+    }
+  }
+
+  @Test
+  public void testClosedTransactionCannotBeUsed() {
+    Transaction transaction = admin.beginTransaction();
+    transaction.setSalary(3, 55);
+    transaction.commit();
+    try {
+      transaction.commit();
+      fail();
+    } catch (IllegalStateException e) {
+      // Already committed
+    }
+    Transaction discarded = admin.beginTransaction();
+    discarded.setSalary(3, 56);
+    discarded.close();
+    discarded.close();
+    try {
+      discarded.setSalary(3, 57);
+      fail();
+    } catch (IllegalStateException e) {
+      // Already closed
+    }
+    assertEquals(55, admin.getSalary(3), 0.0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBeginWhenLoggedOut() {
+    HRSession employee = model.openSession(3, "FirstPW");
+    employee.logOut();
+    employee.beginTransaction();
+  }
+
+  @Test
+  public void testEveryChangeIsPublished() throws InterruptedException {
+    List<ChangeEvent> events = new ArrayList<ChangeEvent>();
+    CountDownLatch published = new CountDownLatch(2);
+    admin.subscribe(event -> {
+      synchronized (events) {
+        events.add(event);
+      }
+      published.countDown();
+    }, BackpressurePolicy.DROP_OLDEST);
+    try (Transaction transaction = admin.beginTransaction()) {
+      transaction.setSalary(3, 55);
+      transaction.linkEmployeeAndManager(4, 2);
+      transaction.commit();
+    }
+    assertTrue(published.await(10, TimeUnit.SECONDS));
+    synchronized (events) {
+      assertEquals(2, events.size());
+      assertEquals(ChangeEvent.Type.SALARY_CHANGED, events.get(0).getType());
+      assertEquals(3, events.get(0).getUserId());
+      assertEquals(ChangeEvent.Type.EMPLOYEE_LINKED, events.get(1).getType());
+      assertEquals(2, events.get(1).getManagerId());
+      assertTrue(events.get(0).getSequence() < events.get(1).getSequence());
+    }
+  }
+
+  @Test
+  public void testTooManyUsers() {
+    for (int i = 0; i < Transaction.MAX_USERS; i++) {
+      admin.addEmployee("Standard Employee", "Emp", "Test", 1, 1, 1, false);
+    }
+    try (Transaction transaction = admin.beginTransaction()) {
+      for (int i = 0; i < Transaction.MAX_USERS; i++) {
+        transaction.setSalary(i + 5, 2);
+      }
+      // Touching the same users again is fine
+      transaction.setAnnualBonus(5, 2);
+      try {
+        transaction.setSalary(3, 2);
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals(Transaction.MAX_USERS + 1, transaction.size());
+      }
+    }
+  }
+
+  @Test
+  public void testDisjointTransactionsRunConcurrently() throws InterruptedException {
+    int threads = 4;
+    int rounds = 500;
+    for (int i = 0; i < threads * 2; i++) {
+      admin.addEmployee("Standard Employee", "Emp", "Test", 0, 0, 0, false);
+    }
+    AtomicInteger failures = new AtomicInteger();
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      int first = 5 + 2 * t;
+      Thread worker = new Thread(() -> {
+        HRSession session = model.openSession(0, "Password");
+        try {
+          for (int i = 1; i <= rounds; i++) {
+            try (Transaction transaction = session.beginTransaction()) {
+              transaction.setSalary(first, i);
+              transaction.setSalary(first + 1, i);
+              transaction.commit();
+            }
+          }
+        } catch (RuntimeException e) {
+          failures.incrementAndGet();
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(0, failures.get());
+    for (int i = 0; i < threads * 2; i++) {
+      assertEquals(rounds, admin.getSalary(5 + i), 0.0);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.Administrator;
+import model.users.IUser;
+import model.users.StandardEmployee;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserDirectory} to ensure that users can be stored, looked up and
+ * removed by ID.
+ *
+ * @author Michael Ruberto
+ */
+public class UserDirectoryTest {
+
+  @Test
+  public void testEmptyDirectory() {
+    UserDirectory directory = new UserDirectory();
+    assertNull(directory.get(0));
+    assertNull(directory.get(-1));
+    assertNull(directory.get(1000000));
+  }
+
+  @Test
+  public void testPutAndGet() {
+    UserDirectory directory = new UserDirectory();
+    Administrator first = new Administrator(0, "First", "Test");
+    Administrator second = new Administrator(-1, "Second", "Test");
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, false);
+    directory.put(first);
+    directory.put(second);
+    directory.put(employee);
+    assertSame(first, directory.get(0));
+    assertSame(second, directory.get(-1));
+    assertSame(employee, directory.get(1));
+    assertNull(directory.get(2));
+  }
+
+  @Test
+  public void testGrowsAcrossPages() {
+    UserDirectory directory = new UserDirectory();
+    IUser[] employees = new IUser[20000];
+    for (int i = 0; i < employees.length; i++) {
+      employees[i] = new StandardEmployee(i + 1, "Emp", "Test", 0, 0, 0, false);
+      directory.put(employees[i]);
+    }
+    for (IUser employee : employees) {
+      assertSame(employee, directory.get(employee.getId()));
+    }
+  }
+
+  @Test
+  public void testReplaceAndRemove() {
+    UserDirectory directory = new UserDirectory();
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, false);
+    directory.put(employee);
+    StandardEmployee replacement = new StandardEmployee(1, "New", "Test", 0, 0, 0, false);
+    directory.put(replacement);
+    assertSame(replacement, directory.get(1));
+
+    directory.remove(1);
+    assertNull(directory.get(1));
+    directory.remove(5000000);
+  }
+
+  @Test
+  public void testIdsAtTheEndsOfTheRange() {
+    UserDirectory directory = new UserDirectory();
+    StandardEmployee first = new StandardEmployee(1 << 30, "Emp", "Test", 0, 0, 0, false);
+    StandardEmployee last = new StandardEmployee(Integer.MAX_VALUE, "Emp", "Test", 0, 0, 0, false);
+    Administrator lowest = new Administrator(Integer.MIN_VALUE, "Admin", "Test");
+    directory.put(first);
+    directory.put(last);
+    directory.put(lowest);
+    assertSame(first, directory.get(1 << 30));
+    assertSame(last, directory.get(Integer.MAX_VALUE));
+    assertSame(lowest, directory.get(Integer.MIN_VALUE));
+    assertNull(directory.get((1 << 30) + 1));
+    assertNull(directory.get(1));
+    // Only the pages written to were created; the last two IDs share the last page
+    assertEquals(2 * 4096, directory.ids().count());
+  }
+
+  @Test
+  public void testIndicesRoundTrip() {
+    for (int id : new int[]{0, 1, -1, 1 << 30, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+      assertEquals(id, UserDirectory.id(UserDirectory.index(id)));
+    }
+  }
+}
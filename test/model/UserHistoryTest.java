@@ -0,0 +1,95 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.StandardEmployee;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserHistory} to ensure that older states are only kept while an open
+ * snapshot may read them, and that each snapshot finds the state it should.
+ *
+ * @author Michael Ruberto
+ */
+public class UserHistoryTest {
+
+  // Sets the employee's salary as a numbered change, keeping their state first.
+  private static void change(UserHistory history, StandardEmployee employee, double salary) {
+    history.keep(employee.getId(), employee, history.nextChange());
+    employee.setSalary(salary, 0);
+  }
+
+  @Test
+  public void testNothingKeptWithoutSnapshots() {
+    UserHistory history = new UserHistory();
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 10, 0, 0, false);
+    change(history, employee, 20);
+    assertEquals(0, history.keptUsers());
+    assertNull(history.find(1, 0));
+  }
+
+  @Test
+  public void testEachSnapshotFindsItsState() {
+    UserHistory history = new UserHistory();
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 10, 0, 0, false);
+    long first = history.open();
+    change(history, employee, 20);
+    change(history, employee, 30);
+    long second = history.open();
+    change(history, employee, 40);
+    long third = history.open();
+
+    assertEquals(10, history.find(1, first).state.getSalary(), 0.0);
+    assertEquals(30, history.find(1, second).state.getSalary(), 0.0);
+    // The newest snapshot reads the employee as they are now
+    assertNull(history.find(1, third));
+
+    // Dropping the middle snapshot leaves what the first one reads
+    history.close(second);
+    assertEquals(10, history.find(1, first).state.getSalary(), 0.0);
+    assertNull(history.find(1, first).older);
+    history.close(third);
+    history.close(first);
+    assertEquals(0, history.keptUsers());
+    assertNull(history.find(1, first));
+  }
+
+  @Test
+  public void testAddedUsers() {
+    UserHistory history = new UserHistory();
+    long snapshot = history.open();
+    history.keep(5, null, history.nextChange());
+    UserHistory.Version added = history.find(5, snapshot);
+    assertNotNull(added);
+    assertNull(added.state);
+    history.close(snapshot);
+    assertNull(history.find(5, snapshot));
+  }
+
+  @Test
+  public void testSnapshotsOpenedTogether() {
+    UserHistory history = new UserHistory();
+    StandardEmployee employee = new StandardEmployee(1, "Emp", "Test", 10, 0, 0, false);
+    long first = history.open();
+    long second = history.open();
+    assertEquals(first, second);
+    change(history, employee, 20);
+    history.close(first);
+    assertEquals(10, history.find(1, second).state.getSalary(), 0.0);
+    history.close(second);
+    assertEquals(0, history.keptUsers());
+  }
+
+  @Test
+  public void testGrowsAcrossPages() {
+    UserHistory history = new UserHistory();
+    long snapshot = history.open();
+    for (int id = 1; id <= 10000; id++) {
+      history.keep(id, null, history.nextChange());
+    }
+    assertEquals(10000, history.keptUsers());
+    assertNotNull(history.find(10000, snapshot));
+    history.close(snapshot);
+    assertEquals(0, history.keptUsers());
+  }
+}
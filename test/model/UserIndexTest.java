@@ -0,0 +1,138 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.Administrator;
+import model.users.IUser;
+import model.users.Manager;
+import model.users.Role;
+import model.users.StandardEmployee;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserIndex} to ensure that users can be found by name, role and value
+ * range, and that the indexes follow changes to the users.
+ *
+ * @author Michael Ruberto
+ */
+public class UserIndexTest {
+
+  @Test
+  public void testNamePrefix() {
+    UserIndex index = new UserIndex();
+    index.add(new StandardEmployee(1, "Anna", "Test", 0, 0, 0, false));
+    index.add(new StandardEmployee(2, "ann", "Test", 0, 0, 0, false));
+    index.add(new StandardEmployee(3, "Annabel", "Test", 0, 0, 0, false));
+    index.add(new StandardEmployee(4, "Anm", "Test", 0, 0, 0, false));
+    index.add(new StandardEmployee(5, "Ann", "Test", 0, 0, 0, false));
+    assertArrayEquals(new int[]{2, 5, 1, 3}, index.withNamePrefix("ANN").toArray());
+    assertArrayEquals(new int[]{1, 3}, index.withNamePrefix("anna").toArray());
+    assertArrayEquals(new int[0], index.withNamePrefix("b").toArray());
+  }
+
+  @Test
+  public void testRolesAcrossPages() {
+    UserIndex index = new UserIndex();
+    for (int i = 1; i <= 10000; i++) {
+      index.add(new StandardEmployee(i, "Emp", "Test", 0, 0, 0, i % 1000 == 0));
+    }
+    index.add(new Administrator(0, "Admin", "Test"));
+    index.add(new Administrator(-5000, "Admin", "Test"));
+    assertArrayEquals(new int[]{1000, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000, 10000},
+        index.withRoles(Role.HUMAN_RESOURCES.mask()).toArray());
+    assertArrayEquals(new int[]{-5000, 0}, index.withRoles(Role.ADMINISTRATOR.mask()).toArray());
+    assertEquals(10000, index.withRoles(Role.EMPLOYEE.mask()).count());
+  }
+
+  @Test
+  public void testRolesWithLargeIds() {
+    UserIndex index = new UserIndex();
+    index.add(new StandardEmployee(1 << 30, "Emp", "Test", 0, 0, 0, true));
+    index.add(new StandardEmployee(Integer.MAX_VALUE, "Emp", "Test", 0, 0, 0, false));
+    index.add(new Administrator(Integer.MIN_VALUE + 1, "Admin", "Test"));
+    index.add(new Administrator(0, "Admin", "Test"));
+    assertArrayEquals(new int[]{1 << 30, Integer.MAX_VALUE},
+        index.withRoles(Role.EMPLOYEE.mask()).toArray());
+    assertArrayEquals(new int[]{Integer.MIN_VALUE + 1, 0},
+        index.withRoles(Role.ADMINISTRATOR.mask()).toArray());
+    assertArrayEquals(new int[]{Integer.MAX_VALUE},
+        index.withRoles(0, Role.HUMAN_RESOURCES.mask(), 1 << 30).toArray());
+    assertArrayEquals(new int[]{0, 1 << 30, Integer.MAX_VALUE},
+        index.withRoles(0, 0, Integer.MIN_VALUE + 1).toArray());
+  }
+
+  @Test
+  public void testValueRanges() {
+    UserIndex index = new UserIndex();
+    index.add(new StandardEmployee(1, "Emp", "Test", 300, 3, 30, false));
+    index.add(new StandardEmployee(2, "Emp", "Test", 100, 1, 10, false));
+    index.add(new StandardEmployee(3, "Emp", "Test", 200, 2, 20, false));
+    index.add(new StandardEmployee(4, "Emp", "Test", 200, 2, 20, false));
+    index.add(new Administrator(-1, "Admin", "Test"));
+    assertArrayEquals(new int[]{3, 4, 1}, index.withSalaryBetween(200, 1000).toArray());
+    assertArrayEquals(new int[]{2, 3, 4}, index.withVacationBalanceBetween(0, 2).toArray());
+    assertArrayEquals(new int[]{3, 4}, index.withAnnualBonusBetween(20, 20).toArray());
+    assertArrayEquals(new int[0], index.withSalaryBetween(201, 299).toArray());
+    assertArrayEquals(new int[0], index.withSalaryBetween(2, 1).toArray());
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    UserIndex index = new UserIndex();
+    IUser employee = new Manager(1, "Emp", "Test", 100, 1, 10, false);
+    index.add(employee);
+    index.update(employee, user -> {
+      user.setSalary(500);
+      user.setInHumanResources(true);
+    });
+    assertArrayEquals(new int[0], index.withSalaryBetween(100, 100).toArray());
+    assertArrayEquals(new int[]{1}, index.withSalaryBetween(500, 500).toArray());
+    assertArrayEquals(new int[]{1}, index.withRoles(Role.maskOf(Role.MANAGER,
+        Role.HUMAN_RESOURCES)).toArray());
+
+    index.remove(employee);
+    assertArrayEquals(new int[0], index.withSalaryBetween(0, 1000).toArray());
+    assertArrayEquals(new int[0], index.withRoles(Role.EMPLOYEE.mask()).toArray());
+    assertArrayEquals(new int[0], index.withNamePrefix("").toArray());
+  }
+
+  @Test
+  public void testRolesExcludedAndAfter() {
+    UserIndex index = new UserIndex();
+    for (int i = 1; i <= 200; i++) {
+      index.add(new StandardEmployee(i, "Emp", "Test", 0, 0, 0, i % 2 == 0));
+    }
+    for (int i = 0; i >= -100; i--) {
+      index.add(new Administrator(i, "Admin", "Test"));
+    }
+    assertArrayEquals(new int[]{-100, -99, -98}, index.withRoles(0, 0, Integer.MIN_VALUE)
+        .limit(3).toArray());
+    assertArrayEquals(new int[]{-2, -1, 0, 1, 2}, index.withRoles(0, 0, -3).limit(5).toArray());
+    assertArrayEquals(new int[]{129, 131, 133}, index.withRoles(0,
+        Role.maskOf(Role.HUMAN_RESOURCES, Role.ADMINISTRATOR), 128).limit(3).toArray());
+    assertEquals(100, index.withRoles(Role.EMPLOYEE.mask(), Role.HUMAN_RESOURCES.mask(),
+        Integer.MIN_VALUE).count());
+    assertEquals(0, index.withRoles(0, 0, 200).count());
+    assertEquals(301, index.size());
+    assertEquals(200, index.estimateWithRoles(Role.EMPLOYEE.mask(), 0));
+    assertEquals(101, index.estimateWithRoles(0, Role.EMPLOYEE.mask()));
+  }
+
+  @Test
+  public void testRangesAfterCursor() {
+    UserIndex index = new UserIndex();
+    StandardEmployee[] employees = new StandardEmployee[5];
+    for (int i = 0; i < employees.length; i++) {
+      employees[i] = new StandardEmployee(i + 1, "Emp " + (5 - i), "Test", 100 * (i / 2), 0, 0,
+          false);
+      index.add(employees[i]);
+    }
+    UserQuery.Cursor bySalary = UserQuery.Cursor.of(UserAttribute.SALARY, employees[2]);
+    assertArrayEquals(new int[]{4, 5}, index.between(UserAttribute.SALARY, 0, 1000, bySalary)
+        .toArray());
+    assertArrayEquals(new int[]{4}, index.between(UserAttribute.SALARY, 0, 100, bySalary)
+        .toArray());
+    UserQuery.Cursor byName = UserQuery.Cursor.of(UserAttribute.NAME, employees[3]);
+    assertArrayEquals(new int[]{3, 2, 1}, index.withNamePrefix("emp", byName).toArray());
+  }
+}
@@ -0,0 +1,110 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import model.users.Administrator;
+import model.users.Manager;
+import model.users.Role;
+import model.users.StandardEmployee;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserQuery} to ensure that queries are built up without changing each
+ * other, that they match the right users, and that cursors survive being encoded.
+ *
+ * @author Michael Ruberto
+ */
+public class UserQueryTest {
+
+  private final OrgHierarchy hierarchy = new OrgHierarchy();
+
+  @Test
+  public void testQueriesAreImmutable() {
+    UserQuery base = UserQuery.all();
+    UserQuery narrowed = base.withRoles(Role.MANAGER).limit(5);
+    assertEquals(Integer.MAX_VALUE, base.getLimit());
+    assertEquals(0, base.getRequiredRoles());
+    assertEquals(5, narrowed.getLimit());
+    assertEquals(Role.MANAGER.mask(), narrowed.getRequiredRoles());
+  }
+
+  @Test
+  public void testMatches() {
+    StandardEmployee employee = new StandardEmployee(1, "Stan Smith", "Test", 100, 5, 10, true);
+    assertTrue(UserQuery.all().matches(employee, hierarchy));
+    assertTrue(UserQuery.all().withNamePrefix("STAN").matches(employee, hierarchy));
+    assertFalse(UserQuery.all().withNamePrefix("Smith").matches(employee, hierarchy));
+    assertFalse(UserQuery.all().withoutRoles(Role.HUMAN_RESOURCES).matches(employee, hierarchy));
+    assertTrue(UserQuery.all().between(UserAttribute.SALARY, 100, 100)
+        .matches(employee, hierarchy));
+    assertFalse(UserQuery.all().between(UserAttribute.VACATION_BALANCE, 6, 10)
+        .matches(employee, hierarchy));
+    assertFalse(UserQuery.all().matching(user -> user.getAnnualBonus() > 10)
+        .matches(employee, hierarchy));
+  }
+
+  @Test
+  public void testManagerConditions() {
+    Manager manager = new Manager(1, "Man", "Test", 0, 0, 0, false);
+    StandardEmployee employee = new StandardEmployee(2, "Stan", "Test", 0, 0, 0, false);
+    employee.setManager(manager);
+    hierarchy.add(1);
+    hierarchy.add(2);
+    hierarchy.setManager(2, 1);
+    assertTrue(UserQuery.all().reportingTo(1).matches(employee, hierarchy));
+    assertTrue(UserQuery.all().underManager(1).matches(employee, hierarchy));
+    assertFalse(UserQuery.all().underManager(2).matches(manager, hierarchy));
+  }
+
+  @Test
+  public void testNumericConditionsLeaveOutAdministrators() {
+    Administrator admin = new Administrator(0, "Admin", "Test");
+    assertTrue(UserQuery.all().matches(admin, hierarchy));
+    assertFalse(UserQuery.all().sortedBy(UserAttribute.SALARY).matches(admin, hierarchy));
+    assertFalse(UserQuery.all().between(UserAttribute.SALARY, 0, 1).matches(admin, hierarchy));
+  }
+
+  @Test
+  public void testCursorRoundTrip() {
+    StandardEmployee employee = new StandardEmployee(7, "Zo\u00eb: Smith", "Test", 123.5, 0, 0,
+        false);
+    for (UserAttribute attribute : UserAttribute.values()) {
+      UserQuery query = UserQuery.all().sortedBy(attribute);
+      UserQuery.Cursor cursor = query.after(query.cursorAfter(employee)).getCursor();
+      assertEquals(0, cursor.compareTo(UserQuery.Cursor.of(attribute, employee)));
+      assertEquals(7, cursor.id);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCursorForOtherOrder() {
+    StandardEmployee employee = new StandardEmployee(7, "Stan", "Test", 0, 0, 0, false);
+    String cursor = UserQuery.all().sortedBy(UserAttribute.NAME).cursorAfter(employee);
+    UserQuery.all().after(cursor);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCursor() {
+    UserQuery.all().after("not a cursor");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRangeOnName() {
+    UserQuery.all().between(UserAttribute.NAME, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBackwardsRange() {
+    UserQuery.all().between(UserAttribute.SALARY, 1, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLimit() {
+    UserQuery.all().limit(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTwoManagers() {
+    UserQuery.all().underManager(1).reportingTo(2);
+  }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserVersions} to ensure that each user's version starts at 0 and only
+ * goes up when that user is changed.
+ *
+ * @author Michael Ruberto
+ */
+public class UserVersionsTest {
+
+  @Test
+  public void testEmptyTable() {
+    UserVersions versions = new UserVersions();
+    assertEquals(0, versions.get(0));
+    assertEquals(0, versions.get(-1));
+    assertEquals(0, versions.get(1000000));
+  }
+
+  @Test
+  public void testIncrement() {
+    UserVersions versions = new UserVersions();
+    versions.increment(1);
+    versions.increment(1);
+    versions.increment(-1);
+    assertEquals(2, versions.get(1));
+    assertEquals(1, versions.get(-1));
+    assertEquals(0, versions.get(0));
+    assertEquals(0, versions.get(2));
+  }
+
+  @Test
+  public void testAdvanceNeverGoesBack() {
+    UserVersions versions = new UserVersions();
+    versions.advance(1, 40);
+    versions.advance(1, 25);
+    versions.advance(-1, 7);
+    assertEquals(40, versions.get(1));
+    assertEquals(7, versions.get(-1));
+    versions.advance(1, 41);
+    assertEquals(41, versions.get(1));
+  }
+
+  @Test
+  public void testGrowsAcrossPages() {
+    UserVersions versions = new UserVersions();
+    for (int id = 1; id <= 20000; id++) {
+      versions.increment(id);
+    }
+    for (int id = 1; id <= 20000; id++) {
+      assertEquals(1, versions.get(id));
+    }
+    assertEquals(0, versions.get(20001));
+  }
+
+  @Test
+  public void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+    UserVersions versions = new UserVersions();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int id = 1; id <= 10000; id++) {
+          versions.increment(id);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int id = 1; id <= 10000; id++) {
+      assertEquals(threads.length, versions.get(id));
+    }
+  }
+}
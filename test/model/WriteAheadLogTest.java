@@ -0,0 +1,381 @@
+package model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.users.Role;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the class {@link WriteAheadLog}, and for rebuilding an {@link HRModel} by replaying
+ * one.
+ *
+ * @author Michael Ruberto
+ */
+public class WriteAheadLogTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = folder.getRoot().toPath().resolve("hr.log");
+  }
+
+  // Simulates a restart: a new model, with a new ID allocator, reads the same log
+  private HRModel reopen(WriteAheadLog log) {
+    return new HRModel("Password", StorageMode.OBJECTS, log);
+  }
+
+  private List<LogRecord> readAll() throws IOException {
+    List<LogRecord> records = new ArrayList<LogRecord>();
+    try (WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000)) {
+      log.replay(records::add);
+    }
+    return records;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenNullFile() throws IOException {
+    WriteAheadLog.open(null, 10, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenBadInterval() throws IOException {
+    WriteAheadLog.open(file, 0, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenBadBatchSize() throws IOException {
+    WriteAheadLog.open(file, 10, 0);
+  }
+
+  @Test
+  public void testRecordsRoundTrip() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000)) {
+      log.append(LogRecord.addEmployee(1, true, "Name", "Hash", 100, 2, 3, true, 5));
+      log.append(LogRecord.setSalary(1, 200, 6));
+      log.append(LogRecord.linkEmployeeAndManager(2, 1));
+    }
+
+    List<LogRecord> records = readAll();
+    assertEquals(3, records.size());
+    LogRecord added = records.get(0);
+    assertEquals(LogRecord.Type.ADD_EMPLOYEE, added.type);
+    assertEquals(1, added.id);
+    assertTrue(added.manager);
+    assertEquals("Name", added.name);
+    assertEquals("Hash", added.password);
+    assertEquals(100, added.salary, 0.0);
+    assertEquals(2, added.vacationBalance);
+    assertEquals(3, added.annualBonus, 0.0);
+    assertTrue(added.inHumanResources);
+    assertEquals(5, added.timestamp);
+    assertEquals(LogRecord.Type.SET_SALARY, records.get(1).type);
+    assertEquals(200, records.get(1).salary, 0.0);
+    assertEquals(6, records.get(1).timestamp);
+    assertEquals(LogRecord.Type.LINK_EMPLOYEE_AND_MANAGER, records.get(2).type);
+    assertEquals(2, records.get(2).id);
+    assertEquals(1, records.get(2).managerId);
+  }
+
+  @Test
+  public void testTransactionsRoundTrip() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000)) {
+      log.append(LogRecord.transaction(LogRecord.setSalary(1, 200, 6),
+          LogRecord.linkEmployeeAndManager(2, 1), LogRecord.changeHRStatus(2, true)));
+    }
+
+    List<LogRecord> records = readAll();
+    assertEquals(1, records.size());
+    LogRecord transaction = records.get(0);
+    assertEquals(LogRecord.Type.TRANSACTION, transaction.type);
+    assertEquals(3, transaction.parts.length);
+    assertEquals(LogRecord.Type.SET_SALARY, transaction.parts[0].type);
+    assertEquals(200, transaction.parts[0].salary, 0.0);
+    assertEquals(6, transaction.parts[0].timestamp);
+    assertEquals(LogRecord.Type.LINK_EMPLOYEE_AND_MANAGER, transaction.parts[1].type);
+    assertEquals(1, transaction.parts[1].managerId);
+    assertEquals(LogRecord.Type.CHANGE_HR_STATUS, transaction.parts[2].type);
+    assertTrue(transaction.parts[2].inHumanResources);
+  }
+
+  @Test
+  public void testReorganizationsRoundTrip() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000)) {
+      log.append(LogRecord.reassignReports(2, 1));
+      log.append(LogRecord.mergeTeams(3, 1));
+      log.append(LogRecord.moveSubtrees(new int[]{4, 5, 6}, 2));
+    }
+
+    List<LogRecord> records = readAll();
+    assertEquals(3, records.size());
+    assertEquals(LogRecord.Type.REASSIGN_REPORTS, records.get(0).type);
+    assertEquals(2, records.get(0).id);
+    assertEquals(1, records.get(0).managerId);
+    assertEquals(LogRecord.Type.MERGE_TEAMS, records.get(1).type);
+    assertEquals(3, records.get(1).id);
+    assertEquals(LogRecord.Type.MOVE_SUBTREES, records.get(2).type);
+    assertEquals(2, records.get(2).managerId);
+    assertArrayEquals(new int[]{4, 5, 6}, records.get(2).ids);
+  }
+
+  @Test
+  public void testReorganizationsAreReplayed() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 1)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Manager", "First", "FirstPW", 100, 1, 10, false);
+      model.addEmployee("Manager", "Second", "SecondPW", 100, 1, 10, false);
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      model.addEmployee("Standard Employee", "Sam", "SamPW", 50, 2, 5, false);
+      model.linkEmployeeAndManager(3, 2);
+      model.reassignReports(2, 1);
+      model.mergeTeams(1, 2);
+      model.moveSubtrees(new int[]{4}, 2);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 1)) {
+      HRModel model = reopen(log);
+      assertEquals(1, model.getUsers().get(2).getManagerId());
+      assertEquals(1, model.getUsers().get(3).getManagerId());
+      assertEquals(2, model.getUsers().get(4).getManagerId());
+    }
+  }
+
+  @Test
+  public void testSyncWritesPendingRecords() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 60000, 1000)) {
+      log.append(LogRecord.removeUser(4));
+      log.sync();
+      assertTrue(Files.size(file) > 0);
+    }
+  }
+
+  @Test
+  public void testTornRecordIsCutOff() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000)) {
+      log.append(LogRecord.promoteToManager(1));
+    }
+    long size = Files.size(file);
+    Files.write(file, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+    List<LogRecord> records = readAll();
+    assertEquals(1, records.size());
+    assertEquals(LogRecord.Type.PROMOTE_TO_MANAGER, records.get(0).type);
+    assertEquals(size, Files.size(file));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAppendAfterClose() throws IOException {
+    WriteAheadLog log = WriteAheadLog.open(file, 1000, 1000);
+    log.close();
+    log.append(LogRecord.removeUser(1));
+  }
+
+  @Test
+  public void testChangesAreRefusedOnceTheLogFails() throws IOException {
+    WriteAheadLog log = WriteAheadLog.open(file, 5, 100);
+    HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+    model.logIn(0, "Password");
+    model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+    model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+    log.close();
+
+    try {
+      model.setSalary(2, 60);
+      fail("The salary was changed without being logged.");
+    } catch (IllegalStateException expected) {
+      // The change was never made
+    }
+    try {
+      model.addEmployee("Standard Employee", "New", "NewPW", 50, 2, 5, false);
+      fail("The employee was added without being logged.");
+    } catch (IllegalStateException expected) {
+      // The employee was never added
+    }
+    try {
+      model.linkEmployeeAndManager(2, 1);
+      fail("The link was made without being logged.");
+    } catch (IllegalStateException expected) {
+      // The link was never made
+    }
+    try (Transaction transaction = model.beginTransaction()) {
+      transaction.setSalary(2, 70);
+      transaction.commit();
+      fail("The transaction was committed without being logged.");
+    } catch (IllegalStateException expected) {
+      // The transaction was never committed
+    }
+
+    assertEquals(50, model.getSalary(2), 0.0);
+    assertEquals(3, model.getUsers().size());
+    assertEquals(Arrays.asList(2, 1), model.findEmployeesBySalary(0, 1000));
+    assertFalse(model.getUsers().get(2).hasManager());
+    assertFalse(model.getOrgHierarchy().isUnder(2, 1));
+  }
+
+  @Test
+  public void testModelIsRebuiltFromLog() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      model.setClock(Clock.fixed(Instant.ofEpochMilli(0), ZoneOffset.UTC));
+      model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, true);
+      model.addEmployee("Standard Employee", "Gone", "GonePW", 50, 2, 5, false);
+      model.addAdministrator("Admin", "AdminPW");
+      model.linkEmployeeAndManager(2, 1);
+      model.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+      model.setSalary(2, 60);
+      model.setClock(Clock.fixed(Instant.ofEpochMilli(2000), ZoneOffset.UTC));
+      model.setSalary(2, 70);
+      model.setVacationBalance(2, 8);
+      model.setAnnualBonus(2, 9);
+      model.changeHRStatus(2, false);
+      model.removeUser(3);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = reopen(log);
+      assertEquals(4, model.getUsers().size());
+      assertNull(model.getUsers().get(3));
+
+      // Passwords were logged hashed, and still work
+      model.logIn(-1, "AdminPW");
+      assertEquals(70, model.getSalary(2), 0.0);
+      assertArrayEquals(new double[]{50, 60}, model.getSalaryHistory(2).toArray(), 0.0);
+      assertEquals(60, model.getSalaryAsOf(2, Instant.ofEpochMilli(1999)), 0.0);
+      assertEquals(70, model.getSalaryAsOf(2, Instant.ofEpochMilli(2000)), 0.0);
+      assertEquals(8, model.getVacationBalance(2));
+      assertEquals(9, model.getAnnualBonus(2), 0.0);
+      assertFalse(model.getUsers().get(2).isInHumanResources());
+      assertEquals(1, model.getUsers().get(2).getManagerId());
+      assertTrue(model.getOrgHierarchy().isUnder(2, 1));
+
+      // New IDs carry on from the highest ones in the log
+      model.addEmployee("Standard Employee", "New", "NewPW", 50, 2, 5, false);
+      model.addAdministrator("New Admin", "NewAdminPW");
+      assertNotNull(model.getUsers().get(4));
+      assertNotNull(model.getUsers().get(-2));
+    }
+  }
+
+  @Test
+  public void testPromotionsAndDemotionsAreReplayed() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 1)) {
+      HRModel model = new HRModel("Password", StorageMode.COLUMNAR, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+      model.promoteToManager(1);
+      model.linkEmployeeAndManager(2, 1);
+      model.demoteToStandard(2);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 1)) {
+      HRModel model = reopen(log);
+      assertEquals("AEmployee, Manager", model.getUsers().get(1).getUserType());
+      assertEquals("AEmployee, StandardEmployee", model.getUsers().get(2).getUserType());
+      // The demoted manager still reports to the manager they were linked to
+      assertEquals(1, model.getUsers().get(2).getManagerId());
+    }
+  }
+
+  @Test
+  public void testReservedIdsAreNotHandedOutAgain() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log,
+          new SequentialUserIdAllocator(10));
+      model.logIn(0, "Password");
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+    }
+
+    // Only the first add set aside a block
+    List<LogRecord> records = readAll();
+    assertEquals(3, records.size());
+    assertEquals(LogRecord.Type.RESERVE_EMPLOYEE_IDS, records.get(1).type);
+    assertEquals(10, records.get(1).id);
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = reopen(log);
+      assertEquals(11, model.getIdAllocator().getEmployeeHighWaterMark());
+    }
+  }
+
+  @Test
+  public void testTransactionsAreReplayed() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      try (Transaction transaction = model.beginTransaction()) {
+        transaction.setSalary(2, 60);
+        transaction.setAnnualBonus(2, 7);
+        transaction.linkEmployeeAndManager(2, 1);
+        transaction.commit();
+      }
+    }
+    assertEquals(3, readAll().size());
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = reopen(log);
+      model.logIn(0, "Password");
+      assertEquals(60, model.getSalary(2), 0.0);
+      assertEquals(7, model.getAnnualBonus(2), 0.0);
+      assertEquals(1, model.getUsers().get(2).getManagerId());
+      assertTrue(model.getOrgHierarchy().isUnder(2, 1));
+    }
+  }
+
+  @Test
+  public void testReplayedChangesAreNotLoggedAgain() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.OBJECTS, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Manager", "Man", "ManPW", 100, 1, 10, false);
+    }
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      reopen(log);
+    }
+    assertEquals(1, readAll().size());
+  }
+
+  @Test
+  public void testIndexesAreRebuilt() throws IOException {
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = new HRModel("Password", StorageMode.COLUMNAR, log);
+      model.logIn(0, "Password");
+      model.addEmployee("Standard Employee", "Stan", "StanPW", 50, 2, 5, false);
+      model.addEmployee("Standard Employee", "Sam", "SamPW", 60, 2, 5, false);
+      model.setSalary(1, 70);
+      model.changeHRStatus(2, true);
+      model.promoteToManager(2);
+    }
+
+    try (WriteAheadLog log = WriteAheadLog.open(file, 5, 100)) {
+      HRModel model = reopen(log);
+      model.logIn(0, "Password");
+      assertEquals(Arrays.asList(2, 1), model.findEmployeesBySalary(60, 70));
+      assertEquals(Arrays.asList(2), model.findUsersWithRoles(Role.MANAGER,
+          Role.HUMAN_RESOURCES));
+      assertEquals(Arrays.asList(2, 1), model.findUsersByName("s"));
+    }
+  }
+}
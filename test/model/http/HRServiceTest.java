@@ -0,0 +1,343 @@
+package model.http;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.HRModel;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link HRService} to ensure that it serves the model over HTTP, and that it
+ * turns away or times out calls it can't serve.
+ *
+ * @author Michael Ruberto
+ */
+public class HRServiceTest {
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1).build();
+  private HRService service;
+
+  @After
+  public void closeService() {
+    if (service != null) {
+      service.close();
+    }
+  }
+
+  // Starts a service for a model holding the administrator (0) and one employee (1).
+  private HRModel start(int workers, int maxWaiting, Duration timeout) throws IOException {
+    return start(workers, maxWaiting, timeout, HRService.DEFAULT_IDLE_TIMEOUT, null);
+  }
+
+  // Starts a service for a model holding the administrator (0) and one employee (1), with the
+  // given idle timeout and executor.
+  private HRModel start(int workers, int maxWaiting, Duration timeout, Duration idleTimeout,
+      Executor executor) throws IOException {
+    HRModel model = new HRModel("Password");
+    model.logIn(0, "Password");
+    model.addEmployee("Standard Employee", "Emp", "Test", 50, 3, 5, false);
+    model.logOut();
+    service = HRService.start(model, new InetSocketAddress("127.0.0.1", 0), workers, maxWaiting,
+        timeout, idleTimeout, executor);
+    return model;
+  }
+
+  // Builds a call to the given operation with the given body and token.
+  private HttpRequest request(String operation, String body, String token) {
+    HttpRequest.Builder request = HttpRequest.newBuilder(
+        URI.create("http://127.0.0.1:" + service.getAddress().getPort() + "/" + operation))
+        .POST(HttpRequest.BodyPublishers.ofString(body));
+    if (token != null) {
+      request.header("Authorization", "Bearer " + token);
+    }
+    return request.build();
+  }
+
+  // Calls the given operation with the given body and token.
+  private HttpResponse<String> call(String operation, String body, String token)
+      throws IOException, InterruptedException {
+    return client.send(request(operation, body, token), HttpResponse.BodyHandlers.ofString());
+  }
+
+  // Reads the JSON object in the body of the given response.
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> body(HttpResponse<String> response) {
+    return (Map<String, Object>) Json.parse(response.body());
+  }
+
+  // Logs in as the given user, and returns the session's token.
+  private String logIn(int id, String password) throws IOException, InterruptedException {
+    HttpResponse<String> response = call("login",
+        "{\"id\": " + id + ", \"password\": \"" + password + "\"}", null);
+    assertEquals(200, response.statusCode());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> login = (Map<String, Object>) body(response).get("result");
+    assertEquals(id, ((Double) login.get("userId")).intValue());
+    return (String) login.get("token");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartNullModel() throws IOException {
+    HRService.start(null, new InetSocketAddress(0), 1, 0, Duration.ofSeconds(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartNoWorkers() throws IOException {
+    HRService.start(new HRModel("Password"), new InetSocketAddress(0), 0, 0,
+        Duration.ofSeconds(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartZeroTimeout() throws IOException {
+    HRService.start(new HRModel("Password"), new InetSocketAddress(0), 1, 0, Duration.ZERO);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartZeroIdleTimeout() throws IOException {
+    HRService.start(new HRModel("Password"), new InetSocketAddress(0), 1, 0,
+        Duration.ofSeconds(1), Duration.ZERO, null);
+  }
+
+  @Test
+  public void testCallsOperations() throws Exception {
+    HRModel model = start(2, 2, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+
+    HttpResponse<String> set = call("setSalary", "{\"id\": 1, \"salary\": 75.5}", token);
+    assertEquals(200, set.statusCode());
+    assertEquals("{\"result\":null}", set.body());
+    assertEquals(75.5, model.getUsers().get(1).getSalary(), 0.0001);
+
+    HttpResponse<String> get = call("getSalary", "{\"id\": 1}", token);
+    assertEquals(200, get.statusCode());
+    assertEquals(75.5, (Double) body(get).get("result"), 0.0001);
+  }
+
+  @Test
+  public void testEmployeeCanOnlyReadThemselves() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    String token = logIn(1, "Test");
+
+    assertEquals(200, call("getVacationBalance", "{\"id\": 1}", token).statusCode());
+    HttpResponse<String> denied = call("getSalary", "{\"id\": 0}", token);
+    assertEquals(409, denied.statusCode());
+    assertNotNull(body(denied).get("error"));
+  }
+
+  @Test
+  public void testWrongPassword() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    HttpResponse<String> response = call("login", "{\"id\": 1, \"password\": \"Nope\"}", null);
+    assertEquals(401, response.statusCode());
+  }
+
+  @Test
+  public void testMissingAndStaleTokens() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    assertEquals(401, call("getSalary", "{\"id\": 1}", null).statusCode());
+    assertEquals(401, call("getSalary", "{\"id\": 1}", "not-a-token").statusCode());
+
+    String token = logIn(0, "Password");
+    assertEquals(200, call("logout", "", token).statusCode());
+    assertEquals(401, call("getSalary", "{\"id\": 1}", token).statusCode());
+  }
+
+  @Test
+  public void testUnknownOperation() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    assertEquals(404, call("fireEveryone", "", logIn(0, "Password")).statusCode());
+  }
+
+  @Test
+  public void testOnlyPost() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    HttpRequest request = HttpRequest.newBuilder(URI.create(
+        "http://127.0.0.1:" + service.getAddress().getPort() + "/getSalary")).GET().build();
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    assertEquals(405, response.statusCode());
+    assertEquals("POST", response.headers().firstValue("Allow").orElse(null));
+  }
+
+  @Test
+  public void testBadParameters() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+    assertEquals(400, call("getSalary", "{\"id\": 1.5}", token).statusCode());
+    assertEquals(400, call("getSalary", "{}", token).statusCode());
+    assertEquals(400, call("getSalary", "[1]", token).statusCode());
+    assertEquals(400, call("getSalary", "{\"id\": ", token).statusCode());
+  }
+
+  @Test
+  public void testTransaction() throws Exception {
+    HRModel model = start(1, 1, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+    HttpResponse<String> response = call("transaction", "{\"steps\": ["
+        + "{\"operation\": \"setSalary\", \"id\": 1, \"salary\": 90},"
+        + "{\"operation\": \"setVacationBalance\", \"id\": 1, \"vacationBalance\": 12}]}", token);
+    assertEquals(200, response.statusCode());
+    assertEquals(90, model.getUsers().get(1).getSalary(), 0.0001);
+    assertEquals(12, model.getUsers().get(1).getVacationBalance());
+
+    HttpResponse<String> rejected = call("transaction", "{\"steps\": ["
+        + "{\"operation\": \"setSalary\", \"id\": 1, \"salary\": 10},"
+        + "{\"operation\": \"removeUser\", \"id\": 1}]}", token);
+    assertEquals(400, rejected.statusCode());
+    assertEquals(90, model.getUsers().get(1).getSalary(), 0.0001);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSnapshotAndFindUsers() throws Exception {
+    start(1, 1, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+
+    Map<String, Object> snapshot = (Map<String, Object>) body(call("snapshot", "", token))
+        .get("result");
+    assertEquals(2, ((List<Object>) snapshot.get("users")).size());
+
+    Map<String, Object> page = (Map<String, Object>) body(call("findUsers",
+        "{\"namePrefix\": \"Em\", \"limit\": 1}", token)).get("result");
+    List<Object> users = (List<Object>) page.get("users");
+    assertEquals(1, users.size());
+    assertEquals("Emp", ((Map<String, Object>) users.get(0)).get("name"));
+    assertNotNull(page.get("next"));
+  }
+
+  @Test
+  public void testTimesOutSlowCalls() throws Exception {
+    HRModel model = start(1, 1, Duration.ofMillis(200));
+    String token = logIn(0, "Password");
+    HttpResponse<String> response;
+    Object employee = model.getUsers().get(1);
+    synchronized (employee) {
+      response = call("setSalary", "{\"id\": 1, \"salary\": 60}", token);
+    }
+    assertEquals(504, response.statusCode());
+    assertTrue(((String) body(response).get("error")).contains("unknown"));
+    assertEquals(1, service.getTimedOut());
+    // The call had started, so it still completes once it can
+    while (service.getCompleted() < 2) {
+      Thread.sleep(5);
+    }
+    assertEquals(60, model.getUsers().get(1).getSalary(), 0.0001);
+  }
+
+  @Test
+  public void testTimedOutWaitingCallsAreNotMade() throws Exception {
+    HRModel model = start(1, 1, Duration.ofMillis(200));
+    String token = logIn(0, "Password");
+    Object employee = model.getUsers().get(1);
+    HttpResponse<String> started;
+    HttpResponse<String> waiting;
+    synchronized (employee) {
+      CompletableFuture<HttpResponse<String>> first = client.sendAsync(
+          request("setSalary", "{\"id\": 1, \"salary\": 60}", token),
+          HttpResponse.BodyHandlers.ofString());
+      // Wait for the first call to hold the only worker before the second arrives
+      while (service.getCompleted() < 1 || service.getInFlight() < 1) {
+        Thread.sleep(5);
+      }
+      waiting = call("setSalary", "{\"id\": 1, \"salary\": 70}", token);
+      started = first.get();
+    }
+    assertEquals(504, started.statusCode());
+    assertEquals(504, waiting.statusCode());
+    assertTrue(((String) body(waiting).get("error")).contains("not made"));
+    assertEquals(2, service.getTimedOut());
+    while (service.getCompleted() < 3) {
+      Thread.sleep(5);
+    }
+    // Only the call which had started took effect
+    assertEquals(60, model.getUsers().get(1).getSalary(), 0.0001);
+  }
+
+  @Test
+  public void testTurnsAwayCallsWhenFull() throws Exception {
+    HRModel model = start(1, 0, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+    Object employee = model.getUsers().get(1);
+    CompletableFuture<HttpResponse<String>> blocked;
+    synchronized (employee) {
+      blocked = client.sendAsync(request("setSalary", "{\"id\": 1, \"salary\": 60}", token),
+          HttpResponse.BodyHandlers.ofString());
+      // Wait for the blocked call to take the only place once the login has given it up; its
+      // worker may be a virtual thread, which can't be found by name
+      while (service.getCompleted() < 1 || service.getInFlight() < 1) {
+        Thread.sleep(5);
+      }
+      HttpResponse<String> response = call("getSalary", "{\"id\": 1}", token);
+      assertEquals(503, response.statusCode());
+      assertTrue(response.headers().firstValue("Retry-After").isPresent());
+    }
+    assertEquals(200, blocked.get().statusCode());
+    assertEquals(1, service.getRejected());
+    assertEquals(60, model.getUsers().get(1).getSalary(), 0.0001);
+  }
+
+  @Test
+  public void testRunsCallsOnGivenExecutor() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    start(1, 1, Duration.ofSeconds(10), HRService.DEFAULT_IDLE_TIMEOUT, task -> {
+      runs.incrementAndGet();
+      new Thread(task).start();
+    });
+    String token = logIn(0, "Password");
+    assertEquals(200, call("getSalary", "{\"id\": 1}", token).statusCode());
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void testLogsOutIdleSessions() throws Exception {
+    HRModel model = start(1, 1, Duration.ofSeconds(10), Duration.ofMillis(200), null);
+    String idle = logIn(0, "Password");
+    String busy = logIn(1, "Test");
+    assertEquals(2, service.getSessionCount());
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (service.getSessionCount() > 1 && System.nanoTime() < deadline) {
+      assertEquals(200, call("getVacationBalance", "{\"id\": 1}", busy).statusCode());
+      Thread.sleep(20);
+    }
+    assertEquals(1, service.getSessionCount());
+    assertTrue(model.getSession(busy).isOpen());
+    assertEquals(401, call("getSalary", "{\"id\": 1}", idle).statusCode());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStreamsChanges() throws Exception {
+    start(2, 1, Duration.ofSeconds(10));
+    String token = logIn(0, "Password");
+    HttpResponse<InputStream> stream = client.send(request("subscribe", "", token),
+        HttpResponse.BodyHandlers.ofInputStream());
+    assertEquals(200, stream.statusCode());
+
+    assertEquals(200, call("setSalary", "{\"id\": 1, \"salary\": 70}", token).statusCode());
+    try (BufferedReader events = new BufferedReader(
+        new InputStreamReader(stream.body(), StandardCharsets.UTF_8))) {
+      String line = events.readLine();
+      assertTrue(line.startsWith("data: "));
+      Map<String, Object> event = (Map<String, Object>) Json.parse(line.substring(6));
+      assertEquals("SALARY_CHANGED", event.get("type"));
+      assertEquals(1, ((Double) event.get("userId")).intValue());
+    }
+  }
+}
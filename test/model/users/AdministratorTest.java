@@ -2,7 +2,6 @@ package model.users;
 
 import static org.junit.Assert.*;
 
-import org.junit.Before;
 import org.junit.Test;
 
 /**
@@ -13,60 +12,69 @@ import org.junit.Test;
  */
 public class AdministratorTest {
 
-  @Before
-  public void resetIDs() {
-    Administrator.setNextID(0);
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorPositiveID() {
+    Administrator admin = new Administrator(1, "Name", "Test");
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullName() {
-    Administrator admin = new Administrator(null, "Test");
+    Administrator admin = new Administrator(0, null, "Test");
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullPW() {
-    Administrator admin = new Administrator("Name", null);
+    Administrator admin = new Administrator(0, "Name", null);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorEmptyPW() {
-    Administrator admin = new Administrator("Name", "");
+    Administrator admin = new Administrator(0, "Name", "");
   }
 
   @Test
   public void testConstructor() {
-    Administrator admin = new Administrator("Name", "Test");
+    Administrator admin = new Administrator(0, "Name", "Test");
     assertNotNull(admin);
   }
 
   @Test
   public void testGetID() {
-    Administrator admin = new Administrator("Name", "Password");
+    Administrator admin = new Administrator(0, "Name", "Password");
     assertEquals(0, admin.getId());
   }
 
   @Test
   public void testGetName() {
-    Administrator admin = new Administrator("Name", "Password");
+    Administrator admin = new Administrator(0, "Name", "Password");
     assertEquals("Name", admin.getName());
   }
 
   @Test
   public void testCorrectPassword() {
-    Administrator admin = new Administrator("Name", "Password");
+    Administrator admin = new Administrator(0, "Name", "Password");
     assertFalse(admin.correctPassword("password"));
     assertTrue(admin.correctPassword("Password"));
   }
 
   @Test
   public void testGetUserType() {
-    Administrator admin = new Administrator("Name", "Password");
+    Administrator admin = new Administrator(0, "Name", "Password");
     assertEquals("Administrator", admin.getUserType());
   }
 
+  @Test
+  public void testGetRoles() {
+    Administrator admin = new Administrator(0, "Name", "Password");
+    assertEquals(Role.ADMINISTRATOR.mask(), admin.getRoles());
+    assertTrue(admin.hasRole(Role.ADMINISTRATOR));
+    assertFalse(admin.hasRole(Role.EMPLOYEE));
+    assertFalse(admin.hasRole(Role.HUMAN_RESOURCES));
+  }
+
   @Test
   public void testInHR() {
-    Administrator admin = new Administrator("Name", "Password");
+    Administrator admin = new Administrator(0, "Name", "Password");
     assertFalse(admin.isInHumanResources());
   }
 }
\ No newline at end of file
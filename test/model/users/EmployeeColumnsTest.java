@@ -0,0 +1,203 @@
+package model.users;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link EmployeeColumns}, and for {@link AEmployee}s attached to one, to
+ * ensure that all of their public methods work properly.
+ *
+ * @author Michael Ruberto
+ */
+public class EmployeeColumnsTest {
+
+  @Test
+  public void testAttachMovesInformation() {
+    EmployeeColumns columns = new EmployeeColumns();
+    Manager man = new Manager(1, "Man", "Test", 100, 5, 10, true);
+    man.attachColumns(columns);
+
+    assertEquals(1, columns.getSlotCount());
+    assertEquals(1, columns.getId(0));
+    assertEquals(EmployeeColumns.MANAGER | EmployeeColumns.IN_HUMAN_RESOURCES,
+        columns.getFlags(0));
+    assertEquals(100, man.getSalary(), 0.01);
+    assertEquals(5, man.getVacationBalance());
+    assertEquals(10, man.getAnnualBonus(), 0.01);
+    assertTrue(man.isInHumanResources());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAttachTwice() {
+    EmployeeColumns columns = new EmployeeColumns();
+    Manager man = new Manager(1, "Man", "Test", 100, 5, 10, true);
+    man.attachColumns(columns);
+    man.attachColumns(columns);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAttachNull() {
+    Manager man = new Manager(1, "Man", "Test", 100, 5, 10, true);
+    man.attachColumns(null);
+  }
+
+  @Test
+  public void testWritesGoToColumns() {
+    EmployeeColumns columns = new EmployeeColumns();
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 100, 5, 10, false);
+    Manager man = new Manager(2, "Man", "Test", 0, 0, 0, false);
+    emp.attachColumns(columns);
+
+    emp.setSalary(200);
+    emp.setVacationBalance(6);
+    emp.setAnnualBonus(20);
+    emp.setInHumanResources(true);
+    emp.setManager(man);
+
+    assertEquals(200, emp.getSalary(), 0.01);
+    assertEquals(100, emp.getSalaryHistory().get(0), 0.01);
+    assertEquals(2, columns.getManagerId(0));
+    ColumnTotals totals = new ColumnTotals();
+    columns.scan(0, 1, 0, 0, totals);
+    assertEquals(200, totals.getSalarySum(), 0.01);
+    assertEquals(6, totals.getVacationBalanceSum());
+    assertEquals(20, totals.getAnnualBonusSum(), 0.01);
+    assertEquals(EmployeeColumns.STANDARD_EMPLOYEE | EmployeeColumns.IN_HUMAN_RESOURCES,
+        columns.getFlags(0));
+  }
+
+  @Test
+  public void testDetach() {
+    EmployeeColumns columns = new EmployeeColumns();
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 100, 5, 10, false);
+    emp.attachColumns(columns);
+    emp.setSalary(300);
+    emp.detachColumns();
+
+    assertEquals(300, emp.getSalary(), 0.01);
+    assertEquals(0, columns.getFlags(0));
+    ColumnTotals totals = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), 0, 0, totals);
+    assertEquals(0, totals.getCount());
+  }
+
+  @Test
+  public void testCopyKeepsSlot() {
+    EmployeeColumns columns = new EmployeeColumns();
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 100, 5, 10, false);
+    emp.attachColumns(columns);
+    Manager man = new Manager(emp);
+    man.setSalary(150);
+
+    assertEquals(1, columns.getSlotCount());
+    assertEquals(EmployeeColumns.MANAGER, columns.getFlags(0));
+    assertEquals(150, man.getSalary(), 0.01);
+    // The original gives the slot up, keeping its information as it was when it was copied
+    assertEquals(100, emp.getSalary(), 0.01);
+    emp.detachColumns();
+    assertEquals(EmployeeColumns.MANAGER, columns.getFlags(0));
+  }
+
+  @Test
+  public void testReleasedSlotsAreReused() {
+    EmployeeColumns columns = new EmployeeColumns();
+    StandardEmployee[] team = new StandardEmployee[10];
+    for (int i = 0; i < team.length; i++) {
+      team[i] = new StandardEmployee(i + 1, "Emp", "Test", 100, 0, 0, false);
+      team[i].attachColumns(columns);
+    }
+
+    // Removing and adding employees over and over leaves the columns no longer than the team
+    for (int round = 0; round < 1000; round++) {
+      int i = round % team.length;
+      team[i].detachColumns();
+      StandardEmployee replacement = new StandardEmployee(100 + round, "New", "Test", 10, 0, 0,
+          false);
+      replacement.attachColumns(columns);
+      team[i] = replacement;
+    }
+    assertEquals(team.length, columns.getSlotCount());
+    ColumnTotals totals = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), 0, 0, totals);
+    assertEquals(team.length, totals.getCount());
+    assertEquals(10 * team.length, totals.getSalarySum(), 0.01);
+  }
+
+  @Test
+  public void testDetachedEmployeeDoesntSeeNextInSlot() {
+    EmployeeColumns columns = new EmployeeColumns();
+    StandardEmployee first = new StandardEmployee(1, "First", "Test", 100, 5, 10, false);
+    first.attachColumns(columns);
+    first.detachColumns();
+    StandardEmployee second = new StandardEmployee(2, "Second", "Test", 200, 6, 20, true);
+    second.attachColumns(columns);
+
+    assertEquals(1, columns.getSlotCount());
+    assertEquals(2, columns.getId(0));
+    assertEquals(100, first.getSalary(), 0.01);
+    assertEquals(5, first.getVacationBalance());
+    assertFalse(first.isInHumanResources());
+    assertEquals(200, second.getSalary(), 0.01);
+  }
+
+  @Test
+  public void testScanFilters() {
+    EmployeeColumns columns = new EmployeeColumns();
+    new StandardEmployee(1, "A", "Test", 100, 1, 10, false).attachColumns(columns);
+    new StandardEmployee(2, "B", "Test", 200, 2, 20, true).attachColumns(columns);
+    new Manager(3, "C", "Test", 300, 3, 30, false).attachColumns(columns);
+    new Manager(4, "D", "Test", 400, 4, 40, true).attachColumns(columns);
+
+    ColumnTotals everyone = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), 0, 0, everyone);
+    assertEquals(4, everyone.getCount());
+    assertEquals(1000, everyone.getSalarySum(), 0.01);
+    assertEquals(100, everyone.getSalaryMin(), 0.01);
+    assertEquals(400, everyone.getSalaryMax(), 0.01);
+    assertEquals(100, everyone.getAnnualBonusSum(), 0.01);
+    assertEquals(10, everyone.getVacationBalanceSum());
+
+    ColumnTotals managers = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(), EmployeeColumns.KIND_MASK, EmployeeColumns.MANAGER,
+        managers);
+    assertEquals(2, managers.getCount());
+    assertEquals(700, managers.getSalarySum(), 0.01);
+
+    ColumnTotals nonHRStandard = new ColumnTotals();
+    columns.scan(0, columns.getSlotCount(),
+        EmployeeColumns.KIND_MASK | EmployeeColumns.IN_HUMAN_RESOURCES,
+        EmployeeColumns.STANDARD_EMPLOYEE, nonHRStandard);
+    assertEquals(1, nonHRStandard.getCount());
+    assertEquals(100, nonHRStandard.getSalarySum(), 0.01);
+  }
+
+  @Test
+  public void testScanAcrossPages() {
+    EmployeeColumns columns = new EmployeeColumns();
+    int count = 40000;
+    for (int i = 0; i < count; i++) {
+      new StandardEmployee(1, "Emp", "Test", 1, 1, 1, false).attachColumns(columns);
+    }
+
+    ColumnTotals all = new ColumnTotals();
+    columns.scan(0, count, 0, 0, all);
+    assertEquals(count, all.getCount());
+    assertEquals(count, all.getSalarySum(), 0.01);
+
+    ColumnTotals firstHalf = new ColumnTotals();
+    ColumnTotals secondHalf = new ColumnTotals();
+    columns.scan(0, 20001, 0, 0, firstHalf);
+    columns.scan(20001, count, 0, 0, secondHalf);
+    firstHalf.add(secondHalf);
+    assertEquals(count, firstHalf.getCount());
+  }
+
+  @Test
+  public void testEmptyTotals() {
+    ColumnTotals totals = new ColumnTotals();
+    assertEquals(0, totals.getCount());
+    assertTrue(Double.isNaN(totals.getSalaryMin()));
+    assertTrue(Double.isNaN(totals.getSalaryMax()));
+  }
+}
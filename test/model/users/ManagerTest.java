@@ -2,9 +2,7 @@ package model.users;
 
 import static org.junit.Assert.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import org.junit.Before;
 import org.junit.Test;
 
 /**
@@ -14,44 +12,44 @@ import org.junit.Test;
  */
 public class ManagerTest {
 
-  @Before
-  public void resetIDs() {
-    AEmployee.setNextID(1);
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNonPositiveID() {
+    Manager man = new Manager(0, "Name", "Test", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullName() {
-    Manager man = new Manager(null, "Test", 0, 0, 0, true);
+    Manager man = new Manager(1, null, "Test", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullPW() {
-    Manager man = new Manager("Name", null, 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", null, 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorEmptyPW() {
-    Manager man = new Manager("Name", "", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegSalary() {
-    Manager man = new Manager("Name", "Password", -1, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", -1, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegVacation() {
-    Manager man = new Manager("Name", "Password", 0, -1, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, -1, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegBonus() {
-    Manager man = new Manager("Name", "Password", 0, 0, -1, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, -1, true);
   }
 
   @Test
   public void testConstructor() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertNotNull(man);
   }
 
@@ -62,7 +60,7 @@ public class ManagerTest {
 
   @Test
   public void testCopyConstructor() {
-    AEmployee emp = new StandardEmployee("Stan", "Test", 0, 0, 0, true);
+    AEmployee emp = new StandardEmployee(1, "Stan", "Test", 0, 0, 0, true);
     Manager man = new Manager(emp);
     assertEquals(emp.getName(), man.getName());
     assertEquals("AEmployee, Manager", man.getUserType());
@@ -70,38 +68,49 @@ public class ManagerTest {
 
   @Test
   public void testGetID() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(1, man.getId());
   }
 
   @Test
   public void testGetName() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals("Name", man.getName());
   }
 
   @Test
   public void testCorrectPassword() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertFalse(man.correctPassword("password"));
     assertTrue(man.correctPassword("Password"));
   }
 
   @Test
   public void testGetUserType() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals("AEmployee, Manager", man.getUserType());
   }
 
+  @Test
+  public void testGetRoles() {
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
+    assertEquals(Role.maskOf(Role.EMPLOYEE, Role.MANAGER, Role.HUMAN_RESOURCES), man.getRoles());
+    man.setInHumanResources(false);
+    assertEquals(Role.maskOf(Role.EMPLOYEE, Role.MANAGER), man.getRoles());
+    assertTrue(man.hasRole(Role.MANAGER));
+    assertFalse(man.hasRole(Role.STANDARD_EMPLOYEE));
+    assertFalse(man.hasRole(Role.ADMINISTRATOR));
+  }
+
   @Test
   public void testGetSalary() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getSalary(), 0.01);
   }
 
   @Test
   public void testSetSalary() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getSalary(), 0.01);
     man.setSalary(100);
     assertEquals(100, man.getSalary(), 0.01);
@@ -110,26 +119,26 @@ public class ManagerTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetSalaryNeg() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getSalary(), 0.01);
     man.setSalary(-100);
   }
 
   @Test
   public void testGetSalaryHistory() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
-    assertEquals(new ArrayList<Double>(), man.getSalaryHistory());
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
+    assertEquals(0, man.getSalaryHistory().size());
   }
 
   @Test
   public void testGetVacationBalance() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getVacationBalance());
   }
 
   @Test
   public void testSetVacationBalance() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getVacationBalance());
     man.setVacationBalance(100);
     assertEquals(100, man.getVacationBalance());
@@ -137,20 +146,20 @@ public class ManagerTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetVacationBalanceNeg() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getVacationBalance());
     man.setVacationBalance(-100);
   }
 
   @Test
   public void testGetAnnualBonus() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getAnnualBonus(), 0.01);
   }
 
   @Test
   public void testSetAnnualBonus() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getAnnualBonus(), 0.01);
     man.setAnnualBonus(100);
     assertEquals(100, man.getAnnualBonus(), 0.01);
@@ -158,22 +167,22 @@ public class ManagerTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetAnnualBonusNeg() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, man.getAnnualBonus(), 0.01);
     man.setAnnualBonus(-100);
   }
 
   @Test
   public void testIsInHR() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
-    Manager man2 = new Manager("Name", "Password", 0, 0, 0, false);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
+    Manager man2 = new Manager(2, "Name", "Password", 0, 0, 0, false);
     assertTrue(man.isInHumanResources());
     assertFalse(man2.isInHumanResources());
   }
 
   @Test
   public void testSetInHR() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertTrue(man.isInHumanResources());
     man.setInHumanResources(false);
     assertFalse(man.isInHumanResources());
@@ -181,23 +190,23 @@ public class ManagerTest {
 
   @Test
   public void testGetManager() {
-    Manager emp = new Manager("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager emp = new Manager(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
     emp.setManager(man);
     assertEquals("Name", emp.getManager().getName());
   }
 
   @Test(expected = IllegalStateException.class)
   public void testGetManagerNoManager() {
-    Manager emp = new Manager("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager emp = new Manager(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
     emp.getManager();
   }
 
   @Test
   public void testSetManager() {
-    Manager emp = new Manager("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager emp = new Manager(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
 
     boolean noManager = false;
     try {
@@ -214,40 +223,40 @@ public class ManagerTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testAddReportingEmployeeNull() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(new HashMap<Integer, AEmployee>(), man.getReportingEmployees());
     man.addReportingEmployee(null);
   }
 
   @Test
   public void testAddReportingEmployee() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(new HashMap<Integer, AEmployee>(), man.getReportingEmployees());
-    man.addReportingEmployee(new StandardEmployee("Emp", "Test", 0, 0, 0, true));
+    man.addReportingEmployee(new StandardEmployee(2, "Emp", "Test", 0, 0, 0, true));
     assertEquals(1, man.getReportingEmployees().size());
   }
 
   @Test
   public void testRemoveReportingEmployee() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(new HashMap<Integer, AEmployee>(), man.getReportingEmployees());
-    man.addReportingEmployee(new StandardEmployee("Emp", "Test", 0, 0, 0, true));
+    man.addReportingEmployee(new StandardEmployee(2, "Emp", "Test", 0, 0, 0, true));
     assertEquals(1, man.getReportingEmployees().size());
     assertNotNull(man.removeReportingEmployee(2));
   }
 
   @Test
   public void testRemoveReportingEmployeeNoSuchEmployee() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(new HashMap<Integer, AEmployee>(), man.getReportingEmployees());
-    man.addReportingEmployee(new StandardEmployee("Emp", "Test", 0, 0, 0, true));
+    man.addReportingEmployee(new StandardEmployee(2, "Emp", "Test", 0, 0, 0, true));
     assertEquals(1, man.getReportingEmployees().size());
     assertNull(man.removeReportingEmployee(22));
   }
 
   @Test
   public void testGetReportingEmployees() {
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    Manager man = new Manager(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(new HashMap<Integer, AEmployee>(), man.getReportingEmployees());
   }
 }
\ No newline at end of file
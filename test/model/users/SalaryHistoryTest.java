@@ -0,0 +1,82 @@
+package model.users;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link SalaryHistory} to ensure that all of its public methods work properly.
+ *
+ * @author Michael Ruberto
+ */
+public class SalaryHistoryTest {
+
+  // Creates a history of the given salaries, followed by a current salary which isn't part of it
+  private static SalaryHistory history(double... amounts) {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    for (int i = 0; i < amounts.length; i++) {
+      timeSeries.add(i, amounts[i]);
+    }
+    timeSeries.add(amounts.length, -1);
+    return new SalaryHistory(timeSeries);
+  }
+
+  @Test
+  public void testEmpty() {
+    SalaryHistory history = history();
+    assertEquals(0, history.size());
+    assertTrue(history.isEmpty());
+    assertEquals(0, history.toArray().length);
+  }
+
+  @Test
+  public void testAddAndGet() {
+    SalaryHistory history = history(100, 200);
+    assertEquals(2, history.size());
+    assertFalse(history.isEmpty());
+    assertEquals(100, history.get(0), 0.01);
+    assertEquals(200, history.get(1), 0.01);
+  }
+
+  @Test
+  public void testGrow() {
+    double[] amounts = new double[1000];
+    for (int i = 0; i < 1000; i++) {
+      amounts[i] = i;
+    }
+    SalaryHistory history = history(amounts);
+    assertEquals(1000, history.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, history.get(i), 0.01);
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOutOfBounds() {
+    SalaryHistory history = history(100);
+    history.get(1);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetNegative() {
+    SalaryHistory history = history();
+    history.get(-1);
+  }
+
+  @Test
+  public void testToArrayIsCopy() {
+    SalaryHistory history = history(100);
+    double[] amounts = history.toArray();
+    amounts[0] = 5;
+    assertEquals(100, history.get(0), 0.01);
+  }
+
+  @Test
+  public void testViewGrowsWithSalary() {
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 10, 0, 0, false);
+    SalaryHistory history = emp.getSalaryHistory();
+    emp.setSalary(20);
+    emp.setSalary(30);
+    assertEquals("[10.0, 20.0]", history.toString());
+  }
+}
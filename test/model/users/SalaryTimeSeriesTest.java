@@ -0,0 +1,158 @@
+package model.users;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link SalaryTimeSeries} to ensure that entries survive compression exactly
+ * and that the time-based queries find the right entries.
+ *
+ * @author Michael Ruberto
+ */
+public class SalaryTimeSeriesTest {
+
+  // Adds 1000 entries: salaries which mostly rise by round amounts, with the odd repeat and odd
+  // fractional amount, a day or so apart with some changes at the same moment
+  private static SalaryTimeSeries sample(long[] timestamps, double[] amounts) {
+    Random random = new Random(7);
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    long timestamp = 1_700_000_000_000L;
+    double amount = 50000;
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamp += random.nextInt(4) == 0 ? 0 : random.nextInt(86_400_000);
+      int kind = random.nextInt(10);
+      if (kind == 0) {
+        amount = random.nextDouble() * 100000;
+      } else if (kind > 2) {
+        amount += 500 * random.nextInt(5);
+      }
+      timestamps[i] = timestamp;
+      amounts[i] = amount;
+      timeSeries.add(timestamp, amount);
+    }
+    return timeSeries;
+  }
+
+  @Test
+  public void testEntriesRoundTrip() {
+    long[] timestamps = new long[1000];
+    double[] amounts = new double[1000];
+    SalaryTimeSeries timeSeries = sample(timestamps, amounts);
+    assertEquals(1000, timeSeries.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(new SalaryChange(timestamps[i], amounts[i]), timeSeries.get(i));
+    }
+    assertArrayEquals(amounts, timeSeries.amounts(1000), 0.0);
+  }
+
+  @Test
+  public void testCompresses() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    for (int i = 0; i < 1000; i++) {
+      timeSeries.add(1_700_000_000_000L + i * 2_592_000_000L, 50000 + 1000 * (i % 10));
+    }
+    assertTrue(timeSeries.sizeInBytes() < 1000 * (Long.BYTES + Double.BYTES) / 2);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOutOfBounds() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    timeSeries.add(0, 100);
+    timeSeries.get(1);
+  }
+
+  @Test
+  public void testEarlierTimestampIsMovedUp() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    timeSeries.add(100, 1);
+    timeSeries.add(50, 2);
+    assertEquals(100, timeSeries.get(1).getTimestamp());
+  }
+
+  @Test
+  public void testAmountAsOf() {
+    long[] timestamps = new long[1000];
+    double[] amounts = new double[1000];
+    SalaryTimeSeries timeSeries = sample(timestamps, amounts);
+    for (int i = 0; i < 1000; i++) {
+      // The last of the entries at this moment is the one in effect
+      int last = i;
+      while (last + 1 < 1000 && timestamps[last + 1] == timestamps[i]) {
+        last++;
+      }
+      assertEquals(amounts[last], timeSeries.amountAsOf(timestamps[i]), 0.0);
+      if (i > 0 && timestamps[i] > timestamps[i - 1] + 1) {
+        assertEquals(amounts[i - 1], timeSeries.amountAsOf(timestamps[i] - 1), 0.0);
+      }
+    }
+    assertEquals(amounts[999], timeSeries.amountAsOf(Long.MAX_VALUE), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAmountAsOfBeforeFirst() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    timeSeries.add(100, 1);
+    timeSeries.amountAsOf(99);
+  }
+
+  @Test
+  public void testChangesBetween() {
+    long[] timestamps = new long[1000];
+    double[] amounts = new double[1000];
+    SalaryTimeSeries timeSeries = sample(timestamps, amounts);
+    Random random = new Random(11);
+    for (int trial = 0; trial < 200; trial++) {
+      long from = timestamps[random.nextInt(1000)] - random.nextInt(2);
+      long to = from + random.nextInt(20 * 86_400_000);
+      List<SalaryChange> changes = timeSeries.changesBetween(from, to);
+      int expected = 0;
+      for (int i = 0; i < 1000; i++) {
+        if (timestamps[i] >= from && timestamps[i] < to) {
+          assertEquals(new SalaryChange(timestamps[i], amounts[i]), changes.get(expected));
+          expected++;
+        }
+      }
+      assertEquals(expected, changes.size());
+    }
+  }
+
+  @Test
+  public void testChangesAtSameMomentAcrossBlocks() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    for (int i = 0; i < 3 * SalaryTimeSeries.BLOCK_SIZE; i++) {
+      timeSeries.add(i < 10 ? i : 10, i);
+    }
+    assertEquals(3 * SalaryTimeSeries.BLOCK_SIZE - 10, timeSeries.changesBetween(10, 11).size());
+    assertEquals(3 * SalaryTimeSeries.BLOCK_SIZE - 1, timeSeries.amountAsOf(10), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testChangesBetweenBackwards() {
+    new SalaryTimeSeries().changesBetween(1, 0);
+  }
+
+  @Test
+  public void testExtremeValues() {
+    double[] amounts = {0, Double.MAX_VALUE, Double.MIN_VALUE, 0, 1e-300, 123456.789, 123456.789};
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    for (int i = 0; i < amounts.length; i++) {
+      timeSeries.add(i == 0 ? Long.MIN_VALUE / 2 : Long.MAX_VALUE / 2 + i, amounts[i]);
+    }
+    assertArrayEquals(amounts, timeSeries.amounts(amounts.length), 0.0);
+    assertEquals(Long.MAX_VALUE / 2 + 6, timeSeries.get(6).getTimestamp());
+  }
+
+  @Test
+  public void testToString() {
+    SalaryTimeSeries timeSeries = new SalaryTimeSeries();
+    timeSeries.add(0, 10);
+    timeSeries.add(1000, 20);
+    assertEquals(Arrays.asList(new SalaryChange(0, 10), new SalaryChange(1000, 20)),
+        timeSeries.toList());
+    assertEquals("[1970-01-01T00:00:00Z=10.0, 1970-01-01T00:00:01Z=20.0]", timeSeries.toString());
+  }
+}
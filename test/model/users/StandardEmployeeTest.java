@@ -2,8 +2,6 @@ package model.users;
 
 import static org.junit.Assert.*;
 
-import java.util.ArrayList;
-import org.junit.Before;
 import org.junit.Test;
 
 /**
@@ -14,44 +12,44 @@ import org.junit.Test;
  */
 public class StandardEmployeeTest {
 
-  @Before
-  public void resetIDs() {
-    AEmployee.setNextID(1);
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNonPositiveID() {
+    StandardEmployee std = new StandardEmployee(-1, "Name", "Test", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullName() {
-    StandardEmployee std = new StandardEmployee(null, "Test", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, null, "Test", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullPW() {
-    StandardEmployee std = new StandardEmployee("Name", null, 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", null, 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorEmptyPW() {
-    StandardEmployee std = new StandardEmployee("Name", "", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "", 0, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegSalary() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", -1, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", -1, 0, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegVacation() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, -1, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, -1, 0, true);
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNegBonus() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, -1, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, -1, true);
   }
 
   @Test
   public void testConstructor() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertNotNull(std);
   }
 
@@ -62,7 +60,7 @@ public class StandardEmployeeTest {
 
   @Test
   public void testCopyConstructor() {
-    AEmployee man = new Manager("Man", "Test", 0, 0, 0, true);
+    AEmployee man = new Manager(1, "Man", "Test", 0, 0, 0, true);
     StandardEmployee emp = new StandardEmployee(man);
     assertEquals(emp.getName(), man.getName());
     assertEquals("AEmployee, StandardEmployee", emp.getUserType());
@@ -70,38 +68,48 @@ public class StandardEmployeeTest {
 
   @Test
   public void testGetID() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(1, std.getId());
   }
 
   @Test
   public void testGetName() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals("Name", std.getName());
   }
 
   @Test
   public void testCorrectPassword() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertFalse(std.correctPassword("password"));
     assertTrue(std.correctPassword("Password"));
   }
 
   @Test
   public void testGetUserType() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals("AEmployee, StandardEmployee", std.getUserType());
   }
 
+  @Test
+  public void testGetRoles() {
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, false);
+    assertEquals(Role.maskOf(Role.EMPLOYEE, Role.STANDARD_EMPLOYEE), std.getRoles());
+    std.setInHumanResources(true);
+    assertTrue(std.hasRole(Role.HUMAN_RESOURCES));
+    assertTrue(std.hasRole(Role.STANDARD_EMPLOYEE));
+    assertFalse(std.hasRole(Role.MANAGER));
+  }
+
   @Test
   public void testGetSalary() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getSalary(), 0.01);
   }
 
   @Test
   public void testSetSalary() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getSalary(), 0.01);
     std.setSalary(100);
     assertEquals(100, std.getSalary(), 0.01);
@@ -110,26 +118,26 @@ public class StandardEmployeeTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetSalaryNeg() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getSalary(), 0.01);
     std.setSalary(-100);
   }
 
   @Test
   public void testGetSalaryHistory() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
-    assertEquals(new ArrayList<Double>(), std.getSalaryHistory());
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
+    assertEquals(0, std.getSalaryHistory().size());
   }
 
   @Test
   public void testGetVacationBalance() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getVacationBalance());
   }
 
   @Test
   public void testSetVacationBalance() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getVacationBalance());
     std.setVacationBalance(100);
     assertEquals(100, std.getVacationBalance());
@@ -137,20 +145,20 @@ public class StandardEmployeeTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetVacationBalanceNeg() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getVacationBalance());
     std.setVacationBalance(-100);
   }
 
   @Test
   public void testGetAnnualBonus() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getAnnualBonus(), 0.01);
   }
 
   @Test
   public void testSetAnnualBonus() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getAnnualBonus(), 0.01);
     std.setAnnualBonus(100);
     assertEquals(100, std.getAnnualBonus(), 0.01);
@@ -158,22 +166,22 @@ public class StandardEmployeeTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testSetAnnualBonusNeg() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertEquals(0, std.getAnnualBonus(), 0.01);
     std.setAnnualBonus(-100);
   }
 
   @Test
   public void testIsInHR() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
-    StandardEmployee std2 = new StandardEmployee("Name", "Password", 0, 0, 0, false);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
+    StandardEmployee std2 = new StandardEmployee(2, "Name", "Password", 0, 0, 0, false);
     assertTrue(std.isInHumanResources());
     assertFalse(std2.isInHumanResources());
   }
 
   @Test
   public void testSetInHR() {
-    StandardEmployee std = new StandardEmployee("Name", "Password", 0, 0, 0, true);
+    StandardEmployee std = new StandardEmployee(1, "Name", "Password", 0, 0, 0, true);
     assertTrue(std.isInHumanResources());
     std.setInHumanResources(false);
     assertFalse(std.isInHumanResources());
@@ -181,23 +189,23 @@ public class StandardEmployeeTest {
 
   @Test
   public void testGetManager() {
-    StandardEmployee emp = new StandardEmployee("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
     emp.setManager(man);
     assertEquals("Name", emp.getManager().getName());
   }
 
   @Test(expected = IllegalStateException.class)
   public void testGetManagerNoManager() {
-    StandardEmployee emp = new StandardEmployee("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
     emp.getManager();
   }
 
   @Test
   public void testSetManager() {
-    StandardEmployee emp = new StandardEmployee("Emp", "Test", 0, 0, 0, true);
-    Manager man = new Manager("Name", "Password", 0, 0, 0, true);
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Test", 0, 0, 0, true);
+    Manager man = new Manager(2, "Name", "Password", 0, 0, 0, true);
 
     boolean noManager = false;
     try {
@@ -211,4 +219,27 @@ public class StandardEmployeeTest {
 
     assertEquals("Name", emp.getManager().getName());
   }
+
+  @Test
+  public void testHasManager() {
+    StandardEmployee emp = new StandardEmployee(1, "Emp", "Password", 0, 0, 0, false);
+    Manager man = new Manager(2, "Man", "Password", 0, 0, 0, false);
+    assertFalse(emp.hasManager());
+    assertEquals(EmployeeColumns.NO_MANAGER, emp.getManagerId());
+
+    emp.setManager(man);
+    assertTrue(emp.hasManager());
+    assertEquals(man.getId(), emp.getManagerId());
+
+    emp.setManager(null);
+    assertFalse(emp.hasManager());
+    assertEquals(EmployeeColumns.NO_MANAGER, emp.getManagerId());
+  }
+
+  @Test
+  public void testAdministratorHasNoManager() {
+    Administrator admin = new Administrator(0, "Admin", "Password");
+    assertFalse(admin.hasManager());
+    assertEquals(EmployeeColumns.NO_MANAGER, admin.getManagerId());
+  }
 }
\ No newline at end of file
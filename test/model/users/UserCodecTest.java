@@ -0,0 +1,77 @@
+package model.users;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link UserCodec} to ensure that users survive being written and read back.
+ *
+ * @author Michael Ruberto
+ */
+public class UserCodecTest {
+
+  private static IUser roundTrip(IUser user) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UserCodec.encode(user, new DataOutputStream(bytes));
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    IUser read = UserCodec.decode(buffer);
+    assertFalse(buffer.hasRemaining());
+    return read;
+  }
+
+  @Test
+  public void testAdministrator() throws IOException {
+    Administrator admin = new Administrator(-4, "Admin", "Password");
+    IUser read = roundTrip(admin);
+    assertEquals("Administrator", read.getUserType());
+    assertEquals(-4, read.getId());
+    assertEquals("Admin", read.getName());
+    assertTrue(read.correctPassword("Password"));
+  }
+
+  @Test
+  public void testManager() throws IOException {
+    Manager man = new Manager(7, "Man", "Password", 100, 2, 3, true);
+    IUser read = roundTrip(man);
+    assertEquals("AEmployee, Manager", read.getUserType());
+    assertEquals(7, read.getId());
+    assertEquals(100, read.getSalary(), 0.01);
+    assertEquals(2, read.getVacationBalance());
+    assertEquals(3, read.getAnnualBonus(), 0.01);
+    assertTrue(read.isInHumanResources());
+    assertTrue(read.getSalaryHistory().isEmpty());
+    assertFalse(read.hasManager());
+  }
+
+  @Test
+  public void testSalaryHistory() throws IOException {
+    StandardEmployee emp = new StandardEmployee(1, "Stan", "Password", 100, 0, 0, false);
+    emp.setSalary(200);
+    emp.setSalary(300);
+    emp.setSalary(400);
+    IUser read = roundTrip(emp);
+    assertEquals("AEmployee, StandardEmployee", read.getUserType());
+    assertEquals(400, read.getSalary(), 0.01);
+    assertArrayEquals(new double[]{100, 200, 300}, read.getSalaryHistory().toArray(), 0.01);
+  }
+
+  @Test
+  public void testSalaryTimestamps() throws IOException {
+    StandardEmployee emp = new StandardEmployee(1, "Stan", "Password", 100, 0, 0, false, 1000);
+    emp.setSalary(200, 5000);
+    IUser read = roundTrip(emp);
+    assertEquals(emp.getSalaryTimeSeries().toList(), read.getSalaryTimeSeries().toList());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownType() {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.put((byte) 9).putInt(1).putInt(0).putInt(0).flip();
+    UserCodec.decode(buffer);
+  }
+}